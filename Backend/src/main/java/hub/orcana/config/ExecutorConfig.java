@@ -0,0 +1,39 @@
+package hub.orcana.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    // consultas independentes do dashboard executadas em paralelo, uma virtual thread por consulta
+    @Bean(destroyMethod = "close")
+    public ExecutorService dashboardExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // etapas do cadastro de orçamento (imagens e e-mails) que rodam depois da resposta 202;
+    // a concorrência é limitada no ProcessamentoOrcamentoService
+    @Bean(destroyMethod = "close")
+    public ExecutorService orcamentoExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // miniaturas das imagens de referência: decodificar e redimensionar usa CPU e memória, então
+    // poucas threads de plataforma e fila limitada; o que não couber é recusado e gerado depois,
+    // no primeiro pedido de ?size= que não encontrar a variante
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor variantesExecutor(@Value("${imagem.variantes.threads:2}") int threads,
+                                                @Value("${imagem.variantes.fila:200}") int fila) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(fila),
+                Thread.ofPlatform().name("variantes-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
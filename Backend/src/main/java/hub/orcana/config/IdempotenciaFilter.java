@@ -0,0 +1,329 @@
+package hub.orcana.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hub.orcana.service.IdempotenciaService;
+import hub.orcana.tables.ChaveIdempotencia;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Idempotency-Key nas criações que os clientes móveis repetem: uma nova tentativa com a mesma
+// chave recebe a resposta guardada, sem gravar arquivos, gerar código ou mandar e-mail de novo.
+// Roda depois do Spring Security, então o escopo já inclui o usuário autenticado.
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotenciaFilter.class);
+
+    public static final String CABECALHO = "Idempotency-Key";
+    public static final String CABECALHO_REPETIDA = "Idempotent-Replayed";
+
+    private static final Set<String> ROTAS = Set.of(
+            "POST /agendamento",
+            "POST /orcamento/cadastro"
+    );
+
+    // cabeçalhos que fazem parte do resultado (para onde consultar, qual versão foi criada) e
+    // voltam na repetição; os demais são do transporte e a nova resposta gera os seus
+    private static final List<String> CABECALHOS_GUARDADOS = List.of(
+            HttpHeaders.LOCATION,
+            HttpHeaders.CONTENT_LOCATION,
+            HttpHeaders.ETAG
+    );
+
+    // mesmas respostas do GlobalHandlerException, que não alcança falhas lançadas em filtros
+    static final String MENSAGEM_ARQUIVO_GRANDE = "O arquivo enviado excede o tamanho máximo permitido.";
+    static final String MENSAGEM_MULTIPART_INVALIDO = "Erro no processamento do arquivo enviado.";
+
+    private static final TypeReference<LinkedHashMap<String, String>> CABECALHOS_JSON = new TypeReference<>() {
+    };
+
+    private final IdempotenciaService idempotenciaService;
+    private final ObjectMapper objectMapper;
+
+    public IdempotenciaFilter(IdempotenciaService idempotenciaService, ObjectMapper objectMapper) {
+        this.idempotenciaService = idempotenciaService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(CABECALHO) == null || !ROTAS.contains(rota(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String chave = request.getHeader(CABECALHO).trim();
+        try {
+            IdempotenciaService.validarChave(chave);
+        } catch (IllegalArgumentException e) {
+            escreverErro(request, response, HttpStatus.BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        HttpServletRequest requisicao = request;
+        String impressao;
+        if (isMultipart(request)) {
+            // getParts() interpreta o corpo aqui, antes do DispatcherServlet
+            try {
+                impressao = impressaoMultipart(request);
+            } catch (IllegalStateException | IOException | ServletException e) {
+                LOGGER.warn("Multipart recusado na Idempotency-Key {}: {}", chave, e.getMessage());
+                if (excedeuTamanho(e)) {
+                    escreverErro(request, response, HttpStatus.PAYLOAD_TOO_LARGE, MENSAGEM_ARQUIVO_GRANDE);
+                } else {
+                    escreverErro(request, response, HttpStatus.BAD_REQUEST, MENSAGEM_MULTIPART_INVALIDO);
+                }
+                return;
+            }
+        } else {
+            CorpoEmCache comCorpo = new CorpoEmCache(request);
+            requisicao = comCorpo;
+            impressao = hash(rota(request).getBytes(StandardCharsets.UTF_8), comCorpo.corpo);
+        }
+        String escopo = rota(request) + "|" + usuarioAtual();
+
+        IdempotenciaService.Reserva reserva = idempotenciaService.reservar(escopo, chave, impressao);
+        switch (reserva.situacao()) {
+            case CONFLITANTE -> escreverErro(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key já usada com outro conteúdo de requisição.");
+            case EM_ANDAMENTO -> {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                escreverErro(request, response, HttpStatus.CONFLICT,
+                        "Uma requisição com esta Idempotency-Key ainda está em processamento.");
+            }
+            case REPETIDA -> repetir(reserva.registro(), response);
+            case NOVA -> executar(requisicao, response, filterChain, escopo, chave);
+        }
+    }
+
+    private void executar(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                          String escopo, String chave) throws ServletException, IOException {
+        ContentCachingResponseWrapper resposta = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, resposta);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotenciaService.liberar(escopo, chave);
+            throw e;
+        }
+
+        try {
+            // só sucesso é guardado; um erro libera a chave para o cliente tentar de novo
+            if (HttpStatus.valueOf(resposta.getStatus()).is2xxSuccessful()) {
+                idempotenciaService.concluir(escopo, chave, resposta.getStatus(), resposta.getContentType(),
+                        new String(resposta.getContentAsByteArray(), StandardCharsets.UTF_8), cabecalhos(resposta));
+            } else {
+                idempotenciaService.liberar(escopo, chave);
+            }
+        } catch (RuntimeException e) {
+            // a resposta já foi produzida; a reserva vence sozinha pelo prazo de andamento
+            LOGGER.error("Falha ao gravar Idempotency-Key {} de {}: {}", chave, escopo, e.getMessage());
+        }
+        resposta.copyBodyToResponse();
+    }
+
+    private void repetir(ChaveIdempotencia registro, HttpServletResponse response) throws IOException {
+        LOGGER.info("Repetindo resposta guardada para Idempotency-Key {}", registro.getChave());
+        response.setStatus(registro.getStatusHttp());
+        response.setHeader(CABECALHO_REPETIDA, "true");
+        if (registro.getContentType() != null) {
+            response.setContentType(registro.getContentType());
+        }
+        if (registro.getCabecalhos() != null) {
+            Map<String, String> cabecalhos = objectMapper.readValue(registro.getCabecalhos(), CABECALHOS_JSON);
+            cabecalhos.forEach(response::setHeader);
+        }
+        if (registro.getCorpo() != null) {
+            byte[] corpo = registro.getCorpo().getBytes(StandardCharsets.UTF_8);
+            response.setContentLength(corpo.length);
+            response.getOutputStream().write(corpo);
+        }
+    }
+
+    private String cabecalhos(HttpServletResponse resposta) throws IOException {
+        Map<String, String> cabecalhos = new LinkedHashMap<>();
+        for (String nome : CABECALHOS_GUARDADOS) {
+            String valor = resposta.getHeader(nome);
+            if (valor != null) {
+                cabecalhos.put(nome, valor);
+            }
+        }
+        return cabecalhos.isEmpty() ? null : objectMapper.writeValueAsString(cabecalhos);
+    }
+
+    private void escreverErro(HttpServletRequest request, HttpServletResponse response,
+                              HttpStatus status, String mensagem) throws IOException {
+        Map<String, Object> corpo = new LinkedHashMap<>();
+        corpo.put("timestamp", OffsetDateTime.now().toString());
+        corpo.put("status", status.value());
+        corpo.put("error", status.getReasonPhrase());
+        corpo.put("message", mensagem);
+        corpo.put("path", request.getRequestURI());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), corpo);
+    }
+
+    // campos e arquivos em ordem de nome, com o conteúdo dos arquivos lido em blocos
+    private String impressaoMultipart(HttpServletRequest request) throws IOException, ServletException {
+        MessageDigest digest = novoDigest();
+        atualizar(digest, rota(request));
+        List<Part> partes = new ArrayList<>(request.getParts());
+        partes.sort(Comparator.comparing(Part::getName)
+                .thenComparing(p -> Objects.toString(p.getSubmittedFileName(), "")));
+        byte[] bloco = new byte[8192];
+        for (Part parte : partes) {
+            atualizar(digest, parte.getName());
+            atualizar(digest, Objects.toString(parte.getSubmittedFileName(), ""));
+            try (InputStream entrada = parte.getInputStream()) {
+                int lidos;
+                while ((lidos = entrada.read(bloco)) != -1) {
+                    digest.update(bloco, 0, lidos);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void atualizar(MessageDigest digest, String texto) {
+        digest.update(texto.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String hash(byte[]... partes) {
+        MessageDigest digest = novoDigest();
+        for (byte[] parte : partes) {
+            digest.update(parte);
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest novoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // Tomcat sinaliza o limite de tamanho com IllegalStateException (ou IOException) envolvendo
+    // FileSizeLimitExceededException / SizeLimitExceededException; mesmo critério do
+    // StandardMultipartHttpServletRequest para decidir entre 413 e 400
+    private static boolean excedeuTamanho(Throwable erro) {
+        for (Throwable atual = erro; atual != null; atual = atual.getCause()) {
+            String mensagem = atual.getMessage() != null ? atual.getMessage().toLowerCase() : "";
+            if (atual.getClass().getSimpleName().contains("SizeLimitExceeded")
+                    || (mensagem.contains("exceed") && (mensagem.contains("size") || mensagem.contains("length")))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+
+    private static String rota(HttpServletRequest request) {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        if (caminho.length() > 1 && caminho.endsWith("/")) {
+            caminho = caminho.substring(0, caminho.length() - 1);
+        }
+        return request.getMethod() + " " + caminho;
+    }
+
+    private static String usuarioAtual() {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacao == null || autenticacao instanceof AnonymousAuthenticationToken) {
+            return "anonimo";
+        }
+        return autenticacao.getName();
+    }
+
+    // corpo lido uma vez para a impressão e servido de novo ao controller
+    private static final class CorpoEmCache extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        private CorpoEmCache(HttpServletRequest request) throws IOException {
+            super(request);
+            this.corpo = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(charset)));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package hub.orcana.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import hub.orcana.service.AuditoriaService;
 import hub.orcana.service.AutenticacaoService;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -57,7 +58,10 @@ public class SecurityConfiguracao {
             "/usuario/cadastro",
             "/usuario/login",
             "/orcamento/cadastro",
+            "/orcamento/*/processamento",
+            "/orcamento/uploads/**",
             "/agendamento/datas-ocupadas",
+            "/agendamento/disponibilidade",
             "/agendamento/validar-codigo/**",
             "/uploads/**"
     };
@@ -74,6 +78,10 @@ public class SecurityConfiguracao {
                 .cors(Customizer.withDefaults())
                 .csrf(CsrfConfigurer<HttpSecurity>::disable)
                 .authorizeHttpRequests(authorizeRequests -> authorizeRequests
+                        // o despacho ASYNC só conclui respostas em fluxo (exportação, SSE) que já
+                        // foram autorizadas no REQUEST; sem sessão, o contexto não é recarregado nele
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC)
+                        .permitAll()
                         .requestMatchers(URLS_PERMITIDAS)
                         .permitAll()
                         .anyRequest()
@@ -171,7 +179,8 @@ public class SecurityConfiguracao {
 
         configuracao.setAllowedHeaders(Arrays.asList("*"));
         configuracao.setAllowCredentials(true);
-        configuracao.setExposedHeaders(Arrays.asList(HttpHeaders.CONTENT_DISPOSITION, HttpHeaders.AUTHORIZATION));
+        configuracao.setExposedHeaders(Arrays.asList(HttpHeaders.CONTENT_DISPOSITION, HttpHeaders.AUTHORIZATION,
+                HttpHeaders.ETAG, HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER, IdempotenciaFilter.CABECALHO_REPETIDA));
 
         UrlBasedCorsConfigurationSource origem = new UrlBasedCorsConfigurationSource();
         origem.registerCorsConfiguration("/**", configuracao);
@@ -0,0 +1,32 @@
+package hub.orcana.config;
+
+import hub.orcana.dto.uploads.UsoDeArmazenamentoOutput;
+import hub.orcana.service.ColetorDeArquivosService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// GET /actuator/uploads: espaço ocupado pelas imagens e resultado da coleta de órfãos.
+// Percorre a pasta inteira a cada chamada; é consulta de operação, não de tela.
+@Component
+@Endpoint(id = "uploads")
+public class UploadsEndpoint {
+
+    private final ColetorDeArquivosService coletorService;
+
+    public UploadsEndpoint(ColetorDeArquivosService coletorService) {
+        this.coletorService = coletorService;
+    }
+
+    @ReadOperation
+    public UsoDeArmazenamentoOutput uso() {
+        try {
+            return coletorService.relatorio();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível ler a pasta de uploads", e);
+        }
+    }
+}
@@ -3,6 +3,10 @@ package hub.orcana.controller;
 import hub.orcana.dto.agendamento.AdicionarMateriaisRequest;
 import hub.orcana.dto.agendamento.DetalhesAgendamentoOutput;
 import hub.orcana.dto.agendamento.CadastroAgendamentoInput;
+import hub.orcana.dto.agendamento.HorarioLivreOutput;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.exception.HorarioIndisponivelException;
+import hub.orcana.exception.VersaoDesatualizadaException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -11,14 +15,28 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import hub.orcana.service.AgendamentoService;
+import hub.orcana.service.CalendarioOcupacaoService;
+import hub.orcana.service.ExportacaoService;
 import hub.orcana.tables.Agendamento;
 import jakarta.validation.Valid;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -28,20 +46,25 @@ import java.util.List;
 public class AgendamentoController {
 
     private final AgendamentoService service;
+    private final CalendarioOcupacaoService calendarioService;
+    private final ExportacaoService exportacaoService;
 
-    public AgendamentoController(AgendamentoService service) {
+    public AgendamentoController(AgendamentoService service, CalendarioOcupacaoService calendarioService,
+                                 ExportacaoService exportacaoService) {
         this.service = service;
+        this.calendarioService = calendarioService;
+        this.exportacaoService = exportacaoService;
     }
 
     // ------------------ CRUD BÁSICO ------------------
 
     @GetMapping
     @Operation(summary = "Listar todos os agendamentos",
-            description = "Retorna uma lista com todos os agendamentos cadastrados no sistema")
+            description = "Retorna uma página de agendamentos ordenada por data/hora. " +
+                    "Para a próxima página, envie o proximoCursor recebido no parâmetro cursor")
     @SecurityRequirement(name = "Bearer")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Lista de agendamentos retornada com sucesso",
-                    content = @Content(schema = @Schema(implementation = Agendamento.class))),
+            @ApiResponse(responseCode = "200", description = "Página de agendamentos retornada com sucesso"),
             @ApiResponse(responseCode = "204", description = "Nenhum agendamento encontrado"),
             @ApiResponse(responseCode = "400", description = "Erro interno do servidor ou parâmetros inválidos",
                     content = @Content(schema = @Schema(implementation = String.class))),
@@ -49,15 +72,17 @@ public class AgendamentoController {
             @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<List<DetalhesAgendamentoOutput>> getAgendamento() {
+    public ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> getAgendamento(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${paginacao.tamanho-padrao:20}") int tamanho) {
         log.info("Iniciando busca por todos os agendamentos");
         try {
-            List<DetalhesAgendamentoOutput> agenda = service.getAgendamentos();
-            if (agenda.isEmpty()) {
+            PaginaCursorOutput<DetalhesAgendamentoOutput> agenda = service.getAgendamentos(cursor, tamanho);
+            if (agenda.itens().isEmpty()) {
                 log.info("Nenhum agendamento encontrado");
                 return ResponseEntity.status(204).body(null);
             } else {
-                log.info("Retornando {} agendamentos encontrados", agenda.size());
+                log.info("Retornando {} agendamentos encontrados", agenda.itens().size());
                 return ResponseEntity.status(200).body(agenda);
             }
         } catch (Exception e) {
@@ -66,6 +91,36 @@ public class AgendamentoController {
         }
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "Exportar agendamentos",
+            description = "Gera todos os agendamentos em CSV ou NDJSON. As linhas são escritas conforme " +
+                    "são lidas do banco, sem montar a lista inteira em memória")
+    @SecurityRequirement(name = "Bearer")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Arquivo de exportação gerado"),
+            @ApiResponse(responseCode = "400", description = "Formato inválido (use csv ou ndjson)"),
+            @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado"),
+            @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarAgendamentos(
+            @RequestParam(defaultValue = "csv") String formato) {
+        ExportacaoService.Formato escolhido;
+        try {
+            escolhido = ExportacaoService.Formato.de(formato);
+        } catch (IllegalArgumentException e) {
+            log.warn("Formato de exportação inválido: {}", formato);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        log.info("Iniciando exportação de agendamentos em {}", escolhido);
+        StreamingResponseBody corpo = saida -> exportacaoService.exportarAgendamentos(escolhido, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(escolhido.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(escolhido.nomeArquivo("agendamentos")).build().toString())
+                .cacheControl(CacheControl.noStore())
+                .body(corpo);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Listar agendamento por ID",
             description = "Retorna um agendamento específico baseado no ID fornecido")
@@ -73,6 +128,7 @@ public class AgendamentoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Agendamento encontrado com sucesso",
                     content = @Content(schema = @Schema(implementation = Agendamento.class))),
+            @ApiResponse(responseCode = "304", description = "Agendamento não mudou desde a ETag informada"),
             @ApiResponse(responseCode = "404", description = "Agendamento não encontrado com o ID fornecido",
                     content = @Content(schema = @Schema(implementation = String.class))),
             @ApiResponse(responseCode = "400", description = "ID inválido ou parâmetros incorretos",
@@ -81,12 +137,18 @@ public class AgendamentoController {
             @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<DetalhesAgendamentoOutput> getAgendamentoPorId(@PathVariable Long id) {
+    public ResponseEntity<DetalhesAgendamentoOutput> getAgendamentoPorId(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Buscando agendamento por ID: {}", id);
         try {
             DetalhesAgendamentoOutput agendamento = service.getAgendamentoPorId(id);
             log.info("Agendamento encontrado com sucesso para ID: {}", id);
-            return ResponseEntity.status(200).body(agendamento);
+            String etag = CabecalhosCondicionais.etagDaVersao(agendamento.versao());
+            if (etag != null && CabecalhosCondicionais.etagCorresponde(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.status(200).eTag(etag).body(agendamento);
         } catch (IllegalArgumentException e) {
             log.warn("Erro de argumento inválido ao buscar agendamento ID {}: {}", id, e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
@@ -107,15 +169,20 @@ public class AgendamentoController {
             @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<List<DetalhesAgendamentoOutput>> getAgendamentosByStatus(@PathVariable String status) {
-        log.info("Buscando agendamentos por status: {}", status);
+    public ResponseEntity<Page<DetalhesAgendamentoOutput>> getAgendamentosByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ate,
+            @PageableDefault(size = 20, sort = "dataHora") Pageable pageable) {
+        log.info("Buscando agendamentos por status: {} - página: {} tamanho: {} período: {} a {}",
+                status, pageable.getPageNumber(), pageable.getPageSize(), de, ate);
         try {
-            List<DetalhesAgendamentoOutput> sitStatus = service.getAgendamentosByStatus(status);
+            Page<DetalhesAgendamentoOutput> sitStatus = service.getAgendamentosByStatus(status, de, ate, pageable);
             if (sitStatus.isEmpty()) {
                 log.info("Nenhum agendamento encontrado para o status: {}", status);
                 return ResponseEntity.status(204).body(null);
             }
-            log.info("Encontrados {} agendamentos com status: {}", sitStatus.size(), status);
+            log.info("Encontrados {} agendamentos na página com status: {}", sitStatus.getNumberOfElements(), status);
             return ResponseEntity.ok(sitStatus);
         } catch (Exception e) {
             log.error("Erro ao buscar agendamentos por status '{}': {}", status, e.getMessage(), e);
@@ -145,6 +212,9 @@ public class AgendamentoController {
             DetalhesAgendamentoOutput novaAgenda = service.postAgendamento(agendamento);
             log.info("Agendamento criado com sucesso: {}", novaAgenda);
             return ResponseEntity.status(201).body(novaAgenda);
+        } catch (HorarioIndisponivelException e) {
+            log.warn("Horário indisponível ao criar agendamento: {}", e.getMessage());
+            throw e;
         } catch (IllegalArgumentException e) {
             log.warn("Conflito ao criar agendamento: {}", e.getMessage());
             throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
@@ -168,17 +238,26 @@ public class AgendamentoController {
             @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado"),
             @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
             @ApiResponse(responseCode = "409", description = "Conflito - horário indisponível ou dados conflitantes"),
+            @ApiResponse(responseCode = "412", description = "If-Match não corresponde à versão atual do agendamento"),
             @ApiResponse(responseCode = "422", description = "Dados não processáveis - validação falhou"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
     public ResponseEntity<DetalhesAgendamentoOutput> putAgendamento(
             @PathVariable Long id,
-            @RequestBody @Valid CadastroAgendamentoInput agendamento) {
+            @RequestBody @Valid CadastroAgendamentoInput agendamento,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Iniciando atualização do agendamento ID: {}", id);
+        Long versaoEsperada = CabecalhosCondicionais.versaoEsperada(ifMatch);
         try {
-            DetalhesAgendamentoOutput atualizado = service.putAgendamentoById(id, agendamento);
+            DetalhesAgendamentoOutput atualizado = service.putAgendamentoById(id, agendamento, versaoEsperada);
             log.info("Agendamento ID {} atualizado com sucesso", id);
-            return ResponseEntity.status(200).body(atualizado);
+            return ResponseEntity.status(200).eTag(CabecalhosCondicionais.etagDaVersao(atualizado.versao())).body(atualizado);
+        } catch (VersaoDesatualizadaException | OptimisticLockingFailureException e) {
+            log.warn("Agendamento ID {} alterado por outra requisição: {}", id, e.getMessage());
+            throw e;
+        } catch (HorarioIndisponivelException e) {
+            log.warn("Horário indisponível ao atualizar agendamento ID {}: {}", id, e.getMessage());
+            throw e;
         } catch (IllegalArgumentException e) {
             log.warn("Agendamento não encontrado para atualização. ID: {} - Erro: {}", id, e.getMessage());
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
@@ -249,11 +328,11 @@ public class AgendamentoController {
 
     @GetMapping("/usuario/{usuarioId}")
     @Operation(summary = "Listar todos os agendamentos de um usuário",
-            description = "Retorna uma lista com todos os agendamentos associados ao usuário especificado")
+            description = "Retorna uma página dos agendamentos associados ao usuário especificado, " +
+                    "ordenada por data/hora e navegável pelo proximoCursor")
     @SecurityRequirement(name = "Bearer")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Lista de agendamentos do usuário retornada com sucesso",
-                    content = @Content(schema = @Schema(implementation = Agendamento.class))),
+            @ApiResponse(responseCode = "200", description = "Página de agendamentos do usuário retornada com sucesso"),
             @ApiResponse(responseCode = "204", description = "Nenhum agendamento encontrado para o usuário especificado"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado com o ID fornecido",
                     content = @Content(schema = @Schema(implementation = String.class))),
@@ -263,15 +342,19 @@ public class AgendamentoController {
             @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<List<DetalhesAgendamentoOutput>> getAgendamentosPorUsuario(@PathVariable Long usuarioId) {
+    public ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> getAgendamentosPorUsuario(
+            @PathVariable Long usuarioId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${paginacao.tamanho-padrao:20}") int tamanho) {
         log.info("Buscando agendamentos para usuário ID: {}", usuarioId);
         try {
-            List<DetalhesAgendamentoOutput> agendamentos = service.getAgendamentosPorUsuario(usuarioId);
-            if (agendamentos.isEmpty()) {
+            PaginaCursorOutput<DetalhesAgendamentoOutput> agendamentos =
+                    service.getAgendamentosPorUsuario(usuarioId, cursor, tamanho);
+            if (agendamentos.itens().isEmpty()) {
                 log.info("Nenhum agendamento encontrado para o usuário ID: {}", usuarioId);
                 return ResponseEntity.noContent().build();
             } else {
-                log.info("Encontrados {} agendamentos para o usuário ID: {}", agendamentos.size(), usuarioId);
+                log.info("Encontrados {} agendamentos para o usuário ID: {}", agendamentos.itens().size(), usuarioId);
                 return ResponseEntity.ok(agendamentos);
             }
         } catch (Exception e) {
@@ -335,25 +418,64 @@ public class AgendamentoController {
 
     @GetMapping("/datas-ocupadas")
     @Operation(summary = "Busca datas com agendamentos",
-            description = "Retorna todas as datas que já possuem agendamentos")
+            description = "Retorna todas as datas a partir de hoje que já possuem agendamentos. " +
+                    "A resposta traz ETag e pode ser revalidada com If-None-Match")
     @SecurityRequirement(name = "Bearer")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de datas retornada com sucesso"),
+            @ApiResponse(responseCode = "304", description = "Datas não mudaram desde a última consulta"),
             @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<List<String>> getDatasOcupadas() {
+    public ResponseEntity<List<String>> getDatasOcupadas(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Buscando datas com agendamentos");
         try {
-            List<String> datasOcupadas = service.getDatasOcupadas();
-            log.info("Retornadas {} datas com agendamentos", datasOcupadas.size());
-            return ResponseEntity.ok(datasOcupadas);
+            CalendarioOcupacaoService.Calendario calendario = calendarioService.getCalendario();
+            // endpoint público e igual para todos: pode ficar em caches compartilhados por pouco tempo
+            CacheControl cacheControl = CacheControl.maxAge(calendarioService.getMaxAge()).cachePublic();
+            if (CabecalhosCondicionais.etagCorresponde(ifNoneMatch, calendario.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(calendario.etag())
+                        .cacheControl(cacheControl)
+                        .build();
+            }
+            log.info("Retornadas {} datas com agendamentos", calendario.datas().size());
+            return ResponseEntity.ok()
+                    .eTag(calendario.etag())
+                    .cacheControl(cacheControl)
+                    .body(calendario.datas());
         } catch (Exception e) {
             log.error("Erro ao buscar datas ocupadas: {}", e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
     }
 
+    @GetMapping("/disponibilidade")
+    @Operation(summary = "Lista os próximos horários livres",
+            description = "Retorna até 'limite' horários livres entre as datas informadas, dentro do expediente, " +
+                    "para um agendamento com a duração (minutos) informada")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Horários livres retornados com sucesso"),
+            @ApiResponse(responseCode = "400", description = "Período, duração ou limite inválidos"),
+            @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
+    })
+    public ResponseEntity<List<HorarioLivreOutput>> getDisponibilidade(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @RequestParam(required = false) Integer duracao,
+            @RequestParam(defaultValue = "10") Integer limite) {
+        log.info("Buscando horários livres de {} até {} com duração {}", de, ate, duracao);
+        try {
+            List<HorarioLivreOutput> livres = service.getHorariosLivres(de, ate, duracao, limite);
+            log.info("Encontrados {} horários livres", livres.size());
+            return ResponseEntity.ok(livres);
+        } catch (IllegalArgumentException e) {
+            log.error("Parâmetros inválidos na busca de disponibilidade: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @PostMapping("/{id}/materiais")
     @Operation(summary = "Adicionar materiais usados ao agendamento",
             description = "Registra os materiais/equipamentos utilizados em um agendamento concluído")
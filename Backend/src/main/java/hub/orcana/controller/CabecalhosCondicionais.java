@@ -0,0 +1,50 @@
+package hub.orcana.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Comparação de ETags para requisições condicionais (If-None-Match / If-Match).
+final class CabecalhosCondicionais {
+
+    private CabecalhosCondicionais() {
+    }
+
+    // ETag forte a partir da versão do registro (@Version); nulo quando não há versão
+    static String etagDaVersao(String versao) {
+        return versao != null ? "\"" + versao + "\"" : null;
+    }
+
+    // Versão que o cliente diz ter lido, tirada de um If-Match "<versao>" ou "<versao>.<outra>".
+    // Sem cabeçalho ou com * não há condição (nulo). Só uma ETag forte é aceita.
+    static Long versaoEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.contains(",") || valor.startsWith("W/") || valor.length() < 3
+                || !valor.startsWith("\"") || !valor.endsWith("\"")) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "If-Match deve conter uma única ETag forte.");
+        }
+        String versao = valor.substring(1, valor.length() - 1);
+        int ponto = versao.indexOf('.');
+        try {
+            return Long.parseLong(ponto >= 0 ? versao.substring(0, ponto) : versao);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "ETag desconhecida no If-Match.");
+        }
+    }
+
+    static boolean etagCorresponde(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || valor.equals(etag) || valor.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
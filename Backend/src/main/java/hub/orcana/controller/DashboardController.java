@@ -1,15 +1,27 @@
     package hub.orcana.controller;
 
+import hub.orcana.dto.dashboard.AnaliseOutput;
 import hub.orcana.dto.dashboard.DashboardKPIsOutput;
 import hub.orcana.dto.dashboard.DashboardOutput;
-import hub.orcana.service.DashboardService;
+import hub.orcana.dto.dashboard.GranularidadeAnalise;
+import hub.orcana.service.AnaliseDashboardService;
+import hub.orcana.service.DashboardCacheService;
+import hub.orcana.service.DashboardStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Slf4j
@@ -19,21 +31,28 @@ import java.util.List;
 @Tag(name = "Dashboard", description = "Endpoints para dados de dashboard")
 public class DashboardController {
 
-    private final DashboardService service;
+    private final DashboardCacheService service;
+    private final DashboardStreamService streamService;
+    private final AnaliseDashboardService analiseService;
 
-    public DashboardController(DashboardService service) {
+    public DashboardController(DashboardCacheService service,
+                               DashboardStreamService streamService,
+                               AnaliseDashboardService analiseService) {
         this.service = service;
+        this.streamService = streamService;
+        this.analiseService = analiseService;
     }
 
     @GetMapping("/faturamento-anual")
     @Operation(summary = "Lista o faturamento mensal dos últimos 12 meses")
     @SecurityRequirement(name = "Bearer")
-    public ResponseEntity<List<Double>> getFaturamentoAnual() {
+    public ResponseEntity<List<Double>> getFaturamentoAnual(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /dashboard/faturamento-anual - Iniciando busca");
         try {
-            List<Double> faturamento = service.getFaturamentoUltimos12Meses();
-            log.info("Faturamento retornado com sucesso: {} meses", faturamento.size());
-            return ResponseEntity.ok(faturamento);
+            DashboardCacheService.Resposta<List<Double>> faturamento = service.getFaturamentoUltimos12Meses();
+            log.info("Faturamento retornado com sucesso: {} meses", faturamento.valor().size());
+            return responder(faturamento, ifNoneMatch);
         } catch (Exception e) {
             log.error("Erro ao buscar faturamento anual", e);
             throw e;
@@ -43,12 +62,13 @@ public class DashboardController {
     @GetMapping("/kpis")
     @Operation(summary = "Retorna os principais KPIs para o dashboard")
     @SecurityRequirement(name = "Bearer")
-    public ResponseEntity<DashboardOutput> getDashboardKPIs() {
+    public ResponseEntity<DashboardOutput> getDashboardKPIs(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /dashboard/kpis - Iniciando busca");
         try {
-            DashboardOutput kpis = service.getDashboardKPIs();
+            DashboardCacheService.Resposta<DashboardOutput> kpis = service.getDashboardKPIs();
             log.info("KPIs retornados com sucesso");
-            return ResponseEntity.ok(kpis);
+            return responder(kpis, ifNoneMatch);
         } catch (Exception e) {
             log.error("Erro ao buscar KPIs", e);
             throw e;
@@ -58,15 +78,54 @@ public class DashboardController {
     @GetMapping("/estatisticas")
     @Operation(summary = "Retorna estatísticas gerais (totais e faturamento)")
     @SecurityRequirement(name = "Bearer")
-    public ResponseEntity<DashboardKPIsOutput> getEstatisticas() {
+    public ResponseEntity<DashboardKPIsOutput> getEstatisticas(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /dashboard/estatisticas - Iniciando busca");
         try {
-            DashboardKPIsOutput stats = service.getEstatisticas();
+            DashboardCacheService.Resposta<DashboardKPIsOutput> stats = service.getEstatisticas();
             log.info("Estatísticas retornadas com sucesso");
-            return ResponseEntity.ok(stats);
+            return responder(stats, ifNoneMatch);
         } catch (Exception e) {
             log.error("Erro ao buscar estatísticas", e);
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/analise")
+    @Operation(summary = "Análise de faturamento e ocupação por período, agrupada por dia, semana ou mês")
+    @SecurityRequirement(name = "Bearer")
+    public ResponseEntity<AnaliseOutput> getAnalise(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @RequestParam(defaultValue = "MES") GranularidadeAnalise granularidade) {
+        log.info("GET /dashboard/analise - de {} até {} por {}", de, ate, granularidade);
+        try {
+            return ResponseEntity.ok(analiseService.consultar(de, ate, granularidade));
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros inválidos para análise: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream (SSE) com as alterações do dashboard em tempo real")
+    @SecurityRequirement(name = "Bearer")
+    public SseEmitter stream() {
+        log.info("GET /dashboard/stream - Nova conexão");
+        return streamService.conectar();
+    }
+
+    // 304 sem corpo quando o cliente já tem a mesma versão; o navegador sempre revalida (no-cache)
+    private static <T> ResponseEntity<T> responder(DashboardCacheService.Resposta<T> resposta, String ifNoneMatch) {
+        if (CabecalhosCondicionais.etagCorresponde(ifNoneMatch, resposta.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(resposta.etag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(resposta.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(resposta.valor());
+    }
+}
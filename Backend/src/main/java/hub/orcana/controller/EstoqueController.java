@@ -18,6 +18,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -76,6 +77,7 @@ public class EstoqueController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Material encontrado com sucesso",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = DetalhesMaterialOutput.class))),
+        @ApiResponse(responseCode = "304", description = "Material não mudou desde a ETag enviada em If-None-Match"),
         @ApiResponse(responseCode = "400", description = "Nome do material inválido"),
         @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado"),
         @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
@@ -83,7 +85,9 @@ public class EstoqueController {
         @ApiResponse(responseCode = "500", description = "Erro interno do servidor",
                 content = @Content(mediaType = "application/json"))
     })
-    public ResponseEntity<DetalhesMaterialOutput> getEstoqueByNome(@PathVariable @Valid String nomeMaterial) {
+    public ResponseEntity<DetalhesMaterialOutput> getEstoqueByNome(
+            @PathVariable @Valid String nomeMaterial,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Iniciando busca por material com nome: {}", nomeMaterial);
 
         if (nomeMaterial == null || nomeMaterial.trim().isEmpty()) {
@@ -93,8 +97,12 @@ public class EstoqueController {
 
         try {
             var material = service.getEstoqueByNome(nomeMaterial);
+            String etag = CabecalhosCondicionais.etagDaVersao(material.versao());
+            if (etag != null && CabecalhosCondicionais.etagCorresponde(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
             log.info("Busca por material '{}' concluída com sucesso.", nomeMaterial);
-            return ResponseEntity.ok(material);
+            return ResponseEntity.ok().eTag(etag).body(material);
         } catch (DependenciaNaoEncontradaException e) {
             log.warn("Material com nome '{}' não encontrado", nomeMaterial);
             return ResponseEntity.status(404).body(null);
@@ -145,15 +153,22 @@ public class EstoqueController {
                 content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "409", description = "Conflito - Nome do material já existe",
                 content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "412", description = "If-Match não corresponde à versão atual do material",
+                content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Erro interno do servidor",
                 content = @Content(mediaType = "application/json"))
     })
-    public ResponseEntity<DetalhesMaterialOutput> putEstoqueById(@PathVariable Long id, @RequestBody @Valid CadastroMaterialInput estoque) {
+    public ResponseEntity<DetalhesMaterialOutput> putEstoqueById(
+            @PathVariable Long id,
+            @RequestBody @Valid CadastroMaterialInput estoque,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Iniciando atualização do material com ID: {}", id);
         try {
-            DetalhesMaterialOutput novoMaterial = service.putEstoqueById(id, estoque);
+            DetalhesMaterialOutput novoMaterial = service.putEstoqueById(id, estoque,
+                    CabecalhosCondicionais.versaoEsperada(ifMatch));
             log.info("Material com ID {} atualizado com sucesso. Nome: {}", id, novoMaterial.nome());
-            return ResponseEntity.status(200).body(novoMaterial);
+            return ResponseEntity.status(200).eTag(CabecalhosCondicionais.etagDaVersao(novoMaterial.versao()))
+                    .body(novoMaterial);
         } catch (Exception e) {
             log.error("Erro ao atualizar material com ID: {}", id, e);
             throw e;
@@ -172,15 +187,22 @@ public class EstoqueController {
         @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
         @ApiResponse(responseCode = "404", description = "Material não encontrado com o ID fornecido",
                 content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "412", description = "If-Match não corresponde à versão atual do material",
+                content = @Content(mediaType = "application/json")),
         @ApiResponse(responseCode = "500", description = "Erro interno do servidor",
                 content = @Content(mediaType = "application/json"))
     })
-    public ResponseEntity<DetalhesMaterialOutput> atualizarQuantidadeById(@PathVariable Long id, @PathVariable Double quantidade) {
+    public ResponseEntity<DetalhesMaterialOutput> atualizarQuantidadeById(
+            @PathVariable Long id,
+            @PathVariable Double quantidade,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Iniciando atualização da quantidade do material com ID: {} para quantidade: {}", id, quantidade);
         try {
-            DetalhesMaterialOutput novoMaterial = service.atualizarQuantidadeById(id, quantidade);
+            DetalhesMaterialOutput novoMaterial = service.atualizarQuantidadeById(id, quantidade,
+                    CabecalhosCondicionais.versaoEsperada(ifMatch));
             log.info("Quantidade do material com ID {} atualizada com sucesso para: {}", id, quantidade);
-            return ResponseEntity.status(200).body(novoMaterial);
+            return ResponseEntity.status(200).eTag(CabecalhosCondicionais.etagDaVersao(novoMaterial.versao()))
+                    .body(novoMaterial);
         } catch (Exception e) {
             log.error("Erro ao atualizar quantidade do material com ID: {} para quantidade: {}", id, quantidade, e);
             throw e;
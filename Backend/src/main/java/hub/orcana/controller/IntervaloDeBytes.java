@@ -0,0 +1,52 @@
+package hub.orcana.controller;
+
+// Intervalo pedido no cabeçalho Range (bytes=inicio-fim, bytes=inicio- ou bytes=-sufixo),
+// com fim inclusivo como no Content-Range.
+record IntervaloDeBytes(long inicio, long fim) {
+
+    static final IntervaloDeBytes INSATISFAZIVEL = new IntervaloDeBytes(-1, -1);
+
+    long quantidade() {
+        return fim - inicio + 1;
+    }
+
+    String contentRange(long tamanho) {
+        return "bytes " + inicio + "-" + fim + "/" + tamanho;
+    }
+
+    // Nulo quando o cabeçalho deve ser ignorado (ausente, mal formado ou com vários intervalos):
+    // o RFC 9110 permite responder 200 com o arquivo inteiro. INSATISFAZIVEL quando nenhum byte
+    // pedido existe no arquivo (416).
+    static IntervaloDeBytes interpretar(String range, long tamanho) {
+        if (range == null || !range.startsWith("bytes=")) {
+            return null;
+        }
+        String especificacao = range.substring("bytes=".length()).trim();
+        int traco = especificacao.indexOf('-');
+        if (especificacao.contains(",") || traco < 0) {
+            return null;
+        }
+        try {
+            String antes = especificacao.substring(0, traco).trim();
+            String depois = especificacao.substring(traco + 1).trim();
+            if (antes.isEmpty()) {
+                long sufixo = Long.parseLong(depois);
+                if (sufixo <= 0 || tamanho == 0) {
+                    return INSATISFAZIVEL;
+                }
+                return new IntervaloDeBytes(Math.max(0, tamanho - sufixo), tamanho - 1);
+            }
+            long inicio = Long.parseLong(antes);
+            long fim = depois.isEmpty() ? Long.MAX_VALUE : Long.parseLong(depois);
+            if (inicio < 0 || fim < inicio) {
+                return null;
+            }
+            if (inicio >= tamanho) {
+                return INSATISFAZIVEL;
+            }
+            return new IntervaloDeBytes(inicio, Math.min(fim, tamanho - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -2,8 +2,13 @@ package hub.orcana.controller;
 
 import hub.orcana.dto.orcamento.CadastroOrcamentoInput;
 import hub.orcana.dto.orcamento.DetalhesOrcamentoOutput;
+import hub.orcana.dto.orcamento.ProcessamentoOrcamentoOutput;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.exception.VersaoDesatualizadaException;
+import hub.orcana.service.ExportacaoService;
 import hub.orcana.service.OrcamentoService;
 import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -13,11 +18,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
@@ -29,16 +42,20 @@ import java.util.Map;
 public class OrcamentoController {
 
     private final OrcamentoService service;
+    private final ExportacaoService exportacaoService;
 
-    public OrcamentoController(OrcamentoService service) {
+    public OrcamentoController(OrcamentoService service, ExportacaoService exportacaoService) {
         this.service = service;
+        this.exportacaoService = exportacaoService;
     }
 
     @PostMapping(path = "/cadastro", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Inserir orçamento no banco de dados e enviar e-mail de confirmação ao cliente")
+    @Operation(summary = "Inserir orçamento no banco de dados e enviar e-mail de confirmação ao cliente",
+            description = "Grava o orçamento e responde 202 antes de gravar as imagens e enviar os e-mails. " +
+                    "O andamento pode ser acompanhado em /orcamento/{codigo}/processamento (cabeçalho Location)")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Orçamento criado com sucesso",
-                    content = @Content(schema = @Schema(example = "{\"success\": true, \"id\": \"ORC-123\", \"message\": \"Orçamento criado com sucesso\"}"))),
+            @ApiResponse(responseCode = "202", description = "Orçamento recebido; imagens e e-mails em processamento",
+                    content = @Content(schema = @Schema(example = "{\"success\": true, \"codigo\": \"ORC-H5K2Q9XM\", \"message\": \"Orçamento recebido com sucesso\"}"))),
             @ApiResponse(responseCode = "400", description = "Dados inválidos, arquivo vazio ou erro no processamento",
                     content = @Content(schema = @Schema(example = "{\"message\": \"Dados inválidos\"}"))),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
@@ -47,39 +64,72 @@ public class OrcamentoController {
         log.info("Iniciando criação de novo orçamento: {}", dados);
         try {
             Orcamento novoOrcamento = service.postOrcamento(dados);
-            log.info("Orçamento criado com sucesso. Código: {}", novoOrcamento.getCodigoOrcamento());
-            return ResponseEntity.status(201).body(Map.of(
-                    "success", true,
-                    "codigo", novoOrcamento.getCodigoOrcamento(),
-                    "message", "Orçamento criado com sucesso"
-            ));
+            log.info("Orçamento recebido. Código: {}", novoOrcamento.getCodigoOrcamento());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/orcamento/" + novoOrcamento.getCodigoOrcamento() + "/processamento"))
+                    .body(Map.of(
+                            "success", true,
+                            "codigo", novoOrcamento.getCodigoOrcamento(),
+                            "message", "Orçamento recebido com sucesso"
+                    ));
+        } catch (IllegalArgumentException e) {
+            log.warn("Imagem de referência recusada: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             log.error("Erro ao criar orçamento: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    @GetMapping("/{codigo}/processamento")
+    @Operation(summary = "Consultar o andamento do cadastro de um orçamento",
+            description = "Enquanto o processamento não termina, a resposta traz Retry-After com o intervalo sugerido")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Situação do processamento retornada"),
+            @ApiResponse(responseCode = "404", description = "Orçamento não encontrado")
+    })
+    public ResponseEntity<ProcessamentoOrcamentoOutput> getProcessamento(@PathVariable String codigo) {
+        try {
+            SituacaoProcessamento situacao = service.buscarProcessamento(codigo);
+            ResponseEntity.BodyBuilder resposta = ResponseEntity.ok().cacheControl(CacheControl.noStore());
+            if (!situacao.isFinalizada()) {
+                resposta.header(HttpHeaders.RETRY_AFTER, "1");
+            }
+            return resposta.body(new ProcessamentoOrcamentoOutput(codigo, situacao, situacao.isFinalizada()));
+        } catch (RuntimeException e) {
+            log.warn("Processamento de orçamento não encontrado: {}", codigo);
+            return ResponseEntity.status(404).build();
+        }
+    }
+
     @GetMapping
-    @Operation(summary = "Listar todos os orçamentos do sistema")
+    @Operation(summary = "Listar todos os orçamentos do sistema",
+            description = "Retorna uma página de orçamentos ordenada pelo código. " +
+                    "Para a próxima página, envie o proximoCursor recebido no parâmetro cursor")
     @SecurityRequirement(name = "Bearer")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Lista de orçamentos retornada com sucesso",
-                    content = @Content(schema = @Schema(implementation = Orcamento.class))),
+            @ApiResponse(responseCode = "200", description = "Página de orçamentos retornada com sucesso"),
             @ApiResponse(responseCode = "204", description = "Nenhum orçamento encontrado"),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho de página inválido"),
             @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado"),
             @ApiResponse(responseCode = "403", description = "Acesso negado - permissões insuficientes"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<List<DetalhesOrcamentoOutput>> getOrcamentos() {
+    public ResponseEntity<PaginaCursorOutput<DetalhesOrcamentoOutput>> getOrcamentos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${paginacao.tamanho-padrao:20}") int tamanho) {
         log.info("Iniciando busca por todos os orçamentos");
         try {
-            List<DetalhesOrcamentoOutput> orcamentos = service.findAllOrcamentos();
-            if (orcamentos.isEmpty()) {
+            PaginaCursorOutput<DetalhesOrcamentoOutput> orcamentos = service.findAllOrcamentos(cursor, tamanho);
+            if (orcamentos.itens().isEmpty()) {
                 log.info("Nenhum orçamento encontrado");
                 return ResponseEntity.noContent().build();
             }
-            log.info("Retornando {} orçamentos encontrados", orcamentos.size());
+            log.info("Retornando {} orçamentos encontrados", orcamentos.itens().size());
             return ResponseEntity.ok(orcamentos);
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros de paginação inválidos: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             log.error("Erro ao buscar orçamentos: {}", e.getMessage(), e);
             throw e;
@@ -112,14 +162,49 @@ public class OrcamentoController {
         }
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "Exportar orçamentos",
+            description = "Gera todos os orçamentos em CSV ou NDJSON. As linhas são escritas conforme " +
+                    "são lidas do banco, sem montar a lista inteira em memória")
+    @SecurityRequirement(name = "Bearer")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Arquivo de exportação gerado"),
+            @ApiResponse(responseCode = "400", description = "Formato inválido (use csv ou ndjson)"),
+            @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarOrcamentos(
+            @RequestParam(defaultValue = "csv") String formato) {
+        ExportacaoService.Formato escolhido;
+        try {
+            escolhido = ExportacaoService.Formato.de(formato);
+        } catch (IllegalArgumentException e) {
+            log.warn("Formato de exportação inválido: {}", formato);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        log.info("Iniciando exportação de orçamentos em {}", escolhido);
+        StreamingResponseBody corpo = saida -> exportacaoService.exportarOrcamentos(escolhido, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(escolhido.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(escolhido.nomeArquivo("orcamentos")).build().toString())
+                .cacheControl(CacheControl.noStore())
+                .body(corpo);
+    }
+
     @GetMapping("/{codigo}")
     @Operation(summary = "Buscar orçamento por código")
     @SecurityRequirement(name = "Bearer")
-    public ResponseEntity<DetalhesOrcamentoOutput> getOrcamentoPorCodigo(@PathVariable String codigo) {
+    public ResponseEntity<DetalhesOrcamentoOutput> getOrcamentoPorCodigo(
+            @PathVariable String codigo,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Buscando orçamento com código: {}", codigo);
         try {
             DetalhesOrcamentoOutput orcamento = service.findByCodigo(codigo);
-            return ResponseEntity.ok(orcamento);
+            String etag = CabecalhosCondicionais.etagDaVersao(orcamento.versao());
+            if (etag != null && CabecalhosCondicionais.etagCorresponde(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(orcamento);
         } catch (RuntimeException e) {
             log.error("Orçamento não encontrado: {}", codigo);
             return ResponseEntity.status(404).build();
@@ -137,18 +222,27 @@ public class OrcamentoController {
             @ApiResponse(responseCode = "400", description = "Dados inválidos"),
             @ApiResponse(responseCode = "401", description = "Token de autenticação inválido ou expirado"),
             @ApiResponse(responseCode = "404", description = "Orçamento não encontrado"),
+            @ApiResponse(responseCode = "409", description = "Orçamento alterado por outra requisição durante a gravação"),
+            @ApiResponse(responseCode = "412", description = "If-Match não corresponde à versão atual do orçamento"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<?> atualizarOrcamento(@PathVariable String codigo, @RequestBody Map<String, Object> dados) {
+    public ResponseEntity<?> atualizarOrcamento(
+            @PathVariable String codigo,
+            @RequestBody Map<String, Object> dados,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Atualizando orçamento {}: {}", codigo, dados);
+        Long versaoEsperada = CabecalhosCondicionais.versaoEsperada(ifMatch);
         try {
-            DetalhesOrcamentoOutput orcamentoAtualizado = service.atualizarOrcamento(codigo, dados);
-            return ResponseEntity.ok(Map.of(
+            DetalhesOrcamentoOutput orcamentoAtualizado = service.atualizarOrcamento(codigo, dados, versaoEsperada);
+            return ResponseEntity.ok().eTag(CabecalhosCondicionais.etagDaVersao(orcamentoAtualizado.versao())).body(Map.of(
                     "success", true,
                     "message", "Orçamento atualizado com sucesso",
                     "codigo", orcamentoAtualizado.codigoOrcamento(),
                     "orcamento", orcamentoAtualizado
             ));
+        } catch (VersaoDesatualizadaException | OptimisticLockingFailureException e) {
+            log.warn("Orçamento {} alterado por outra requisição: {}", codigo, e.getMessage());
+            throw e;
         } catch (RuntimeException e) {
             log.error("Erro ao atualizar orçamento {}: {}", codigo, e.getMessage());
             return ResponseEntity.status(404).body(Map.of(
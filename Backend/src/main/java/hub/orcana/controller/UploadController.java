@@ -0,0 +1,151 @@
+package hub.orcana.controller;
+
+import hub.orcana.service.EntregaDeArquivosService;
+import hub.orcana.service.EntregaDeArquivosService.ArquivoParaEntrega;
+import hub.orcana.service.VariantesImagemService.TamanhoVariante;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+@RestController
+@Tag(name = "Uploads", description = "Entrega das imagens de referência enviadas nos orçamentos")
+public class UploadController {
+    private static final Logger log = LoggerFactory.getLogger(UploadController.class);
+
+    // atributos do Tomcat para entregar o arquivo com sendfile(): o conector copia do disco para
+    // o socket sem passar o conteúdo pela JVM
+    static final String SENDFILE_SUPORTADO = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_ARQUIVO = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_FIM = "org.apache.tomcat.sendfile.end";
+    // abaixo disso uma cópia comum sai mais barata que preparar o sendfile (mesmo limite do DefaultServlet)
+    static final long SENDFILE_MINIMO = 48 * 1024;
+
+    private static final CacheControl CACHE_IMUTAVEL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl CACHE_LEGADO = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+    private final EntregaDeArquivosService entregaService;
+
+    public UploadController(EntregaDeArquivosService entregaService) {
+        this.entregaService = entregaService;
+    }
+
+    @GetMapping("/uploads/{*caminho}")
+    @Operation(summary = "Baixar imagem enviada",
+            description = "Aceita If-None-Match, Range e If-Range. Imagens gravadas pelo hash do conteúdo são imutáveis. "
+                    + "Com size=thumb (240px) ou size=medium (960px) entrega a versão reduzida em JPEG.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Arquivo completo"),
+            @ApiResponse(responseCode = "206", description = "Trecho pedido no cabeçalho Range"),
+            @ApiResponse(responseCode = "304", description = "Arquivo não mudou desde a ETag enviada em If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Valor de size inválido"),
+            @ApiResponse(responseCode = "404", description = "Arquivo não encontrado"),
+            @ApiResponse(responseCode = "416", description = "Range fora do tamanho do arquivo")
+    })
+    public void baixar(@PathVariable String caminho,
+                       @RequestParam(value = "size", required = false) String size,
+                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                       @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                       @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        TamanhoVariante tamanho;
+        try {
+            tamanho = size == null || size.isBlank() ? null : TamanhoVariante.de(size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        ArquivoParaEntrega arquivo = entregaService.localizar(caminho, tamanho, acceptEncoding)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        response.setHeader(HttpHeaders.ETAG, arquivo.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, switch (arquivo.validade()) {
+            case IMUTAVEL -> CACHE_IMUTAVEL.getHeaderValue();
+            case CURTA -> CACHE_LEGADO.getHeaderValue();
+            case REVALIDAR -> CacheControl.noCache().getHeaderValue();
+        });
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (CabecalhosCondicionais.etagCorresponde(ifNoneMatch, arquivo.etag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        response.setContentType(arquivo.contentType());
+        if (arquivo.contentEncoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, arquivo.contentEncoding());
+        }
+
+        // If-Range com ETag diferente (ou data, que não usamos) vale como "mande tudo"
+        IntervaloDeBytes intervalo = ifRange == null || ifRange.trim().equals(arquivo.etag())
+                ? IntervaloDeBytes.interpretar(range, arquivo.tamanho())
+                : null;
+        if (intervalo == IntervaloDeBytes.INSATISFAZIVEL) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + arquivo.tamanho());
+            return;
+        }
+        if (intervalo == null) {
+            intervalo = new IntervaloDeBytes(0, arquivo.tamanho() - 1);
+            response.setStatus(HttpStatus.OK.value());
+        } else {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, intervalo.contentRange(arquivo.tamanho()));
+        }
+        response.setContentLengthLong(intervalo.quantidade());
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || intervalo.quantidade() == 0) {
+            return;
+        }
+        enviar(arquivo, intervalo, request, response);
+    }
+
+    private void enviar(ArquivoParaEntrega arquivo, IntervaloDeBytes intervalo,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (intervalo.quantidade() >= SENDFILE_MINIMO && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPORTADO))) {
+            request.setAttribute(SENDFILE_ARQUIVO, arquivo.caminho().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, intervalo.inicio());
+            request.setAttribute(SENDFILE_FIM, intervalo.fim() + 1);
+            return;
+        }
+        // sem sendfile (outro conector, TLS, arquivo pequeno): transferTo evita o buffer
+        // intermediário do lado da aplicação
+        try (FileChannel canal = FileChannel.open(arquivo.caminho(), StandardOpenOption.READ)) {
+            WritableByteChannel saida = Channels.newChannel(response.getOutputStream());
+            long enviado = 0;
+            while (enviado < intervalo.quantidade()) {
+                long parte = canal.transferTo(intervalo.inicio() + enviado, intervalo.quantidade() - enviado, saida);
+                if (parte <= 0) {
+                    log.warn("Arquivo {} terminou antes do esperado ({} de {} bytes)",
+                            arquivo.caminho(), enviado, intervalo.quantidade());
+                    break;
+                }
+                enviado += parte;
+            }
+        }
+    }
+}
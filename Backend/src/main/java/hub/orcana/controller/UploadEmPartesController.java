@@ -0,0 +1,149 @@
+package hub.orcana.controller;
+
+import hub.orcana.dto.uploads.IniciarUploadInput;
+import hub.orcana.dto.uploads.UploadEmPartesOutput;
+import hub.orcana.service.UploadEmPartesService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.function.Supplier;
+
+@Slf4j
+@CrossOrigin(origins = "http://localhost:5174")
+@RestController
+@RequestMapping("/orcamento/uploads")
+@Tag(name = "Uploads em partes", description = "Envio retomável de imagens de referência grandes")
+public class UploadEmPartesController {
+
+    private final UploadEmPartesService service;
+
+    public UploadEmPartesController(UploadEmPartesService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    @Operation(summary = "Iniciar upload em partes",
+            description = "Reserva o envio de uma imagem com o tamanho total informado. As partes vão em PUT "
+                    + "/orcamento/uploads/{id} e o id do upload finalizado entra no campo uploads do cadastro do orçamento.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload criado (cabeçalho Location)"),
+            @ApiResponse(responseCode = "400", description = "Nome ausente ou tamanho acima do permitido"),
+            @ApiResponse(responseCode = "429", description = "Muitos uploads em aberto para este cliente"),
+            @ApiResponse(responseCode = "503", description = "Muitos uploads em aberto no servidor")
+    })
+    public ResponseEntity<UploadEmPartesOutput> iniciar(@RequestBody @Valid IniciarUploadInput dados,
+                                                        HttpServletRequest request) {
+        // o endereço da conexão, não X-Forwarded-For: o cabeçalho é do cliente e burlaria o limite
+        // (atrás de proxy, server.forward-headers-strategy faz o getRemoteAddr trazer o cliente)
+        UploadEmPartesOutput upload = executar(() -> service.iniciar(dados.nomeArquivo(), dados.tamanho(),
+                request.getRemoteAddr()));
+        return ResponseEntity.created(URI.create("/orcamento/uploads/" + upload.id())).body(upload);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Consultar upload em partes",
+            description = "Informa quantos bytes já chegaram; depois de uma queda o envio continua desse ponto.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Situação do upload"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado")
+    })
+    public ResponseEntity<UploadEmPartesOutput> buscar(@PathVariable String id) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(service.buscar(id));
+    }
+
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Enviar parte do arquivo",
+            description = "Corpo com os bytes crus e Content-Range: bytes inicio-fim/total. A parte pode repetir "
+                    + "bytes já recebidos, mas deve começar no máximo em 'recebido'.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Parte gravada; devolve a situação do upload"),
+            @ApiResponse(responseCode = "400", description = "Content-Range inválido, parte grande demais ou corpo incompleto"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado"),
+            @ApiResponse(responseCode = "409", description = "Parte fora de ordem, upload já finalizado ou dados perdidos")
+    })
+    public UploadEmPartesOutput receberParte(@PathVariable String id,
+                                             @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+                                             HttpServletRequest request) {
+        long[] intervalo = interpretarContentRange(contentRange);
+        Long total = intervalo[2] < 0 ? null : intervalo[2];
+        return executar(() -> {
+            try {
+                return service.receberParte(id, intervalo[0], intervalo[1], total, request.getInputStream());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Não foi possível ler o corpo da requisição.", e);
+            }
+        });
+    }
+
+    @PostMapping("/{id}/finalizar")
+    @Operation(summary = "Finalizar upload em partes",
+            description = "Confere se todos os bytes chegaram e se o conteúdo é JPEG, PNG, GIF ou WebP.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload pronto para o cadastro do orçamento"),
+            @ApiResponse(responseCode = "400", description = "Arquivo não é uma imagem aceita; o upload é descartado"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado"),
+            @ApiResponse(responseCode = "409", description = "Ainda faltam bytes")
+    })
+    public UploadEmPartesOutput finalizar(@PathVariable String id) {
+        return executar(() -> service.finalizar(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancelar upload em partes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload descartado"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado")
+    })
+    public ResponseEntity<Void> cancelar(@PathVariable String id) {
+        service.cancelar(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static <T> T executar(Supplier<T> operacao) {
+        try {
+            return operacao.get();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Upload em partes recusado: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // "bytes inicio-fim/total" ou "bytes inicio-fim/*"; total -1 quando não informado
+    static long[] interpretarContentRange(String contentRange) {
+        String valor = contentRange.trim();
+        if (valor.startsWith("bytes ")) {
+            int traco = valor.indexOf('-');
+            int barra = valor.indexOf('/');
+            if (traco > 0 && barra > traco) {
+                try {
+                    long inicio = Long.parseLong(valor.substring("bytes ".length(), traco).trim());
+                    long fim = Long.parseLong(valor.substring(traco + 1, barra).trim());
+                    String total = valor.substring(barra + 1).trim();
+                    return new long[]{inicio, fim, total.equals("*") ? -1 : Long.parseLong(total)};
+                } catch (NumberFormatException e) {
+                    // cai no erro abaixo
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Content-Range deve ter o formato 'bytes inicio-fim/total'.");
+    }
+}
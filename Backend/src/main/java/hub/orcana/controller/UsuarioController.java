@@ -1,5 +1,6 @@
 package hub.orcana.controller;
 
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
 import hub.orcana.dto.usuario.CadastroUsuario;
 import hub.orcana.dto.usuario.ListarUsuarios;
 import hub.orcana.dto.usuario.LoginUsuario;
@@ -14,11 +15,11 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @RestController
@@ -79,26 +80,34 @@ public class UsuarioController {
     // Lista os usuários
     @GetMapping
     @Operation(summary = "Listar todos os usuários",
+            description = "Retorna uma página de usuários ordenada pelo id. " +
+                    "Para a próxima página, envie o proximoCursor recebido no parâmetro cursor",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Lista de usuários retornada com sucesso"),
+                    @ApiResponse(responseCode = "200", description = "Página de usuários retornada com sucesso"),
                     @ApiResponse(responseCode = "204", description = "Nenhum usuário encontrado"),
+                    @ApiResponse(responseCode = "400", description = "Cursor ou tamanho de página inválido"),
                     @ApiResponse(responseCode = "401", description = "Token não fornecido ou inválido",
                             content = @Content(schema = @Schema(example = "{\"message\": \"Erro de autenticação\", \"error\": \"AUTHENTICATION_ERROR\"}"))),
                     @ApiResponse(responseCode = "403", description = "Token expirado ou sem permissões",
                             content = @Content(schema = @Schema(example = "{\"message\": \"Acesso negado\", \"status\": 403}")))
             })
     @SecurityRequirement(name = "Bearer")
-    public ResponseEntity<List<ListarUsuarios>> listarUsuarios() {
+    public ResponseEntity<PaginaCursorOutput<ListarUsuarios>> listarUsuarios(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "${paginacao.tamanho-padrao:20}") int tamanho) {
         log.info("Iniciando busca por todos os usuários");
         try {
-            var usuarios = service.listar();
-            if (usuarios.isEmpty()) {
+            var usuarios = service.listar(cursor, tamanho);
+            if (usuarios.itens().isEmpty()) {
                 log.info("Nenhum usuário encontrado");
                 return ResponseEntity.noContent().build();
             } else {
-                log.info("Retornando {} usuários encontrados", usuarios.size());
+                log.info("Retornando {} usuários encontrados", usuarios.itens().size());
                 return ResponseEntity.ok(usuarios);
             }
+        } catch (IllegalArgumentException e) {
+            log.warn("Parâmetros de paginação inválidos: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             log.error("Erro ao listar usuários: {}", e.getMessage(), e);
             throw e;
@@ -0,0 +1,21 @@
+package hub.orcana.dto.agendamento;
+
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDateTime;
+
+// Linha plana da exportação de agendamentos (CSV/NDJSON), lida direto do banco sem carregar entidades
+public record AgendamentoExportacaoOutput(
+        Long id,
+        LocalDateTime dataHora,
+        StatusAgendamento status,
+        Integer tempoDuracao,
+        Boolean pagamentoFeito,
+        String formaPagamento,
+        Long usuarioId,
+        String nomeUsuario,
+        String emailUsuario,
+        String codigoOrcamento,
+        Double valor
+) {
+}
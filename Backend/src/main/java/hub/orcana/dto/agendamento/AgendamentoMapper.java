@@ -21,14 +21,25 @@ public class AgendamentoMapper {
                 agendamento.getOrcamento().getCores(),
                 agendamento.getOrcamento().getLocalCorpo(),
                 null,
-                agendamento.getImagemReferencia(), // <- pega do agendamento
+                // <- pega do agendamento; copia para não carregar a coleção lazy depois da sessão
+                agendamento.getImagemReferencia() != null ? new ArrayList<>(agendamento.getImagemReferencia()) : null,
                 agendamento.getTempoDuracao(),
                 agendamento.getPagamentoFeito(),
-                agendamento.getFormaPagamento()
+                agendamento.getFormaPagamento(),
+                versao(agendamento)
         );
         return dto;
     }
 
+    // a versão do orçamento entra porque a resposta também traz ideia, tamanho, cores e local dele
+    private static String versao(Agendamento agendamento) {
+        if (agendamento.getVersao() == null) {
+            return null;
+        }
+        Long versaoOrcamento = agendamento.getOrcamento().getVersao();
+        return versaoOrcamento != null ? agendamento.getVersao() + "." + versaoOrcamento : agendamento.getVersao().toString();
+    }
+
     public static Agendamento of (CadastroAgendamentoInput dto, Usuario usuario, Orcamento orcamento) {
         Agendamento agendamento = new Agendamento();
 
@@ -36,6 +47,7 @@ public class AgendamentoMapper {
         agendamento.setOrcamento(orcamento);
         agendamento.setDataHora(dto.dataHora());
         agendamento.setStatus(dto.status());
+        agendamento.setTempoDuracao(dto.tempoDuracao());
 
 
         // IMPORTANTE: copiar a lista para evitar erro de Hibernate
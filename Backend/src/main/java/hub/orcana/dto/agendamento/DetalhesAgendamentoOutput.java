@@ -1,5 +1,7 @@
 package hub.orcana.dto.agendamento;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,5 +20,16 @@ public record DetalhesAgendamentoOutput(
         List<String> imagemReferencia,
         Integer tempoDuracao,
         Boolean pagamentoFeito,
-        String formaPagamento
-) {}
\ No newline at end of file
+        String formaPagamento,
+        // vai no cabeçalho ETag, não no corpo: "<versão do agendamento>.<versão do orçamento>",
+        // porque a resposta também mostra dados do orçamento
+        @JsonIgnore String versao
+) {
+    public DetalhesAgendamentoOutput(Long id, LocalDateTime dataHora, String status, String nomeUsuario,
+                                     String emailUsuario, String codigoOrcamento, String ideia, Double tamanho,
+                                     String cores, String localCorpo, String observacoes, List<String> imagemReferencia,
+                                     Integer tempoDuracao, Boolean pagamentoFeito, String formaPagamento) {
+        this(id, dataHora, status, nomeUsuario, emailUsuario, codigoOrcamento, ideia, tamanho, cores, localCorpo,
+                observacoes, imagemReferencia, tempoDuracao, pagamentoFeito, formaPagamento, null);
+    }
+}
\ No newline at end of file
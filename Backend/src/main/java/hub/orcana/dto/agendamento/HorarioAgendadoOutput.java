@@ -0,0 +1,12 @@
+package hub.orcana.dto.agendamento;
+
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDateTime;
+
+public record HorarioAgendadoOutput(
+        Long id,
+        LocalDateTime dataHora,
+        Integer tempoDuracao,
+        StatusAgendamento status
+) {}
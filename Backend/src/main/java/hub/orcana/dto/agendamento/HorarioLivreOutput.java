@@ -0,0 +1,8 @@
+package hub.orcana.dto.agendamento;
+
+import java.time.LocalDateTime;
+
+public record HorarioLivreOutput(
+        LocalDateTime inicio,
+        LocalDateTime fim
+) {}
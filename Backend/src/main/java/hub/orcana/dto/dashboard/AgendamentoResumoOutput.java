@@ -0,0 +1,17 @@
+package hub.orcana.dto.dashboard;
+
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDateTime;
+
+// Apenas os campos exibidos nos cards do dashboard
+public record AgendamentoResumoOutput(
+        Long id,
+        LocalDateTime dataHora,
+        StatusAgendamento status,
+        String nomeUsuario,
+        String codigoOrcamento,
+        String localCorpo,
+        Integer tempoDuracao
+) {
+}
@@ -0,0 +1,13 @@
+package hub.orcana.dto.dashboard;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record AnaliseOutput(
+        LocalDate de,
+        LocalDate ate,
+        GranularidadeAnalise granularidade,
+        MetricaAnaliseOutput total,
+        List<BaldeAnaliseOutput> baldes
+) {
+}
@@ -0,0 +1,15 @@
+package hub.orcana.dto.dashboard;
+
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record BaldeAnaliseOutput(
+        LocalDate inicio,
+        MetricaAnaliseOutput total,
+        Map<String, MetricaAnaliseOutput> porFormaPagamento,
+        Map<String, MetricaAnaliseOutput> porLocalCorpo,
+        Map<StatusAgendamento, MetricaAnaliseOutput> porStatus
+) {
+}
@@ -1,20 +1,25 @@
 package hub.orcana.dto.dashboard;
 
-import hub.orcana.tables.Agendamento;
-import hub.orcana.tables.Estoque;
+import hub.orcana.dto.estoque.DetalhesMaterialOutput;
 
 import java.util.Collections;
 import java.util.List;
 
 public record DashboardOutput(
-        Agendamento proximoAgendamento,
+        AgendamentoResumoOutput proximoAgendamento,
         long orcamentosPendentes,
-        List<Agendamento> agendamentosDoDia,
-        List<Estoque> alertasEstoque
+        List<AgendamentoResumoOutput> agendamentosDoDia,
+        List<DetalhesMaterialOutput> alertasEstoque,
+        boolean dadosParciais // true quando alguma consulta excedeu o tempo limite ou falhou
 ) {
     // Construtor compacto para garantir que listas não sejam null
     public DashboardOutput {
         agendamentosDoDia = agendamentosDoDia != null ? agendamentosDoDia : Collections.emptyList();
         alertasEstoque = alertasEstoque != null ? alertasEstoque : Collections.emptyList();
     }
-}
\ No newline at end of file
+
+    public DashboardOutput(AgendamentoResumoOutput proximoAgendamento, long orcamentosPendentes,
+                           List<AgendamentoResumoOutput> agendamentosDoDia, List<DetalhesMaterialOutput> alertasEstoque) {
+        this(proximoAgendamento, orcamentosPendentes, agendamentosDoDia, alertasEstoque, false);
+    }
+}
@@ -0,0 +1,17 @@
+package hub.orcana.dto.dashboard;
+
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDateTime;
+
+// Linha usada para montar o cubo de análise do dashboard
+public record FatoAgendamentoOutput(
+        Long id,
+        LocalDateTime dataHora,
+        StatusAgendamento status,
+        String formaPagamento,
+        String localCorpo,
+        Double valor,
+        Integer tempoDuracao
+) {
+}
@@ -0,0 +1,9 @@
+package hub.orcana.dto.dashboard;
+
+public record FaturamentoMensalOutput(
+        Integer ano,
+        Integer mes,
+        Double valor,
+        Long quantidade
+) {
+}
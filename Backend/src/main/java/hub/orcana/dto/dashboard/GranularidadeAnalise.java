@@ -0,0 +1,7 @@
+package hub.orcana.dto.dashboard;
+
+public enum GranularidadeAnalise {
+    DIA,
+    SEMANA, // semanas começando na segunda-feira
+    MES
+}
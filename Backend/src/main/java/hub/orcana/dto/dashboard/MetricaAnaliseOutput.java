@@ -0,0 +1,8 @@
+package hub.orcana.dto.dashboard;
+
+public record MetricaAnaliseOutput(
+        long quantidade,
+        double faturamento, // soma dos orçamentos de agendamentos concluídos
+        long minutos // soma de tempoDuracao
+) {
+}
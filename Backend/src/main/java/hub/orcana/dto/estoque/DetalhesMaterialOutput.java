@@ -1,9 +1,17 @@
 package hub.orcana.dto.estoque;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public record DetalhesMaterialOutput(
         Long id,
         String nome,
         Double quantidade,
         String unidadeMedida,
-        Double minAviso
-) {}
+        Double minAviso,
+        // vai no cabeçalho ETag, não no corpo
+        @JsonIgnore String versao
+) {
+    public DetalhesMaterialOutput(Long id, String nome, Double quantidade, String unidadeMedida, Double minAviso) {
+        this(id, nome, quantidade, unidadeMedida, minAviso, null);
+    }
+}
@@ -31,5 +31,8 @@ public record CadastroOrcamentoInput(
 
         List<MultipartFile> imagemReferencia,
 
+        // ids de uploads em partes já finalizados
+        List<String> uploads,
+
         Long usuario_id
 ) {}
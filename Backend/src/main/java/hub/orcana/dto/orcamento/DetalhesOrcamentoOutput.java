@@ -1,5 +1,6 @@
 package hub.orcana.dto.orcamento;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import hub.orcana.tables.StatusOrcamento;
 import java.sql.Time;
 import java.util.List;
@@ -15,19 +16,11 @@ public record DetalhesOrcamentoOutput (
         List<String> imagemReferencia,
         Double valor,
         Time tempo,
-        StatusOrcamento status
+        StatusOrcamento status,
+        // vai no cabeçalho ETag, não no corpo
+        @JsonIgnore String versao
 ) {
     public DetalhesOrcamentoOutput(String codigoOrcamento, String nome, String email, String ideia, Double tamanho, String cores, String localCorpo, List<String> imagemReferencia, Double valor, Time tempo, StatusOrcamento status) {
-        this.codigoOrcamento = codigoOrcamento;
-        this.nome = nome;
-        this.email = email;
-        this.ideia = ideia;
-        this.tamanho = tamanho;
-        this.cores = cores;
-        this.localCorpo = localCorpo;
-        this.imagemReferencia = imagemReferencia;
-        this.valor = valor;
-        this.tempo = tempo;
-        this.status = status;
+        this(codigoOrcamento, nome, email, ideia, tamanho, cores, localCorpo, imagemReferencia, valor, tempo, status, null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package hub.orcana.dto.orcamento;
+
+import hub.orcana.tables.StatusOrcamento;
+
+import java.sql.Time;
+
+// Linha plana da exportação de orçamentos (CSV/NDJSON); as imagens ficam de fora
+public record OrcamentoExportacaoOutput(
+        String codigoOrcamento,
+        String nome,
+        String email,
+        String ideia,
+        Double valor,
+        Double tamanho,
+        String cores,
+        Time tempo,
+        String localCorpo,
+        StatusOrcamento status,
+        Long usuarioId
+) {
+}
@@ -0,0 +1,10 @@
+package hub.orcana.dto.orcamento;
+
+import hub.orcana.tables.SituacaoProcessamento;
+
+// Andamento do cadastro assíncrono, consultado pelo cliente depois do 202
+public record ProcessamentoOrcamentoOutput(
+        String codigoOrcamento,
+        SituacaoProcessamento situacao,
+        boolean finalizado
+) {}
@@ -0,0 +1,9 @@
+package hub.orcana.dto.paginacao;
+
+import java.util.List;
+
+// Página de uma listagem por cursor. proximoCursor é nulo na última página.
+public record PaginaCursorOutput<T>(
+        List<T> itens,
+        String proximoCursor
+) {}
@@ -0,0 +1,14 @@
+package hub.orcana.dto.uploads;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record IniciarUploadInput(
+        @NotBlank(message = "Nome do arquivo é obrigatório")
+        String nomeArquivo,
+
+        @NotNull(message = "Tamanho é obrigatório")
+        @Positive(message = "Tamanho deve ser um valor positivo")
+        Long tamanho
+) {}
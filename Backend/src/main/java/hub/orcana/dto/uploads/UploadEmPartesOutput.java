@@ -0,0 +1,10 @@
+package hub.orcana.dto.uploads;
+
+// Situação de um envio em partes: o cliente continua a partir de recebido
+public record UploadEmPartesOutput(
+        String id,
+        String nomeArquivo,
+        long tamanho,
+        long recebido,
+        boolean finalizado
+) {}
@@ -0,0 +1,20 @@
+package hub.orcana.dto.uploads;
+
+import java.time.LocalDateTime;
+
+// Ocupação da pasta de uploads e andamento da coleta de órfãos (GET /actuator/uploads)
+public record UsoDeArmazenamentoOutput(
+        long arquivos,
+        long bytes,
+        long originais,
+        long bytesOriginais,
+        long variantes,
+        long bytesVariantes,
+        long parciais,
+        long bytesParciais,
+        long registradosSemReferencia,
+        LocalDateTime ultimaColeta,
+        LocalDateTime ultimoCicloCompleto,
+        long arquivosRemovidos,
+        long bytesLiberados
+) {}
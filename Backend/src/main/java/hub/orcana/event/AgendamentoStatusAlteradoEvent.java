@@ -0,0 +1,14 @@
+package hub.orcana.event;
+
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDateTime;
+
+// Mudança de status de um agendamento, enviada ao dashboard como delta
+public record AgendamentoStatusAlteradoEvent(
+        Long id,
+        StatusAgendamento statusAnterior,
+        StatusAgendamento statusAtual,
+        LocalDateTime dataHora
+) {
+}
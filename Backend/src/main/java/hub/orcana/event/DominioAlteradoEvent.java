@@ -0,0 +1,34 @@
+package hub.orcana.event;
+
+// Publicado pelos services sempre que agendamentos, orçamentos ou estoque mudam,
+// para que consumidores derivados (cache do dashboard etc.) se atualizem
+public record DominioAlteradoEvent(
+        Entidade entidade,
+        Operacao operacao,
+        String id
+) {
+
+    public enum Entidade {
+        AGENDAMENTO,
+        ORCAMENTO,
+        ESTOQUE
+    }
+
+    public enum Operacao {
+        CRIADO,
+        ATUALIZADO,
+        REMOVIDO
+    }
+
+    public static DominioAlteradoEvent agendamento(Operacao operacao, Long id) {
+        return new DominioAlteradoEvent(Entidade.AGENDAMENTO, operacao, String.valueOf(id));
+    }
+
+    public static DominioAlteradoEvent orcamento(Operacao operacao, String codigo) {
+        return new DominioAlteradoEvent(Entidade.ORCAMENTO, operacao, codigo);
+    }
+
+    public static DominioAlteradoEvent estoque(Operacao operacao, Long id) {
+        return new DominioAlteradoEvent(Entidade.ESTOQUE, operacao, String.valueOf(id));
+    }
+}
@@ -0,0 +1,11 @@
+package hub.orcana.event;
+
+// Material que entrou ou saiu da faixa de alerta (quantidade abaixo do mínimo)
+public record EstoqueLimiteCruzadoEvent(
+        Long id,
+        String nome,
+        Double quantidade,
+        Double minAviso,
+        boolean abaixoDoMinimo
+) {
+}
@@ -0,0 +1,13 @@
+package hub.orcana.event;
+
+import java.sql.Time;
+
+// Valor e tempo definidos para o orçamento; o e-mail ao cliente só sai depois do commit
+public record OrcamentoAprovadoEvent(
+        String email,
+        String nome,
+        String codigoOrcamento,
+        Double valor,
+        Time tempo
+) {
+}
@@ -0,0 +1,12 @@
+package hub.orcana.event;
+
+import hub.orcana.tables.StatusOrcamento;
+
+// Novo orçamento recebido, enviado ao dashboard como delta
+public record OrcamentoCriadoEvent(
+        String codigoOrcamento,
+        String nome,
+        String localCorpo,
+        StatusOrcamento status
+) {
+}
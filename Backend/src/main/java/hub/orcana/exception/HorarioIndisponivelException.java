@@ -0,0 +1,8 @@
+package hub.orcana.exception;
+
+// intervalo do agendamento sobrepõe outro que já ocupa a agenda
+public class HorarioIndisponivelException extends RuntimeException {
+    public HorarioIndisponivelException() {
+        super("Horário indisponível: já existe um agendamento nesse período.");
+    }
+}
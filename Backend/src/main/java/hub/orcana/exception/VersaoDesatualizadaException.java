@@ -0,0 +1,19 @@
+package hub.orcana.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// If-Match com uma versão que não é mais a atual do registro
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+public class VersaoDesatualizadaException extends RuntimeException {
+    public VersaoDesatualizadaException(String recurso) {
+        super(recurso + " foi alterado(a) por outra requisição. Recarregue e tente novamente.");
+    }
+
+    // versaoEsperada nula = requisição sem If-Match, nada a verificar
+    public static void verificar(String recurso, Long versaoEsperada, Long versaoAtual) {
+        if (versaoEsperada != null && !versaoEsperada.equals(versaoAtual)) {
+            throw new VersaoDesatualizadaException(recurso);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package hub.orcana.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Intervalos ocupados da agenda, em minutos desde 1970-01-01T00:00 (hora local).
+// Cada dia guarda um array ordenado pelo início; um agendamento que atravessa a
+// meia-noite aparece em todos os dias que toca. Não é thread-safe: quem usa sincroniza.
+final class AgendaIntervalos {
+
+    static final long MINUTOS_POR_DIA = 24 * 60;
+
+    record Intervalo(long id, long inicio, long fim) {
+    }
+
+    private static final Intervalo[] VAZIO = new Intervalo[0];
+    private static final Comparator<Intervalo> POR_INICIO =
+            Comparator.comparingLong(Intervalo::inicio).thenComparingLong(Intervalo::id);
+
+    private final Map<Long, Intervalo[]> dias = new HashMap<>();
+    private final Map<Long, Intervalo> porAgendamento = new HashMap<>();
+
+    void limpar() {
+        dias.clear();
+        porAgendamento.clear();
+    }
+
+    int quantidade() {
+        return porAgendamento.size();
+    }
+
+    void registrar(long id, long inicio, long fim) {
+        remover(id);
+        Intervalo intervalo = new Intervalo(id, inicio, fim);
+        porAgendamento.put(id, intervalo);
+        for (long dia = dia(inicio); dia <= dia(fim - 1); dia++) {
+            Intervalo[] atual = dias.getOrDefault(dia, VAZIO);
+            Intervalo[] novo = Arrays.copyOf(atual, atual.length + 1);
+            int posicao = Arrays.binarySearch(atual, intervalo, POR_INICIO);
+            int insercao = posicao >= 0 ? posicao : -posicao - 1;
+            System.arraycopy(atual, insercao, novo, insercao + 1, atual.length - insercao);
+            novo[insercao] = intervalo;
+            dias.put(dia, novo);
+        }
+    }
+
+    void remover(long id) {
+        Intervalo intervalo = porAgendamento.remove(id);
+        if (intervalo == null) {
+            return;
+        }
+        for (long dia = dia(intervalo.inicio()); dia <= dia(intervalo.fim() - 1); dia++) {
+            Intervalo[] atual = dias.get(dia);
+            if (atual == null) {
+                continue;
+            }
+            Intervalo[] novo = Arrays.stream(atual).filter(i -> i.id() != id).toArray(Intervalo[]::new);
+            if (novo.length == 0) {
+                dias.remove(dia);
+            } else {
+                dias.put(dia, novo);
+            }
+        }
+    }
+
+    // true se [inicio, fim) cruza algum intervalo que não seja o do próprio agendamento
+    boolean conflita(long inicio, long fim, Long ignorar) {
+        for (long dia = dia(inicio); dia <= dia(fim - 1); dia++) {
+            for (Intervalo intervalo : dias.getOrDefault(dia, VAZIO)) {
+                if (intervalo.inicio() >= fim) {
+                    break;
+                }
+                if (intervalo.fim() > inicio && (ignorar == null || intervalo.id() != ignorar)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // intervalos ocupados do dia já fundidos: disjuntos e em ordem
+    List<long[]> ocupados(long dia) {
+        List<long[]> resultado = new ArrayList<>();
+        for (Intervalo intervalo : dias.getOrDefault(dia, VAZIO)) {
+            long[] ultimo = resultado.isEmpty() ? null : resultado.getLast();
+            if (ultimo != null && intervalo.inicio() <= ultimo[1]) {
+                ultimo[1] = Math.max(ultimo[1], intervalo.fim());
+            } else {
+                resultado.add(new long[]{intervalo.inicio(), intervalo.fim()});
+            }
+        }
+        return resultado;
+    }
+
+    static long dia(long minuto) {
+        return Math.floorDiv(minuto, MINUTOS_POR_DIA);
+    }
+}
@@ -1,25 +1,45 @@
 package hub.orcana.service;
 
 import hub.orcana.dto.agendamento.*;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.event.AgendamentoStatusAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.event.EstoqueLimiteCruzadoEvent;
+import hub.orcana.exception.VersaoDesatualizadaException;
 import hub.orcana.observer.AgendamentoObserver;
 import hub.orcana.observer.AgendamentoSubject;
 import hub.orcana.tables.*;
 import hub.orcana.tables.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @Service
 public class AgendamentoService implements AgendamentoSubject {
 
     private static final Logger log = LoggerFactory.getLogger(AgendamentoService.class);
 
+    // limites usados quando o período não é informado, mantendo a consulta sobre o índice
+    private static final LocalDateTime INICIO_PADRAO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIM_PADRAO = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final AgendamentoRepository repository;
     private final UsuarioRepository usuarioRepository;
     private final OrcamentoRepository orcamentoRepository;
@@ -28,6 +48,10 @@ public class AgendamentoService implements AgendamentoSubject {
     private final RelatorioRepository relatorioRepository;
     private final EquipamentoUsoRepository equipamentoUsoRepository;
     private final EstoqueRepository estoqueRepository;
+    private final FaturamentoMensalService faturamentoMensalService;
+    private final DisponibilidadeService disponibilidadeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenciaArquivoService referenciaArquivoService;
 
     public AgendamentoService(
             AgendamentoRepository repository,
@@ -36,7 +60,11 @@ public class AgendamentoService implements AgendamentoSubject {
             EmailService emailService,
             RelatorioRepository relatorioRepository,
             EquipamentoUsoRepository equipamentoUsoRepository,
-            EstoqueRepository estoqueRepository) {
+            EstoqueRepository estoqueRepository,
+            FaturamentoMensalService faturamentoMensalService,
+            DisponibilidadeService disponibilidadeService,
+            ApplicationEventPublisher eventPublisher,
+            ReferenciaArquivoService referenciaArquivoService) {
         this.repository = repository;
         this.usuarioRepository = usuarioRepository;
         this.orcamentoRepository = orcamentoRepository;
@@ -44,6 +72,10 @@ public class AgendamentoService implements AgendamentoSubject {
         this.relatorioRepository = relatorioRepository;
         this.equipamentoUsoRepository = equipamentoUsoRepository;
         this.estoqueRepository = estoqueRepository;
+        this.faturamentoMensalService = faturamentoMensalService;
+        this.disponibilidadeService = disponibilidadeService;
+        this.eventPublisher = eventPublisher;
+        this.referenciaArquivoService = referenciaArquivoService;
         this.attach(emailService);
     }
 
@@ -72,22 +104,42 @@ public class AgendamentoService implements AgendamentoSubject {
 
     // ------------------ CRUD BÁSICO ------------------
 
-    public List<DetalhesAgendamentoOutput> getAgendamentos() {
-        return repository.findAll().stream().map(AgendamentoMapper::of).toList();
+    @Transactional(readOnly = true)
+    public PaginaCursorOutput<DetalhesAgendamentoOutput> getAgendamentos(String cursor, int tamanho) {
+        CursorPaginacao.validarTamanho(tamanho);
+        ChaveAgendamento ultimo = chaveDoCursor(cursor);
+        return CursorPaginacao.montar(
+                repository.findPaginaApos(ultimo.dataHora(), ultimo.id(), Limit.of(tamanho + 1)),
+                tamanho, AgendamentoService::cursorDe, AgendamentoMapper::of);
     }
 
     public DetalhesAgendamentoOutput getAgendamentoPorId(Long id) {
-        Agendamento agendamento = repository.findById(id)
+        Agendamento agendamento = repository.findDetalhadoById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Agendamento não encontrado."));
         return AgendamentoMapper.of(agendamento);
     }
 
-    public List<DetalhesAgendamentoOutput> getAgendamentosByStatus(String status) {
-        return repository.findAll()
-                .stream()
-                .filter(atual -> atual.getStatus().name().equalsIgnoreCase(status))
-                .map(AgendamentoMapper::of)
-                .toList();
+    public Page<DetalhesAgendamentoOutput> getAgendamentosByStatus(
+            String status, LocalDateTime de, LocalDateTime ate, Pageable pageable) {
+        StatusAgendamento statusAgendamento;
+        try {
+            statusAgendamento = StatusAgendamento.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Status inválido: " + status);
+        }
+
+        // só dataHora é ordenável aqui; id desempata agendamentos no mesmo horário
+        Sort.Order ordem = pageable.getSort().getOrderFor("dataHora");
+        Sort.Direction direcao = ordem != null ? ordem.getDirection() : Sort.Direction.ASC;
+        Pageable pagina = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(direcao, "dataHora").and(Sort.by(direcao, "id")));
+
+        return repository.findByStatusAndDataHoraBetween(
+                        statusAgendamento,
+                        de != null ? de : INICIO_PADRAO,
+                        ate != null ? ate : FIM_PADRAO,
+                        pagina)
+                .map(AgendamentoMapper::of);
     }
 
     public DetalhesAgendamentoOutput postAgendamento(CadastroAgendamentoInput agendamento) {
@@ -104,7 +156,12 @@ public class AgendamentoService implements AgendamentoSubject {
 
         Agendamento novoAgendamento = AgendamentoMapper.of(agendamento, usuario, orcamento);
         novoAgendamento.setStatus(StatusAgendamento.PENDENTE);
-        Agendamento salvo = repository.save(novoAgendamento);
+        Agendamento salvo = disponibilidadeService.reservar(null, novoAgendamento.getDataHora(),
+                novoAgendamento.getTempoDuracao(), novoAgendamento.getStatus(),
+                () -> repository.save(novoAgendamento));
+        // o agendamento copia as imagens do orçamento: mais uma referência para cada arquivo
+        referenciaArquivoService.adicionar(salvo.getImagemReferencia());
+        eventPublisher.publishEvent(DominioAlteradoEvent.agendamento(Operacao.CRIADO, salvo.getId()));
 
         try {
             notifyObservers(salvo);
@@ -116,9 +173,16 @@ public class AgendamentoService implements AgendamentoSubject {
     }
 
     @Transactional
-    public DetalhesAgendamentoOutput putAgendamentoById(Long id, CadastroAgendamentoInput agendamento) {
+    public DetalhesAgendamentoOutput putAgendamentoById(Long id, CadastroAgendamentoInput agendamento, Long versaoEsperada) {
         Agendamento existente = repository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Agendamento não encontrado."));
+        VersaoDesatualizadaException.verificar("Agendamento", versaoEsperada, existente.getVersao());
+
+        // estado anterior, usado para manter o faturamento mensal consolidado
+        StatusAgendamento statusAnterior = existente.getStatus();
+        boolean estavaConcluido = statusAnterior == StatusAgendamento.CONCLUIDO;
+        LocalDateTime dataHoraAnterior = existente.getDataHora();
+        Double valorAnterior = valorDoOrcamento(existente);
 
         existente.setDataHora(agendamento.dataHora());
         existente.setStatus(agendamento.status());
@@ -142,18 +206,48 @@ public class AgendamentoService implements AgendamentoSubject {
             existente.setFormaPagamento(agendamento.formaPagamento());
         }
 
-        Agendamento salvo = repository.save(existente);
+        Agendamento salvo = disponibilidadeService.reservar(existente.getId(), existente.getDataHora(),
+                existente.getTempoDuracao(), existente.getStatus(), () -> repository.save(existente));
+        // publicado logo após a reserva: a agenda em memória já mudou, e se o flush ou o
+        // faturamento abaixo falharem, o rollback precisa do evento para reler o horário do banco
+        eventPublisher.publishEvent(DominioAlteradoEvent.agendamento(Operacao.ATUALIZADO, salvo.getId()));
+        // grava agora para a resposta já sair com a versão nova (ETag)
+        repository.flush();
+
+        if (estavaConcluido) {
+            faturamentoMensalService.remover(dataHoraAnterior, valorAnterior);
+        }
+        if (salvo.getStatus() == StatusAgendamento.CONCLUIDO) {
+            faturamentoMensalService.adicionar(salvo.getDataHora(), valorDoOrcamento(salvo));
+        }
+        if (statusAnterior != salvo.getStatus()) {
+            eventPublisher.publishEvent(new AgendamentoStatusAlteradoEvent(
+                    salvo.getId(), statusAnterior, salvo.getStatus(), salvo.getDataHora()));
+        }
+
         return AgendamentoMapper.of(salvo);
     }
 
+    @Transactional
     public void deleteAgendamentoById(Long id) {
         if (!repository.existsById(id)) {
             throw new IllegalArgumentException("Agendamento não encontrado.");
         }
+        repository.findById(id).ifPresent(a -> {
+            if (a.getStatus() == StatusAgendamento.CONCLUIDO) {
+                faturamentoMensalService.remover(a.getDataHora(), valorDoOrcamento(a));
+            }
+            referenciaArquivoService.remover(a.getImagemReferencia());
+        });
         repository.deleteById(id);
         if (repository.existsById(id)) {
             throw new IllegalArgumentException("Erro ao excluir agendamento.");
         }
+        eventPublisher.publishEvent(DominioAlteradoEvent.agendamento(Operacao.REMOVIDO, id));
+    }
+
+    public List<HorarioLivreOutput> getHorariosLivres(LocalDate de, LocalDate ate, Integer duracao, Integer limite) {
+        return disponibilidadeService.buscarHorariosLivres(de, ate, duracao, limite);
     }
 
     public boolean verificarCodigoOrcamento(String codigoOrcamento) {
@@ -166,26 +260,35 @@ public class AgendamentoService implements AgendamentoSubject {
         return agendamento.isEmpty();
     }
 
-    public List<String> getDatasOcupadas() {
-        LocalDateTime hoje = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        List<Agendamento> agendamentos = repository.findAll().stream()
-                .filter(a -> a.getDataHora().isAfter(hoje) || a.getDataHora().isEqual(hoje))
-                .toList();
-
-        return agendamentos.stream()
-                .map(a -> a.getDataHora().toLocalDate().toString())
-                .distinct()
-                .toList();
-    }
-
     public DetalhesAgendamentoOutput getAgendamentoCompleto(Long id) {
-        Agendamento agendamento = repository.findById(id)
+        Agendamento agendamento = repository.findDetalhadoById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Agendamento não encontrado."));
         return AgendamentoMapper.of(agendamento);
     }
 
-    public List<DetalhesAgendamentoOutput> getAgendamentosPorUsuario(Long usuarioId) {
-        return repository.findByUsuarioId(usuarioId).stream().map(AgendamentoMapper::of).toList();
+    @Transactional(readOnly = true)
+    public PaginaCursorOutput<DetalhesAgendamentoOutput> getAgendamentosPorUsuario(Long usuarioId, String cursor, int tamanho) {
+        CursorPaginacao.validarTamanho(tamanho);
+        ChaveAgendamento ultimo = chaveDoCursor(cursor);
+        return CursorPaginacao.montar(
+                repository.findPaginaDoUsuarioApos(usuarioId, ultimo.dataHora(), ultimo.id(), Limit.of(tamanho + 1)),
+                tamanho, AgendamentoService::cursorDe, AgendamentoMapper::of);
+    }
+
+    private static String cursorDe(Agendamento agendamento) {
+        return CursorPaginacao.codificar(agendamento.getDataHora(), agendamento.getId());
+    }
+
+    // chave (dataHora, id) da última linha entregue; sem cursor começa antes de qualquer agendamento
+    private static ChaveAgendamento chaveDoCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new ChaveAgendamento(INICIO_PADRAO, 0L);
+        }
+        return CursorPaginacao.decodificar(cursor, 2,
+                partes -> new ChaveAgendamento(LocalDateTime.parse(partes[0]), Long.parseLong(partes[1])));
+    }
+
+    private record ChaveAgendamento(LocalDateTime dataHora, Long id) {
     }
 
     public DetalhesAgendamentoOutput atualizarOrcamento(Long agendamentoId, String codigoOrcamento) {
@@ -193,11 +296,21 @@ public class AgendamentoService implements AgendamentoSubject {
                 .orElseThrow(() -> new IllegalArgumentException("Agendamento não encontrado."));
         Orcamento orcamento = orcamentoRepository.findByCodigoOrcamento(codigoOrcamento)
                 .orElseThrow(() -> new IllegalArgumentException("Orçamento não encontrado."));
+        Double valorAnterior = valorDoOrcamento(agendamento);
         agendamento.setOrcamento(orcamento);
         Agendamento salvo = repository.save(agendamento);
+
+        if (salvo.getStatus() == StatusAgendamento.CONCLUIDO) {
+            faturamentoMensalService.ajustarValor(salvo.getDataHora(), valorAnterior, orcamento.getValor());
+        }
+        eventPublisher.publishEvent(DominioAlteradoEvent.agendamento(Operacao.ATUALIZADO, salvo.getId()));
         return AgendamentoMapper.of(salvo);
     }
 
+    private static Double valorDoOrcamento(Agendamento agendamento) {
+        return agendamento.getOrcamento() != null ? agendamento.getOrcamento().getValor() : null;
+    }
+
     @Transactional
     public void adicionarMateriaisUsados(Long agendamentoId, AdicionarMateriaisRequest request) {
         log.info("Adicionando materiais usados ao agendamento ID: {}", agendamentoId);
@@ -220,33 +333,63 @@ public class AgendamentoService implements AgendamentoSubject {
         equipamentoUsoRepository.deleteByRelatorioId(relatorio.getId());
         log.info("Materiais antigos removidos do relatório ID: {}", relatorio.getId());
 
-        // 4. Adicionar novos materiais e atualizar estoque
+        // 4. Carregar todos os materiais de uma vez, somando linhas repetidas do mesmo material;
+        // ordenados por id para que baixas concorrentes travem as linhas na mesma ordem (sem deadlock)
+        Map<Long, Integer> quantidades = new TreeMap<>();
         for (MaterialUsadoRequest material : request.materiais()) {
-            Estoque equipamento = estoqueRepository.findById(material.materialId())
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "Material não encontrado: " + material.materialId()));
-
-            // Verificar se há estoque suficiente
-            if (equipamento.getQuantidade() < material.quantidade()) {
-                throw new IllegalArgumentException(
-                        String.format("Estoque insuficiente para %s. Disponível: %.1f, Solicitado: %d",
-                                equipamento.getNome(), equipamento.getQuantidade(), material.quantidade()));
+            quantidades.merge(material.materialId(), material.quantidade(), Integer::sum);
+        }
+        Map<Long, Estoque> equipamentos = new HashMap<>();
+        for (Estoque equipamento : estoqueRepository.findAllById(quantidades.keySet())) {
+            equipamentos.put(equipamento.getId(), equipamento);
+        }
+        quantidades.forEach((materialId, quantidade) -> {
+            Estoque equipamento = equipamentos.get(materialId);
+            if (equipamento == null) {
+                throw new IllegalArgumentException("Material não encontrado: " + materialId);
             }
+            if (equipamento.getQuantidade() < quantidade) {
+                throw estoqueInsuficiente(equipamento, quantidade);
+            }
+        });
+
+        // 5. Baixar o estoque no banco com UPDATE condicional em lote; se outra sessão consumiu
+        // o saldo entre a leitura e aqui, a linha não é atualizada e a transação inteira volta
+        List<Long> semSaldo = estoqueRepository.baixarQuantidades(quantidades);
+        if (!semSaldo.isEmpty()) {
+            Long materialId = semSaldo.getFirst();
+            throw estoqueInsuficiente(equipamentos.get(materialId), quantidades.get(materialId));
+        }
 
-            // Criar registro de uso
+        // 6. Registrar os usos em um único lote
+        List<EquipamentoUso> usos = new ArrayList<>(request.materiais().size());
+        for (MaterialUsadoRequest material : request.materiais()) {
             EquipamentoUso equipamentoUso = new EquipamentoUso();
-            equipamentoUso.setEquipamento(equipamento);
+            equipamentoUso.setEquipamento(equipamentos.get(material.materialId()));
             equipamentoUso.setQuantidade(material.quantidade());
             equipamentoUso.setRelatorio(relatorio);
-            equipamentoUsoRepository.save(equipamentoUso);
-
-            // Atualizar estoque (diminuir quantidade)
-            equipamento.setQuantidade(equipamento.getQuantidade() - material.quantidade());
-            estoqueRepository.save(equipamento);
-
-            log.info("Material '{}' (qtd: {}) adicionado ao relatório ID: {}. Estoque atualizado: {}",
-                    equipamento.getNome(), material.quantidade(), relatorio.getId(),
-                    equipamento.getQuantidade());
+            usos.add(equipamentoUso);
         }
+        equipamentoUsoRepository.inserirEmLote(usos);
+
+        quantidades.forEach((materialId, quantidade) -> {
+            Estoque equipamento = equipamentos.get(materialId);
+            double anterior = equipamento.getQuantidade();
+            double atual = anterior - quantidade;
+            eventPublisher.publishEvent(DominioAlteradoEvent.estoque(Operacao.ATUALIZADO, materialId));
+            Double minAviso = equipamento.getMinAviso();
+            if (minAviso != null && anterior >= minAviso && atual < minAviso) {
+                eventPublisher.publishEvent(new EstoqueLimiteCruzadoEvent(materialId, equipamento.getNome(),
+                        atual, minAviso, true));
+            }
+            log.info("Material '{}' (qtd: {}) adicionado ao relatório ID: {}. Estoque atualizado: {}",
+                    equipamento.getNome(), quantidade, relatorio.getId(), atual);
+        });
+    }
+
+    private static IllegalArgumentException estoqueInsuficiente(Estoque equipamento, int solicitado) {
+        return new IllegalArgumentException(
+                String.format("Estoque insuficiente para %s. Disponível: %.1f, Solicitado: %d",
+                        equipamento.getNome(), equipamento.getQuantidade(), solicitado));
     }
-}
\ No newline at end of file
+}
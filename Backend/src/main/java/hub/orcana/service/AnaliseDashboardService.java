@@ -0,0 +1,89 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.dashboard.AnaliseOutput;
+import hub.orcana.dto.dashboard.FatoAgendamentoOutput;
+import hub.orcana.dto.dashboard.GranularidadeAnalise;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Análises por período servidas do cubo em memória. O cubo é carregado na subida,
+// atualizado linha a linha pelos eventos de domínio e reconstruído uma vez por dia.
+@Slf4j
+@Service
+public class AnaliseDashboardService {
+
+    private final AgendamentoRepository agendamentoRepository;
+    private final CuboAgendamentos cubo = new CuboAgendamentos();
+    // serializa recarga completa e atualizações incrementais
+    private final Object atualizacao = new Object();
+
+    public AnaliseDashboardService(AgendamentoRepository agendamentoRepository) {
+        this.agendamentoRepository = agendamentoRepository;
+    }
+
+    public AnaliseOutput consultar(LocalDate de, LocalDate ate, GranularidadeAnalise granularidade) {
+        if (de == null || ate == null) {
+            throw new IllegalArgumentException("As datas inicial e final são obrigatórias.");
+        }
+        if (de.isAfter(ate)) {
+            throw new IllegalArgumentException("A data inicial deve ser anterior ou igual à data final.");
+        }
+        return cubo.consultar(de, ate, granularidade != null ? granularidade : GranularidadeAnalise.MES);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        recarregar();
+    }
+
+    @Scheduled(cron = "0 30 3 * * *", zone = "America/Sao_Paulo")
+    public void recarregar() {
+        synchronized (atualizacao) {
+            List<FatoAgendamentoOutput> fatos = agendamentoRepository.findFatosAnalise();
+            cubo.recarregar(fatos);
+            log.info("Cubo de análise do dashboard carregado com {} agendamentos", fatos.size());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDominioAlterado(DominioAlteradoEvent evento) {
+        try {
+            synchronized (atualizacao) {
+                switch (evento.entidade()) {
+                    case AGENDAMENTO -> atualizarAgendamento(evento);
+                    case ORCAMENTO -> {
+                        // remoção de orçamento já chega como remoção do agendamento
+                        if (evento.operacao() != DominioAlteradoEvent.Operacao.REMOVIDO) {
+                            agendamentoRepository.findFatosAnaliseByCodigoOrcamento(evento.id())
+                                    .forEach(cubo::atualizar);
+                        }
+                    }
+                    case ESTOQUE -> {
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // a reconstrução diária corrige qualquer linha que tenha ficado para trás
+            log.error("Falha ao atualizar cubo de análise para {} {}: {}", evento.entidade(), evento.id(), e.getMessage());
+        }
+    }
+
+    private void atualizarAgendamento(DominioAlteradoEvent evento) {
+        Long id = Long.valueOf(evento.id());
+        if (evento.operacao() == DominioAlteradoEvent.Operacao.REMOVIDO) {
+            cubo.remover(id);
+            return;
+        }
+        agendamentoRepository.findFatoAnaliseById(id)
+                .ifPresentOrElse(cubo::atualizar, () -> cubo.remover(id));
+    }
+}
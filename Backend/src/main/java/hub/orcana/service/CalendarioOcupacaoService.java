@@ -0,0 +1,188 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.agendamento.HorarioAgendadoOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Calendário de dias ocupados servido da memória. Cada dia do horizonte de agendamento
+// é um bit no mapa, com um contador ao lado para que remover um agendamento só libere
+// o dia quando ele era o último. A lista de datas e o ETag só são recalculados quando
+// o mapa muda ou o dia vira.
+@Slf4j
+@Service
+public class CalendarioOcupacaoService {
+
+    public record Calendario(List<String> datas, String etag) {
+    }
+
+    private record Instantaneo(Calendario calendario, long dia, long versao) {
+    }
+
+    private final AgendamentoRepository agendamentoRepository;
+    private final int horizonteDias;
+    private final Duration maxAge;
+
+    // estado abaixo é guardado pelo monitor da instância
+    private long inicio; // epoch day do bit 0
+    private BitSet ocupados;
+    private int[] contagens;
+    // agendamentos marcados além do horizonte (raros), contados por epoch day
+    private final TreeMap<Long, Integer> alemDoHorizonte = new TreeMap<>();
+    private final Map<Long, Long> diaPorAgendamento = new HashMap<>();
+
+    private volatile long versao;
+    private volatile Instantaneo instantaneo;
+
+    public CalendarioOcupacaoService(
+            AgendamentoRepository agendamentoRepository,
+            @Value("${agendamento.calendario.horizonte-dias:730}") int horizonteDias,
+            @Value("${agendamento.calendario.max-age-segundos:60}") long maxAgeSegundos) {
+        this.agendamentoRepository = agendamentoRepository;
+        this.horizonteDias = horizonteDias;
+        this.maxAge = Duration.ofSeconds(maxAgeSegundos);
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public Calendario getCalendario() {
+        long hoje = LocalDate.now().toEpochDay();
+        Instantaneo atual = instantaneo;
+        if (atual != null && atual.dia() == hoje && atual.versao() == versao) {
+            return atual.calendario();
+        }
+        synchronized (this) {
+            if (ocupados == null) {
+                recarregar();
+            }
+            List<String> datas = new ArrayList<>(ocupados.cardinality() + alemDoHorizonte.size());
+            int primeiro = (int) Math.max(0, Math.min(hoje - inicio, horizonteDias));
+            for (int i = ocupados.nextSetBit(primeiro); i >= 0; i = ocupados.nextSetBit(i + 1)) {
+                datas.add(LocalDate.ofEpochDay(inicio + i).toString());
+            }
+            for (Long dia : alemDoHorizonte.tailMap(Math.max(hoje, inicio + horizonteDias), true).keySet()) {
+                datas.add(LocalDate.ofEpochDay(dia).toString());
+            }
+            Calendario calendario = new Calendario(List.copyOf(datas), gerarEtag(datas));
+            instantaneo = new Instantaneo(calendario, hoje, versao);
+            return calendario;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        recarregar();
+    }
+
+    // reconstrói a partir de hoje: desliza o horizonte e corrige qualquer evento perdido
+    @Scheduled(cron = "0 5 0 * * *", zone = "America/Sao_Paulo")
+    public synchronized void recarregar() {
+        LocalDate hoje = LocalDate.now();
+        List<HorarioAgendadoOutput> horarios = agendamentoRepository.findHorariosAPartirDe(hoje.atStartOfDay());
+
+        inicio = hoje.toEpochDay();
+        ocupados = new BitSet(horizonteDias);
+        contagens = new int[horizonteDias];
+        alemDoHorizonte.clear();
+        diaPorAgendamento.clear();
+        for (HorarioAgendadoOutput horario : horarios) {
+            marcar(horario.id(), horario.dataHora().toLocalDate().toEpochDay());
+        }
+        versao++;
+        log.info("Calendário de ocupação carregado com {} agendamentos a partir de {}", horarios.size(), hoje);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDominioAlterado(DominioAlteradoEvent evento) {
+        // remoção de orçamento já chega como remoção do agendamento
+        if (evento.entidade() != DominioAlteradoEvent.Entidade.AGENDAMENTO) {
+            return;
+        }
+        try {
+            Long id = Long.valueOf(evento.id());
+            if (evento.operacao() == DominioAlteradoEvent.Operacao.REMOVIDO) {
+                atualizar(id, null);
+                return;
+            }
+            HorarioAgendadoOutput horario = agendamentoRepository.findHorarioById(id).orElse(null);
+            atualizar(id, horario != null ? horario.dataHora().toLocalDate().toEpochDay() : null);
+        } catch (Exception e) {
+            // a recarga diária corrige qualquer dia que tenha ficado para trás
+            log.error("Falha ao atualizar calendário de ocupação para agendamento {}: {}", evento.id(), e.getMessage());
+        }
+    }
+
+    private synchronized void atualizar(Long id, Long dia) {
+        if (ocupados == null) {
+            recarregar();
+            return;
+        }
+        desmarcar(id);
+        if (dia != null) {
+            marcar(id, dia);
+        }
+        versao++;
+    }
+
+    private void marcar(Long id, long dia) {
+        if (dia < inicio) {
+            return;
+        }
+        diaPorAgendamento.put(id, dia);
+        long posicao = dia - inicio;
+        if (posicao >= horizonteDias) {
+            alemDoHorizonte.merge(dia, 1, Integer::sum);
+            return;
+        }
+        if (contagens[(int) posicao]++ == 0) {
+            ocupados.set((int) posicao);
+        }
+    }
+
+    private void desmarcar(Long id) {
+        Long dia = diaPorAgendamento.remove(id);
+        if (dia == null) {
+            return;
+        }
+        long posicao = dia - inicio;
+        if (posicao >= horizonteDias) {
+            alemDoHorizonte.computeIfPresent(dia, (d, total) -> total > 1 ? total - 1 : null);
+            return;
+        }
+        if (--contagens[(int) posicao] == 0) {
+            ocupados.clear((int) posicao);
+        }
+    }
+
+    // ETag forte pelo conteúdo: continua válido entre reinícios enquanto as datas não mudarem
+    private static String gerarEtag(List<String> datas) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join(",", datas).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Erro ao gerar ETag do calendário", e);
+        }
+    }
+}
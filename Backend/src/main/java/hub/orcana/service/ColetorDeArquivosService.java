@@ -0,0 +1,339 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.uploads.UsoDeArmazenamentoOutput;
+import hub.orcana.service.VariantesImagemService.TamanhoVariante;
+import hub.orcana.tables.ArquivoArmazenado;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import hub.orcana.tables.repository.ArquivoArmazenadoRepository;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Coleta incremental (mark-and-sweep) da pasta de uploads. A cada execução percorre algumas
+// entradas do primeiro nível (as subpastas ab/ e os arquivos antigos UUID_nome), em ordem, a
+// partir de onde parou; apaga o que nenhum orçamento ou agendamento usa há mais que a carência.
+@Service
+public class ColetorDeArquivosService {
+
+    private static final Logger log = LoggerFactory.getLogger(ColetorDeArquivosService.class);
+    // limite de parâmetros por consulta IN
+    private static final int CONSULTA_MAXIMA = 500;
+
+    private final GerenciadorDeArquivosService gerenciadorService;
+    private final OrcamentoRepository orcamentoRepository;
+    private final AgendamentoRepository agendamentoRepository;
+    private final ArquivoArmazenadoRepository arquivoRepository;
+    private final Duration carencia;
+    private final int lote;
+
+    // última entrada do primeiro nível já percorrida; nulo no começo de um ciclo
+    private String cursor;
+    private final AtomicLong arquivosRemovidos = new AtomicLong();
+    private final AtomicLong bytesLiberados = new AtomicLong();
+    private volatile LocalDateTime ultimaColeta;
+    private volatile LocalDateTime ultimoCicloCompleto;
+
+    public ColetorDeArquivosService(GerenciadorDeArquivosService gerenciadorService,
+                                    OrcamentoRepository orcamentoRepository,
+                                    AgendamentoRepository agendamentoRepository,
+                                    ArquivoArmazenadoRepository arquivoRepository,
+                                    @Value("${uploads.gc.carencia-horas:24}") long carenciaHoras,
+                                    @Value("${uploads.gc.lote:2000}") int lote) {
+        this.gerenciadorService = gerenciadorService;
+        this.orcamentoRepository = orcamentoRepository;
+        this.agendamentoRepository = agendamentoRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.carencia = Duration.ofHours(carenciaHoras);
+        this.lote = lote;
+    }
+
+    enum Categoria { ORIGINAL, VARIANTE, PARCIAL }
+
+    @Scheduled(fixedDelayString = "${uploads.gc.intervalo-ms:300000}",
+            initialDelayString = "${uploads.gc.atraso-inicial-ms:60000}")
+    public void coletar() {
+        try {
+            coletarLote();
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha na coleta de arquivos órfãos: {}", e.getMessage(), e);
+        }
+    }
+
+    // Percorre entradas até juntar `lote` arquivos e devolve quantos foram removidos
+    synchronized int coletarLote() throws IOException {
+        Path raiz = gerenciadorService.getPastaRaiz();
+        if (!Files.isDirectory(raiz)) {
+            return 0;
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime limite = agora.minus(carencia);
+        Instant limiteArquivo = Instant.now().minus(carencia);
+
+        List<Path> entradas = entradasApos(raiz, cursor);
+        List<Path> arquivos = new ArrayList<>();
+        int percorridas = 0;
+        for (Path entrada : entradas) {
+            arquivos.addAll(arquivosDe(entrada));
+            percorridas++;
+            if (arquivos.size() >= lote) {
+                break;
+            }
+        }
+        boolean fimDoCiclo = percorridas == entradas.size();
+        cursor = fimDoCiclo ? null : entradas.get(percorridas - 1).getFileName().toString();
+
+        int removidos = varrer(arquivos, limite, limiteArquivo);
+        if (fimDoCiclo) {
+            removidos += limparTemporarios(limiteArquivo);
+            ultimoCicloCompleto = agora;
+        }
+        ultimaColeta = agora;
+        if (removidos > 0) {
+            log.info("Coleta de uploads: {} arquivos órfãos removidos", removidos);
+        }
+        return removidos;
+    }
+
+    private int varrer(List<Path> arquivos, LocalDateTime limite, Instant limiteArquivo) {
+        int removidos = 0;
+        List<Path> candidatos = new ArrayList<>();
+        for (Path arquivo : arquivos) {
+            if (!antigo(arquivo, limiteArquivo)) {
+                continue;
+            }
+            switch (categoria(arquivo)) {
+                // gravações interrompidas (.parcial) e remoções que não terminaram (.removendo)
+                case PARCIAL -> removidos += contabilizar(apagar(arquivo)) ? 1 : 0;
+                // variantes só saem junto com o original; sozinhas, são tratadas como ele
+                case VARIANTE -> {
+                    if (!Files.exists(originalDe(arquivo))) {
+                        candidatos.add(arquivo);
+                    }
+                }
+                case ORIGINAL -> candidatos.add(arquivo);
+            }
+        }
+
+        for (int inicio = 0; inicio < candidatos.size(); inicio += CONSULTA_MAXIMA) {
+            List<Path> parte = candidatos.subList(inicio, Math.min(candidatos.size(), inicio + CONSULTA_MAXIMA));
+            Set<String> usados = referenciados(parte.stream().map(Path::toString).toList());
+            for (Path arquivo : parte) {
+                if (!usados.contains(arquivo.toString()) && remover(arquivo, limite, limiteArquivo)) {
+                    removidos++;
+                }
+            }
+        }
+        return removidos;
+    }
+
+    // O arquivo sai do nome público por um rename antes da confirmação final: se um orçamento
+    // passou a usá-lo entre a consulta e o rename, ele volta para o lugar. Um upload do mesmo
+    // conteúdo que chegue depois do rename simplesmente grava o arquivo de novo.
+    private boolean remover(Path arquivo, LocalDateTime limite, Instant limiteArquivo) {
+        String caminho = arquivo.toString();
+        Optional<ArquivoArmazenado> registro = arquivoRepository.findByCaminho(caminho);
+        if (registro.isPresent() && (registro.get().getReferencias() > 0
+                || !registro.get().getAtualizadoEm().isBefore(limite))) {
+            return false;
+        }
+        // o upload que reaproveita um arquivo existente atualiza a data dele
+        if (!antigo(arquivo, limiteArquivo)) {
+            return false;
+        }
+        Path removendo = arquivo.resolveSibling("." + arquivo.getFileName() + "." + UUID.randomUUID() + ".removendo");
+        try {
+            Files.move(arquivo, removendo, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Não foi possível retirar o arquivo órfão {}: {}", arquivo, e.getMessage());
+            return false;
+        }
+
+        boolean voltouAoUso = !referenciados(List.of(caminho)).isEmpty()
+                || (registro.isPresent() && arquivoRepository.removerSemReferencia(caminho, limite) == 0);
+        if (voltouAoUso) {
+            restaurar(removendo, arquivo);
+            return false;
+        }
+
+        long liberados = Math.max(0, apagar(removendo));
+        for (TamanhoVariante tamanho : TamanhoVariante.values()) {
+            liberados += Math.max(0, apagar(VariantesImagemService.caminhoDaVariante(arquivo, tamanho)));
+        }
+        for (EntregaDeArquivosService.Codificacao codificacao : EntregaDeArquivosService.Codificacao.values()) {
+            liberados += Math.max(0, apagar(arquivo.resolveSibling(arquivo.getFileName() + codificacao.getSufixo())));
+        }
+        contabilizar(liberados);
+        log.debug("Arquivo órfão {} removido ({} bytes)", arquivo, liberados);
+        return true;
+    }
+
+    private boolean contabilizar(long liberados) {
+        if (liberados < 0) {
+            return false;
+        }
+        arquivosRemovidos.incrementAndGet();
+        bytesLiberados.addAndGet(liberados);
+        return true;
+    }
+
+    private void restaurar(Path removendo, Path arquivo) {
+        try {
+            if (Files.exists(arquivo)) {
+                // um upload do mesmo conteúdo já gravou o arquivo de novo
+                Files.deleteIfExists(removendo);
+            } else {
+                Files.move(removendo, arquivo, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            log.error("Não foi possível devolver {} para {}: {}", removendo, arquivo, e.getMessage());
+        }
+    }
+
+    private Set<String> referenciados(List<String> caminhos) {
+        Set<String> usados = new HashSet<>(orcamentoRepository.findImagensReferenciadas(caminhos));
+        usados.addAll(agendamentoRepository.findImagensReferenciadas(caminhos));
+        return usados;
+    }
+
+    // uploads que o processo perdeu no meio (queda da aplicação) ficam no diretório temporário;
+    // os do envio em partes ficam em outra pasta e têm a limpeza do UploadEmPartesService
+    private int limparTemporarios(Instant limiteArquivo) {
+        Path temporarios = Path.of(System.getProperty("java.io.tmpdir"));
+        int removidos = 0;
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(temporarios, "orcana-upload-*")) {
+            for (Path arquivo : arquivos) {
+                if (Files.isRegularFile(arquivo, LinkOption.NOFOLLOW_LINKS) && antigo(arquivo, limiteArquivo)
+                        && contabilizar(apagar(arquivo))) {
+                    removidos++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Não foi possível limpar os temporários de upload: {}", e.getMessage());
+        }
+        return removidos;
+    }
+
+    public UsoDeArmazenamentoOutput relatorio() throws IOException {
+        long[] quantidade = new long[Categoria.values().length];
+        long[] bytes = new long[Categoria.values().length];
+        Path raiz = gerenciadorService.getPastaRaiz();
+        if (Files.isDirectory(raiz)) {
+            try (Stream<Path> arquivos = Files.walk(raiz)) {
+                arquivos.filter(arquivo -> Files.isRegularFile(arquivo, LinkOption.NOFOLLOW_LINKS))
+                        .forEach(arquivo -> {
+                            int indice = categoria(arquivo).ordinal();
+                            quantidade[indice]++;
+                            bytes[indice] += tamanho(arquivo);
+                        });
+            }
+        }
+        int original = Categoria.ORIGINAL.ordinal();
+        int variante = Categoria.VARIANTE.ordinal();
+        int parcial = Categoria.PARCIAL.ordinal();
+        return new UsoDeArmazenamentoOutput(
+                quantidade[original] + quantidade[variante] + quantidade[parcial],
+                bytes[original] + bytes[variante] + bytes[parcial],
+                quantidade[original], bytes[original],
+                quantidade[variante], bytes[variante],
+                quantidade[parcial], bytes[parcial],
+                arquivoRepository.countByReferencias(0),
+                ultimaColeta, ultimoCicloCompleto,
+                arquivosRemovidos.get(), bytesLiberados.get());
+    }
+
+    private static List<Path> entradasApos(Path raiz, String cursor) throws IOException {
+        List<Path> entradas = new ArrayList<>();
+        try (DirectoryStream<Path> conteudo = Files.newDirectoryStream(raiz)) {
+            for (Path entrada : conteudo) {
+                if (cursor == null || entrada.getFileName().toString().compareTo(cursor) > 0) {
+                    entradas.add(entrada);
+                }
+            }
+        }
+        entradas.sort(Path::compareTo);
+        return entradas;
+    }
+
+    private static List<Path> arquivosDe(Path entrada) throws IOException {
+        if (!Files.isDirectory(entrada, LinkOption.NOFOLLOW_LINKS)) {
+            return Files.isRegularFile(entrada, LinkOption.NOFOLLOW_LINKS) ? List.of(entrada) : List.of();
+        }
+        try (Stream<Path> arquivos = Files.walk(entrada)) {
+            return arquivos.filter(arquivo -> Files.isRegularFile(arquivo, LinkOption.NOFOLLOW_LINKS)).toList();
+        }
+    }
+
+    static Categoria categoria(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        if (nome.startsWith(".")) {
+            return Categoria.PARCIAL;
+        }
+        return originalDe(arquivo).equals(arquivo) ? Categoria.ORIGINAL : Categoria.VARIANTE;
+    }
+
+    // foto.png.thumb.jpg e foto.png.br -> foto.png; o próprio arquivo quando não é variante
+    static Path originalDe(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        for (TamanhoVariante tamanho : TamanhoVariante.values()) {
+            String sufixo = "." + tamanho.getNome() + ".jpg";
+            if (nome.endsWith(sufixo) && nome.length() > sufixo.length()) {
+                return arquivo.resolveSibling(nome.substring(0, nome.length() - sufixo.length()));
+            }
+        }
+        for (EntregaDeArquivosService.Codificacao codificacao : EntregaDeArquivosService.Codificacao.values()) {
+            String sufixo = codificacao.getSufixo();
+            if (nome.endsWith(sufixo) && nome.length() > sufixo.length()) {
+                return arquivo.resolveSibling(nome.substring(0, nome.length() - sufixo.length()));
+            }
+        }
+        return arquivo;
+    }
+
+    private static boolean antigo(Path arquivo, Instant limite) {
+        try {
+            return Files.getLastModifiedTime(arquivo, LinkOption.NOFOLLOW_LINKS).toInstant().isBefore(limite);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long tamanho(Path arquivo) {
+        try {
+            return Files.size(arquivo);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // bytes liberados, ou -1 quando não havia o que apagar
+    private static long apagar(Path arquivo) {
+        try {
+            long bytes = Files.size(arquivo);
+            Files.delete(arquivo);
+            return bytes;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
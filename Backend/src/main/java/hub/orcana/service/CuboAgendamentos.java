@@ -0,0 +1,307 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.dashboard.AnaliseOutput;
+import hub.orcana.dto.dashboard.BaldeAnaliseOutput;
+import hub.orcana.dto.dashboard.FatoAgendamentoOutput;
+import hub.orcana.dto.dashboard.GranularidadeAnalise;
+import hub.orcana.dto.dashboard.MetricaAnaliseOutput;
+import hub.orcana.tables.StatusAgendamento;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Cubo colunar em memória com uma linha por agendamento.
+// Cada coluna é um array primitivo; textos (forma de pagamento, local do corpo)
+// viram códigos inteiros via dicionário. Consultas varrem só os arrays, sem banco.
+final class CuboAgendamentos {
+
+    static final String NAO_INFORMADO = "NAO_INFORMADO";
+    static final int MAX_BALDES = 2000;
+
+    private static final byte REMOVIDO = -1;
+    private static final StatusAgendamento[] STATUS = StatusAgendamento.values();
+    private static final int CONCLUIDO = StatusAgendamento.CONCLUIDO.ordinal();
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private long[] ids = new long[CAPACIDADE_INICIAL];
+    private int[] dias = new int[CAPACIDADE_INICIAL]; // epoch day
+    private int[] meses = new int[CAPACIDADE_INICIAL]; // ano * 12 + mês - 1
+    private byte[] status = new byte[CAPACIDADE_INICIAL];
+    private int[] formas = new int[CAPACIDADE_INICIAL];
+    private int[] locais = new int[CAPACIDADE_INICIAL];
+    private double[] valores = new double[CAPACIDADE_INICIAL];
+    private int[] minutos = new int[CAPACIDADE_INICIAL];
+    private int tamanho;
+    private int removidos;
+
+    private final Map<Long, Integer> posicoes = new HashMap<>();
+    private final Dicionario formasPagamento = new Dicionario();
+    private final Dicionario locaisCorpo = new Dicionario();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void recarregar(List<FatoAgendamentoOutput> fatos) {
+        lock.writeLock().lock();
+        try {
+            alocar(Math.max(CAPACIDADE_INICIAL, fatos.size()));
+            tamanho = 0;
+            removidos = 0;
+            posicoes.clear();
+            formasPagamento.limpar();
+            locaisCorpo.limpar();
+            for (FatoAgendamentoOutput fato : fatos) {
+                gravar(fato);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void atualizar(FatoAgendamentoOutput fato) {
+        lock.writeLock().lock();
+        try {
+            gravar(fato);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remover(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer posicao = posicoes.remove(id);
+            if (posicao == null) {
+                return;
+            }
+            status[posicao] = REMOVIDO;
+            removidos++;
+            if (removidos > tamanho / 2) {
+                compactar();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int quantidade() {
+        lock.readLock().lock();
+        try {
+            return posicoes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    AnaliseOutput consultar(LocalDate de, LocalDate ate, GranularidadeAnalise granularidade) {
+        int diaDe = (int) de.toEpochDay();
+        int diaAte = (int) ate.toEpochDay();
+        int mesDe = indiceMes(de);
+        int baldes = switch (granularidade) {
+            case DIA -> diaAte - diaDe + 1;
+            case SEMANA -> (segunda(diaAte) - segunda(diaDe)) / 7 + 1;
+            case MES -> indiceMes(ate) - mesDe + 1;
+        };
+        if (baldes > MAX_BALDES) {
+            throw new IllegalArgumentException("Período muito longo para a granularidade " + granularidade
+                    + ". Máximo de " + MAX_BALDES + " intervalos.");
+        }
+
+        lock.readLock().lock();
+        try {
+            int nFormas = formasPagamento.tamanho();
+            int nLocais = locaisCorpo.tamanho();
+            int nStatus = STATUS.length;
+            Acumulador porForma = new Acumulador(baldes * nFormas);
+            Acumulador porLocal = new Acumulador(baldes * nLocais);
+            Acumulador porStatus = new Acumulador(baldes * nStatus);
+
+            for (int i = 0; i < tamanho; i++) {
+                int s = status[i];
+                int dia = dias[i];
+                if (s == REMOVIDO || dia < diaDe || dia > diaAte) {
+                    continue;
+                }
+                int balde = switch (granularidade) {
+                    case DIA -> dia - diaDe;
+                    case SEMANA -> (segunda(dia) - segunda(diaDe)) / 7;
+                    case MES -> meses[i] - mesDe;
+                };
+                double faturamento = s == CONCLUIDO ? valores[i] : 0.0;
+                porForma.somar(balde * nFormas + formas[i], faturamento, minutos[i]);
+                porLocal.somar(balde * nLocais + locais[i], faturamento, minutos[i]);
+                porStatus.somar(balde * nStatus + s, faturamento, minutos[i]);
+            }
+
+            List<BaldeAnaliseOutput> resultado = new ArrayList<>(baldes);
+            Acumulador total = new Acumulador(1);
+            for (int b = 0; b < baldes; b++) {
+                Acumulador totalBalde = new Acumulador(1);
+                Map<StatusAgendamento, MetricaAnaliseOutput> statusBalde = new EnumMap<>(StatusAgendamento.class);
+                for (int s = 0; s < nStatus; s++) {
+                    int celula = b * nStatus + s;
+                    if (porStatus.quantidades[celula] > 0) {
+                        statusBalde.put(STATUS[s], porStatus.metrica(celula));
+                        totalBalde.somar(0, porStatus, celula);
+                        total.somar(0, porStatus, celula);
+                    }
+                }
+                resultado.add(new BaldeAnaliseOutput(
+                        inicioDoBalde(granularidade, de, diaDe, mesDe, b),
+                        totalBalde.metrica(0),
+                        porTexto(porForma, b, nFormas, formasPagamento),
+                        porTexto(porLocal, b, nLocais, locaisCorpo),
+                        statusBalde
+                ));
+            }
+            return new AnaliseOutput(de, ate, granularidade, total.metrica(0), resultado);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void gravar(FatoAgendamentoOutput fato) {
+        Integer posicao = posicoes.get(fato.id());
+        int i;
+        if (posicao != null) {
+            i = posicao;
+        } else {
+            if (tamanho == ids.length) {
+                alocar(ids.length * 2);
+            }
+            i = tamanho++;
+            posicoes.put(fato.id(), i);
+        }
+        LocalDate data = fato.dataHora().toLocalDate();
+        ids[i] = fato.id();
+        dias[i] = (int) data.toEpochDay();
+        meses[i] = indiceMes(data);
+        status[i] = (byte) fato.status().ordinal();
+        formas[i] = formasPagamento.codigo(fato.formaPagamento());
+        locais[i] = locaisCorpo.codigo(fato.localCorpo());
+        valores[i] = fato.valor() != null ? fato.valor() : 0.0;
+        minutos[i] = fato.tempoDuracao() != null ? fato.tempoDuracao() : 0;
+    }
+
+    // remove as linhas marcadas, mantendo a ordem das restantes
+    private void compactar() {
+        int destino = 0;
+        posicoes.clear();
+        for (int origem = 0; origem < tamanho; origem++) {
+            if (status[origem] == REMOVIDO) {
+                continue;
+            }
+            ids[destino] = ids[origem];
+            dias[destino] = dias[origem];
+            meses[destino] = meses[origem];
+            status[destino] = status[origem];
+            formas[destino] = formas[origem];
+            locais[destino] = locais[origem];
+            valores[destino] = valores[origem];
+            minutos[destino] = minutos[origem];
+            posicoes.put(ids[destino], destino);
+            destino++;
+        }
+        tamanho = destino;
+        removidos = 0;
+    }
+
+    private void alocar(int capacidade) {
+        ids = Arrays.copyOf(ids, capacidade);
+        dias = Arrays.copyOf(dias, capacidade);
+        meses = Arrays.copyOf(meses, capacidade);
+        status = Arrays.copyOf(status, capacidade);
+        formas = Arrays.copyOf(formas, capacidade);
+        locais = Arrays.copyOf(locais, capacidade);
+        valores = Arrays.copyOf(valores, capacidade);
+        minutos = Arrays.copyOf(minutos, capacidade);
+    }
+
+    private static Map<String, MetricaAnaliseOutput> porTexto(Acumulador acumulador, int balde, int n, Dicionario dicionario) {
+        Map<String, MetricaAnaliseOutput> resultado = new TreeMap<>();
+        for (int codigo = 0; codigo < n; codigo++) {
+            int celula = balde * n + codigo;
+            if (acumulador.quantidades[celula] > 0) {
+                resultado.put(dicionario.texto(codigo), acumulador.metrica(celula));
+            }
+        }
+        return resultado;
+    }
+
+    private static LocalDate inicioDoBalde(GranularidadeAnalise granularidade, LocalDate de, int diaDe, int mesDe, int balde) {
+        return switch (granularidade) {
+            case DIA -> de.plusDays(balde);
+            case SEMANA -> LocalDate.ofEpochDay(segunda(diaDe) + 7L * balde);
+            case MES -> YearMonth.of((mesDe + balde) / 12, (mesDe + balde) % 12 + 1).atDay(1);
+        };
+    }
+
+    // epoch day 0 (1970-01-01) foi uma quinta-feira
+    private static int segunda(int dia) {
+        return dia - Math.floorMod(dia + 3, 7);
+    }
+
+    private static int indiceMes(LocalDate data) {
+        return data.getYear() * 12 + data.getMonthValue() - 1;
+    }
+
+    private static final class Acumulador {
+        private final long[] quantidades;
+        private final double[] faturamentos;
+        private final long[] minutos;
+
+        private Acumulador(int celulas) {
+            quantidades = new long[celulas];
+            faturamentos = new double[celulas];
+            minutos = new long[celulas];
+        }
+
+        private void somar(int celula, double faturamento, int minutosLinha) {
+            quantidades[celula]++;
+            faturamentos[celula] += faturamento;
+            minutos[celula] += minutosLinha;
+        }
+
+        private void somar(int celula, Acumulador outro, int celulaOutro) {
+            quantidades[celula] += outro.quantidades[celulaOutro];
+            faturamentos[celula] += outro.faturamentos[celulaOutro];
+            minutos[celula] += outro.minutos[celulaOutro];
+        }
+
+        private MetricaAnaliseOutput metrica(int celula) {
+            return new MetricaAnaliseOutput(quantidades[celula], faturamentos[celula], minutos[celula]);
+        }
+    }
+
+    private static final class Dicionario {
+        private final Map<String, Integer> codigos = new HashMap<>();
+        private final List<String> textos = new ArrayList<>();
+
+        private int codigo(String texto) {
+            String chave = texto == null || texto.isBlank() ? NAO_INFORMADO : texto.trim();
+            return codigos.computeIfAbsent(chave, k -> {
+                textos.add(k);
+                return textos.size() - 1;
+            });
+        }
+
+        private String texto(int codigo) {
+            return textos.get(codigo);
+        }
+
+        private int tamanho() {
+            return textos.size();
+        }
+
+        private void limpar() {
+            codigos.clear();
+            textos.clear();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Paginação por chave: o cursor guarda a chave de ordenação da última linha entregue e
+// a próxima página começa logo depois dela, então qualquer página custa o mesmo que a primeira.
+// O token é opaco para o cliente (Base64 URL-safe); ele só devolve o que recebeu.
+final class CursorPaginacao {
+
+    static final int TAMANHO_MAXIMO = 100;
+
+    private static final String SEPARADOR = "|";
+
+    private CursorPaginacao() {
+    }
+
+    static int validarTamanho(int tamanho) {
+        if (tamanho < 1 || tamanho > TAMANHO_MAXIMO) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + TAMANHO_MAXIMO + ".");
+        }
+        return tamanho;
+    }
+
+    static String codificar(Object... chave) {
+        StringBuilder texto = new StringBuilder();
+        for (Object parte : chave) {
+            if (!texto.isEmpty()) {
+                texto.append(SEPARADOR);
+            }
+            texto.append(parte);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(texto.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // converte o cursor recebido na chave da última linha; qualquer falha vira 400
+    static <K> K decodificar(String cursor, int partes, Function<String[], K> leitor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] chave = texto.split("\\" + SEPARADOR, partes);
+            if (chave.length != partes) {
+                throw new IllegalArgumentException();
+            }
+            return leitor.apply(chave);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+    }
+
+    // as consultas trazem tamanho + 1 linhas: a excedente só indica que existe próxima página
+    static <E, T> PaginaCursorOutput<T> montar(List<E> linhas, int tamanho,
+                                               Function<E, String> cursorDe, Function<E, T> conversor) {
+        boolean temMais = linhas.size() > tamanho;
+        List<E> pagina = temMais ? linhas.subList(0, tamanho) : linhas;
+        return new PaginaCursorOutput<>(
+                pagina.stream().map(conversor).toList(),
+                temMais ? cursorDe.apply(pagina.getLast()) : null);
+    }
+}
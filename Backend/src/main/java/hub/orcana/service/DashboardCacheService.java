@@ -0,0 +1,186 @@
+package hub.orcana.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hub.orcana.dto.dashboard.DashboardKPIsOutput;
+import hub.orcana.dto.dashboard.DashboardOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Cache em memória na frente do DashboardService.
+// - Dentro do TTL a entrada é servida direto.
+// - Entre o TTL e o limite de obsolescência a entrada ainda é servida e uma única
+//   recomputação é disparada em segundo plano (stale-while-revalidate).
+// - Sem entrada válida, requisições concorrentes aguardam a mesma computação (single flight).
+// Eventos de domínio incrementam a versão e tornam todas as entradas inválidas.
+@Slf4j
+@Service
+public class DashboardCacheService {
+
+    static final String CHAVE_KPIS = "kpis";
+    static final String CHAVE_ESTATISTICAS = "estatisticas";
+    static final String CHAVE_FATURAMENTO_ANUAL = "faturamento-anual";
+
+    public record Resposta<T>(T valor, String etag) {
+    }
+
+    private record Entrada(Object valor, String etag, long calculadoEmMs, long versao) {
+    }
+
+    private final DashboardService dashboardService;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+    private final long obsoletoMs;
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entrada>> emAndamento = new ConcurrentHashMap<>();
+    // chaves com revalidação em segundo plano já despachada e ainda não terminada
+    private final Set<String> revalidando = ConcurrentHashMap.newKeySet();
+    private final AtomicLong versao = new AtomicLong();
+
+    public DashboardCacheService(
+            DashboardService dashboardService,
+            @Qualifier("dashboardExecutor") ExecutorService executor,
+            ObjectMapper objectMapper,
+            @Value("${dashboard.cache.ttl-ms:30000}") long ttlMs,
+            @Value("${dashboard.cache.obsoleto-ms:120000}") long obsoletoMs) {
+        this.dashboardService = dashboardService;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.ttlMs = ttlMs;
+        this.obsoletoMs = obsoletoMs;
+    }
+
+    public Resposta<List<Double>> getFaturamentoUltimos12Meses() {
+        return obter(CHAVE_FATURAMENTO_ANUAL, dashboardService::getFaturamentoUltimos12Meses, valor -> true);
+    }
+
+    // resultados parciais (consulta com timeout) não são guardados
+    public Resposta<DashboardOutput> getDashboardKPIs() {
+        return obter(CHAVE_KPIS, dashboardService::getDashboardKPIs, kpis -> !kpis.dadosParciais());
+    }
+
+    public Resposta<DashboardKPIsOutput> getEstatisticas() {
+        return obter(CHAVE_ESTATISTICAS, dashboardService::getEstatisticas, valor -> true);
+    }
+
+    // Executado após o commit da transação que publicou o evento; sem transação, na hora
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDominioAlterado(DominioAlteradoEvent evento) {
+        log.debug("Invalidando cache do dashboard: {} {} {}", evento.entidade(), evento.operacao(), evento.id());
+        invalidar();
+    }
+
+    public void invalidar() {
+        versao.incrementAndGet();
+        entradas.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Resposta<T> obter(String chave, Supplier<T> consulta, Predicate<T> armazenavel) {
+        Entrada entrada = entradas.get(chave);
+        long agora = System.currentTimeMillis();
+
+        if (entrada != null && entrada.versao() == versao.get()) {
+            long idade = agora - entrada.calculadoEmMs();
+            if (idade <= ttlMs) {
+                return new Resposta<>((T) entrada.valor(), entrada.etag());
+            }
+            if (idade <= ttlMs + obsoletoMs) {
+                revalidarEmSegundoPlano(chave, consulta, armazenavel);
+                return new Resposta<>((T) entrada.valor(), entrada.etag());
+            }
+        }
+
+        Entrada calculada = calcular(chave, consulta, armazenavel);
+        return new Resposta<>((T) calculada.valor(), calculada.etag());
+    }
+
+    // Só a requisição que reserva a chave despacha a tarefa; as outras que chegam na janela de
+    // obsolescência servem o valor antigo sem ocupar o executor com tarefas repetidas
+    private <T> void revalidarEmSegundoPlano(String chave, Supplier<T> consulta, Predicate<T> armazenavel) {
+        if (emAndamento.containsKey(chave) || !revalidando.add(chave)) {
+            return;
+        }
+        log.debug("Cache do dashboard obsoleto para '{}', revalidando em segundo plano", chave);
+        try {
+            executor.execute(() -> {
+                try {
+                    calcular(chave, consulta, armazenavel);
+                } catch (Exception e) {
+                    log.warn("Falha ao revalidar cache do dashboard '{}': {}", chave, e.getMessage());
+                } finally {
+                    revalidando.remove(chave);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidando.remove(chave);
+            log.warn("Revalidação do cache do dashboard '{}' recusada pelo executor", chave);
+        }
+    }
+
+    // single flight: a primeira thread calcula, as demais aguardam o mesmo resultado
+    private <T> Entrada calcular(String chave, Supplier<T> consulta, Predicate<T> armazenavel) {
+        CompletableFuture<Entrada> novo = new CompletableFuture<>();
+        CompletableFuture<Entrada> existente = emAndamento.putIfAbsent(chave, novo);
+        if (existente != null) {
+            try {
+                return existente.join();
+            } catch (CompletionException e) {
+                throw desembrulhar(e);
+            }
+        }
+
+        try {
+            long versaoInicial = versao.get();
+            T valor = consulta.get();
+            Entrada entrada = new Entrada(valor, gerarEtag(valor), System.currentTimeMillis(), versaoInicial);
+            // se um evento chegou durante o cálculo o valor já nasce inválido e não é guardado
+            if (armazenavel.test(valor) && versaoInicial == versao.get()) {
+                entradas.put(chave, entrada);
+            }
+            novo.complete(entrada);
+            return entrada;
+        } catch (RuntimeException e) {
+            novo.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, novo);
+        }
+    }
+
+    // ETag forte: hash do JSON serializado, igual enquanto o conteúdo não mudar
+    private String gerarEtag(Object valor) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(valor);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Erro ao gerar ETag do dashboard", e);
+        }
+    }
+
+    private static RuntimeException desembrulhar(CompletionException e) {
+        return e.getCause() instanceof RuntimeException causa ? causa : e;
+    }
+}
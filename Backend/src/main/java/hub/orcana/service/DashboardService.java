@@ -1,23 +1,37 @@
 package hub.orcana.service;
 
+import hub.orcana.dto.dashboard.AgendamentoResumoOutput;
 import hub.orcana.dto.dashboard.DashboardKPIsOutput;
 import hub.orcana.dto.dashboard.DashboardOutput;
-import hub.orcana.tables.Agendamento;
-import hub.orcana.tables.Estoque;
+import hub.orcana.dto.estoque.DetalhesMaterialOutput;
+import hub.orcana.tables.FaturamentoMensal;
 import hub.orcana.tables.StatusAgendamento;
 import hub.orcana.tables.StatusOrcamento;
 import hub.orcana.tables.repository.AgendamentoRepository;
 import hub.orcana.tables.repository.EstoqueRepository;
+import hub.orcana.tables.repository.FaturamentoMensalRepository;
 import hub.orcana.tables.repository.OrcamentoRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -26,44 +40,50 @@ public class DashboardService {
     private final AgendamentoRepository agendamentoRepository;
     private final EstoqueRepository estoqueRepository;
     private final OrcamentoRepository orcamentoRepository;
+    private final FaturamentoMensalRepository faturamentoMensalRepository;
+    private final ExecutorService executor;
+    private final TransactionTemplate transacaoLeitura;
+
+    // tempo máximo de espera pelas consultas paralelas do dashboard
+    @Value("${dashboard.kpis.timeout-ms:2000}")
+    private long timeoutConsultaMs;
 
     public DashboardService(AgendamentoRepository agendamentoRepository,
                             EstoqueRepository estoqueRepository,
-                            OrcamentoRepository orcamentoRepository) {
+                            OrcamentoRepository orcamentoRepository,
+                            FaturamentoMensalRepository faturamentoMensalRepository,
+                            @Qualifier("dashboardExecutor") ExecutorService executor,
+                            PlatformTransactionManager transactionManager) {
         this.agendamentoRepository = agendamentoRepository;
         this.estoqueRepository = estoqueRepository;
         this.orcamentoRepository = orcamentoRepository;
+        this.faturamentoMensalRepository = faturamentoMensalRepository;
+        this.executor = executor;
+        this.transacaoLeitura = new TransactionTemplate(transactionManager);
+        this.transacaoLeitura.setReadOnly(true);
     }
 
     @Transactional(readOnly = true)
     public List<Double> getFaturamentoUltimos12Meses() {
-        List<Double> faturamentoMensal = new ArrayList<>();
         LocalDate hoje = LocalDate.now();
+        YearMonth primeiroMes = YearMonth.from(hoje.minusMonths(11));
+        YearMonth ultimoMes = YearMonth.from(hoje);
 
         log.info("Calculando faturamento dos últimos 12 meses a partir de: {}", hoje);
 
-        for (int i = 11; i >= 0; i--) {
-            YearMonth mesAno = YearMonth.from(hoje.minusMonths(i));
-            
-            LocalDateTime inicioDoPeriodo = mesAno.atDay(1)
-                    .atTime(0, 0, 0);
-            LocalDateTime fimDoPeriodo = mesAno.atEndOfMonth()
-                    .atTime(23, 59, 59);
-
-            log.debug("Buscando faturamento de {} a {}", inicioDoPeriodo, fimDoPeriodo);
-
-            // Busca agendamentos do período
-            List<Agendamento> agendamentos = agendamentoRepository
-                    .findByDataHoraBetween(inicioDoPeriodo, fimDoPeriodo);
-
-            // Soma os valores dos orçamentos vinculados (apenas agendamentos concluídos)
-            Double faturamento = agendamentos.stream()
-                    .filter(a -> a.getStatus() == StatusAgendamento.CONCLUIDO)
-                    .filter(a -> a.getOrcamento() != null)
-                    .filter(a -> a.getOrcamento().getValor() != null)
-                    .mapToDouble(a -> a.getOrcamento().getValor())
-                    .sum();
+        // Lê no máximo 12 linhas do consolidado mensal (apenas agendamentos concluídos)
+        Map<YearMonth, Double> faturamentoPorMes = new HashMap<>();
+        for (FaturamentoMensal linha : faturamentoMensalRepository
+                .findByPeriodoBetween(primeiroMes.toString(), ultimoMes.toString())) {
+            faturamentoPorMes.put(YearMonth.parse(linha.getPeriodo()),
+                    linha.getValor() != null ? linha.getValor() : 0.0);
+        }
 
+        // Série densa de 12 posições em ordem cronológica, meses sem faturamento ficam zerados
+        List<Double> faturamentoMensal = new ArrayList<>(12);
+        for (int i = 0; i < 12; i++) {
+            YearMonth mesAno = primeiroMes.plusMonths(i);
+            Double faturamento = faturamentoPorMes.getOrDefault(mesAno, 0.0);
             log.debug("Faturamento do período {}: R$ {}", mesAno, faturamento);
             faturamentoMensal.add(faturamento);
         }
@@ -72,38 +92,50 @@ public class DashboardService {
         return faturamentoMensal;
     }
 
-    @Transactional(readOnly = true)
+    // As quatro consultas são independentes: rodam em paralelo, cada uma em sua própria transação
+    // somente leitura, e o tempo de resposta passa a ser o da consulta mais lenta.
+    // Listas são projeções (uma consulta cada), nenhuma entidade é serializada.
     public DashboardOutput getDashboardKPIs() {
         log.info("Buscando dados do dashboard");
 
-        // Próximo agendamento pendente (apenas futuros)
         LocalDateTime agora = LocalDateTime.now();
-        Agendamento proximoAgendamento = agendamentoRepository
-                .findProximoAgendamentoPorStatus(StatusAgendamento.CONFIRMADO, agora)
-                .orElse(null);
-        log.debug("Próximo agendamento: {}", proximoAgendamento != null ? proximoAgendamento.getId() + " em " + proximoAgendamento.getDataHora() : "nenhum");
+        LocalDate hoje = agora.toLocalDate();
+        LocalDateTime inicioDoDia = hoje.atStartOfDay();
+        LocalDateTime fimDoDia = hoje.atTime(23, 59, 59);
+
+        // Próximo agendamento confirmado (apenas futuros)
+        Future<AgendamentoResumoOutput> proximoFuture = submeter(() -> agendamentoRepository
+                .findProximoResumoPorStatus(StatusAgendamento.CONFIRMADO, agora)
+                .orElse(null));
 
         // Orçamentos pendentes
-        long orcamentosPendentes = orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE);
-        log.debug("Orçamentos pendentes: {}", orcamentosPendentes);
+        Future<Long> pendentesFuture = submeter(() -> orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE));
 
         // Agendamentos do dia
-        LocalDate hoje = LocalDate.now();
-        LocalDateTime inicioDoDia = hoje.atStartOfDay();
-        LocalDateTime fimDoDia = hoje.atTime(23, 59, 59);
-        List<Agendamento> agendamentosDoDia = agendamentoRepository
-                .findAllByDataHoraBetween(inicioDoDia, fimDoDia);
+        Future<List<AgendamentoResumoOutput>> doDiaFuture = submeter(() -> agendamentoRepository
+                .findResumoByDataHoraBetween(inicioDoDia, fimDoDia));
+
+        // Alertas de estoque
+        Future<List<DetalhesMaterialOutput>> alertasFuture = submeter(estoqueRepository::findAlertasEstoque);
+
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutConsultaMs);
+        List<String> indisponiveis = new ArrayList<>();
+
+        AgendamentoResumoOutput proximoAgendamento = aguardar(proximoFuture, "proximoAgendamento", null, prazo, indisponiveis);
+        log.debug("Próximo agendamento: {}", proximoAgendamento != null ? proximoAgendamento.id() + " em " + proximoAgendamento.dataHora() : "nenhum");
+
+        Long orcamentosPendentes = aguardar(pendentesFuture, "orcamentosPendentes", 0L, prazo, indisponiveis);
+        log.debug("Orçamentos pendentes: {}", orcamentosPendentes);
 
         // Protege contra null
+        List<AgendamentoResumoOutput> agendamentosDoDia = aguardar(doDiaFuture, "agendamentosDoDia", null, prazo, indisponiveis);
         if (agendamentosDoDia == null) {
             agendamentosDoDia = new ArrayList<>();
         }
         log.debug("Agendamentos do dia: {}", agendamentosDoDia.size());
 
-        // Alertas de estoque
-        List<Estoque> alertasEstoque = estoqueRepository.findAllByQuantidadeLessThanMinAviso();
-
         // Protege contra null
+        List<DetalhesMaterialOutput> alertasEstoque = aguardar(alertasFuture, "alertasEstoque", null, prazo, indisponiveis);
         if (alertasEstoque == null) {
             alertasEstoque = new ArrayList<>();
         }
@@ -111,12 +143,17 @@ public class DashboardService {
 
         DashboardOutput output = new DashboardOutput(
                 proximoAgendamento,
-                orcamentosPendentes,
+                orcamentosPendentes != null ? orcamentosPendentes : 0L,
                 agendamentosDoDia,
-                alertasEstoque
+                alertasEstoque,
+                !indisponiveis.isEmpty()
         );
 
-        log.info("Dashboard carregado com sucesso");
+        if (indisponiveis.isEmpty()) {
+            log.info("Dashboard carregado com sucesso");
+        } else {
+            log.warn("Dashboard carregado parcialmente, consultas indisponíveis: {}", indisponiveis);
+        }
         return output;
     }
 
@@ -128,26 +165,16 @@ public class DashboardService {
         long totalAgendamentos = agendamentoRepository.count();
         log.debug("Total de agendamentos: {}", totalAgendamentos);
 
-        // Agendamentos Concluídos
-        long agendamentosConcluidos = agendamentoRepository.countByStatus(StatusAgendamento.CONCLUIDO);
+        // Agendamentos Concluídos (consolidado mensal)
+        long agendamentosConcluidos = faturamentoMensalRepository.sumAgendamentosConcluidos();
         log.debug("Agendamentos concluídos: {}", agendamentosConcluidos);
 
-        // Faturamento Total (soma de todos os orçamentos de agendamentos concluídos)
-        Double faturamentoTotal = agendamentoRepository
-                .findByStatus(StatusAgendamento.CONCLUIDO)
-                .stream()
-                .filter(a -> a.getOrcamento() != null)
-                .filter(a -> a.getOrcamento().getValor() != null)
-                .mapToDouble(a -> a.getOrcamento().getValor())
-                .sum();
+        // Faturamento Total (consolidado mensal dos orçamentos de agendamentos concluídos)
+        Double faturamentoTotal = faturamentoMensalRepository.sumValor();
         log.debug("Faturamento total: R$ {}", faturamentoTotal);
 
         // Total de Produtos (soma das quantidades de todos os itens em estoque)
-        Integer totalProdutos = estoqueRepository
-                .findAll()
-                .stream()
-                .mapToInt(e -> e.getQuantidade().intValue())
-                .sum();
+        Integer totalProdutos = estoqueRepository.sumQuantidade().intValue();
         log.debug("Total de produtos em estoque: {}", totalProdutos);
 
         DashboardKPIsOutput output = new DashboardKPIsOutput(
@@ -160,4 +187,26 @@ public class DashboardService {
         log.info("Estatísticas calculadas: {}", output);
         return output;
     }
-}
\ No newline at end of file
+
+    private <T> Future<T> submeter(Supplier<T> consulta) {
+        return executor.submit(() -> transacaoLeitura.execute(status -> consulta.get()));
+    }
+
+    // aguarda até o prazo comum; em caso de timeout ou falha devolve o valor padrão e registra a consulta
+    private <T> T aguardar(Future<T> tarefa, String nome, T valorPadrao, long prazo, List<String> indisponiveis) {
+        try {
+            long restante = Math.max(0L, prazo - System.nanoTime());
+            return tarefa.get(restante, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            tarefa.cancel(true);
+            log.warn("Consulta '{}' do dashboard excedeu {} ms", nome, timeoutConsultaMs);
+        } catch (InterruptedException e) {
+            tarefa.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Falha na consulta '{}' do dashboard: {}", nome, e.getCause().getMessage(), e.getCause());
+        }
+        indisponiveis.add(nome);
+        return valorPadrao;
+    }
+}
@@ -0,0 +1,191 @@
+package hub.orcana.service;
+
+import hub.orcana.event.AgendamentoStatusAlteradoEvent;
+import hub.orcana.event.EstoqueLimiteCruzadoEvent;
+import hub.orcana.event.OrcamentoCriadoEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Conexões SSE do dashboard. Cada conexão tem uma fila limitada e uma virtual thread
+// que escreve nela; quem publica nunca bloqueia esperando um cliente lento.
+@Slf4j
+@Service
+public class DashboardStreamService {
+
+    static final String EVENTO_ORCAMENTO_CRIADO = "orcamento-criado";
+    static final String EVENTO_AGENDAMENTO_STATUS = "agendamento-status";
+    static final String EVENTO_ESTOQUE_LIMITE = "estoque-limite";
+    // enviado quando a fila do cliente estoura: o front deve recarregar /dashboard/kpis
+    static final String EVENTO_RESINCRONIZAR = "resincronizar";
+
+    private final ExecutorService executor;
+    private final long timeoutMs;
+    private final int capacidadeFila;
+    // uma licença por conexão, reservada antes de criar o emitter e devolvida ao encerrar
+    private final Semaphore vagas;
+
+    private final Set<Conexao> conexoes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequencia = new AtomicLong();
+
+    public DashboardStreamService(
+            @Qualifier("dashboardExecutor") ExecutorService executor,
+            @Value("${dashboard.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${dashboard.stream.buffer:64}") int capacidadeFila,
+            @Value("${dashboard.stream.max-conexoes:500}") int maxConexoes) {
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+        this.capacidadeFila = capacidadeFila;
+        this.vagas = new Semaphore(maxConexoes);
+    }
+
+    public SseEmitter conectar() {
+        return registrar(() -> new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter registrar(Supplier<SseEmitter> novoEmitter) {
+        if (!vagas.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Limite de conexões do dashboard atingido.");
+        }
+
+        Conexao conexao;
+        try {
+            SseEmitter emitter = novoEmitter.get();
+            conexao = new Conexao(emitter, new ArrayBlockingQueue<>(capacidadeFila));
+            conexoes.add(conexao);
+        } catch (RuntimeException e) {
+            vagas.release();
+            throw e;
+        }
+        // daqui em diante a vaga é devolvida pelo encerrar(), chamado uma única vez com efeito
+        SseEmitter emitter = conexao.emitter;
+        emitter.onCompletion(conexao::encerrar);
+        emitter.onTimeout(conexao::encerrar);
+        emitter.onError(erro -> conexao.encerrar());
+
+        try {
+            executor.execute(conexao::escrever);
+        } catch (RuntimeException e) {
+            conexao.encerrar();
+            throw e;
+        }
+        log.debug("Nova conexão no stream do dashboard. Total: {}", conexoes.size());
+        return emitter;
+    }
+
+    public int getConexoesAtivas() {
+        return conexoes.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrcamentoCriado(OrcamentoCriadoEvent evento) {
+        publicar(EVENTO_ORCAMENTO_CRIADO, evento);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAgendamentoStatusAlterado(AgendamentoStatusAlteradoEvent evento) {
+        publicar(EVENTO_AGENDAMENTO_STATUS, evento);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEstoqueLimiteCruzado(EstoqueLimiteCruzadoEvent evento) {
+        publicar(EVENTO_ESTOQUE_LIMITE, evento);
+    }
+
+    // comentário SSE periódico: mantém proxies abertos e detecta clientes desconectados
+    @Scheduled(fixedRateString = "${dashboard.stream.heartbeat-ms:15000}")
+    public void enviarHeartbeat() {
+        for (Conexao conexao : conexoes) {
+            conexao.enfileirar(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    void publicar(String nome, Object dados) {
+        if (conexoes.isEmpty()) {
+            return;
+        }
+        String id = String.valueOf(sequencia.incrementAndGet());
+        for (Conexao conexao : conexoes) {
+            conexao.enfileirar(SseEmitter.event()
+                    .id(id)
+                    .name(nome)
+                    .data(dados, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @PreDestroy
+    public void encerrarConexoes() {
+        for (Conexao conexao : conexoes) {
+            conexao.emitter.complete();
+            conexao.encerrar();
+        }
+    }
+
+    private final class Conexao {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> fila;
+        private volatile boolean ativa = true;
+
+        private Conexao(SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> fila) {
+            this.emitter = emitter;
+            this.fila = fila;
+        }
+
+        // cliente lento: descarta o que estava pendente e pede uma recarga completa
+        private synchronized void enfileirar(SseEmitter.SseEventBuilder evento) {
+            if (!ativa || fila.offer(evento)) {
+                return;
+            }
+            log.warn("Fila do stream do dashboard cheia, descartando {} eventos pendentes", fila.size());
+            fila.clear();
+            fila.offer(SseEmitter.event().name(EVENTO_RESINCRONIZAR).data(""));
+        }
+
+        private void escrever() {
+            try {
+                while (ativa) {
+                    SseEmitter.SseEventBuilder evento = fila.poll(1, TimeUnit.SECONDS);
+                    if (evento != null) {
+                        emitter.send(evento);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Cliente do stream do dashboard desconectado: {}", e.getMessage());
+                emitter.completeWithError(e);
+            } finally {
+                encerrar();
+            }
+        }
+
+        private void encerrar() {
+            ativa = false;
+            if (conexoes.remove(this)) {
+                vagas.release();
+                log.debug("Conexão do stream do dashboard encerrada. Total: {}", conexoes.size());
+            }
+        }
+    }
+}
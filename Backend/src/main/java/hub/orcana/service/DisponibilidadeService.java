@@ -0,0 +1,213 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.agendamento.HorarioAgendadoOutput;
+import hub.orcana.dto.agendamento.HorarioLivreOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.exception.HorarioIndisponivelException;
+import hub.orcana.tables.Agendamento;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Motor de disponibilidade da agenda. Os intervalos ocupados ficam em memória, por dia;
+// a checagem de conflito e a gravação do agendamento acontecem sob o mesmo lock, então
+// duas requisições concorrentes não conseguem reservar o mesmo horário (uma instância).
+@Slf4j
+@Service
+public class DisponibilidadeService {
+
+    static final int MAX_HORARIOS = 100;
+    static final int MAX_DIAS_BUSCA = 366;
+
+    private final AgendamentoRepository agendamentoRepository;
+    private final int duracaoPadrao;
+    private final LocalTime inicioExpediente;
+    private final LocalTime fimExpediente;
+    private final int passoMinutos;
+
+    // guardados pelo monitor da instância
+    private final AgendaIntervalos agenda = new AgendaIntervalos();
+    private boolean carregada;
+
+    public DisponibilidadeService(
+            AgendamentoRepository agendamentoRepository,
+            @Value("${agendamento.duracao-padrao-minutos:120}") int duracaoPadrao,
+            @Value("${agendamento.expediente.inicio:10:00}") String inicioExpediente,
+            @Value("${agendamento.expediente.fim:20:00}") String fimExpediente,
+            @Value("${agendamento.disponibilidade.passo-minutos:30}") int passoMinutos) {
+        this.agendamentoRepository = agendamentoRepository;
+        this.duracaoPadrao = duracaoPadrao;
+        this.inicioExpediente = LocalTime.parse(inicioExpediente);
+        this.fimExpediente = LocalTime.parse(fimExpediente);
+        if (!this.fimExpediente.isAfter(this.inicioExpediente)) {
+            throw new IllegalArgumentException("O fim do expediente deve ser depois do início.");
+        }
+        this.passoMinutos = passoMinutos;
+    }
+
+    // Verifica o horário e grava o agendamento sem soltar o lock no meio.
+    // Agendamentos cancelados não ocupam a agenda e por isso não são checados.
+    public synchronized Agendamento reservar(Long idAtual, LocalDateTime dataHora, Integer tempoDuracao,
+                                             StatusAgendamento status, Supplier<Agendamento> gravacao) {
+        garantirCarregada();
+        if (status != StatusAgendamento.CANCELADO) {
+            long inicio = minuto(dataHora);
+            if (agenda.conflita(inicio, inicio + duracao(tempoDuracao), idAtual)) {
+                throw new HorarioIndisponivelException();
+            }
+        }
+        Agendamento salvo = gravacao.get();
+        registrar(salvo.getId(), salvo.getDataHora(), salvo.getTempoDuracao(), salvo.getStatus());
+        return salvo;
+    }
+
+    public synchronized List<HorarioLivreOutput> buscarHorariosLivres(LocalDate de, LocalDate ate,
+                                                                      Integer duracao, Integer limite) {
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicioBusca = de != null ? de : hoje;
+        LocalDate fimBusca = ate != null ? ate : inicioBusca.plusDays(30);
+        int minutos = duracao != null ? duracao : duracaoPadrao;
+        int quantidade = limite != null ? limite : 10;
+
+        if (inicioBusca.isAfter(fimBusca)) {
+            throw new IllegalArgumentException("A data inicial deve ser anterior ou igual à data final.");
+        }
+        if (ChronoUnit.DAYS.between(inicioBusca, fimBusca) >= MAX_DIAS_BUSCA) {
+            throw new IllegalArgumentException("Período muito longo. Máximo de " + MAX_DIAS_BUSCA + " dias.");
+        }
+        if (minutos <= 0 || minutos > ChronoUnit.MINUTES.between(inicioExpediente, fimExpediente)) {
+            throw new IllegalArgumentException("Duração inválida: " + minutos + " minutos.");
+        }
+        if (quantidade <= 0 || quantidade > MAX_HORARIOS) {
+            throw new IllegalArgumentException("O limite deve estar entre 1 e " + MAX_HORARIOS + ".");
+        }
+
+        garantirCarregada();
+        long agora = minuto(LocalDateTime.now());
+        List<HorarioLivreOutput> livres = new ArrayList<>();
+        for (LocalDate data = inicioBusca.isBefore(hoje) ? hoje : inicioBusca;
+             !data.isAfter(fimBusca) && livres.size() < quantidade; data = data.plusDays(1)) {
+            long abertura = minuto(data.atTime(inicioExpediente));
+            long fechamento = minuto(data.atTime(fimExpediente));
+            List<long[]> ocupados = agenda.ocupados(data.toEpochDay());
+
+            long candidato = alinhar(Math.max(abertura, agora), abertura);
+            int k = 0;
+            while (candidato + minutos <= fechamento && livres.size() < quantidade) {
+                while (k < ocupados.size() && ocupados.get(k)[1] <= candidato) {
+                    k++;
+                }
+                if (k < ocupados.size() && ocupados.get(k)[0] < candidato + minutos) {
+                    candidato = alinhar(ocupados.get(k)[1], abertura);
+                    continue;
+                }
+                livres.add(new HorarioLivreOutput(dataHora(candidato), dataHora(candidato + minutos)));
+                candidato += passoMinutos;
+            }
+        }
+        return livres;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        recarregar();
+    }
+
+    // reconstrução diária: descarta o passado e corrige qualquer evento perdido
+    @Scheduled(cron = "0 10 0 * * *", zone = "America/Sao_Paulo")
+    public synchronized void recarregar() {
+        // um dia antes para pegar agendamentos que atravessam a meia-noite
+        List<HorarioAgendadoOutput> horarios = agendamentoRepository.findHorariosAPartirDe(
+                LocalDate.now().minusDays(1).atStartOfDay());
+        agenda.limpar();
+        for (HorarioAgendadoOutput horario : horarios) {
+            registrar(horario.id(), horario.dataHora(), horario.tempoDuracao(), horario.status());
+        }
+        carregada = true;
+        log.info("Agenda de disponibilidade carregada com {} agendamentos", agenda.quantidade());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDominioAlterado(DominioAlteradoEvent evento) {
+        sincronizar(evento);
+    }
+
+    // a reserva já entrou na memória antes do commit; se a transação voltar, relê do banco
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onDominioDesfeito(DominioAlteradoEvent evento) {
+        sincronizar(evento);
+    }
+
+    private void sincronizar(DominioAlteradoEvent evento) {
+        if (evento.entidade() != DominioAlteradoEvent.Entidade.AGENDAMENTO) {
+            return;
+        }
+        try {
+            Long id = Long.valueOf(evento.id());
+            HorarioAgendadoOutput horario = evento.operacao() == DominioAlteradoEvent.Operacao.REMOVIDO
+                    ? null
+                    : agendamentoRepository.findHorarioById(id).orElse(null);
+            synchronized (this) {
+                if (!carregada) {
+                    return;
+                }
+                if (horario == null) {
+                    agenda.remover(id);
+                } else {
+                    registrar(horario.id(), horario.dataHora(), horario.tempoDuracao(), horario.status());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Falha ao atualizar agenda de disponibilidade para agendamento {}: {}", evento.id(), e.getMessage());
+        }
+    }
+
+    private void registrar(Long id, LocalDateTime dataHora, Integer tempoDuracao, StatusAgendamento status) {
+        if (status == StatusAgendamento.CANCELADO || dataHora == null) {
+            agenda.remover(id);
+            return;
+        }
+        long inicio = minuto(dataHora);
+        agenda.registrar(id, inicio, inicio + duracao(tempoDuracao));
+    }
+
+    private void garantirCarregada() {
+        if (!carregada) {
+            recarregar();
+        }
+    }
+
+    private int duracao(Integer tempoDuracao) {
+        return tempoDuracao != null && tempoDuracao > 0 ? tempoDuracao : duracaoPadrao;
+    }
+
+    // próximo início válido a partir de minuto, na grade do expediente
+    private long alinhar(long minuto, long abertura) {
+        long passos = Math.max(0, Math.ceilDiv(minuto - abertura, passoMinutos));
+        return abertura + passos * passoMinutos;
+    }
+
+    private static long minuto(LocalDateTime dataHora) {
+        return Math.floorDiv(dataHora.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime dataHora(long minuto) {
+        return LocalDateTime.ofEpochSecond(minuto * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,179 @@
+package hub.orcana.service;
+
+import hub.orcana.service.GerenciadorDeArquivosService.TipoImagem;
+import hub.orcana.service.VariantesImagemService.TamanhoVariante;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@Service
+public class EntregaDeArquivosService {
+
+    // nome gravado por GerenciadorDeArquivosService.caminhoDoConteudo: <sha256>.<extensao>
+    private static final Pattern NOME_POR_CONTEUDO = Pattern.compile("([0-9a-f]{64})\\.[a-z0-9]+");
+
+    private final GerenciadorDeArquivosService gerenciadorService;
+    private final VariantesImagemService variantesService;
+
+    public EntregaDeArquivosService(GerenciadorDeArquivosService gerenciadorService,
+                                    VariantesImagemService variantesService) {
+        this.gerenciadorService = gerenciadorService;
+        this.variantesService = variantesService;
+    }
+
+    // Por quanto tempo o navegador pode guardar a resposta sem perguntar de novo
+    public enum Validade {
+        // nome pelo hash do conteúdo: os bytes nunca mudam
+        IMUTAVEL,
+        // nomes antigos UUID_nome
+        CURTA,
+        // original entregue no lugar de uma variante ainda não gerada: a URL logo terá outro conteúdo
+        REVALIDAR
+    }
+
+    public record ArquivoParaEntrega(Path caminho, long tamanho, String contentType,
+                                     String contentEncoding, String etag, Validade validade) {}
+
+    // variantes pré-comprimidas gravadas ao lado do original (foto.svg.br, foto.svg.gz), em
+    // ordem de preferência
+    enum Codificacao {
+        BR("br", ".br"),
+        GZIP("gzip", ".gz");
+
+        private final String nome;
+        private final String sufixo;
+
+        Codificacao(String nome, String sufixo) {
+            this.nome = nome;
+            this.sufixo = sufixo;
+        }
+
+        String getSufixo() {
+            return sufixo;
+        }
+    }
+
+    // Resolve /uploads/<relativo> dentro da pasta de uploads. Caminhos que saem dela, arquivos
+    // ocultos (gravações .parcial em andamento) e pastas não existem para o cliente. Com tamanho,
+    // entrega a variante reduzida; se ela ainda não existe, pede a geração e entrega o original.
+    public Optional<ArquivoParaEntrega> localizar(String relativo, TamanhoVariante tamanho, String acceptEncoding) {
+        Optional<Path> original = resolver(relativo);
+        if (original.isEmpty()) {
+            return Optional.empty();
+        }
+        Path arquivo = original.get();
+        Optional<BasicFileAttributes> atributos = atributos(arquivo);
+        if (atributos.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String nome = arquivo.getFileName().toString();
+        var porConteudo = NOME_POR_CONTEUDO.matcher(nome);
+        boolean imutavel = porConteudo.matches();
+        Validade validade = imutavel ? Validade.IMUTAVEL : Validade.CURTA;
+        String contentType = contentType(nome);
+        String identificador = imutavel
+                ? porConteudo.group(1)
+                : Long.toHexString(atributos.get().lastModifiedTime().toMillis()) + "-"
+                        + Long.toHexString(atributos.get().size());
+
+        if (tamanho != null) {
+            Path variante = VariantesImagemService.caminhoDaVariante(arquivo, tamanho);
+            Optional<BasicFileAttributes> daVariante = atributos(variante);
+            if (daVariante.isPresent()) {
+                return Optional.of(new ArquivoParaEntrega(variante, daVariante.get().size(),
+                        TipoImagem.JPEG.getContentType(), null,
+                        "\"" + identificador + "-" + tamanho.getNome() + "\"", validade));
+            }
+            variantesService.agendar(arquivo);
+            validade = Validade.REVALIDAR;
+        }
+
+        for (Codificacao codificacao : Codificacao.values()) {
+            if (!aceita(acceptEncoding, codificacao.nome)) {
+                continue;
+            }
+            Path variante = arquivo.resolveSibling(nome + codificacao.sufixo);
+            Optional<BasicFileAttributes> daVariante = atributos(variante);
+            if (daVariante.isPresent()) {
+                // cada representação tem a sua ETag forte: os bytes enviados são outros
+                return Optional.of(new ArquivoParaEntrega(variante, daVariante.get().size(), contentType,
+                        codificacao.nome, "\"" + identificador + "-" + codificacao.nome + "\"", validade));
+            }
+        }
+        return Optional.of(new ArquivoParaEntrega(arquivo, atributos.get().size(), contentType,
+                null, "\"" + identificador + "\"", validade));
+    }
+
+    private Optional<Path> resolver(String relativo) {
+        if (relativo == null || relativo.isBlank() || relativo.indexOf('\\') >= 0 || relativo.indexOf('\0') >= 0) {
+            return Optional.empty();
+        }
+        String semBarra = relativo.startsWith("/") ? relativo.substring(1) : relativo;
+        boolean segmentoInvalido = Arrays.stream(semBarra.split("/"))
+                .anyMatch(segmento -> segmento.isEmpty() || segmento.startsWith("."));
+        if (segmentoInvalido) {
+            return Optional.empty();
+        }
+        Path raiz = gerenciadorService.getPastaRaiz().toAbsolutePath().normalize();
+        Path arquivo = raiz.resolve(semBarra).normalize();
+        return arquivo.startsWith(raiz) ? Optional.of(arquivo) : Optional.empty();
+    }
+
+    // links simbólicos não são seguidos: um link dentro de uploads/ não pode expor outro arquivo
+    private static Optional<BasicFileAttributes> atributos(Path arquivo) {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS);
+            return atributos.isRegularFile() ? Optional.of(atributos) : Optional.empty();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String contentType(String nome) {
+        String extensao = nome.substring(nome.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        for (TipoImagem tipo : TipoImagem.values()) {
+            if (tipo.getExtensao().equals(extensao)) {
+                return tipo.getContentType();
+            }
+        }
+        // nomes antigos (UUID_nome) guardam a extensão que o cliente mandou
+        return MediaTypeFactory.getMediaType(nome).map(MediaType::toString).orElse("application/octet-stream");
+    }
+
+    // Accept-Encoding: br, gzip;q=0.8 — q=0 recusa a codificação
+    static boolean aceita(String acceptEncoding, String codificacao) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String item : acceptEncoding.split(",")) {
+            String[] partes = item.trim().split(";");
+            if (!partes[0].trim().equalsIgnoreCase(codificacao)) {
+                continue;
+            }
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim().toLowerCase(Locale.ROOT);
+                if (parametro.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parametro.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -2,9 +2,14 @@ package hub.orcana.service;
 
 import hub.orcana.dto.estoque.CadastroMaterialInput;
 import hub.orcana.dto.estoque.DetalhesMaterialOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.event.EstoqueLimiteCruzadoEvent;
 import hub.orcana.exception.DependenciaNaoEncontradaException;
+import hub.orcana.exception.VersaoDesatualizadaException;
 import hub.orcana.tables.Estoque;
 import hub.orcana.tables.repository.EstoqueRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatusCode;
@@ -20,9 +25,11 @@ import java.util.List;
 public class EstoqueService implements EstoqueSubject{
     private final EstoqueRepository repository;
     private final List<EstoqueObserver> observers;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public EstoqueService(EstoqueRepository repository, EmailService emailService) {
+    public EstoqueService(EstoqueRepository repository, EmailService emailService, ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
         this.observers = new ArrayList<>();
         this.attach(emailService);
     }
@@ -62,13 +69,7 @@ public class EstoqueService implements EstoqueSubject{
     public DetalhesMaterialOutput getEstoqueByNome(String nomeMaterial) {
         var materiais = repository.findEstoqueByNome(nomeMaterial)
                 .stream()
-                .map(atual -> new DetalhesMaterialOutput(
-                        atual.getId(),
-                        atual.getNome(),
-                        atual.getQuantidade(),
-                        atual.getUnidadeMedida(),
-                        atual.getMinAviso()
-                ))
+                .map(EstoqueService::paraDetalhes)
                 .toList();
 
         if (materiais.isEmpty()) {
@@ -89,6 +90,7 @@ public class EstoqueService implements EstoqueSubject{
                 estoque.minAviso()
         );
         repository.save(novoMaterial);
+        eventPublisher.publishEvent(DominioAlteradoEvent.estoque(Operacao.CRIADO, novoMaterial.getId()));
         DetalhesMaterialOutput detalhes = new DetalhesMaterialOutput(
                 novoMaterial.getId(),
                 novoMaterial.getNome(),
@@ -99,49 +101,56 @@ public class EstoqueService implements EstoqueSubject{
         return detalhes;
     }
 
-    public DetalhesMaterialOutput putEstoqueById(Long id, CadastroMaterialInput estoque) {
-        if (!repository.existsById(id)) {
-            throw new DependenciaNaoEncontradaException("Material");
-        }
-
-        Estoque existente = repository.findById(id).orElseThrow();
-        existente = new Estoque(
-                estoque.nome(),
-                estoque.quantidade(),
-                estoque.unidadeMedida(),
-                estoque.minAviso()
-        );
-        existente.setId(id);
-        repository.save(existente);
-        DetalhesMaterialOutput detalhes = new DetalhesMaterialOutput(
-                existente.getId(),
-                existente.getNome(),
-                existente.getQuantidade(),
-                existente.getUnidadeMedida(),
-                existente.getMinAviso()
-        );
-        return detalhes;
+    public DetalhesMaterialOutput putEstoqueById(Long id, CadastroMaterialInput estoque, Long versaoEsperada) {
+        // altera a entidade carregada (e não uma nova) para o @Version pegar edições concorrentes
+        Estoque existente = repository.findById(id)
+                .orElseThrow(() -> new DependenciaNaoEncontradaException("Material"));
+        VersaoDesatualizadaException.verificar("Material", versaoEsperada, existente.getVersao());
+
+        existente.setNome(estoque.nome());
+        existente.setQuantidade(estoque.quantidade());
+        existente.setUnidadeMedida(estoque.unidadeMedida());
+        existente.setMinAviso(estoque.minAviso());
+        Estoque salvo = repository.save(existente);
+        eventPublisher.publishEvent(DominioAlteradoEvent.estoque(Operacao.ATUALIZADO, id));
+        return paraDetalhes(salvo);
     }
 
-    public DetalhesMaterialOutput atualizarQuantidadeById(Long id, Double qtd) {
-        if (!repository.existsById(id)) {
-            throw new DependenciaNaoEncontradaException("Material");
-        }
+    public DetalhesMaterialOutput atualizarQuantidadeById(Long id, Double qtd, Long versaoEsperada) {
+        Estoque existente = repository.findById(id)
+                .orElseThrow(() -> new DependenciaNaoEncontradaException("Material"));
+        VersaoDesatualizadaException.verificar("Material", versaoEsperada, existente.getVersao());
 
-        Estoque existente = repository.findById(id).orElseThrow();
+        boolean estavaAbaixo = abaixoDoMinimo(existente.getQuantidade(), existente.getMinAviso());
         existente.setQuantidade(qtd);
-        repository.save(existente);
+        Estoque salvo = repository.save(existente);
+        eventPublisher.publishEvent(DominioAlteradoEvent.estoque(Operacao.ATUALIZADO, id));
+
+        boolean ficouAbaixo = abaixoDoMinimo(salvo.getQuantidade(), salvo.getMinAviso());
+        if (estavaAbaixo != ficouAbaixo) {
+            eventPublisher.publishEvent(new EstoqueLimiteCruzadoEvent(salvo.getId(), salvo.getNome(),
+                    salvo.getQuantidade(), salvo.getMinAviso(), ficouAbaixo));
+        }
 
-        notifyObservers(existente.getNome(), existente.getQuantidade(), existente.getMinAviso());
+        notifyObservers(salvo.getNome(), salvo.getQuantidade(), salvo.getMinAviso());
 
-        DetalhesMaterialOutput detalhes = new DetalhesMaterialOutput(
-                existente.getId(),
-                existente.getNome(),
-                existente.getQuantidade(),
-                existente.getUnidadeMedida(),
-                existente.getMinAviso()
+        return paraDetalhes(salvo);
+    }
+
+    private static DetalhesMaterialOutput paraDetalhes(Estoque material) {
+        return new DetalhesMaterialOutput(
+                material.getId(),
+                material.getNome(),
+                material.getQuantidade(),
+                material.getUnidadeMedida(),
+                material.getMinAviso(),
+                material.getVersao() != null ? material.getVersao().toString() : null
         );
-        return detalhes;
+    }
+
+    // mesma regra da consulta de alertas: minAviso definido e quantidade abaixo dele
+    private static boolean abaixoDoMinimo(Double quantidade, Double minAviso) {
+        return minAviso != null && quantidade != null && quantidade < minAviso;
     }
 
     public void deleteEstoqueById(Long id) {
@@ -153,6 +162,7 @@ public class EstoqueService implements EstoqueSubject{
             if (repository.existsById(id)) {
                 throw new IllegalArgumentException("Erro ao excluir material.");
             }
+            eventPublisher.publishEvent(DominioAlteradoEvent.estoque(Operacao.REMOVIDO, id));
     }
 
     // metodo de paginação com filtro opcional por nome
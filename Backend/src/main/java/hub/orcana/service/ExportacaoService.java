@@ -0,0 +1,220 @@
+package hub.orcana.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import hub.orcana.dto.agendamento.AgendamentoExportacaoOutput;
+import hub.orcana.dto.orcamento.OrcamentoExportacaoOutput;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import hub.orcana.tables.repository.ExportacaoEmFluxo;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Exportação de agendamentos e orçamentos em CSV ou NDJSON. As linhas saem do cursor do
+// banco direto para a resposta, então a memória usada não depende do tamanho da tabela.
+// Chamado de dentro do StreamingResponseBody: a transação (somente leitura) abre na thread
+// assíncrona e fica aberta enquanto o Stream do repositório é consumido.
+@Slf4j
+@Service
+public class ExportacaoService {
+
+    public enum Formato {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extensao;
+
+        Formato(String contentType, String extensao) {
+            this.contentType = contentType;
+            this.extensao = extensao;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String nomeArquivo(String prefixo) {
+            return prefixo + "-" + LocalDate.now() + "." + extensao;
+        }
+
+        public static Formato de(String valor) {
+            if (valor != null) {
+                for (Formato formato : values()) {
+                    if (formato.extensao.equals(valor.trim().toLowerCase(Locale.ROOT))) {
+                        return formato;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Formato de exportação inválido: " + valor + ". Use csv ou ndjson.");
+        }
+    }
+
+    private record Coluna<T>(String nome, Function<T, Object> valor) {
+    }
+
+    private static final DateTimeFormatter DATA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final List<Coluna<AgendamentoExportacaoOutput>> COLUNAS_AGENDAMENTO = List.of(
+            new Coluna<>("id", AgendamentoExportacaoOutput::id),
+            new Coluna<>("dataHora", AgendamentoExportacaoOutput::dataHora),
+            new Coluna<>("status", AgendamentoExportacaoOutput::status),
+            new Coluna<>("tempoDuracao", AgendamentoExportacaoOutput::tempoDuracao),
+            new Coluna<>("pagamentoFeito", AgendamentoExportacaoOutput::pagamentoFeito),
+            new Coluna<>("formaPagamento", AgendamentoExportacaoOutput::formaPagamento),
+            new Coluna<>("usuarioId", AgendamentoExportacaoOutput::usuarioId),
+            new Coluna<>("nomeUsuario", AgendamentoExportacaoOutput::nomeUsuario),
+            new Coluna<>("emailUsuario", AgendamentoExportacaoOutput::emailUsuario),
+            new Coluna<>("codigoOrcamento", AgendamentoExportacaoOutput::codigoOrcamento),
+            new Coluna<>("valor", AgendamentoExportacaoOutput::valor)
+    );
+
+    private static final List<Coluna<OrcamentoExportacaoOutput>> COLUNAS_ORCAMENTO = List.of(
+            new Coluna<>("codigoOrcamento", OrcamentoExportacaoOutput::codigoOrcamento),
+            new Coluna<>("nome", OrcamentoExportacaoOutput::nome),
+            new Coluna<>("email", OrcamentoExportacaoOutput::email),
+            new Coluna<>("ideia", OrcamentoExportacaoOutput::ideia),
+            new Coluna<>("valor", OrcamentoExportacaoOutput::valor),
+            new Coluna<>("tamanho", OrcamentoExportacaoOutput::tamanho),
+            new Coluna<>("cores", OrcamentoExportacaoOutput::cores),
+            new Coluna<>("tempo", OrcamentoExportacaoOutput::tempo),
+            new Coluna<>("localCorpo", OrcamentoExportacaoOutput::localCorpo),
+            new Coluna<>("status", OrcamentoExportacaoOutput::status),
+            new Coluna<>("usuarioId", OrcamentoExportacaoOutput::usuarioId)
+    );
+
+    private final AgendamentoRepository agendamentoRepository;
+    private final OrcamentoRepository orcamentoRepository;
+    private final ObjectWriter escritorJson;
+
+    public ExportacaoService(AgendamentoRepository agendamentoRepository,
+                             OrcamentoRepository orcamentoRepository,
+                             ObjectMapper objectMapper) {
+        this.agendamentoRepository = agendamentoRepository;
+        this.orcamentoRepository = orcamentoRepository;
+        // o flush fica por conta do laço de escrita, não de cada linha
+        this.escritorJson = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportarAgendamentos(Formato formato, OutputStream saida) throws IOException {
+        try (Stream<AgendamentoExportacaoOutput> linhas = agendamentoRepository.streamExportacao()) {
+            long total = escrever(formato, linhas.iterator(), COLUNAS_AGENDAMENTO, saida);
+            log.info("Exportação de agendamentos em {} concluída: {} linhas", formato, total);
+            return total;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportarOrcamentos(Formato formato, OutputStream saida) throws IOException {
+        try (Stream<OrcamentoExportacaoOutput> linhas = orcamentoRepository.streamExportacao()) {
+            long total = escrever(formato, linhas.iterator(), COLUNAS_ORCAMENTO, saida);
+            log.info("Exportação de orçamentos em {} concluída: {} linhas", formato, total);
+            return total;
+        }
+    }
+
+    private <T> long escrever(Formato formato, Iterator<T> linhas, List<Coluna<T>> colunas,
+                              OutputStream saida) throws IOException {
+        return formato == Formato.CSV
+                ? escreverCsv(linhas, colunas, saida)
+                : escreverNdjson(linhas, saida);
+    }
+
+    private <T> long escreverCsv(Iterator<T> linhas, List<Coluna<T>> colunas, OutputStream saida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024);
+        // BOM para o Excel abrir os acentos corretamente
+        escritor.write('\uFEFF');
+        for (int i = 0; i < colunas.size(); i++) {
+            escritor.write(i == 0 ? "" : ",");
+            escritor.write(colunas.get(i).nome());
+        }
+        escritor.write("\r\n");
+
+        long total = 0;
+        while (linhas.hasNext()) {
+            T linha = linhas.next();
+            for (int i = 0; i < colunas.size(); i++) {
+                if (i > 0) {
+                    escritor.write(',');
+                }
+                escreverCampo(escritor, colunas.get(i).valor().apply(linha));
+            }
+            escritor.write("\r\n");
+            if (++total % ExportacaoEmFluxo.FETCH_SIZE == 0) {
+                escritor.flush();
+            }
+        }
+        escritor.flush();
+        return total;
+    }
+
+    private <T> long escreverNdjson(Iterator<T> linhas, OutputStream saida) throws IOException {
+        JsonGenerator gerador = escritorJson.getFactory().createGenerator(saida);
+        gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gerador.setRootValueSeparator(new SerializedString("\n"));
+
+        long total = 0;
+        while (linhas.hasNext()) {
+            escritorJson.writeValue(gerador, linhas.next());
+            if (++total % ExportacaoEmFluxo.FETCH_SIZE == 0) {
+                gerador.flush();
+            }
+        }
+        if (total > 0) {
+            gerador.writeRaw('\n');
+        }
+        gerador.close();
+        return total;
+    }
+
+    // RFC 4180: aspas quando há separador, aspas ou quebra de linha. Texto que começa com
+    // = + - @ ganha um apóstrofo para a planilha não interpretar como fórmula.
+    private static void escreverCampo(Writer escritor, Object valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        if (valor instanceof LocalDateTime dataHora) {
+            escritor.write(DATA_HORA.format(dataHora));
+            return;
+        }
+        if (valor instanceof Double numero) {
+            escritor.write(BigDecimal.valueOf(numero).toPlainString());
+            return;
+        }
+        if (!(valor instanceof String texto)) {
+            escritor.write(valor.toString());
+            return;
+        }
+        if (!texto.isEmpty() && "=+-@".indexOf(texto.charAt(0)) >= 0) {
+            texto = "'" + texto;
+        }
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            escritor.write(texto);
+            return;
+        }
+        escritor.write('"');
+        escritor.write(texto.replace("\"", "\"\""));
+        escritor.write('"');
+    }
+}
@@ -0,0 +1,121 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.dashboard.FaturamentoMensalOutput;
+import hub.orcana.tables.FaturamentoMensal;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import hub.orcana.tables.repository.FaturamentoMensalRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Mantém a tabela faturamento_mensal sincronizada com os agendamentos concluídos
+@Slf4j
+@Service
+public class FaturamentoMensalService {
+
+    private final FaturamentoMensalRepository repository;
+    private final AgendamentoRepository agendamentoRepository;
+
+    public FaturamentoMensalService(FaturamentoMensalRepository repository,
+                                    AgendamentoRepository agendamentoRepository) {
+        this.repository = repository;
+        this.agendamentoRepository = agendamentoRepository;
+    }
+
+    // agendamento passou a ser CONCLUIDO
+    @Transactional
+    public void adicionar(LocalDateTime dataHora, Double valor) {
+        aplicar(dataHora, valorOuZero(valor), 1L);
+    }
+
+    // agendamento deixou de ser CONCLUIDO (ou foi excluído)
+    @Transactional
+    public void remover(LocalDateTime dataHora, Double valor) {
+        aplicar(dataHora, -valorOuZero(valor), -1L);
+    }
+
+    // valor do orçamento de um agendamento já concluído foi alterado
+    @Transactional
+    public void ajustarValor(LocalDateTime dataHora, Double valorAnterior, Double valorNovo) {
+        double diferenca = valorOuZero(valorNovo) - valorOuZero(valorAnterior);
+        if (diferenca != 0.0) {
+            aplicar(dataHora, diferenca, 0L);
+        }
+    }
+
+    // reconstrução completa a partir dos agendamentos, corrige qualquer divergência acumulada.
+    // O consolidado fica travado do começo ao fim: um lançamento concorrente espera a
+    // reconstrução terminar e é somado depois, em vez de se perder entre a leitura e a escrita.
+    @Scheduled(cron = "0 0 3 * * *", zone = "America/Sao_Paulo")
+    @Transactional
+    public void reconciliar() {
+        log.info("Iniciando reconciliação do faturamento mensal");
+
+        Map<String, FaturamentoMensal> atuais = repository.travarTodos().stream()
+                .collect(Collectors.toMap(FaturamentoMensal::getPeriodo, Function.identity()));
+
+        List<FaturamentoMensal> consolidado = agendamentoRepository
+                .sumFaturamentoAgrupadoPorMes(StatusAgendamento.CONCLUIDO)
+                .stream()
+                .map(this::toFaturamentoMensal)
+                .toList();
+
+        List<FaturamentoMensal> novos = new ArrayList<>();
+        for (FaturamentoMensal mes : consolidado) {
+            FaturamentoMensal atual = atuais.remove(mes.getPeriodo());
+            if (atual == null) {
+                novos.add(mes);
+            } else {
+                atual.setValor(mes.getValor());
+                atual.setAgendamentosConcluidos(mes.getAgendamentosConcluidos());
+            }
+        }
+        // meses que não têm mais agendamento concluído
+        repository.deleteAllInBatch(List.copyOf(atuais.values()));
+        repository.saveAll(novos);
+
+        log.info("Reconciliação do faturamento mensal concluída: {} meses", consolidado.size());
+    }
+
+    // popula a tabela na primeira subida da aplicação
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inicializar() {
+        if (repository.count() == 0) {
+            reconciliar();
+        }
+    }
+
+    private void aplicar(LocalDateTime dataHora, double valor, long quantidade) {
+        if (dataHora == null) {
+            return;
+        }
+        String periodo = YearMonth.from(dataHora).toString();
+        repository.lancar(periodo, valor, quantidade);
+        log.debug("Faturamento mensal {} ajustado: valor {} quantidade {}", periodo, valor, quantidade);
+    }
+
+    private FaturamentoMensal toFaturamentoMensal(FaturamentoMensalOutput linha) {
+        return new FaturamentoMensal(
+                YearMonth.of(linha.ano(), linha.mes()).toString(),
+                valorOuZero(linha.valor()),
+                linha.quantidade()
+        );
+    }
+
+    private static double valorOuZero(Double valor) {
+        return valor != null ? valor : 0.0;
+    }
+}
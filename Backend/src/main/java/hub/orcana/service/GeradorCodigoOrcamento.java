@@ -0,0 +1,99 @@
+package hub.orcana.service;
+
+import hub.orcana.tables.repository.SequenciaCodigoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Gera códigos ORC-XXXXXXXX sem consultar a tabela de orçamentos: cada instância reserva
+// um bloco da sequência no banco e distribui os valores dele em memória
+@Component
+public class GeradorCodigoOrcamento {
+
+    private static final Logger log = LoggerFactory.getLogger(GeradorCodigoOrcamento.class);
+
+    public static final String PREFIXO = "ORC-";
+    static final String SEQUENCIA = "orcamento";
+
+    // base32 de Crockford: sem I, L, O e U, que se confundem ao ditar ou digitar o código
+    static final String ALFABETO = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final int BASE = 32;
+    private static final int DIGITOS = 7;
+
+    // 7 dígitos base32 são 35 bits; o primeiro dígito fica sempre entre G e Z (bit 34 ligado),
+    // então um código novo nunca coincide com os antigos, que tinham só 0-9 e A-F
+    private static final int BITS = 34;
+    private static final long MASCARA = (1L << BITS) - 1;
+    private static final long FAIXA_NOVA = 1L << BITS;
+
+    private final SequenciaCodigoRepository repository;
+    private final int tamanhoBloco;
+    private final ReentrantLock trava = new ReentrantLock();
+    private long proximo;
+    private long fimDoBloco;
+
+    public GeradorCodigoOrcamento(SequenciaCodigoRepository repository,
+                                  @Value("${orcamento.codigo.bloco:100}") int tamanhoBloco) {
+        if (tamanhoBloco < 1) {
+            throw new IllegalArgumentException("orcamento.codigo.bloco deve ser positivo");
+        }
+        this.repository = repository;
+        this.tamanhoBloco = tamanhoBloco;
+    }
+
+    public String proximoCodigo() {
+        long valor;
+        trava.lock();
+        try {
+            if (proximo >= fimDoBloco) {
+                proximo = repository.reservarBloco(SEQUENCIA, tamanhoBloco);
+                fimDoBloco = proximo + tamanhoBloco;
+                log.debug("Bloco de códigos de orçamento reservado: {} a {}", proximo, fimDoBloco - 1);
+            }
+            valor = proximo++;
+        } finally {
+            trava.unlock();
+        }
+        if (valor > MASCARA) {
+            throw new IllegalStateException("Sequência de códigos de orçamento esgotada");
+        }
+        return formatar(valor);
+    }
+
+    static String formatar(long sequencial) {
+        long valor = FAIXA_NOVA | embaralhar(sequencial);
+        char[] corpo = new char[DIGITOS];
+        for (int i = DIGITOS - 1; i >= 0; i--) {
+            corpo[i] = ALFABETO.charAt((int) (valor % BASE));
+            valor /= BASE;
+        }
+        return PREFIXO + new String(corpo) + digitoVerificador(new String(corpo));
+    }
+
+    // Luhn mod 32: pega qualquer dígito trocado e a troca de dois dígitos vizinhos
+    static char digitoVerificador(String corpo) {
+        int fator = 2;
+        int soma = 0;
+        for (int i = corpo.length() - 1; i >= 0; i--) {
+            int parcela = fator * ALFABETO.indexOf(corpo.charAt(i));
+            soma += parcela / BASE + parcela % BASE;
+            fator = fator == 2 ? 1 : 2;
+        }
+        return ALFABETO.charAt((BASE - soma % BASE) % BASE);
+    }
+
+    // Permutação de 34 bits (multiplicação por ímpar e xor-shift são inversíveis): mantém a
+    // unicidade da sequência, mas códigos emitidos em seguida não ficam vizinhos, o que
+    // dificulta adivinhar códigos alheios na validação pública
+    static long embaralhar(long valor) {
+        long x = valor & MASCARA;
+        x = (x * 0x2545F491L) & MASCARA;
+        x ^= x >>> 17;
+        x = (x * 0x1B873593L) & MASCARA;
+        x ^= x >>> 15;
+        return x;
+    }
+}
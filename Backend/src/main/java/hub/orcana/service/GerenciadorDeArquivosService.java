@@ -1,20 +1,99 @@
 package hub.orcana.service;
 
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import java.nio.file.StandardCopyOption;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class GerenciadorDeArquivosService {
 
+    private static final Logger log = LoggerFactory.getLogger(GerenciadorDeArquivosService.class);
+
     private final Path pastaRaiz = Path.of("uploads");
 
+    // upload copiado para um arquivo temporário, que continua existindo depois que a requisição
+    // termina e o Tomcat apaga as partes do multipart; o SHA-256 é calculado durante a cópia
+    public record ArquivoRecebido(Path temporario, String nomeOriginal, String sha256, TipoImagem tipo, long tamanho) {}
+
+    // formatos aceitos como imagem de referência, reconhecidos pelos primeiros bytes do
+    // conteúdo e não pela extensão ou Content-Type informados pelo cliente
+    public enum TipoImagem {
+        JPEG("image/jpeg", "jpg"),
+        PNG("image/png", "png"),
+        GIF("image/gif", "gif"),
+        WEBP("image/webp", "webp");
+
+        static final int TAMANHO_CABECALHO = 12;
+        private static final byte[] ASSINATURA_PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+        private final String contentType;
+        private final String extensao;
+
+        TipoImagem(String contentType, String extensao) {
+            this.contentType = contentType;
+            this.extensao = extensao;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtensao() {
+            return extensao;
+        }
+
+        static Optional<TipoImagem> detectar(byte[] cabecalho) {
+            if (comecaCom(cabecalho, 0, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF})) {
+                return Optional.of(JPEG);
+            }
+            if (comecaCom(cabecalho, 0, ASSINATURA_PNG)) {
+                return Optional.of(PNG);
+            }
+            if (comecaCom(cabecalho, 0, ascii("GIF87a")) || comecaCom(cabecalho, 0, ascii("GIF89a"))) {
+                return Optional.of(GIF);
+            }
+            if (comecaCom(cabecalho, 0, ascii("RIFF")) && comecaCom(cabecalho, 8, ascii("WEBP"))) {
+                return Optional.of(WEBP);
+            }
+            return Optional.empty();
+        }
+
+        private static boolean comecaCom(byte[] dados, int posicao, byte[] assinatura) {
+            return dados.length >= posicao + assinatura.length
+                    && Arrays.equals(dados, posicao, posicao + assinatura.length, assinatura, 0, assinatura.length);
+        }
+
+        private static byte[] ascii(String texto) {
+            return texto.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
     @PostConstruct
     public void init() {
         try {
@@ -25,21 +104,169 @@ public class GerenciadorDeArquivosService {
             throw new RuntimeException("Não foi possível inicializar a pasta de uploads.", e);
         }
     }
-    // salva o arquivo e retorna o caminho dele
-    public String salvarArquivo(MultipartFile file) {
+
+    // Recebe as imagens de um orçamento em paralelo, uma virtual thread por arquivo. Se uma
+    // delas falhar, os temporários das demais são apagados e nenhuma é devolvida.
+    public List<ArquivoRecebido> receberArquivos(List<MultipartFile> arquivos) {
+        if (arquivos == null || arquivos.isEmpty()) {
+            return List.of();
+        }
+        return emParalelo(arquivos, this::receberArquivo, recebido -> descartar(recebido.temporario()));
+    }
+
+    public ArquivoRecebido receberArquivo(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Falha ao salvar arquivo vazio.");
+        }
+        Path temporario = null;
         try {
-            if (file.isEmpty()) {
-                throw new RuntimeException("Falha ao salvar arquivo vazio.");
+            temporario = Files.createTempFile("orcana-upload-", ".tmp");
+            MessageDigest sha256 = novoSha256();
+            TipoImagem tipo;
+            long tamanho;
+            try (InputStream entrada = new DigestInputStream(file.getInputStream(), sha256);
+                 OutputStream saida = Files.newOutputStream(temporario)) {
+                // o formato é conferido antes de gravar o resto: conteúdo inválido não chega ao disco
+                byte[] cabecalho = entrada.readNBytes(TipoImagem.TAMANHO_CABECALHO);
+                tipo = TipoImagem.detectar(cabecalho).orElseThrow(() -> new IllegalArgumentException(
+                        "Arquivo '" + file.getOriginalFilename() + "' não é uma imagem JPEG, PNG, GIF ou WebP."));
+                saida.write(cabecalho);
+                tamanho = cabecalho.length + entrada.transferTo(saida);
             }
+            return new ArquivoRecebido(temporario, file.getOriginalFilename(),
+                    HexFormat.of().formatHex(sha256.digest()), tipo, tamanho);
+        } catch (IOException e) {
+            descartar(temporario);
+            throw new RuntimeException("Falha ao salvar o arquivo.", e);
+        } catch (RuntimeException e) {
+            descartar(temporario);
+            throw e;
+        }
+    }
 
-            String nomeArquivo = UUID.randomUUID() + "_" + file.getOriginalFilename();
-            Path destino = this.pastaRaiz.resolve(nomeArquivo);
-            Files.copy(file.getInputStream(), destino, StandardCopyOption.REPLACE_EXISTING);
+    // Move os arquivos recebidos para a pasta de uploads. Se um falhar, a falha é relançada e
+    // nenhum caminho é devolvido, mas os arquivos já publicados ficam: pelo conteúdo, outro
+    // orçamento pode ter passado a usar o mesmo arquivo nesse meio tempo. Sem referência, a
+    // coleta de órfãos os apaga depois da carência.
+    public List<String> salvarArquivos(List<ArquivoRecebido> arquivos) {
+        if (arquivos.isEmpty()) {
+            return List.of();
+        }
+        return emParalelo(arquivos, this::gravar, caminho -> {});
+    }
 
-            return destino.toString();
+    // move o arquivo recebido para a pasta de uploads e retorna o caminho dele
+    public String salvarArquivo(ArquivoRecebido arquivo) {
+        return gravar(arquivo);
+    }
 
+    // O nome é o SHA-256 do conteúdo, em subpastas pelos 4 primeiros caracteres
+    // (uploads/ab/cd/<hash>.png): a mesma imagem enviada de novo reaproveita o arquivo, e
+    // nenhuma pasta passa de alguns milhares de entradas.
+    String gravar(ArquivoRecebido arquivo) {
+        Path destino = caminhoDoConteudo(arquivo.sha256(), arquivo.tipo());
+        if (Files.exists(destino)) {
+            descartar(arquivo.temporario());
+            tocar(destino);
+            return destino.toString();
+        }
+        Path parcial = destino.resolveSibling("." + destino.getFileName() + "." + UUID.randomUUID() + ".parcial");
+        try {
+            Files.createDirectories(destino.getParent());
+            // o temporário pode estar em outro disco; a cópia vai para um nome provisório e só
+            // aparece com o nome final de uma vez (publicar), nunca pela metade
+            Files.move(arquivo.temporario(), parcial);
+            publicar(parcial, destino);
+            return destino.toString();
+        } catch (FileAlreadyExistsException e) {
+            // outro lote gravou o mesmo conteúdo entre a checagem e a publicação: reaproveita
+            descartar(parcial);
+            tocar(destino);
+            return destino.toString();
         } catch (IOException e) {
+            descartar(parcial);
             throw new RuntimeException("Falha ao salvar o arquivo.", e);
         }
     }
+
+    // Dá o nome final sem nunca substituir um arquivo existente. O rename atômico troca o
+    // destino em silêncio no Linux; o hard link falha com FileAlreadyExistsException se o
+    // nome já existe e é atômico. Sem suporte a links, cai no move sem substituição.
+    void publicar(Path parcial, Path destino) throws IOException {
+        try {
+            Files.createLink(destino, parcial);
+        } catch (UnsupportedOperationException e) {
+            Files.move(parcial, destino);
+            return;
+        }
+        descartar(parcial);
+    }
+
+    // A coleta de órfãos só apaga arquivos sem alteração há mais que a carência: o arquivo
+    // reaproveitado ganha a data de agora e não some antes de o orçamento novo se referir a ele.
+    private static void tocar(Path arquivo) {
+        try {
+            Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.warn("Não foi possível atualizar a data de {}: {}", arquivo, e.getMessage());
+        }
+    }
+
+    public Path getPastaRaiz() {
+        return pastaRaiz;
+    }
+
+    Path caminhoDoConteudo(String sha256, TipoImagem tipo) {
+        return pastaRaiz.resolve(sha256.substring(0, 2))
+                .resolve(sha256.substring(2, 4))
+                .resolve(sha256 + "." + tipo.getExtensao());
+    }
+
+    // roda a tarefa para cada item em virtual threads e espera todas; se alguma falhar,
+    // desfaz as que deram certo e relança a primeira falha
+    private static <T, R> List<R> emParalelo(List<T> itens, Function<T, R> tarefa, Consumer<R> desfazer) {
+        List<Future<R>> execucoes = new ArrayList<>(itens.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T item : itens) {
+                execucoes.add(executor.submit(() -> tarefa.apply(item)));
+            }
+        }
+
+        List<R> resultados = new ArrayList<>(itens.size());
+        Throwable falha = null;
+        for (Future<R> execucao : execucoes) {
+            if (execucao.state() == Future.State.SUCCESS) {
+                resultados.add(execucao.resultNow());
+            } else if (falha == null) {
+                falha = execucao.exceptionNow();
+            }
+        }
+        if (falha == null) {
+            return resultados;
+        }
+        resultados.forEach(desfazer);
+        if (falha instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new RuntimeException("Falha ao salvar o arquivo.", falha);
+    }
+
+    private static MessageDigest novoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+
+    public void descartar(Path arquivo) {
+        if (arquivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o arquivo temporário {}: {}", arquivo, e.getMessage());
+        }
+    }
 }
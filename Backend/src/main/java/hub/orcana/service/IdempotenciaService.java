@@ -0,0 +1,105 @@
+package hub.orcana.service;
+
+import hub.orcana.tables.ChaveIdempotencia;
+import hub.orcana.tables.repository.ChaveIdempotenciaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Guarda de Idempotency-Key: a primeira requisição com a chave reserva o registro e executa;
+// as repetições recebem a resposta gravada sem refazer nada. Usado pelo IdempotenciaFilter.
+@Slf4j
+@Service
+public class IdempotenciaService {
+
+    public static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+    public enum Situacao {
+        // reservada agora: executar e depois concluir() ou liberar()
+        NOVA,
+        // já concluída com o mesmo conteúdo: devolver a resposta guardada
+        REPETIDA,
+        // a requisição original ainda está rodando
+        EM_ANDAMENTO,
+        // mesma chave, conteúdo diferente
+        CONFLITANTE
+    }
+
+    public record Reserva(Situacao situacao, ChaveIdempotencia registro) {
+    }
+
+    private final ChaveIdempotenciaRepository repository;
+    private final Duration validade;
+    private final Duration prazoEmAndamento;
+
+    public IdempotenciaService(
+            ChaveIdempotenciaRepository repository,
+            @Value("${idempotencia.validade-horas:24}") long validadeHoras,
+            @Value("${idempotencia.em-andamento-segundos:300}") long prazoEmAndamentoSegundos) {
+        this.repository = repository;
+        this.validade = Duration.ofHours(validadeHoras);
+        this.prazoEmAndamento = Duration.ofSeconds(prazoEmAndamentoSegundos);
+    }
+
+    public static void validarChave(String chave) {
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new IllegalArgumentException("Idempotency-Key deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+        }
+        for (int i = 0; i < chave.length(); i++) {
+            char c = chave.charAt(i);
+            if (c < 0x21 || c > 0x7e) {
+                throw new IllegalArgumentException("Idempotency-Key deve conter apenas caracteres ASCII visíveis.");
+            }
+        }
+    }
+
+    public Reserva reservar(String escopo, String chave, String impressao) {
+        LocalDateTime agora = LocalDateTime.now();
+        // duas voltas: na segunda a chave vencida (ou liberada no meio) já saiu do caminho
+        for (int tentativa = 0; tentativa < 2; tentativa++) {
+            if (repository.reservar(escopo, chave, impressao, agora, agora.plus(prazoEmAndamento))) {
+                return new Reserva(Situacao.NOVA, null);
+            }
+            ChaveIdempotencia existente = repository.findByEscopoAndChave(escopo, chave).orElse(null);
+            if (existente == null) {
+                continue;
+            }
+            if (existente.getExpiraEm().isBefore(agora)) {
+                // vencida, ou reservada por uma requisição que morreu sem liberar
+                repository.removerSeExpirada(existente.getId(), agora);
+                continue;
+            }
+            if (!existente.getImpressao().equals(impressao)) {
+                return new Reserva(Situacao.CONFLITANTE, existente);
+            }
+            return new Reserva(existente.isConcluida() ? Situacao.REPETIDA : Situacao.EM_ANDAMENTO, existente);
+        }
+        // outra requisição reservou a chave entre as voltas
+        return new Reserva(Situacao.EM_ANDAMENTO, null);
+    }
+
+    public void concluir(String escopo, String chave, int statusHttp, String contentType, String corpo,
+                         String cabecalhos) {
+        int atualizados = repository.concluir(escopo, chave, statusHttp, contentType, corpo, cabecalhos,
+                LocalDateTime.now().plus(validade));
+        if (atualizados == 0) {
+            log.warn("Idempotency-Key {} de {} não estava mais reservada ao concluir", chave, escopo);
+        }
+    }
+
+    public void liberar(String escopo, String chave) {
+        repository.liberar(escopo, chave);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotencia.limpeza-ms:3600000}")
+    public void removerExpiradas() {
+        int removidas = repository.removerExpiradas(LocalDateTime.now());
+        if (removidas > 0) {
+            log.info("Removidas {} chaves de idempotência vencidas", removidas);
+        }
+    }
+}
@@ -2,8 +2,17 @@ package hub.orcana.service;
 
 import hub.orcana.dto.orcamento.CadastroOrcamentoInput;
 import hub.orcana.dto.orcamento.DetalhesOrcamentoOutput;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.event.OrcamentoAprovadoEvent;
+import hub.orcana.event.OrcamentoCriadoEvent;
+import hub.orcana.exception.VersaoDesatualizadaException;
 import hub.orcana.tables.Agendamento;
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
 import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
+import hub.orcana.tables.StatusAgendamento;
 import hub.orcana.tables.StatusOrcamento;
 import hub.orcana.tables.Usuario;
 import hub.orcana.tables.repository.AgendamentoRepository;
@@ -11,8 +20,11 @@ import hub.orcana.tables.repository.OrcamentoRepository;
 import hub.orcana.tables.repository.UsuarioRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 import hub.orcana.observer.OrcamentoObserver;
 import hub.orcana.observer.OrcamentoSubject;
 
@@ -20,7 +32,7 @@ import java.sql.Time;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
 
 @Service
 public class OrcamentoService implements OrcamentoSubject {
@@ -33,13 +45,25 @@ public class OrcamentoService implements OrcamentoSubject {
     private final List<OrcamentoObserver> observers = new ArrayList<>();
     private final UsuarioRepository usuarioRepository;
     private final AgendamentoRepository agendamentoRepository;
+    private final FaturamentoMensalService faturamentoMensalService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GeradorCodigoOrcamento geradorCodigo;
+    private final ProcessamentoOrcamentoService processamentoService;
+    private final ReferenciaArquivoService referenciaArquivoService;
+    private final UploadEmPartesService uploadEmPartesService;
 
     public OrcamentoService(
             OrcamentoRepository repository,
             GerenciadorDeArquivosService gerenciadorService,
             EmailService emailService,
             UsuarioRepository usuarioRepository,
-            AgendamentoRepository agendamentoRepository
+            AgendamentoRepository agendamentoRepository,
+            FaturamentoMensalService faturamentoMensalService,
+            ApplicationEventPublisher eventPublisher,
+            GeradorCodigoOrcamento geradorCodigo,
+            ProcessamentoOrcamentoService processamentoService,
+            ReferenciaArquivoService referenciaArquivoService,
+            UploadEmPartesService uploadEmPartesService
     ) {
         this.repository = repository;
         this.gerenciadorService = gerenciadorService;
@@ -47,6 +71,12 @@ public class OrcamentoService implements OrcamentoSubject {
         this.attach(emailService);
         this.usuarioRepository = usuarioRepository;
         this.agendamentoRepository = agendamentoRepository;
+        this.faturamentoMensalService = faturamentoMensalService;
+        this.eventPublisher = eventPublisher;
+        this.geradorCodigo = geradorCodigo;
+        this.processamentoService = processamentoService;
+        this.referenciaArquivoService = referenciaArquivoService;
+        this.uploadEmPartesService = uploadEmPartesService;
     }
 
     @Override
@@ -68,90 +98,88 @@ public class OrcamentoService implements OrcamentoSubject {
         }
     }
 
-    private String gerarCodigoOrcamento() {
-        String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        if (repository.findByCodigoOrcamento("ORC-" + uuid).isPresent()) {
-            return gerarCodigoOrcamento();
-        }
-        return "ORC-" + uuid;
-    }
-
+    // Grava o orçamento e devolve logo: imagens e e-mails seguem no ProcessamentoOrcamentoService,
+    // e o andamento fica em Orcamento.processamento
     public Orcamento postOrcamento(CadastroOrcamentoInput dados) {
-        List<String> urlImagens = new ArrayList<>();
-
-        if (dados.imagemReferencia() != null && !dados.imagemReferencia().isEmpty()) {
-            for (MultipartFile file : dados.imagemReferencia()) {
-                String urlImagemSalva = gerenciadorService.salvarArquivo(file);
-                urlImagens.add(urlImagemSalva);
+        List<ArquivoRecebido> imagens = new ArrayList<>(gerenciadorService.receberArquivos(dados.imagemReferencia()));
+        try {
+            // imagens grandes enviadas antes em /orcamento/uploads entram pelo id do upload
+            imagens.addAll(uploadEmPartesService.consumir(dados.uploads()));
+            String codigo = geradorCodigo.proximoCodigo();
+
+            Usuario usuario = usuarioRepository.findByEmail(dados.email()).orElse(null);
+
+            Orcamento orcamento = new Orcamento(
+                    codigo,
+                    dados.nome(),
+                    dados.email(),
+                    dados.ideia(),
+                    dados.tamanho(),
+                    dados.cores(),
+                    dados.localCorpo(),
+                    new ArrayList<>(),
+                    usuario != null ? usuario.getId() : null,
+                    StatusOrcamento.PENDENTE
+            );
+            orcamento.setProcessamento(SituacaoProcessamento.RECEBIDO);
+
+            if (usuario != null) {
+                orcamento.setUsuario(usuario);
             }
-        }
-
-        String codigo = gerarCodigoOrcamento();
-
-        Usuario usuario = usuarioRepository.findByEmail(dados.email()).orElse(null);
-
-        Orcamento orcamento = new Orcamento(
-                codigo,
-                dados.nome(),
-                dados.email(),
-                dados.ideia(),
-                dados.tamanho(),
-                dados.cores(),
-                dados.localCorpo(),
-                urlImagens,
-                usuario != null ? usuario.getId() : null,
-                StatusOrcamento.PENDENTE
-        );
-
-        if (usuario != null) {
-            orcamento.setUsuario(usuario);
-        }
 
-        Orcamento salvo = repository.save(orcamento);
+            Orcamento salvo = repository.save(orcamento);
+            eventPublisher.publishEvent(DominioAlteradoEvent.orcamento(Operacao.CRIADO, salvo.getCodigoOrcamento()));
+            eventPublisher.publishEvent(new OrcamentoCriadoEvent(
+                    salvo.getCodigoOrcamento(), salvo.getNome(), salvo.getLocalCorpo(), salvo.getStatus()));
 
-        try {
-            notifyObservers(salvo);
-        } catch (Exception e) {
-            log.error("Falha ao notificar observers: {}", e.getMessage());
+            processamentoService.iniciar(salvo.getCodigoOrcamento(), imagens, this::notifyObservers);
+            return salvo;
+        } catch (RuntimeException e) {
+            imagens.forEach(imagem -> gerenciadorService.descartar(imagem.temporario()));
+            throw e;
         }
+    }
 
-        return salvo;
+    public SituacaoProcessamento buscarProcessamento(String codigo) {
+        Orcamento orcamento = repository.findById(codigo)
+                .orElseThrow(() -> new RuntimeException("Orçamento não encontrado"));
+        // orçamentos cadastrados antes do processamento assíncrono já saíram prontos
+        return orcamento.getProcessamento() != null ? orcamento.getProcessamento() : SituacaoProcessamento.CONCLUIDO;
     }
 
-    public List<DetalhesOrcamentoOutput> findAllOrcamentos() {
-        return repository.findAll().stream().map(
-                orcamento -> new DetalhesOrcamentoOutput(
-                        orcamento.getCodigoOrcamento(),
-                        orcamento.getNome(),
-                        orcamento.getEmail(),
-                        orcamento.getIdeia(),
-                        orcamento.getTamanho(),
-                        orcamento.getCores(),
-                        orcamento.getLocalCorpo(),
-                        orcamento.getImagemReferencia(),
-                        orcamento.getValor(),
-                        orcamento.getTempo(),
-                        orcamento.getStatus()
-                )
-        ).toList();
+    @Transactional(readOnly = true)
+    public PaginaCursorOutput<DetalhesOrcamentoOutput> findAllOrcamentos(String cursor, int tamanho) {
+        CursorPaginacao.validarTamanho(tamanho);
+        // sem cursor começa antes de qualquer código ("" é menor que todos)
+        String ultimoCodigo = cursor == null || cursor.isBlank()
+                ? ""
+                : CursorPaginacao.decodificar(cursor, 1, partes -> partes[0]);
+        return CursorPaginacao.montar(
+                repository.findPaginaApos(ultimoCodigo, Limit.of(tamanho + 1)),
+                tamanho,
+                orcamento -> CursorPaginacao.codificar(orcamento.getCodigoOrcamento()),
+                OrcamentoService::paraDetalhes);
     }
 
     public List<DetalhesOrcamentoOutput> findOrcamentosByUsuarioId(Long usuarioId) {
-        return repository.findByUsuarioId(usuarioId).stream().map(
-                orcamento -> new DetalhesOrcamentoOutput(
-                        orcamento.getCodigoOrcamento(),
-                        orcamento.getNome(),
-                        orcamento.getEmail(),
-                        orcamento.getIdeia(),
-                        orcamento.getTamanho(),
-                        orcamento.getCores(),
-                        orcamento.getLocalCorpo(),
-                        orcamento.getImagemReferencia(),
-                        orcamento.getValor(),
-                        orcamento.getTempo(),
-                        orcamento.getStatus()
-                )
-        ).toList();
+        return repository.findByUsuarioId(usuarioId).stream().map(OrcamentoService::paraDetalhes).toList();
+    }
+
+    private static DetalhesOrcamentoOutput paraDetalhes(Orcamento orcamento) {
+        return new DetalhesOrcamentoOutput(
+                orcamento.getCodigoOrcamento(),
+                orcamento.getNome(),
+                orcamento.getEmail(),
+                orcamento.getIdeia(),
+                orcamento.getTamanho(),
+                orcamento.getCores(),
+                orcamento.getLocalCorpo(),
+                orcamento.getImagemReferencia() != null ? new ArrayList<>(orcamento.getImagemReferencia()) : null,
+                orcamento.getValor(),
+                orcamento.getTempo(),
+                orcamento.getStatus(),
+                orcamento.getVersao() != null ? orcamento.getVersao().toString() : null
+        );
     }
 
     public Orcamento atualizarOrcamento(String codigo, Double tamanho, String localCorpo, String cores, String ideia) {
@@ -171,27 +199,42 @@ public class OrcamentoService implements OrcamentoSubject {
             orcamento.setIdeia(ideia);
         }
 
-        return repository.save(orcamento);
+        Orcamento salvo = repository.save(orcamento);
+        eventPublisher.publishEvent(DominioAlteradoEvent.orcamento(Operacao.ATUALIZADO, codigo));
+        return salvo;
     }
 
     public boolean verificarSeTemAgendamento(String codigo) {
         return agendamentoRepository.findByOrcamentoCodigoOrcamento(codigo).isPresent();
     }
 
+    @Transactional
     public void deletarOrcamento(String codigo) {
         Orcamento orcamento = repository.findByCodigoOrcamento(codigo)
                 .orElseThrow(() -> new RuntimeException("Orçamento não encontrado"));
 
         agendamentoRepository.findByOrcamentoCodigoOrcamento(codigo)
-                .ifPresent(agendamentoRepository::delete);
-
+                .ifPresent(agendamento -> {
+                    if (agendamento.getStatus() == StatusAgendamento.CONCLUIDO) {
+                        faturamentoMensalService.remover(agendamento.getDataHora(), orcamento.getValor());
+                    }
+                    referenciaArquivoService.remover(agendamento.getImagemReferencia());
+                    agendamentoRepository.delete(agendamento);
+                    eventPublisher.publishEvent(DominioAlteradoEvent.agendamento(Operacao.REMOVIDO, agendamento.getId()));
+                });
+
+        referenciaArquivoService.remover(orcamento.getImagemReferencia());
         repository.delete(orcamento);
+        eventPublisher.publishEvent(DominioAlteradoEvent.orcamento(Operacao.REMOVIDO, codigo));
     }
 
-    public DetalhesOrcamentoOutput atualizarOrcamento(String codigo, Map<String, Object> dados) {
+    @Transactional
+    public DetalhesOrcamentoOutput atualizarOrcamento(String codigo, Map<String, Object> dados, Long versaoEsperada) {
 
         Orcamento orcamento = repository.findByCodigoOrcamento(codigo)
                 .orElseThrow(() -> new RuntimeException("Orçamento não encontrado"));
+        VersaoDesatualizadaException.verificar("Orçamento", versaoEsperada, orcamento.getVersao());
+        Double valorAnterior = orcamento.getValor();
 
         if (dados.containsKey("valor") && dados.get("valor") instanceof Number valor) {
             orcamento.setValor(valor.doubleValue());
@@ -226,41 +269,43 @@ public class OrcamentoService implements OrcamentoSubject {
 
         // ✅ SALVAR PRIMEIRO
         Orcamento salvo = repository.save(orcamento);
+        // grava agora para a resposta já sair com a versão nova (ETag)
+        repository.flush();
         log.info("Orçamento salvo: código={}, valor={}, tempo={}", salvo.getCodigoOrcamento(), salvo.getValor(), salvo.getTempo());
 
+        // mantém o faturamento mensal consolidado quando o valor de um agendamento concluído muda
+        if (!Objects.equals(valorAnterior, salvo.getValor())) {
+            agendamentoRepository.findByOrcamentoCodigoOrcamento(codigo)
+                    .filter(agendamento -> agendamento.getStatus() == StatusAgendamento.CONCLUIDO)
+                    .ifPresent(agendamento -> faturamentoMensalService.ajustarValor(
+                            agendamento.getDataHora(), valorAnterior, salvo.getValor()));
+        }
+        eventPublisher.publishEvent(DominioAlteradoEvent.orcamento(Operacao.ATUALIZADO, codigo));
+
         // ✅ ENVIAR E-MAIL DEPOIS (verificando se os campos não são null)
         if (dados.containsKey("valor") && dados.containsKey("tempo")) {
-            try {
-                if (salvo.getTempo() != null && salvo.getValor() != null) {
-                    emailService.enviaEmailOrcamentoAprovado(
-                            salvo.getEmail(),
-                            salvo.getNome(),
-                            salvo.getCodigoOrcamento(),
-                            salvo.getValor(),
-                            salvo.getTempo()
-                    );
-                    log.info("E-mail de aprovação enviado para {}", salvo.getEmail());
-                } else {
-                    log.warn("E-mail não enviado: valor={}, tempo={}", salvo.getValor(), salvo.getTempo());
-                }
-            } catch (Exception e) {
-                log.error("Erro ao enviar e-mail de aprovação: {}", e.getMessage());
+            if (salvo.getTempo() != null && salvo.getValor() != null) {
+                eventPublisher.publishEvent(new OrcamentoAprovadoEvent(salvo.getEmail(), salvo.getNome(),
+                        salvo.getCodigoOrcamento(), salvo.getValor(), salvo.getTempo()));
+            } else {
+                log.warn("E-mail não enviado: valor={}, tempo={}", salvo.getValor(), salvo.getTempo());
             }
         }
 
-        return new DetalhesOrcamentoOutput(
-                salvo.getCodigoOrcamento(),
-                salvo.getNome(),
-                salvo.getEmail(),
-                salvo.getIdeia(),
-                salvo.getTamanho(),
-                salvo.getCores(),
-                salvo.getLocalCorpo(),
-                salvo.getImagemReferencia(),
-                salvo.getValor(),
-                salvo.getTempo(),
-                salvo.getStatus()
-        );
+        return paraDetalhes(salvo);
+    }
+
+    // Depois do commit: a chamada ao microsserviço de e-mail não segura a transação nem a linha
+    // do faturamento mensal, e um rollback não manda e-mail de um valor que não foi gravado
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrcamentoAprovado(OrcamentoAprovadoEvent evento) {
+        try {
+            emailService.enviaEmailOrcamentoAprovado(evento.email(), evento.nome(), evento.codigoOrcamento(),
+                    evento.valor(), evento.tempo());
+            log.info("E-mail de aprovação enviado para {}", evento.email());
+        } catch (Exception e) {
+            log.error("Erro ao enviar e-mail de aprovação: {}", e.getMessage());
+        }
     }
 
     public DetalhesOrcamentoOutput findByCodigo(String codigo) {
@@ -268,18 +313,6 @@ public class OrcamentoService implements OrcamentoSubject {
         Orcamento orcamento = repository.findByCodigoOrcamento(codigo)
                 .orElseThrow(() -> new RuntimeException("Orçamento não encontrado"));
 
-        return new DetalhesOrcamentoOutput(
-                orcamento.getCodigoOrcamento(),
-                orcamento.getNome(),
-                orcamento.getEmail(),
-                orcamento.getIdeia(),
-                orcamento.getTamanho(),
-                orcamento.getCores(),
-                orcamento.getLocalCorpo(),
-                orcamento.getImagemReferencia(),
-                orcamento.getValor(),
-                orcamento.getTempo(),
-                orcamento.getStatus()
-        );
+        return paraDetalhes(orcamento);
     }
 }
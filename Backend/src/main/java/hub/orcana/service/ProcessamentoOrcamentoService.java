@@ -0,0 +1,156 @@
+package hub.orcana.service;
+
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// Etapas do cadastro de orçamento que rodam depois da resposta 202: grava as imagens de
+// referência, anexa os caminhos ao orçamento e notifica os observers (e-mails)
+@Service
+public class ProcessamentoOrcamentoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessamentoOrcamentoService.class);
+    private static final int TENTATIVAS_ANEXAR = 3;
+
+    private final OrcamentoRepository repository;
+    private final GerenciadorDeArquivosService gerenciadorService;
+    private final ReferenciaArquivoService referenciaArquivoService;
+    private final VariantesImagemService variantesService;
+    private final ExecutorService executor;
+    private final TransactionTemplate transacao;
+    private final Semaphore vagas;
+
+    public ProcessamentoOrcamentoService(OrcamentoRepository repository,
+                                         GerenciadorDeArquivosService gerenciadorService,
+                                         ReferenciaArquivoService referenciaArquivoService,
+                                         VariantesImagemService variantesService,
+                                         @Qualifier("orcamentoExecutor") ExecutorService executor,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${orcamento.processamento.concorrencia:8}") int concorrencia) {
+        this.repository = repository;
+        this.gerenciadorService = gerenciadorService;
+        this.referenciaArquivoService = referenciaArquivoService;
+        this.variantesService = variantesService;
+        this.executor = executor;
+        this.transacao = new TransactionTemplate(transactionManager);
+        // virtual threads são baratas, mas disco e microsserviço de e-mail não: só `concorrencia`
+        // orçamentos processam ao mesmo tempo, os demais esperam a vez
+        this.vagas = new Semaphore(concorrencia);
+    }
+
+    public void iniciar(String codigo, List<ArquivoRecebido> imagens, Consumer<Orcamento> notificar) {
+        try {
+            executor.execute(() -> processar(codigo, imagens, notificar));
+        } catch (RejectedExecutionException e) {
+            // só acontece no desligamento da aplicação
+            log.error("Processamento do orçamento {} recusado: {}", codigo, e.getMessage());
+            imagens.forEach(imagem -> gerenciadorService.descartar(imagem.temporario()));
+            repository.atualizarProcessamento(codigo, SituacaoProcessamento.FALHOU);
+        }
+    }
+
+    void processar(String codigo, List<ArquivoRecebido> imagens, Consumer<Orcamento> notificar) {
+        try {
+            vagas.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            imagens.forEach(imagem -> gerenciadorService.descartar(imagem.temporario()));
+            repository.atualizarProcessamento(codigo, SituacaoProcessamento.FALHOU);
+            return;
+        }
+        try {
+            if (imagens.isEmpty()) {
+                repository.atualizarProcessamento(codigo, SituacaoProcessamento.NOTIFICANDO);
+            } else if (!processarImagens(codigo, imagens)) {
+                return;
+            }
+            notificar(codigo, notificar);
+        } catch (RuntimeException e) {
+            log.error("Falha no processamento do orçamento {}: {}", codigo, e.getMessage(), e);
+        } finally {
+            vagas.release();
+        }
+    }
+
+    // Arquivos gravados que acabam sem referência (orçamento removido no meio do caminho ou
+    // falha ao anexar) não são apagados aqui: o mesmo conteúdo pode pertencer a outro orçamento.
+    private boolean processarImagens(String codigo, List<ArquivoRecebido> imagens) {
+        repository.atualizarProcessamento(codigo, SituacaoProcessamento.PROCESSANDO_IMAGENS);
+        try {
+            List<String> caminhos = gerenciadorService.salvarArquivos(imagens);
+            if (!anexarImagens(codigo, imagens, caminhos)) {
+                log.warn("Orçamento {} removido durante o processamento; imagens não anexadas", codigo);
+                return false;
+            }
+            // miniaturas em segundo plano: o orçamento não espera por elas
+            variantesService.agendar(caminhos);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Falha ao processar imagens do orçamento {}: {}", codigo, e.getMessage(), e);
+            repository.atualizarProcessamento(codigo, SituacaoProcessamento.FALHOU);
+            return false;
+        } finally {
+            imagens.forEach(imagem -> gerenciadorService.descartar(imagem.temporario()));
+        }
+    }
+
+    // um administrador pode editar o orçamento enquanto as imagens gravam; a versão
+    // mudou, então relê e tenta de novo
+    private boolean anexarImagens(String codigo, List<ArquivoRecebido> imagens, List<String> caminhos) {
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                Boolean anexado = transacao.execute(status -> repository.findByCodigoOrcamento(codigo)
+                        .map(orcamento -> {
+                            orcamento.getImagemReferencia().addAll(caminhos);
+                            orcamento.setProcessamento(SituacaoProcessamento.NOTIFICANDO);
+                            repository.save(orcamento);
+                            // na mesma transação: se a gravação do orçamento for desfeita, a contagem também é
+                            referenciaArquivoService.registrar(imagens, caminhos);
+                            return true;
+                        })
+                        .orElse(false));
+                return Boolean.TRUE.equals(anexado);
+            } catch (OptimisticLockingFailureException e) {
+                if (tentativa >= TENTATIVAS_ANEXAR) {
+                    throw e;
+                }
+                log.info("Orçamento {} alterado durante o processamento, tentando de novo", codigo);
+            }
+        }
+    }
+
+    // A leitura roda numa transação própria e já carrega as imagens de referência: esta thread
+    // não tem sessão aberta e o e-mail do tatuador conta as imagens. O envio fica fora da
+    // transação para não prender uma conexão durante a chamada ao serviço de e-mail.
+    private void notificar(String codigo, Consumer<Orcamento> notificar) {
+        try {
+            Optional<Orcamento> orcamento = transacao.execute(status -> repository.findByCodigoOrcamento(codigo)
+                    .map(encontrado -> {
+                        Hibernate.initialize(encontrado.getImagemReferencia());
+                        return encontrado;
+                    }));
+            orcamento.ifPresent(notificar);
+        } catch (Exception e) {
+            // como no cadastro síncrono: falha de e-mail não invalida o orçamento
+            log.error("Falha ao notificar observers do orçamento {}: {}", codigo, e.getMessage());
+        }
+        repository.atualizarProcessamento(codigo, SituacaoProcessamento.CONCLUIDO);
+    }
+}
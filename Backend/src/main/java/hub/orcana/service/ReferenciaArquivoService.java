@@ -0,0 +1,59 @@
+package hub.orcana.service;
+
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.tables.repository.ArquivoArmazenadoRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Contagem de referências das imagens armazenadas por conteúdo: sobe quando um orçamento ou
+// agendamento passa a apontar para o arquivo e desce quando ele é excluído
+@Service
+public class ReferenciaArquivoService {
+
+    private final ArquivoArmazenadoRepository repository;
+
+    public ReferenciaArquivoService(ArquivoArmazenadoRepository repository) {
+        this.repository = repository;
+    }
+
+    // registra os arquivos recém-gravados (caminhos na mesma ordem dos recebidos) e conta
+    // uma referência para cada ocorrência
+    @Transactional
+    public void registrar(List<ArquivoRecebido> recebidos, List<String> caminhos) {
+        LocalDateTime agora = LocalDateTime.now();
+        for (int i = 0; i < recebidos.size(); i++) {
+            ArquivoRecebido recebido = recebidos.get(i);
+            repository.registrar(recebido.sha256(), caminhos.get(i), recebido.tipo().getContentType(),
+                    recebido.tamanho(), agora);
+        }
+        ajustar(caminhos, 1, agora);
+    }
+
+    @Transactional
+    public void adicionar(Collection<String> caminhos) {
+        ajustar(caminhos, 1, LocalDateTime.now());
+    }
+
+    @Transactional
+    public void remover(Collection<String> caminhos) {
+        ajustar(caminhos, -1, LocalDateTime.now());
+    }
+
+    // a mesma imagem pode aparecer mais de uma vez na lista: um UPDATE por caminho distinto
+    private void ajustar(Collection<String> caminhos, int sinal, LocalDateTime agora) {
+        if (caminhos == null || caminhos.isEmpty()) {
+            return;
+        }
+        Map<String, Long> ocorrencias = caminhos.stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        ocorrencias.forEach((caminho, quantidade) ->
+                repository.ajustarReferencias(caminho, sinal * quantidade.intValue(), agora));
+    }
+}
@@ -0,0 +1,343 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.uploads.UploadEmPartesOutput;
+import hub.orcana.exception.DependenciaNaoEncontradaException;
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.service.GerenciadorDeArquivosService.TipoImagem;
+import hub.orcana.tables.UploadEmPartes;
+import hub.orcana.tables.repository.UploadEmPartesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+// Envio retomável de imagens grandes: o cliente cria o upload, manda partes com a posição de
+// cada uma (Content-Range) e finaliza. Nada passa pelo multipart; cada parte vai do corpo da
+// requisição para o arquivo temporário em blocos de 64 KiB, na posição indicada. Os temporários
+// ficam numa pasta própria: vivem enquanto o upload for válido, não pela carência da coleta de
+// órfãos, e só este serviço os apaga. A rota é pública: o número de envios abertos é limitado
+// no total e por endereço de origem, o que limita o disco que clientes anônimos podem ocupar.
+@Service
+public class UploadEmPartesService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadEmPartesService.class);
+    private static final int BLOCO = 64 * 1024;
+
+    private final UploadEmPartesRepository repository;
+    private final GerenciadorDeArquivosService gerenciadorService;
+    private final long tamanhoMaximo;
+    private final long parteMaxima;
+    private final Duration validade;
+    private final Path pasta;
+    private final int abertosMaximo;
+    private final int abertosPorOrigem;
+
+    public UploadEmPartesService(UploadEmPartesRepository repository,
+                                 GerenciadorDeArquivosService gerenciadorService,
+                                 @Value("${uploads.partes.tamanho-maximo:52428800}") long tamanhoMaximo,
+                                 @Value("${uploads.partes.parte-maxima:8388608}") long parteMaxima,
+                                 @Value("${uploads.partes.validade-horas:24}") long validadeHoras,
+                                 @Value("${uploads.partes.pasta:${java.io.tmpdir}/orcana-partes}") String pasta,
+                                 @Value("${uploads.partes.abertos-maximo:200}") int abertosMaximo,
+                                 @Value("${uploads.partes.abertos-por-origem:5}") int abertosPorOrigem) {
+        this.repository = repository;
+        this.gerenciadorService = gerenciadorService;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.parteMaxima = parteMaxima;
+        this.validade = Duration.ofHours(validadeHoras);
+        this.pasta = Path.of(pasta);
+        this.abertosMaximo = abertosMaximo;
+        this.abertosPorOrigem = abertosPorOrigem;
+    }
+
+    // A contagem e a gravação ficam sob o mesmo lock para que requisições simultâneas não passem
+    // juntas do limite (uma instância, como a agenda do DisponibilidadeService). Uploads finalizados
+    // e ainda não usados contam: o arquivo deles continua ocupando o disco.
+    public synchronized UploadEmPartesOutput iniciar(String nomeArquivo, long tamanho, String origem) {
+        if (tamanho <= 0 || tamanho > tamanhoMaximo) {
+            throw new IllegalArgumentException("Tamanho do arquivo deve estar entre 1 e " + tamanhoMaximo + " bytes.");
+        }
+        if (repository.countByOrigem(origem) >= abertosPorOrigem) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Limite de " + abertosPorOrigem + " uploads em aberto atingido. Finalize ou cancele um envio.");
+        }
+        if (repository.count() >= abertosMaximo) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Limite de uploads em aberto do servidor atingido. Tente novamente mais tarde.");
+        }
+        Path temporario;
+        try {
+            Files.createDirectories(pasta);
+            temporario = Files.createTempFile(pasta, "orcana-partes-", ".parte");
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao preparar o envio do arquivo.", e);
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        UploadEmPartes upload = new UploadEmPartes(UUID.randomUUID().toString(), nomeArquivo, tamanho, 0L,
+                temporario.toString(), origem, null, null, agora, agora);
+        try {
+            return paraSaida(repository.save(upload));
+        } catch (RuntimeException e) {
+            gerenciadorService.descartar(temporario);
+            throw e;
+        }
+    }
+
+    public UploadEmPartesOutput buscar(String id) {
+        return paraSaida(encontrar(id));
+    }
+
+    // Grava os bytes [inicio, fim] (fim inclusivo, como no Content-Range). A parte pode repetir
+    // bytes já recebidos (reenvio depois de uma queda), mas não pode deixar buraco. Se a conexão
+    // cair no meio, o que chegou conta: o cliente continua do novo recebido.
+    public UploadEmPartesOutput receberParte(String id, long inicio, long fim, Long total, InputStream corpo) {
+        UploadEmPartes upload = encontrar(id);
+        if (upload.isFinalizado()) {
+            throw new IllegalStateException("Upload já finalizado.");
+        }
+        if (total != null && !total.equals(upload.getTamanho())) {
+            throw new IllegalArgumentException("Tamanho total diferente do informado ao criar o upload ("
+                    + upload.getTamanho() + " bytes).");
+        }
+        long esperado = fim - inicio + 1;
+        if (inicio < 0 || fim < inicio || fim >= upload.getTamanho()) {
+            throw new IllegalArgumentException("Intervalo fora do arquivo: bytes " + inicio + "-" + fim
+                    + "/" + upload.getTamanho() + ".");
+        }
+        if (esperado > parteMaxima) {
+            throw new IllegalArgumentException("Cada parte pode ter no máximo " + parteMaxima + " bytes.");
+        }
+        if (inicio > upload.getRecebido()) {
+            throw new IllegalStateException("Parte fora de ordem: o envio deve continuar do byte "
+                    + upload.getRecebido() + ".");
+        }
+
+        Path temporario = temporario(upload);
+        long gravados = 0;
+        boolean excedeu = false;
+        IOException interrupcao = null;
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            ByteBuffer bloco = ByteBuffer.allocate(BLOCO);
+            int lidos;
+            while (gravados < esperado
+                    && (lidos = corpo.read(bloco.array(), 0, (int) Math.min(BLOCO, esperado - gravados))) != -1) {
+                bloco.limit(lidos).position(0);
+                while (bloco.hasRemaining()) {
+                    canal.write(bloco, inicio + gravados + bloco.position());
+                }
+                gravados += lidos;
+                bloco.clear();
+            }
+            excedeu = gravados == esperado && corpo.read() != -1;
+        } catch (IOException e) {
+            interrupcao = e;
+        }
+
+        if (excedeu) {
+            throw new IllegalArgumentException("Corpo maior que o intervalo do Content-Range.");
+        }
+        // conexão caída no meio: o que já foi gravado conta e a próxima tentativa continua dali
+        if (gravados > 0) {
+            repository.avancar(id, inicio, inicio + gravados, LocalDateTime.now());
+        }
+        if (interrupcao != null) {
+            log.warn("Parte do upload {} interrompida após {} bytes: {}", id, gravados, interrupcao.getMessage());
+            throw new IllegalArgumentException("Envio da parte interrompido. Consulte o upload para continuar.",
+                    interrupcao);
+        }
+        if (gravados < esperado) {
+            throw new IllegalArgumentException("Parte incompleta: recebidos " + gravados + " de " + esperado
+                    + " bytes. Consulte o upload para continuar.");
+        }
+        return buscar(id);
+    }
+
+    // Confere o formato pelo conteúdo e calcula o SHA-256, como no envio por multipart. Finalizar
+    // de novo um upload finalizado só devolve a situação.
+    public UploadEmPartesOutput finalizar(String id) {
+        UploadEmPartes upload = encontrar(id);
+        if (upload.isFinalizado()) {
+            return paraSaida(upload);
+        }
+        if (upload.getRecebido() < upload.getTamanho()) {
+            throw new IllegalStateException("Upload incompleto: recebidos " + upload.getRecebido() + " de "
+                    + upload.getTamanho() + " bytes.");
+        }
+        Path temporario = temporario(upload);
+        MessageDigest sha256 = novoSha256();
+        byte[] cabecalho;
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.READ)) {
+            // partes enviadas além do tamanho nunca são aceitas, mas o arquivo pode ter sobra
+            // de uma tentativa interrompida; só os primeiros `tamanho` bytes contam
+            cabecalho = new byte[(int) Math.min(TipoImagem.TAMANHO_CABECALHO, upload.getTamanho())];
+            ByteBuffer bloco = ByteBuffer.allocate(BLOCO);
+            long lidos = 0;
+            while (lidos < upload.getTamanho()) {
+                bloco.limit((int) Math.min(BLOCO, upload.getTamanho() - lidos));
+                int n = canal.read(bloco, lidos);
+                if (n < 0) {
+                    break;
+                }
+                if (lidos < cabecalho.length) {
+                    System.arraycopy(bloco.array(), 0, cabecalho, (int) lidos,
+                            (int) Math.min(n, cabecalho.length - lidos));
+                }
+                sha256.update(bloco.array(), 0, n);
+                lidos += n;
+                bloco.clear();
+            }
+            if (canal.size() > upload.getTamanho()) {
+                canal.truncate(upload.getTamanho());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao ler o arquivo enviado.", e);
+        }
+
+        TipoImagem tipo = TipoImagem.detectar(cabecalho).orElse(null);
+        if (tipo == null) {
+            cancelar(id);
+            throw new IllegalArgumentException(
+                    "Arquivo '" + upload.getNomeArquivo() + "' não é uma imagem JPEG, PNG, GIF ou WebP.");
+        }
+        repository.finalizar(id, HexFormat.of().formatHex(sha256.digest()), tipo.name(), LocalDateTime.now());
+        return buscar(id);
+    }
+
+    // Entrega os uploads finalizados para o cadastro do orçamento; depois disso o arquivo
+    // temporário pertence ao processamento do orçamento e o upload deixa de existir
+    public List<ArquivoRecebido> consumir(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<String> distintos = ids.stream().distinct().toList();
+        List<UploadEmPartes> uploads = repository.findAllById(distintos);
+        for (String id : distintos) {
+            boolean pronto = uploads.stream().anyMatch(upload -> upload.getId().equals(id) && upload.isFinalizado());
+            if (!pronto) {
+                throw new IllegalArgumentException("Upload " + id + " não encontrado ou não finalizado.");
+            }
+        }
+
+        List<ArquivoRecebido> recebidos = new ArrayList<>(uploads.size());
+        try {
+            for (UploadEmPartes upload : uploads) {
+                if (repository.consumir(upload.getId()) == 0) {
+                    throw new IllegalArgumentException("Upload " + upload.getId() + " já foi usado em outro orçamento.");
+                }
+                Path temporario = Path.of(upload.getTemporario());
+                // sem a linha, a limpeza trata o arquivo como órfão pela data: o processamento
+                // ganha uma validade inteira a partir de agora
+                tocar(temporario);
+                recebidos.add(new ArquivoRecebido(temporario, upload.getNomeArquivo(),
+                        upload.getSha256(), TipoImagem.valueOf(upload.getTipo()), upload.getTamanho()));
+            }
+        } catch (RuntimeException e) {
+            recebidos.forEach(recebido -> gerenciadorService.descartar(recebido.temporario()));
+            throw e;
+        }
+        return recebidos;
+    }
+
+    public void cancelar(String id) {
+        UploadEmPartes upload = encontrar(id);
+        repository.deleteById(id);
+        gerenciadorService.descartar(Path.of(upload.getTemporario()));
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.partes.limpeza-ms:3600000}")
+    public void removerExpirados() {
+        LocalDateTime limite = LocalDateTime.now().minus(validade);
+        int removidos = 0;
+        for (UploadEmPartes upload : repository.findByAtualizadoEmBefore(limite)) {
+            if (repository.removerExpirado(upload.getId(), limite) > 0) {
+                gerenciadorService.descartar(Path.of(upload.getTemporario()));
+                removidos++;
+            }
+        }
+        removidos += removerOrfaos(limite);
+        if (removidos > 0) {
+            log.info("Removidos {} uploads em partes abandonados", removidos);
+        }
+    }
+
+    // temporários sem upload registrado: a aplicação caiu entre criar o arquivo e salvar a linha,
+    // ou entre consumir o upload e terminar o processamento do orçamento
+    private int removerOrfaos(LocalDateTime limite) {
+        if (!Files.isDirectory(pasta)) {
+            return 0;
+        }
+        FileTime limiteArquivo = FileTime.from(limite.atZone(ZoneId.systemDefault()).toInstant());
+        int removidos = 0;
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, "orcana-partes-*")) {
+            for (Path arquivo : arquivos) {
+                if (Files.isRegularFile(arquivo, LinkOption.NOFOLLOW_LINKS)
+                        && Files.getLastModifiedTime(arquivo).compareTo(limiteArquivo) < 0
+                        && !repository.existsByTemporario(arquivo.toString())) {
+                    gerenciadorService.descartar(arquivo);
+                    removidos++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Não foi possível limpar os temporários de upload em partes: {}", e.getMessage());
+        }
+        return removidos;
+    }
+
+    private UploadEmPartes encontrar(String id) {
+        return repository.findById(id).orElseThrow(() -> new DependenciaNaoEncontradaException("Upload"));
+    }
+
+    // o temporário é local a esta instância e some se o diretório temporário for limpo
+    private static Path temporario(UploadEmPartes upload) {
+        Path temporario = Path.of(upload.getTemporario());
+        if (!Files.isRegularFile(temporario)) {
+            throw new IllegalStateException("Os dados deste upload não estão mais disponíveis; inicie um novo envio.");
+        }
+        return temporario;
+    }
+
+    private static void tocar(Path arquivo) {
+        try {
+            Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.warn("Não foi possível atualizar a data de {}: {}", arquivo, e.getMessage());
+        }
+    }
+
+    private static UploadEmPartesOutput paraSaida(UploadEmPartes upload) {
+        return new UploadEmPartesOutput(upload.getId(), upload.getNomeArquivo(), upload.getTamanho(),
+                upload.getRecebido(), upload.isFinalizado());
+    }
+
+    private static MessageDigest novoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+}
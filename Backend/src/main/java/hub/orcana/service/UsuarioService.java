@@ -1,6 +1,7 @@
 package hub.orcana.service;
 
 import hub.orcana.config.GerenciadorTokenJwt;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
 import hub.orcana.dto.usuario.*;
 import hub.orcana.exception.*;
 import hub.orcana.tables.Orcamento;
@@ -9,6 +10,7 @@ import hub.orcana.tables.repository.OrcamentoRepository;
 import hub.orcana.tables.repository.UsuarioRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,7 +22,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -138,10 +139,15 @@ public class UsuarioService {
         return UsuarioMapper.of(usuarioAutenticado, tokenJwt);
     }
 
-    public List<ListarUsuarios> listar() {
-        List<Usuario> usuariosEncontrados = repository.findAll();
+    public PaginaCursorOutput<ListarUsuarios> listar(String cursor, int tamanho) {
+        CursorPaginacao.validarTamanho(tamanho);
+        Long ultimoId = cursor == null || cursor.isBlank()
+                ? 0L
+                : CursorPaginacao.decodificar(cursor, 1, partes -> Long.parseLong(partes[0]));
+        List<Usuario> usuariosEncontrados = repository.findPaginaApos(ultimoId, Limit.of(tamanho + 1));
         log.debug("Listagem de usuários retornou {} registros", usuariosEncontrados.size());
-        return usuariosEncontrados.stream().map(UsuarioMapper::of).collect(Collectors.toList());
+        return CursorPaginacao.montar(usuariosEncontrados, tamanho,
+                usuario -> CursorPaginacao.codificar(usuario.getId()), UsuarioMapper::of);
     }
 
     private void validarIdUsuario(Long id) {
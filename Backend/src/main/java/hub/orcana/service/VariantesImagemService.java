@@ -0,0 +1,305 @@
+package hub.orcana.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Gera versões reduzidas (JPEG, sem EXIF) das imagens de referência para as listagens, que
+// não precisam baixar a foto original. Roda no variantesExecutor, fora da requisição.
+@Service
+public class VariantesImagemService {
+
+    private static final Logger log = LoggerFactory.getLogger(VariantesImagemService.class);
+    private static final float QUALIDADE_JPEG = 0.82f;
+
+    // As larguras fazem parte do nome servido com cache imutável: mudar uma delas exige mudar
+    // também o nome da variante, senão os navegadores continuam com a versão antiga.
+    public enum TamanhoVariante {
+        THUMB("thumb", 240),
+        MEDIUM("medium", 960);
+
+        private final String nome;
+        private final int largura;
+
+        TamanhoVariante(String nome, int largura) {
+            this.nome = nome;
+            this.largura = largura;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public int getLargura() {
+            return largura;
+        }
+
+        public static TamanhoVariante de(String valor) {
+            return Arrays.stream(values())
+                    .filter(tamanho -> tamanho.nome.equalsIgnoreCase(valor.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Tamanho de imagem inválido: " + valor + " (use thumb ou medium)."));
+        }
+    }
+
+    private final Executor executor;
+    private final long maximoPixels;
+    // originais já na fila ou em geração, para pedidos repetidos não enfileirarem de novo
+    private final Set<Path> emAndamento = ConcurrentHashMap.newKeySet();
+
+    public VariantesImagemService(@Qualifier("variantesExecutor") Executor executor,
+                                  @Value("${imagem.variantes.max-megapixels:50}") int maximoMegapixels) {
+        this.executor = executor;
+        this.maximoPixels = maximoMegapixels * 1_000_000L;
+    }
+
+    // uploads/ab/cd/<hash>.png -> uploads/ab/cd/<hash>.png.thumb.jpg
+    public static Path caminhoDaVariante(Path original, TamanhoVariante tamanho) {
+        return original.resolveSibling(original.getFileName() + "." + tamanho.getNome() + ".jpg");
+    }
+
+    public void agendar(Collection<String> caminhos) {
+        if (caminhos == null) {
+            return;
+        }
+        caminhos.stream().distinct().forEach(caminho -> agendar(Path.of(caminho)));
+    }
+
+    // Fila cheia não é erro: a variante que faltar é pedida de novo quando alguém buscar ?size=
+    public void agendar(Path original) {
+        Path chave = original.toAbsolutePath().normalize();
+        if (!emAndamento.add(chave)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    gerar(original);
+                } catch (Exception e) {
+                    log.warn("Falha ao gerar variantes de {}: {}", original, e.getMessage());
+                } finally {
+                    emAndamento.remove(chave);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emAndamento.remove(chave);
+            log.debug("Fila de variantes cheia; {} fica para o próximo pedido", original);
+        }
+    }
+
+    void gerar(Path original) throws IOException {
+        List<TamanhoVariante> faltando = Arrays.stream(TamanhoVariante.values())
+                .filter(tamanho -> !Files.exists(caminhoDaVariante(original, tamanho)))
+                .sorted(Comparator.comparingInt(TamanhoVariante::getLargura).reversed())
+                .toList();
+        if (faltando.isEmpty() || !Files.isRegularFile(original)) {
+            return;
+        }
+        int orientacao = orientacaoExif(original);
+        BufferedImage imagem = ler(original, faltando.get(0).getLargura(), orientacao >= 5);
+        if (imagem == null) {
+            return;
+        }
+        imagem = orientar(imagem, orientacao);
+        for (TamanhoVariante tamanho : faltando) {
+            gravar(redimensionar(imagem, tamanho.getLargura()), caminhoDaVariante(original, tamanho));
+        }
+        log.debug("Variantes {} geradas para {}", faltando, original);
+    }
+
+    // Decodifica já reduzida (subsampling) quando a imagem é bem maior que a variante: uma foto
+    // de celular de 4000px vira ~2000px na leitura, com 1/4 da memória. Metadados são ignorados.
+    private BufferedImage ler(Path original, int larguraAlvo, boolean girada) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> leitores = entrada == null ? null : ImageIO.getImageReaders(entrada);
+            if (leitores == null || !leitores.hasNext()) {
+                // WebP não tem leitor no JDK: essas imagens continuam sendo servidas no original
+                log.debug("Sem leitor de imagem para {}; variantes não geradas", original);
+                return null;
+            }
+            ImageReader leitor = leitores.next();
+            try {
+                leitor.setInput(entrada, true, true);
+                int largura = leitor.getWidth(0);
+                int altura = leitor.getHeight(0);
+                if ((long) largura * altura > maximoPixels) {
+                    log.warn("Imagem {} com {}x{} acima do limite; variantes não geradas", original, largura, altura);
+                    return null;
+                }
+                // com EXIF de 90°, a largura exibida é a altura gravada
+                int larguraExibida = girada ? altura : largura;
+                int passo = Math.max(1, larguraExibida / (larguraAlvo * 2));
+                ImageReadParam parametros = leitor.getDefaultReadParam();
+                parametros.setSourceSubsampling(passo, passo, 0, 0);
+                return leitor.read(0, parametros);
+            } finally {
+                leitor.dispose();
+            }
+        }
+    }
+
+    // Reduz pela metade até chegar perto da largura final (bilinear em um passo só perde
+    // detalhe); nunca amplia. A transparência vira fundo branco, pois o JPEG não tem alfa.
+    static BufferedImage redimensionar(BufferedImage origem, int larguraMaxima) {
+        int larguraFinal = Math.min(larguraMaxima, origem.getWidth());
+        int alturaFinal = Math.max(1, (int) Math.round((double) origem.getHeight() * larguraFinal / origem.getWidth()));
+        BufferedImage atual = origem;
+        int largura = origem.getWidth();
+        int altura = origem.getHeight();
+        do {
+            largura = Math.max(larguraFinal, largura / 2);
+            altura = largura == larguraFinal ? alturaFinal : Math.max(alturaFinal, altura / 2);
+            BufferedImage proxima = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = proxima.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, largura, altura);
+                g.drawImage(atual, 0, 0, largura, altura, null);
+            } finally {
+                g.dispose();
+            }
+            atual = proxima;
+        } while (largura != larguraFinal);
+        return atual;
+    }
+
+    // Como o EXIF é descartado, a rotação que ele indicava é aplicada nos pixels
+    static BufferedImage orientar(BufferedImage origem, int orientacao) {
+        if (orientacao < 2 || orientacao > 8) {
+            return origem;
+        }
+        int w = origem.getWidth();
+        int h = origem.getHeight();
+        boolean transposta = orientacao >= 5;
+        BufferedImage destino = new BufferedImage(transposta ? h : w, transposta ? w : h, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int cor = origem.getRGB(x, y);
+                switch (orientacao) {
+                    case 2 -> destino.setRGB(w - 1 - x, y, cor);
+                    case 3 -> destino.setRGB(w - 1 - x, h - 1 - y, cor);
+                    case 4 -> destino.setRGB(x, h - 1 - y, cor);
+                    case 5 -> destino.setRGB(y, x, cor);
+                    case 6 -> destino.setRGB(h - 1 - y, x, cor);
+                    case 7 -> destino.setRGB(h - 1 - y, w - 1 - x, cor);
+                    default -> destino.setRGB(y, w - 1 - x, cor);
+                }
+            }
+        }
+        return destino;
+    }
+
+    // Orientação (tag 0x0112) do bloco EXIF de um JPEG; 1 quando não há ou não é JPEG
+    static int orientacaoExif(Path arquivo) {
+        try (DataInputStream dados = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            if (dados.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marcador = dados.readUnsignedShort();
+                // início dos dados da imagem (SOS) ou fim: não há mais metadados
+                if ((marcador & 0xFF00) != 0xFF00 || marcador == 0xFFDA || marcador == 0xFFD9) {
+                    return 1;
+                }
+                int tamanho = dados.readUnsignedShort() - 2;
+                if (tamanho < 0) {
+                    return 1;
+                }
+                if (marcador == 0xFFE1) {
+                    // APP1 também pode ser XMP; só o que começa com "Exif" interessa
+                    int orientacao = orientacaoDoExif(dados.readNBytes(tamanho));
+                    if (orientacao > 0) {
+                        return orientacao;
+                    }
+                } else {
+                    dados.skipNBytes(tamanho);
+                }
+            }
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    private static int orientacaoDoExif(byte[] segmento) {
+        if (segmento.length < 14 || segmento[0] != 'E' || segmento[1] != 'x' || segmento[2] != 'i'
+                || segmento[3] != 'f' || segmento[4] != 0 || segmento[5] != 0) {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segmento, 6, segmento.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 0;
+        }
+        int entradas = Short.toUnsignedInt(tiff.getShort(ifd));
+        for (int i = 0; i < entradas; i++) {
+            int posicao = ifd + 2 + i * 12;
+            if (posicao + 12 > tiff.limit()) {
+                return 0;
+            }
+            if (Short.toUnsignedInt(tiff.getShort(posicao)) == 0x0112) {
+                int valor = Short.toUnsignedInt(tiff.getShort(posicao + 8));
+                return valor >= 1 && valor <= 8 ? valor : 0;
+            }
+        }
+        return 0;
+    }
+
+    // mesma gravação do GerenciadorDeArquivosService: nome provisório oculto e rename atômico,
+    // para o UploadController nunca entregar uma variante pela metade
+    private static void gravar(BufferedImage imagem, Path destino) throws IOException {
+        Path parcial = destino.resolveSibling("." + destino.getFileName() + "." + UUID.randomUUID() + ".parcial");
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream saida = ImageIO.createImageOutputStream(parcial.toFile())) {
+                ImageWriteParam parametros = escritor.getDefaultWriteParam();
+                parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                parametros.setCompressionQuality(QUALIDADE_JPEG);
+                parametros.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                escritor.setOutput(saida);
+                // sem metadados: nada do EXIF original (GPS, aparelho) chega à variante
+                escritor.write(null, new IIOImage(imagem, null, null), parametros);
+            }
+            Files.move(parcial, destino, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            escritor.dispose();
+            Files.deleteIfExists(parcial);
+        }
+    }
+}
@@ -5,15 +5,34 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotNull;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "agendamento")
+@NamedEntityGraph(name = Agendamento.GRAFO_RESUMO, attributeNodes = {
+        @NamedAttributeNode("usuario"),
+        @NamedAttributeNode("orcamento")
+})
+@NamedEntityGraph(name = Agendamento.GRAFO_DETALHE, attributeNodes = {
+        @NamedAttributeNode("usuario"),
+        @NamedAttributeNode("orcamento"),
+        @NamedAttributeNode("imagemReferencia")
+})
+@Table(name = "agendamento", indexes = {
+        @Index(name = "idx_agendamento_status_data_hora", columnList = "status, data_hora"),
+        @Index(name = "idx_agendamento_data_hora", columnList = "data_hora, id"),
+        @Index(name = "idx_agendamento_usuario_data_hora", columnList = "usuario_id, data_hora, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Agendamento {
 
+    // planos de busca usados pelo AgendamentoRepository: resumo para páginas (imagens em lote),
+    // detalhe quando tudo o que o AgendamentoMapper lê vem em uma única consulta
+    public static final String GRAFO_RESUMO = "Agendamento.resumo";
+    public static final String GRAFO_DETALHE = "Agendamento.detalhe";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -43,6 +62,7 @@ public class Agendamento {
     // NOVO CAMPO ADICIONADO
     // --------------------
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(
             name = "agendamento_imagens",
             joinColumns = @JoinColumn(name = "agendamento_id")
@@ -50,6 +70,10 @@ public class Agendamento {
     @Column(name = "imagem_referencia")
     private List<String> imagemReferencia;
 
+    @Version
+    @Column(nullable = false)
+    private Long versao;
+
     // --------------------
     // GETTERS E SETTERS
     // --------------------
@@ -62,6 +86,10 @@ public class Agendamento {
         this.id = id;
     }
 
+    public Long getVersao() {
+        return versao;
+    }
+
     public LocalDateTime getDataHora() {
         return dataHora;
     }
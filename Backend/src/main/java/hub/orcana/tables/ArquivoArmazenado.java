@@ -0,0 +1,45 @@
+package hub.orcana.tables;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Imagem guardada pelo conteúdo (SHA-256) em uploads/ab/cd/<hash>.<ext>. O mesmo arquivo
+// pode aparecer em vários orçamentos e agendamentos; referencias conta quantas listas de
+// imagens apontam para ele.
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "arquivo_armazenado",
+        uniqueConstraints = @UniqueConstraint(name = "uk_arquivo_armazenado_caminho", columnNames = "caminho"),
+        indexes = @Index(name = "idx_arquivo_armazenado_referencias", columnList = "referencias, atualizado_em"))
+public class ArquivoArmazenado {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    // o mesmo texto gravado em orcamento_imagens e agendamento_imagens
+    @Column(name = "caminho", nullable = false, length = 500)
+    private String caminho;
+
+    @Column(name = "content_type", nullable = false, length = 50)
+    private String contentType;
+
+    @Column(name = "tamanho", nullable = false)
+    private Long tamanho;
+
+    @Column(name = "referencias", nullable = false)
+    private Integer referencias;
+
+    @Column(name = "criado_em", nullable = false)
+    private LocalDateTime criadoEm;
+
+    // última mudança da contagem: arquivos sem referência só são apagados depois de um prazo
+    @Column(name = "atualizado_em", nullable = false)
+    private LocalDateTime atualizadoEm;
+}
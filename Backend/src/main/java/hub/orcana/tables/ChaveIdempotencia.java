@@ -0,0 +1,58 @@
+package hub.orcana.tables;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Resposta guardada para um Idempotency-Key. Enquanto a requisição original roda o
+// statusHttp fica nulo; depois guarda o que foi devolvido para repetir em novas tentativas.
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "chave_idempotencia",
+        uniqueConstraints = @UniqueConstraint(name = "uk_chave_idempotencia_escopo_chave", columnNames = {"escopo", "chave"}),
+        indexes = @Index(name = "idx_chave_idempotencia_expira_em", columnList = "expira_em"))
+public class ChaveIdempotencia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // rota + usuário autenticado, para a mesma chave de clientes diferentes não colidir
+    @Column(name = "escopo", nullable = false, length = 200)
+    private String escopo;
+
+    @Column(name = "chave", nullable = false, length = 100)
+    private String chave;
+
+    // SHA-256 do corpo da requisição: a mesma chave com outro conteúdo é recusada
+    @Column(name = "impressao", nullable = false, length = 64)
+    private String impressao;
+
+    @Column(name = "status_http")
+    private Integer statusHttp;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "corpo", columnDefinition = "TEXT")
+    private String corpo;
+
+    // cabeçalhos da resposta que a repetição precisa devolver (Location, ETag), em JSON
+    @Column(name = "cabecalhos", length = 1000)
+    private String cabecalhos;
+
+    @Column(name = "criado_em", nullable = false)
+    private LocalDateTime criadoEm;
+
+    @Column(name = "expira_em", nullable = false)
+    private LocalDateTime expiraEm;
+
+    public boolean isConcluida() {
+        return statusHttp != null;
+    }
+}
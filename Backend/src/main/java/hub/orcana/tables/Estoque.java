@@ -27,6 +27,11 @@ public class Estoque {
     @Column(name = "min_aviso")
     private Double minAviso;
 
+    // controle otimista: a baixa em lote (BaixaEstoqueRepositoryImpl) também incrementa
+    @Version
+    @Column(nullable = false)
+    private Long versao;
+
     public Estoque() {
     }
 
@@ -57,6 +62,10 @@ public class Estoque {
         return minAviso;
     }
 
+    public Long getVersao() {
+        return versao;
+    }
+
     public Long setId(Long id) {
         if (this.id == null) {
             this.id = id;
@@ -0,0 +1,26 @@
+package hub.orcana.tables;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Consolidado mensal de agendamentos concluídos, mantido incrementalmente
+@Entity
+@Table(name = "faturamento_mensal")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaturamentoMensal {
+
+    // ano e mês no formato yyyy-MM (ex.: 2025-03)
+    @Id
+    @Column(name = "periodo", length = 7)
+    private String periodo;
+
+    @Column(name = "valor", nullable = false)
+    private Double valor;
+
+    @Column(name = "agendamentos_concluidos", nullable = false)
+    private Long agendamentosConcluidos;
+}
@@ -2,9 +2,11 @@ package hub.orcana.tables;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 
 import java.sql.Time;
 import java.time.LocalTime;
@@ -42,7 +44,9 @@ public class Orcamento {
     @Column(name = "local_corpo", length = 200)
     private String localCorpo;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ToString.Exclude
+    @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "orcamento_imagens", joinColumns = @JoinColumn(name = "codigo_orcamento"))
     @Column(name = "imagem_url", length = 500)
     private List<String> imagemReferencia;
@@ -51,11 +55,23 @@ public class Orcamento {
     @Column(name = "status")
     private StatusOrcamento status;
 
-    @ManyToOne
+    // andamento do cadastro assíncrono (imagens e e-mails); nulo nos orçamentos anteriores a ele
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processamento", length = 20)
+    private SituacaoProcessamento processamento;
+
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id")
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "senha"})
     private Usuario usuario;
 
+    // nulo até o primeiro persist: é assim que o Spring Data distingue orçamento novo de existente
+    @Version
+    @Setter(AccessLevel.NONE)
+    @Column(nullable = false)
+    private Long versao;
+
     public Orcamento() {}
 
     public Orcamento(String codigoOrcamento, String nome, String email, String ideia, Double tamanho, String cores, String localCorpo, List<String> imagemReferencia, Long usuarioId, StatusOrcamento status) {
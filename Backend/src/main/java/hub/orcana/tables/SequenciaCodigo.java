@@ -0,0 +1,23 @@
+package hub.orcana.tables;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Contador de uma sequência de códigos; cada instância reserva blocos dela de uma vez
+@Entity
+@Table(name = "sequencia_codigo")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SequenciaCodigo {
+
+    @Id
+    @Column(name = "nome", length = 50)
+    private String nome;
+
+    // primeiro valor ainda não reservado por nenhuma instância
+    @Column(name = "proximo", nullable = false)
+    private Long proximo;
+}
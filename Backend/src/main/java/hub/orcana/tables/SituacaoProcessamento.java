@@ -0,0 +1,14 @@
+package hub.orcana.tables;
+
+// Etapas do processamento assíncrono de um orçamento recém-cadastrado
+public enum SituacaoProcessamento {
+    RECEBIDO,
+    PROCESSANDO_IMAGENS,
+    NOTIFICANDO,
+    CONCLUIDO,
+    FALHOU;
+
+    public boolean isFinalizada() {
+        return this == CONCLUIDO || this == FALHOU;
+    }
+}
@@ -0,0 +1,60 @@
+package hub.orcana.tables;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Envio retomável de uma imagem de referência (/orcamento/uploads). As partes são gravadas
+// direto no arquivo temporário, cada uma na sua posição; recebido é o tamanho do trecho
+// contínuo já gravado desde o byte 0, de onde o cliente continua depois de uma queda.
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "upload_em_partes",
+        indexes = {
+                @Index(name = "idx_upload_em_partes_atualizado_em", columnList = "atualizado_em"),
+                @Index(name = "idx_upload_em_partes_origem", columnList = "origem")
+        })
+public class UploadEmPartes {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "nome_arquivo", nullable = false)
+    private String nomeArquivo;
+
+    @Column(name = "tamanho", nullable = false)
+    private Long tamanho;
+
+    @Column(name = "recebido", nullable = false)
+    private Long recebido;
+
+    @Column(name = "temporario", nullable = false, length = 500)
+    private String temporario;
+
+    // endereço de quem criou o upload, para limitar os envios abertos por cliente
+    @Column(name = "origem", nullable = false, length = 45)
+    private String origem;
+
+    // preenchidos ao finalizar, depois de conferir o formato e calcular o hash
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "tipo", length = 10)
+    private String tipo;
+
+    @Column(name = "criado_em", nullable = false)
+    private LocalDateTime criadoEm;
+
+    @Column(name = "atualizado_em", nullable = false)
+    private LocalDateTime atualizadoEm;
+
+    public boolean isFinalizado() {
+        return sha256 != null;
+    }
+}
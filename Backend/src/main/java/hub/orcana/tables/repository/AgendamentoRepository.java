@@ -1,17 +1,60 @@
 package hub.orcana.tables.repository;
 
+import hub.orcana.dto.agendamento.AgendamentoExportacaoOutput;
+import hub.orcana.dto.agendamento.HorarioAgendadoOutput;
+import hub.orcana.dto.dashboard.AgendamentoResumoOutput;
+import hub.orcana.dto.dashboard.FatoAgendamentoOutput;
+import hub.orcana.dto.dashboard.FaturamentoMensalOutput;
 import hub.orcana.tables.Agendamento;
 import hub.orcana.tables.StatusAgendamento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AgendamentoRepository extends JpaRepository<Agendamento, Long> {
 
+    // detalhe entregue pelo AgendamentoMapper: usuário, orçamento e imagens em um único select
+    @EntityGraph(Agendamento.GRAFO_DETALHE)
+    Optional<Agendamento> findDetalhadoById(Long id);
+
+    // paginação por chave (dataHora, id), sempre a partir da última linha da página anterior;
+    // o grafo de resumo mantém o limit no SQL e as imagens vêm em lote
+    @EntityGraph(Agendamento.GRAFO_RESUMO)
+    @Query("SELECT a FROM Agendamento a " +
+            "WHERE a.dataHora >= :dataHora AND (a.dataHora > :dataHora OR a.id > :id) " +
+            "ORDER BY a.dataHora ASC, a.id ASC")
+    List<Agendamento> findPaginaApos(
+            @Param("dataHora") LocalDateTime dataHora,
+            @Param("id") Long id,
+            Limit limite
+    );
+
+    @EntityGraph(Agendamento.GRAFO_RESUMO)
+    @Query("SELECT a FROM Agendamento a " +
+            "WHERE a.usuario.id = :usuarioId " +
+            "AND a.dataHora >= :dataHora AND (a.dataHora > :dataHora OR a.id > :id) " +
+            "ORDER BY a.dataHora ASC, a.id ASC")
+    List<Agendamento> findPaginaDoUsuarioApos(
+            @Param("usuarioId") Long usuarioId,
+            @Param("dataHora") LocalDateTime dataHora,
+            @Param("id") Long id,
+            Limit limite
+    );
+
+    @EntityGraph(Agendamento.GRAFO_DETALHE)
     List<Agendamento> findByUsuarioId(Long usuarioId);
 
     @Query("SELECT a FROM Agendamento a WHERE a.usuario.id = :usuarioId AND a.status = :status")
@@ -37,6 +80,67 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, Long>
             @Param("dataAtual") LocalDateTime dataAtual
     );
 
+    // projeções do dashboard: uma única consulta com join, sem carregar entidades
+    @Query("SELECT new hub.orcana.dto.dashboard.AgendamentoResumoOutput(" +
+            "a.id, a.dataHora, a.status, u.nome, o.codigoOrcamento, o.localCorpo, a.tempoDuracao) " +
+            "FROM Agendamento a JOIN a.usuario u JOIN a.orcamento o " +
+            "WHERE a.status = :status AND a.dataHora > :dataAtual " +
+            "ORDER BY a.dataHora ASC LIMIT 1")
+    Optional<AgendamentoResumoOutput> findProximoResumoPorStatus(
+            @Param("status") StatusAgendamento status,
+            @Param("dataAtual") LocalDateTime dataAtual
+    );
+
+    @Query("SELECT new hub.orcana.dto.dashboard.AgendamentoResumoOutput(" +
+            "a.id, a.dataHora, a.status, u.nome, o.codigoOrcamento, o.localCorpo, a.tempoDuracao) " +
+            "FROM Agendamento a JOIN a.usuario u JOIN a.orcamento o " +
+            "WHERE a.dataHora BETWEEN :inicio AND :fim " +
+            "ORDER BY a.dataHora ASC")
+    List<AgendamentoResumoOutput> findResumoByDataHoraBetween(
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim
+    );
+
+    // filtro por status paginado no banco, usando o índice (status, data_hora);
+    // sem a coleção no grafo para o limit continuar no SQL, as imagens vêm em lote (@BatchSize)
+    @EntityGraph(Agendamento.GRAFO_RESUMO)
+    Page<Agendamento> findByStatusAndDataHoraBetween(
+            StatusAgendamento status,
+            LocalDateTime inicio,
+            LocalDateTime fim,
+            Pageable pageable
+    );
+
+    // linhas do cubo de análise do dashboard: carga completa, por agendamento e por orçamento
+    @Query("SELECT new hub.orcana.dto.dashboard.FatoAgendamentoOutput(" +
+            "a.id, a.dataHora, a.status, a.formaPagamento, o.localCorpo, o.valor, a.tempoDuracao) " +
+            "FROM Agendamento a LEFT JOIN a.orcamento o")
+    List<FatoAgendamentoOutput> findFatosAnalise();
+
+    @Query("SELECT new hub.orcana.dto.dashboard.FatoAgendamentoOutput(" +
+            "a.id, a.dataHora, a.status, a.formaPagamento, o.localCorpo, o.valor, a.tempoDuracao) " +
+            "FROM Agendamento a LEFT JOIN a.orcamento o WHERE a.id = :id")
+    Optional<FatoAgendamentoOutput> findFatoAnaliseById(@Param("id") Long id);
+
+    @Query("SELECT new hub.orcana.dto.dashboard.FatoAgendamentoOutput(" +
+            "a.id, a.dataHora, a.status, a.formaPagamento, o.localCorpo, o.valor, a.tempoDuracao) " +
+            "FROM Agendamento a JOIN a.orcamento o WHERE o.codigoOrcamento = :codigo")
+    List<FatoAgendamentoOutput> findFatosAnaliseByCodigoOrcamento(@Param("codigo") String codigo);
+
+    // exportação em fluxo: projeção sem entidades, lida do cursor em blocos do fetch size.
+    // Precisa de transação aberta enquanto o Stream é consumido e deve ser fechado (try-with-resources).
+    // Fetch size e cursor no MySQL: ver ExportacaoEmFluxo.
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + ExportacaoEmFluxo.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new hub.orcana.dto.agendamento.AgendamentoExportacaoOutput(" +
+            "a.id, a.dataHora, a.status, a.tempoDuracao, a.pagamentoFeito, a.formaPagamento, " +
+            "u.id, u.nome, u.email, o.codigoOrcamento, o.valor) " +
+            "FROM Agendamento a LEFT JOIN a.usuario u LEFT JOIN a.orcamento o " +
+            "ORDER BY a.id ASC")
+    Stream<AgendamentoExportacaoOutput> streamExportacao();
+
     @Query("SELECT COALESCE(SUM(o.valor), 0.0) " +
             "FROM Agendamento a " +
             "JOIN a.orcamento o " +
@@ -47,6 +151,15 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, Long>
             @Param("fim") LocalDateTime fim
     );
 
+    // faturamento agrupado por ano/mês em uma única consulta, usado para reconstruir o consolidado mensal
+    @Query("SELECT new hub.orcana.dto.dashboard.FaturamentoMensalOutput(" +
+            "YEAR(a.dataHora), MONTH(a.dataHora), COALESCE(SUM(o.valor), 0.0), COUNT(a)) " +
+            "FROM Agendamento a " +
+            "JOIN a.orcamento o " +
+            "WHERE a.status = :status " +
+            "GROUP BY YEAR(a.dataHora), MONTH(a.dataHora)")
+    List<FaturamentoMensalOutput> sumFaturamentoAgrupadoPorMes(@Param("status") StatusAgendamento status);
+
     @Query("SELECT a FROM Agendamento a LEFT JOIN FETCH a.orcamento WHERE a.dataHora BETWEEN :inicio AND :fim")
     List<Agendamento> findByDataHoraBetweenWithOrcamento(
             @Param("inicio") LocalDateTime inicio, 
@@ -66,4 +179,16 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, Long>
 
     @Query("SELECT DISTINCT FUNCTION('DATE', a.dataHora) FROM Agendamento a WHERE a.dataHora >= :dataInicio")
     List<LocalDateTime> findDatasComAgendamento(@Param("dataInicio") LocalDateTime dataInicio);
-}
\ No newline at end of file
+
+    @Query("SELECT new hub.orcana.dto.agendamento.HorarioAgendadoOutput(a.id, a.dataHora, a.tempoDuracao, a.status) " +
+            "FROM Agendamento a WHERE a.dataHora >= :inicio")
+    List<HorarioAgendadoOutput> findHorariosAPartirDe(@Param("inicio") LocalDateTime inicio);
+
+    @Query("SELECT new hub.orcana.dto.agendamento.HorarioAgendadoOutput(a.id, a.dataHora, a.tempoDuracao, a.status) " +
+            "FROM Agendamento a WHERE a.id = :id")
+    Optional<HorarioAgendadoOutput> findHorarioById(@Param("id") Long id);
+
+    // quais destes caminhos ainda aparecem em algum agendamento (coleta de arquivos órfãos)
+    @Query("SELECT DISTINCT i FROM Agendamento a JOIN a.imagemReferencia i WHERE i IN :caminhos")
+    List<String> findImagensReferenciadas(@Param("caminhos") Collection<String> caminhos);
+}
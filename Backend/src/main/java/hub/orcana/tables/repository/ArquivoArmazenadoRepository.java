@@ -0,0 +1,35 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.ArquivoArmazenado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface ArquivoArmazenadoRepository extends JpaRepository<ArquivoArmazenado, String>, RegistroArquivoRepository {
+
+    // caminhos antigos (UUID_nome, anteriores ao armazenamento por conteúdo) não têm registro
+    // e simplesmente não são alterados; a contagem nunca fica negativa
+    @Transactional
+    @Modifying
+    @Query("UPDATE ArquivoArmazenado a SET a.referencias = a.referencias + :quantidade, a.atualizadoEm = :agora " +
+            "WHERE a.caminho = :caminho AND a.referencias + :quantidade >= 0")
+    int ajustarReferencias(@Param("caminho") String caminho,
+                           @Param("quantidade") int quantidade,
+                           @Param("agora") LocalDateTime agora);
+
+    Optional<ArquivoArmazenado> findByCaminho(String caminho);
+
+    long countByReferencias(int referencias);
+
+    // só apaga se ninguém voltou a usar o arquivo desde a verificação da coleta
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ArquivoArmazenado a " +
+            "WHERE a.caminho = :caminho AND a.referencias = 0 AND a.atualizadoEm < :limite")
+    int removerSemReferencia(@Param("caminho") String caminho, @Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,13 @@
+package hub.orcana.tables.repository;
+
+import java.util.List;
+import java.util.Map;
+
+// Baixa de estoque feita direto no banco, sem ler e regravar a entidade
+public interface BaixaEstoqueRepository {
+
+    // Desconta cada quantidade só se houver saldo, tudo num único lote JDBC.
+    // As linhas são atualizadas em ordem crescente de id, qualquer que seja a ordem do mapa.
+    // Devolve os ids que não tinham saldo suficiente (lista vazia = tudo baixado).
+    List<Long> baixarQuantidades(Map<Long, Integer> quantidadesPorMaterial);
+}
@@ -0,0 +1,45 @@
+package hub.orcana.tables.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class BaixaEstoqueRepositoryImpl implements BaixaEstoqueRepository {
+
+    // a condição no WHERE torna a baixa atômica: duas sessões concorrentes nunca
+    // deixam o saldo negativo nem sobrescrevem o desconto uma da outra; a versão sobe
+    // para que ETags e edições abertas com If-Match vejam a mudança
+    private static final String BAIXAR =
+            "UPDATE estoque SET quantidade = quantidade - ?, versao = versao + 1 WHERE id = ? AND quantidade >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    BaixaEstoqueRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> baixarQuantidades(Map<Long, Integer> quantidadesPorMaterial) {
+        // sempre em ordem de id: duas baixas simultâneas com os mesmos materiais travam as linhas
+        // na mesma sequência e uma espera a outra, em vez de cada uma segurar o que a outra precisa
+        List<Long> ids = new ArrayList<>(quantidadesPorMaterial.keySet());
+        ids.sort(null);
+        List<Object[]> parametros = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Integer quantidade = quantidadesPorMaterial.get(id);
+            parametros.add(new Object[]{quantidade, id, quantidade});
+        }
+
+        int[] atualizados = jdbcTemplate.batchUpdate(BAIXAR, parametros);
+
+        List<Long> semSaldo = new ArrayList<>();
+        for (int i = 0; i < atualizados.length; i++) {
+            if (atualizados[i] == 0) {
+                semSaldo.add(ids.get(i));
+            }
+        }
+        return semSaldo;
+    }
+}
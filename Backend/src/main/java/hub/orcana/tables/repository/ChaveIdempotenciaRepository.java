@@ -0,0 +1,47 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.ChaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, Long>, ReservaIdempotenciaRepository {
+
+    Optional<ChaveIdempotencia> findByEscopoAndChave(String escopo, String chave);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChaveIdempotencia c SET c.statusHttp = :statusHttp, c.contentType = :contentType, " +
+            "c.corpo = :corpo, c.cabecalhos = :cabecalhos, c.expiraEm = :expiraEm " +
+            "WHERE c.escopo = :escopo AND c.chave = :chave AND c.statusHttp IS NULL")
+    int concluir(
+            @Param("escopo") String escopo,
+            @Param("chave") String chave,
+            @Param("statusHttp") Integer statusHttp,
+            @Param("contentType") String contentType,
+            @Param("corpo") String corpo,
+            @Param("cabecalhos") String cabecalhos,
+            @Param("expiraEm") LocalDateTime expiraEm
+    );
+
+    // libera a chave de uma requisição que falhou, para o cliente poder tentar de novo
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.escopo = :escopo AND c.chave = :chave AND c.statusHttp IS NULL")
+    int liberar(@Param("escopo") String escopo, @Param("chave") String chave);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.id = :id AND c.expiraEm < :agora")
+    int removerSeExpirada(@Param("id") Long id, @Param("agora") LocalDateTime agora);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.expiraEm < :agora")
+    int removerExpiradas(@Param("agora") LocalDateTime agora);
+}
@@ -0,0 +1,11 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.EquipamentoUso;
+
+import java.util.List;
+
+// Inserção em lote dos usos de material; o id IDENTITY impede o Hibernate de agrupar os INSERTs
+public interface EquipamentoUsoLoteRepository {
+
+    void inserirEmLote(List<EquipamentoUso> usos);
+}
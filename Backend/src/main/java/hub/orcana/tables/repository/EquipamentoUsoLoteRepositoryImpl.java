@@ -0,0 +1,30 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.EquipamentoUso;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+class EquipamentoUsoLoteRepositoryImpl implements EquipamentoUsoLoteRepository {
+
+    private static final String INSERIR =
+            "INSERT INTO equipamento_uso (equipamento_id, quantidade, relatorio_id) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    EquipamentoUsoLoteRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void inserirEmLote(List<EquipamentoUso> usos) {
+        if (usos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERIR, usos, usos.size(), (instrucao, uso) -> {
+            instrucao.setLong(1, uso.getEquipamento().getId());
+            instrucao.setInt(2, uso.getQuantidade());
+            instrucao.setLong(3, uso.getRelatorio().getId());
+        });
+    }
+}
@@ -6,7 +6,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface EquipamentoUsoRepository extends JpaRepository<EquipamentoUso, Long> {
+public interface EquipamentoUsoRepository extends JpaRepository<EquipamentoUso, Long>, EquipamentoUsoLoteRepository {
 
     @Modifying
     @Query("DELETE FROM EquipamentoUso eu WHERE eu.relatorio.id = :relatorioId")
@@ -1,5 +1,5 @@
 package hub.orcana.tables.repository;
-import hub.orcana.dto.agendamento.DetalhesAgendamentoOutput;
+import hub.orcana.dto.estoque.DetalhesMaterialOutput;
 import hub.orcana.tables.Estoque;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,7 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
-public interface EstoqueRepository extends JpaRepository<Estoque, Long> {
+public interface EstoqueRepository extends JpaRepository<Estoque, Long>, BaixaEstoqueRepository {
 
     boolean existsByNome(String nome);
     boolean existsByNomeIgnoreCase(String nome);
@@ -18,6 +18,14 @@ public interface EstoqueRepository extends JpaRepository<Estoque, Long> {
     @Query("SELECT e FROM Estoque e WHERE e.minAviso IS NOT NULL AND e.quantidade < e.minAviso")
     List<Estoque> findAllByQuantidadeLessThanMinAviso(); // alerta de estoque
 
+    @Query("SELECT new hub.orcana.dto.estoque.DetalhesMaterialOutput(" +
+            "e.id, e.nome, e.quantidade, e.unidadeMedida, e.minAviso) " +
+            "FROM Estoque e WHERE e.minAviso IS NOT NULL AND e.quantidade < e.minAviso")
+    List<DetalhesMaterialOutput> findAlertasEstoque(); // alerta de estoque sem carregar entidades
+
+    @Query("SELECT COALESCE(SUM(e.quantidade), 0.0) FROM Estoque e")
+    Double sumQuantidade(); // total de itens em estoque
+
     // busca paginada por nome
     Page<Estoque> findByNomeContainingIgnoreCase(String nome, Pageable pageable);
 
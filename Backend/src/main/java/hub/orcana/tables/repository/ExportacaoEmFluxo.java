@@ -0,0 +1,14 @@
+package hub.orcana.tables.repository;
+
+// Regras comuns das consultas de exportação em fluxo (streamExportacao dos repositórios).
+// O fetch size só limita a memória no MySQL porque a conexão usa useCursorFetch=true
+// (spring.datasource.hikari.data-source-properties no application.properties); sem isso o
+// Connector/J traz o resultado inteiro para o heap antes da primeira linha.
+public final class ExportacaoEmFluxo {
+
+    // linhas por ida ao banco, e também a cada quantas linhas a resposta é descarregada
+    public static final int FETCH_SIZE = 500;
+
+    private ExportacaoEmFluxo() {
+    }
+}
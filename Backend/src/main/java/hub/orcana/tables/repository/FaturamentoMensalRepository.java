@@ -0,0 +1,28 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.FaturamentoMensal;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface FaturamentoMensalRepository extends JpaRepository<FaturamentoMensal, String>,
+        LancamentoFaturamentoRepository {
+
+    List<FaturamentoMensal> findByPeriodoBetween(String inicio, String fim);
+
+    // Trava o consolidado inteiro até o fim da transação. No MySQL (REPEATABLE READ) o
+    // SELECT ... FOR UPDATE sem filtro também trava os intervalos entre as linhas, então
+    // nenhum lançamento, nem o que criaria um mês novo, passa enquanto a reconciliação roda.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FaturamentoMensal f")
+    List<FaturamentoMensal> travarTodos();
+
+    @Query("SELECT COALESCE(SUM(f.valor), 0.0) FROM FaturamentoMensal f")
+    Double sumValor();
+
+    @Query("SELECT COALESCE(SUM(f.agendamentosConcluidos), 0) FROM FaturamentoMensal f")
+    Long sumAgendamentosConcluidos();
+}
@@ -0,0 +1,8 @@
+package hub.orcana.tables.repository;
+
+// Lançamento no consolidado mensal feito direto no banco, na transação de quem chama
+public interface LancamentoFaturamentoRepository {
+
+    // Soma valor e quantidade ao mês, criando a linha quando o mês ainda não existe.
+    void lancar(String periodo, double valor, long quantidade);
+}
@@ -0,0 +1,33 @@
+package hub.orcana.tables.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class LancamentoFaturamentoRepositoryImpl implements LancamentoFaturamentoRepository {
+
+    private static final String INCREMENTAR =
+            "UPDATE faturamento_mensal SET valor = valor + ?, agendamentos_concluidos = agendamentos_concluidos + ? " +
+            "WHERE periodo = ?";
+    private static final String CRIAR =
+            "INSERT INTO faturamento_mensal (periodo, valor, agendamentos_concluidos) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    LancamentoFaturamentoRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void lancar(String periodo, double valor, long quantidade) {
+        if (jdbcTemplate.update(INCREMENTAR, valor, quantidade, periodo) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(CRIAR, periodo, valor, quantidade);
+        } catch (DuplicateKeyException e) {
+            // o primeiro lançamento do mês chegou junto com outro, que criou a linha antes;
+            // a exceção fica aqui dentro e não marca a transação de quem chamou para rollback
+            jdbcTemplate.update(INCREMENTAR, valor, quantidade, periodo);
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package hub.orcana.tables.repository;
 
+import hub.orcana.dto.orcamento.OrcamentoExportacaoOutput;
 import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
 import hub.orcana.tables.StatusOrcamento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrcamentoRepository extends JpaRepository<Orcamento, String> {
 
@@ -17,8 +28,36 @@ public interface OrcamentoRepository extends JpaRepository<Orcamento, String> {
     @Query("SELECT o FROM Orcamento o WHERE o.usuario.id = :usuarioId")
     List<Orcamento> findByUsuarioId(@Param("usuarioId") Long usuarioId);
 
+    // imagens vêm no mesmo select: o agendamento copia a lista do orçamento ao ser criado
+    @EntityGraph(attributePaths = "imagemReferencia")
     Optional<Orcamento> findByCodigoOrcamento(String codigoOrcamento);
     long countByStatus(StatusOrcamento status);
 
+    // paginação por chave sobre a chave primária; imagens em lote (@BatchSize)
+    @Query("SELECT o FROM Orcamento o WHERE o.codigoOrcamento > :codigo ORDER BY o.codigoOrcamento ASC")
+    List<Orcamento> findPaginaApos(@Param("codigo") String codigo, Limit limite);
+
+    // exportação em fluxo, mesmas regras do AgendamentoRepository.streamExportacao
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + ExportacaoEmFluxo.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new hub.orcana.dto.orcamento.OrcamentoExportacaoOutput(" +
+            "o.codigoOrcamento, o.nome, o.email, o.ideia, o.valor, o.tamanho, o.cores, o.tempo, " +
+            "o.localCorpo, o.status, u.id) " +
+            "FROM Orcamento o LEFT JOIN o.usuario u " +
+            "ORDER BY o.codigoOrcamento ASC")
+    Stream<OrcamentoExportacaoOutput> streamExportacao();
+
+    // atualização em massa não incrementa a versão: avançar de etapa não invalida o ETag do orçamento
+    @Transactional
+    @Modifying
+    @Query("UPDATE Orcamento o SET o.processamento = :situacao WHERE o.codigoOrcamento = :codigo")
+    int atualizarProcessamento(@Param("codigo") String codigo, @Param("situacao") SituacaoProcessamento situacao);
+
+    // quais destes caminhos ainda aparecem em algum orçamento (coleta de arquivos órfãos)
+    @Query("SELECT DISTINCT i FROM Orcamento o JOIN o.imagemReferencia i WHERE i IN :caminhos")
+    List<String> findImagensReferenciadas(@Param("caminhos") Collection<String> caminhos);
+
    // long countByStatus(String pendente);
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package hub.orcana.tables.repository;
+
+import java.time.LocalDateTime;
+
+// Registro de arquivo armazenado feito direto no banco, sem passar pelo contexto de persistência
+public interface RegistroArquivoRepository {
+
+    // Registra o arquivo com zero referências. Devolve false se o conteúdo já estava registrado,
+    // o que acontece sempre que a mesma imagem é enviada de novo.
+    boolean registrar(String sha256, String caminho, String contentType, long tamanho, LocalDateTime agora);
+}
@@ -0,0 +1,30 @@
+package hub.orcana.tables.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+class RegistroArquivoRepositoryImpl implements RegistroArquivoRepository {
+
+    // mesmo motivo do ReservaIdempotenciaRepositoryImpl: a chave duplicada é o caso comum
+    // e não pode deixar a sessão do Hibernate inutilizável
+    private static final String REGISTRAR =
+            "INSERT INTO arquivo_armazenado (sha256, caminho, content_type, tamanho, referencias, criado_em, atualizado_em) " +
+            "VALUES (?, ?, ?, ?, 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    RegistroArquivoRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean registrar(String sha256, String caminho, String contentType, long tamanho, LocalDateTime agora) {
+        try {
+            return jdbcTemplate.update(REGISTRAR, sha256, caminho, contentType, tamanho, agora, agora) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
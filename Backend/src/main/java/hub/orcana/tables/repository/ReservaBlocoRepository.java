@@ -0,0 +1,9 @@
+package hub.orcana.tables.repository;
+
+// Reserva de faixas de uma sequência direto no banco, em transação própria
+public interface ReservaBlocoRepository {
+
+    // Reserva os próximos `tamanho` valores da sequência e devolve o primeiro deles. A
+    // sequência que ainda não existe é criada começando em zero.
+    long reservarBloco(String nome, int tamanho);
+}
@@ -0,0 +1,47 @@
+package hub.orcana.tables.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReservaBlocoRepositoryImpl implements ReservaBlocoRepository {
+
+    // o UPDATE trava a linha até o commit, então duas instâncias nunca recebem a mesma
+    // faixa; a transação é nova para não segurar a trava durante a requisição inteira
+    private static final String INCREMENTAR = "UPDATE sequencia_codigo SET proximo = proximo + ? WHERE nome = ?";
+    private static final String LER = "SELECT proximo FROM sequencia_codigo WHERE nome = ?";
+    private static final String CRIAR = "INSERT INTO sequencia_codigo (nome, proximo) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+
+    ReservaBlocoRepositoryImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.transacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public long reservarBloco(String nome, int tamanho) {
+        Long inicio = transacao.execute(status -> incrementar(nome, tamanho));
+        if (inicio != null) {
+            return inicio;
+        }
+        try {
+            transacao.executeWithoutResult(status -> jdbcTemplate.update(CRIAR, nome, (long) tamanho));
+            return 0L;
+        } catch (DuplicateKeyException e) {
+            // outra instância criou a sequência no meio tempo
+            return transacao.execute(status -> incrementar(nome, tamanho));
+        }
+    }
+
+    private Long incrementar(String nome, int tamanho) {
+        if (jdbcTemplate.update(INCREMENTAR, tamanho, nome) == 0) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject(LER, Long.class, nome) - tamanho;
+    }
+}
@@ -0,0 +1,11 @@
+package hub.orcana.tables.repository;
+
+import java.time.LocalDateTime;
+
+// Reserva de Idempotency-Key feita direto no banco, sem passar pelo contexto de persistência
+public interface ReservaIdempotenciaRepository {
+
+    // Insere a chave como "em andamento". Devolve false se ela já existe: a restrição
+    // única decide qual de duas requisições simultâneas executa.
+    boolean reservar(String escopo, String chave, String impressao, LocalDateTime agora, LocalDateTime expiraEm);
+}
@@ -0,0 +1,29 @@
+package hub.orcana.tables.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+class ReservaIdempotenciaRepositoryImpl implements ReservaIdempotenciaRepository {
+
+    // via JDBC para a violação da chave única não deixar a sessão do Hibernate
+    // (aberta a requisição inteira pelo open-in-view) inutilizável
+    private static final String RESERVAR =
+            "INSERT INTO chave_idempotencia (escopo, chave, impressao, criado_em, expira_em) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ReservaIdempotenciaRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean reservar(String escopo, String chave, String impressao, LocalDateTime agora, LocalDateTime expiraEm) {
+        try {
+            return jdbcTemplate.update(RESERVAR, escopo, chave, impressao, agora, expiraEm) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.SequenciaCodigo;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SequenciaCodigoRepository extends JpaRepository<SequenciaCodigo, String>, ReservaBlocoRepository {
+}
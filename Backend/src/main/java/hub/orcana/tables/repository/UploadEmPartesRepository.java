@@ -0,0 +1,47 @@
+package hub.orcana.tables.repository;
+
+import hub.orcana.tables.UploadEmPartes;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UploadEmPartesRepository extends JpaRepository<UploadEmPartes, String> {
+
+    // avança o trecho contínuo quando a parte começa dentro dele e vai além; partes repetidas
+    // ou enviadas em paralelo não fazem o recebido voltar
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadEmPartes u SET u.recebido = :fim, u.atualizadoEm = :agora " +
+            "WHERE u.id = :id AND u.sha256 IS NULL AND u.recebido >= :inicio AND u.recebido < :fim")
+    int avancar(@Param("id") String id, @Param("inicio") long inicio, @Param("fim") long fim,
+                @Param("agora") LocalDateTime agora);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadEmPartes u SET u.sha256 = :sha256, u.tipo = :tipo, u.atualizadoEm = :agora " +
+            "WHERE u.id = :id AND u.sha256 IS NULL AND u.recebido = u.tamanho")
+    int finalizar(@Param("id") String id, @Param("sha256") String sha256, @Param("tipo") String tipo,
+                  @Param("agora") LocalDateTime agora);
+
+    // cada upload finalizado entra em um único orçamento: só quem apaga a linha fica com o arquivo
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadEmPartes u WHERE u.id = :id AND u.sha256 IS NOT NULL")
+    int consumir(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadEmPartes u WHERE u.id = :id AND u.atualizadoEm < :limite")
+    int removerExpirado(@Param("id") String id, @Param("limite") LocalDateTime limite);
+
+    List<UploadEmPartes> findByAtualizadoEmBefore(LocalDateTime limite);
+
+    long countByOrigem(String origem);
+
+    boolean existsByTemporario(String temporario);
+}
@@ -1,8 +1,10 @@
 package hub.orcana.tables.repository;
 
 import hub.orcana.tables.Usuario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,4 +23,8 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     @Query("SELECT u.nome FROM Usuario u WHERE u.isAdmin = true")
     List<String> getNomeByIsAdminTrue();
 
+    // paginação por chave sobre o id
+    @Query("SELECT u FROM Usuario u WHERE u.id > :id ORDER BY u.id ASC")
+    List<Usuario> findPaginaApos(@Param("id") Long id, Limit limite);
+
 }
\ No newline at end of file
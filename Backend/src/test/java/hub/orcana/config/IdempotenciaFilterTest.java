@@ -0,0 +1,296 @@
+package hub.orcana.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hub.orcana.service.IdempotenciaService;
+import hub.orcana.service.IdempotenciaService.Reserva;
+import hub.orcana.service.IdempotenciaService.Situacao;
+import hub.orcana.tables.ChaveIdempotencia;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
+import org.apache.tomcat.util.http.fileupload.impl.FileSizeLimitExceededException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaFilterTest {
+
+    private static final String CORPO = "{\"emailUsuario\":\"joao@email.com\",\"codigoOrcamento\":\"ORC-1\"}";
+
+    @Mock
+    private IdempotenciaService idempotenciaService;
+
+    private IdempotenciaFilter filter;
+    private AtomicInteger execucoes;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotenciaFilter(idempotenciaService, new ObjectMapper());
+        execucoes = new AtomicInteger();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Deve executar e guardar a resposta na primeira requisição com a chave")
+    void deveExecutarEGuardarNaPrimeiraRequisicao() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("joao@email.com", null, List.of()));
+        when(idempotenciaService.reservar(anyString(), eq("chave-1"), anyString()))
+                .thenReturn(new Reserva(Situacao.NOVA, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("chave-1", CORPO), response, cadeia(201));
+
+        assertEquals(1, execucoes.get());
+        assertEquals(201, response.getStatus());
+        assertEquals("{\"id\":1}", response.getContentAsString());
+        verify(idempotenciaService).concluir(eq("POST /agendamento|joao@email.com"), eq("chave-1"),
+                eq(201), eq("application/json"), eq("{\"id\":1}"), isNull());
+        verify(idempotenciaService, never()).liberar(any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve devolver a resposta guardada sem executar de novo")
+    void deveRepetirRespostaGuardada() throws Exception {
+        ChaveIdempotencia guardada = new ChaveIdempotencia(1L, "POST /agendamento|anonimo", "chave-1", "x",
+                201, "application/json", "{\"id\":1}", null, LocalDateTime.now(), LocalDateTime.now().plusHours(1));
+        when(idempotenciaService.reservar(anyString(), eq("chave-1"), anyString()))
+                .thenReturn(new Reserva(Situacao.REPETIDA, guardada));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("chave-1", CORPO), response, cadeia(201));
+
+        assertEquals(0, execucoes.get());
+        assertEquals(201, response.getStatus());
+        assertEquals("true", response.getHeader(IdempotenciaFilter.CABECALHO_REPETIDA));
+        assertEquals("{\"id\":1}", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Deve guardar Location e ETag da resposta e ignorar os demais cabeçalhos")
+    void deveGuardarCabecalhosDoResultado() throws Exception {
+        when(idempotenciaService.reservar(anyString(), eq("chave-1"), anyString()))
+                .thenReturn(new Reserva(Situacao.NOVA, null));
+        MockFilterChain aceito = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setStatus(202);
+                resp.setHeader("Location", "/orcamento/ORC-1/processamento");
+                resp.setHeader("ETag", "\"0\"");
+                resp.setHeader("X-Request-Id", "abc");
+                resp.setContentType("application/json");
+                resp.getWriter().write("{\"codigo\":\"ORC-1\"}");
+            }
+        });
+
+        filter.doFilter(requisicao("chave-1", CORPO), new MockHttpServletResponse(), aceito);
+
+        verify(idempotenciaService).concluir(anyString(), eq("chave-1"), eq(202), eq("application/json"),
+                eq("{\"codigo\":\"ORC-1\"}"), eq("{\"Location\":\"/orcamento/ORC-1/processamento\",\"ETag\":\"\\\"0\\\"\"}"));
+    }
+
+    @Test
+    @DisplayName("Deve repetir o 202 com o Location para o cliente saber onde consultar")
+    void deveRepetirLocationDaRespostaGuardada() throws Exception {
+        ChaveIdempotencia guardada = new ChaveIdempotencia(1L, "POST /orcamento/cadastro|anonimo", "chave-1", "x",
+                202, "application/json", "{\"codigo\":\"ORC-1\"}",
+                "{\"Location\":\"/orcamento/ORC-1/processamento\",\"ETag\":\"\\\"0\\\"\"}",
+                LocalDateTime.now(), LocalDateTime.now().plusHours(1));
+        when(idempotenciaService.reservar(anyString(), eq("chave-1"), anyString()))
+                .thenReturn(new Reserva(Situacao.REPETIDA, guardada));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("chave-1", CORPO), response, cadeia(202));
+
+        assertEquals(0, execucoes.get());
+        assertEquals(202, response.getStatus());
+        assertEquals("/orcamento/ORC-1/processamento", response.getHeader("Location"));
+        assertEquals("\"0\"", response.getHeader("ETag"));
+        assertEquals("{\"codigo\":\"ORC-1\"}", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Deve responder 413 como o GlobalHandlerException quando o multipart passa do limite")
+    void deveResponderArquivoGrandeDemaisComChave() throws Exception {
+        MockHttpServletRequest request = multipartQueFalha(new IllegalStateException(
+                new FileSizeLimitExceededException(
+                        "The field imagemReferencia exceeds its maximum permitted size of 1048576 bytes.",
+                        5_000_000, 1_048_576)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, cadeia(202));
+
+        assertEquals(413, response.getStatus());
+        assertTrue(response.getContentAsString().contains(IdempotenciaFilter.MENSAGEM_ARQUIVO_GRANDE));
+        assertEquals(0, execucoes.get());
+        verifyNoInteractions(idempotenciaService);
+    }
+
+    @Test
+    @DisplayName("Deve responder 400 quando o multipart está mal formado")
+    void deveResponderMultipartInvalidoComChave() throws Exception {
+        MockHttpServletRequest request = multipartQueFalha(new IOException("Stream ended unexpectedly"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, cadeia(202));
+
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains(IdempotenciaFilter.MENSAGEM_MULTIPART_INVALIDO));
+        verifyNoInteractions(idempotenciaService);
+    }
+
+    @Test
+    @DisplayName("Deve gerar a mesma impressão para o mesmo corpo e repassar o corpo ao controller")
+    void deveCalcularImpressaoPeloCorpo() throws Exception {
+        when(idempotenciaService.reservar(anyString(), anyString(), anyString()))
+                .thenReturn(new Reserva(Situacao.NOVA, null));
+        ArgumentCaptor<String> impressoes = ArgumentCaptor.forClass(String.class);
+
+        filter.doFilter(requisicao("a", CORPO), new MockHttpServletResponse(), cadeiaQueLeCorpo());
+        filter.doFilter(requisicao("b", CORPO), new MockHttpServletResponse(), cadeiaQueLeCorpo());
+        filter.doFilter(requisicao("c", CORPO.replace("ORC-1", "ORC-2")), new MockHttpServletResponse(), cadeiaQueLeCorpo());
+
+        verify(idempotenciaService, times(3)).reservar(anyString(), anyString(), impressoes.capture());
+        assertEquals(impressoes.getAllValues().get(0), impressoes.getAllValues().get(1));
+        assertNotEquals(impressoes.getAllValues().get(0), impressoes.getAllValues().get(2));
+        assertEquals(3, execucoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve responder 422 quando a chave foi usada com outro conteúdo")
+    void deveRecusarChaveComOutroConteudo() throws Exception {
+        when(idempotenciaService.reservar(anyString(), anyString(), anyString()))
+                .thenReturn(new Reserva(Situacao.CONFLITANTE, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("chave-1", CORPO), response, cadeia(201));
+
+        assertEquals(422, response.getStatus());
+        assertTrue(response.getContentAsString().contains("Idempotency-Key"));
+        assertEquals(0, execucoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve responder 409 enquanto a requisição original ainda roda")
+    void deveResponderConflitoEmAndamento() throws Exception {
+        when(idempotenciaService.reservar(anyString(), anyString(), anyString()))
+                .thenReturn(new Reserva(Situacao.EM_ANDAMENTO, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("chave-1", CORPO), response, cadeia(201));
+
+        assertEquals(409, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(0, execucoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve liberar a chave quando a requisição falha")
+    void deveLiberarChaveQuandoFalha() throws Exception {
+        when(idempotenciaService.reservar(anyString(), anyString(), anyString()))
+                .thenReturn(new Reserva(Situacao.NOVA, null));
+
+        filter.doFilter(requisicao("chave-1", CORPO), new MockHttpServletResponse(), cadeia(409));
+
+        verify(idempotenciaService).liberar("POST /agendamento|anonimo", "chave-1");
+        verify(idempotenciaService, never()).concluir(any(), any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar requisições sem a chave ou fora das rotas protegidas")
+    void deveIgnorarSemChaveOuForaDasRotas() throws Exception {
+        MockHttpServletRequest semChave = requisicao(null, CORPO);
+        MockHttpServletRequest outraRota = requisicao("chave-1", CORPO);
+        outraRota.setRequestURI("/agendamento/1/materiais");
+
+        filter.doFilter(semChave, new MockHttpServletResponse(), cadeia(201));
+        filter.doFilter(outraRota, new MockHttpServletResponse(), cadeia(201));
+
+        assertEquals(2, execucoes.get());
+        verifyNoInteractions(idempotenciaService);
+    }
+
+    @Test
+    @DisplayName("Deve responder 400 para chave vazia ou longa demais")
+    void deveRecusarChaveInvalida() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(requisicao("x".repeat(101), CORPO), response, cadeia(201));
+
+        assertEquals(400, response.getStatus());
+        verifyNoInteractions(idempotenciaService);
+    }
+
+    private MockHttpServletRequest requisicao(String chave, String corpo) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/agendamento");
+        request.setContentType("application/json");
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+        if (chave != null) {
+            request.addHeader(IdempotenciaFilter.CABECALHO, chave);
+        }
+        return request;
+    }
+
+    private static MockHttpServletRequest multipartQueFalha(Exception falha) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orcamento/cadastro") {
+            @Override
+            public Collection<Part> getParts() throws IOException, ServletException {
+                if (falha instanceof IOException io) {
+                    throw io;
+                }
+                throw (RuntimeException) falha;
+            }
+        };
+        request.setContentType("multipart/form-data; boundary=xyz");
+        request.addHeader(IdempotenciaFilter.CABECALHO, "chave-1");
+        return request;
+    }
+
+    private MockFilterChain cadeia(int status) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                execucoes.incrementAndGet();
+                resp.setStatus(status);
+                resp.setContentType("application/json");
+                resp.getWriter().write("{\"id\":1}");
+            }
+        });
+    }
+
+    private MockFilterChain cadeiaQueLeCorpo() {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                execucoes.incrementAndGet();
+                String lido = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(lido.startsWith("{\"emailUsuario\""));
+                resp.setStatus(201);
+            }
+        });
+    }
+}
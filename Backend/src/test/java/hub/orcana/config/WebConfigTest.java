@@ -16,24 +16,6 @@ class WebConfigTest {
         webConfig = new WebConfig();
     }
 
-    @Test
-    void addResourceHandlers_deveConfigurarRecursosEstaticos() {
-        // Arrange
-        ResourceHandlerRegistry registry = mock(ResourceHandlerRegistry.class);
-        var resourceHandlerRegistration = mock(org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration.class);
-
-        when(registry.addResourceHandler("/uploads/**")).thenReturn(resourceHandlerRegistration);
-        when(resourceHandlerRegistration.addResourceLocations("file:uploads/")).thenReturn(resourceHandlerRegistration);
-
-        // Act
-        webConfig.addResourceHandlers(registry);
-
-        // Assert
-        verify(registry).addResourceHandler("/uploads/**");
-        verify(resourceHandlerRegistration).addResourceLocations("file:uploads/");
-        verify(resourceHandlerRegistration).setCachePeriod(3600);
-    }
-
     @Test
     void addCorsMappings_deveConfigurarCors() {
         // Arrange
@@ -56,22 +38,6 @@ class WebConfigTest {
         verify(corsRegistration).allowCredentials(true);
     }
 
-    @Test
-    void addResourceHandlers_deveConfigurarCacheCorreto() {
-        // Arrange
-        ResourceHandlerRegistry registry = mock(ResourceHandlerRegistry.class);
-        var resourceHandlerRegistration = mock(org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration.class);
-
-        when(registry.addResourceHandler("/uploads/**")).thenReturn(resourceHandlerRegistration);
-        when(resourceHandlerRegistration.addResourceLocations("file:uploads/")).thenReturn(resourceHandlerRegistration);
-
-        // Act
-        webConfig.addResourceHandlers(registry);
-
-        // Assert
-        verify(resourceHandlerRegistration).setCachePeriod(3600); // 1 hora em segundos
-    }
-
     @Test
     void addCorsMappings_devePermitirCredenciais() {
         // Arrange
@@ -90,23 +56,6 @@ class WebConfigTest {
         verify(corsRegistration).allowCredentials(true);
     }
 
-    @Test
-    void addResourceHandlers_deveUsarCaminhoCorreto() {
-        // Arrange
-        ResourceHandlerRegistry registry = mock(ResourceHandlerRegistry.class);
-        var resourceHandlerRegistration = mock(org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration.class);
-
-        when(registry.addResourceHandler("/uploads/**")).thenReturn(resourceHandlerRegistration);
-        when(resourceHandlerRegistration.addResourceLocations("file:uploads/")).thenReturn(resourceHandlerRegistration);
-
-        // Act
-        webConfig.addResourceHandlers(registry);
-
-        // Assert
-        verify(registry).addResourceHandler("/uploads/**");
-        verify(resourceHandlerRegistration).addResourceLocations("file:uploads/");
-    }
-
     @Test
     void addCorsMappings_devePermitirTodosOsHeaders() {
         // Arrange
@@ -160,5 +109,16 @@ class WebConfigTest {
         // Assert
         verify(registry).addMapping("/**");
     }
-}
 
+    @Test
+    void addResourceHandlers_naoDeveRegistrarUploads() {
+        // Arrange
+        ResourceHandlerRegistry registry = mock(ResourceHandlerRegistry.class);
+
+        // Act
+        webConfig.addResourceHandlers(registry);
+
+        // Assert - /uploads/** agora é servido pelo UploadController
+        verifyNoInteractions(registry);
+    }
+}
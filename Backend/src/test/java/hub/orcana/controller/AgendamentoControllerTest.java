@@ -3,8 +3,14 @@ package hub.orcana.controller;
 import hub.orcana.dto.agendamento.AdicionarMateriaisRequest;
 import hub.orcana.dto.agendamento.CadastroAgendamentoInput;
 import hub.orcana.dto.agendamento.DetalhesAgendamentoOutput;
+import hub.orcana.dto.agendamento.HorarioLivreOutput;
 import hub.orcana.dto.agendamento.MaterialUsadoRequest;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.exception.HorarioIndisponivelException;
+import hub.orcana.exception.VersaoDesatualizadaException;
 import hub.orcana.service.AgendamentoService;
+import hub.orcana.service.CalendarioOcupacaoService;
+import hub.orcana.service.ExportacaoService;
 import hub.orcana.tables.StatusAgendamento;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,10 +19,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -31,6 +45,12 @@ class AgendamentoControllerTest {
     @Mock
     private AgendamentoService agendamentoService;
 
+    @Mock
+    private CalendarioOcupacaoService calendarioService;
+
+    @Mock
+    private ExportacaoService exportacaoService;
+
     @InjectMocks
     private AgendamentoController agendamentoController;
 
@@ -94,50 +114,50 @@ class AgendamentoControllerTest {
                 null
         );
         List<DetalhesAgendamentoOutput> agendamentos = List.of(agendamentoOutput, agendamento2);
-        when(agendamentoService.getAgendamentos()).thenReturn(agendamentos);
+        when(agendamentoService.getAgendamentos(null, 20)).thenReturn(new PaginaCursorOutput<>(agendamentos, null));
 
         // Act
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response = agendamentoController.getAgendamento();
+        ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> response = agendamentoController.getAgendamento(null, 20);
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(2, response.getBody().size());
-        assertEquals("João Silva", response.getBody().getFirst().nomeUsuario());
-        assertEquals("Maria Santos", response.getBody().get(1).nomeUsuario());
-        verify(agendamentoService, times(1)).getAgendamentos();
+        assertEquals(2, response.getBody().itens().size());
+        assertEquals("João Silva", response.getBody().itens().getFirst().nomeUsuario());
+        assertEquals("Maria Santos", response.getBody().itens().get(1).nomeUsuario());
+        verify(agendamentoService, times(1)).getAgendamentos(null, 20);
     }
 
     @Test
     @DisplayName("Deve retornar status 204 quando lista estiver vazia")
     void deveRetornar204QuandoListaVazia() {
 
-        when(agendamentoService.getAgendamentos()).thenReturn(Collections.emptyList());
+        when(agendamentoService.getAgendamentos(null, 20)).thenReturn(new PaginaCursorOutput<>(Collections.emptyList(), null));
 
 
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response = agendamentoController.getAgendamento();
+        ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> response = agendamentoController.getAgendamento(null, 20);
 
 
         assertNotNull(response);
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         assertNull(response.getBody());
-        verify(agendamentoService, times(1)).getAgendamentos();
+        verify(agendamentoService, times(1)).getAgendamentos(null, 20);
     }
 
     @Test
     @DisplayName("Deve lançar ResponseStatusException quando ocorrer exceção")
     void deveLancarResponseStatusExceptionQuandoOcorrerExcecao() {
         // Arrange
-        when(agendamentoService.getAgendamentos()).thenThrow(new RuntimeException("Erro ao buscar agendamentos"));
+        when(agendamentoService.getAgendamentos(null, 20)).thenThrow(new RuntimeException("Erro ao buscar agendamentos"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-            () -> agendamentoController.getAgendamento());
+            () -> agendamentoController.getAgendamento(null, 20));
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertEquals("Erro ao buscar agendamentos", exception.getReason());
-        verify(agendamentoService, times(1)).getAgendamentos();
+        verify(agendamentoService, times(1)).getAgendamentos(null, 20);
     }
 
     @Test
@@ -147,7 +167,7 @@ class AgendamentoControllerTest {
         when(agendamentoService.getAgendamentoPorId(1L)).thenReturn(agendamentoOutput);
 
 
-        ResponseEntity<DetalhesAgendamentoOutput> response = agendamentoController.getAgendamentoPorId(1L);
+        ResponseEntity<DetalhesAgendamentoOutput> response = agendamentoController.getAgendamentoPorId(1L, null);
 
 
         assertNotNull(response);
@@ -167,7 +187,7 @@ class AgendamentoControllerTest {
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-            () -> agendamentoController.getAgendamentoPorId(999L));
+            () -> agendamentoController.getAgendamentoPorId(999L, null));
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertEquals("Agendamento não encontrado.", exception.getReason());
@@ -183,7 +203,7 @@ class AgendamentoControllerTest {
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-            () -> agendamentoController.getAgendamentoPorId(1L));
+            () -> agendamentoController.getAgendamentoPorId(1L, null));
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertEquals("ID inválido", exception.getReason());
@@ -194,48 +214,50 @@ class AgendamentoControllerTest {
     void deveRetornar200ComAgendamentosPorStatus() {
         // Arrange
         List<DetalhesAgendamentoOutput> agendamentos = List.of(agendamentoOutput);
-        when(agendamentoService.getAgendamentosByStatus("PENDENTE")).thenReturn(agendamentos);
+        when(agendamentoService.getAgendamentosByStatus(eq("PENDENTE"), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(agendamentos));
 
         // Act
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response =
-                agendamentoController.getAgendamentosByStatus("PENDENTE");
+        ResponseEntity<Page<DetalhesAgendamentoOutput>> response =
+                agendamentoController.getAgendamentosByStatus("PENDENTE", null, null, PageRequest.of(0, 20));
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        assertEquals("PENDENTE", response.getBody().getFirst().status());
-        verify(agendamentoService, times(1)).getAgendamentosByStatus("PENDENTE");
+        assertEquals(1, response.getBody().getNumberOfElements());
+        assertEquals("PENDENTE", response.getBody().getContent().getFirst().status());
+        verify(agendamentoService, times(1)).getAgendamentosByStatus(eq("PENDENTE"), isNull(), isNull(), any(Pageable.class));
     }
 
     @Test
     @DisplayName("Deve retornar status 204 quando não houver agendamentos com o status")
     void deveRetornar204QuandoNaoHouverAgendamentosComStatus() {
 
-        when(agendamentoService.getAgendamentosByStatus("CANCELADO")).thenReturn(Collections.emptyList());
+        when(agendamentoService.getAgendamentosByStatus(eq("CANCELADO"), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(Page.empty());
 
 
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response = 
-                agendamentoController.getAgendamentosByStatus("CANCELADO");
+        ResponseEntity<Page<DetalhesAgendamentoOutput>> response = 
+                agendamentoController.getAgendamentosByStatus("CANCELADO", null, null, PageRequest.of(0, 20));
 
 
         assertNotNull(response);
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         assertNull(response.getBody());
-        verify(agendamentoService, times(1)).getAgendamentosByStatus("CANCELADO");
+        verify(agendamentoService, times(1)).getAgendamentosByStatus(eq("CANCELADO"), isNull(), isNull(), any(Pageable.class));
     }
 
     @Test
     @DisplayName("Deve lançar ResponseStatusException quando status for inválido")
     void deveLancarExcecaoQuandoStatusInvalido() {
         // Arrange
-        when(agendamentoService.getAgendamentosByStatus(anyString()))
+        when(agendamentoService.getAgendamentosByStatus(anyString(), any(), any(), any(Pageable.class)))
                 .thenThrow(new RuntimeException("Status inválido"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            agendamentoController.getAgendamentosByStatus("INVALIDO");
+            agendamentoController.getAgendamentosByStatus("INVALIDO", null, null, PageRequest.of(0, 20));
         });
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
@@ -313,54 +335,117 @@ class AgendamentoControllerTest {
     @DisplayName("Deve retornar status 200 ao atualizar agendamento com sucesso")
     void deveRetornar200AoAtualizarAgendamentoComSucesso() {
         // Arrange
-        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class)))
+        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class), isNull()))
                 .thenReturn(agendamentoOutput);
 
         // Act
         ResponseEntity<DetalhesAgendamentoOutput> response =
-                agendamentoController.putAgendamento(1L, agendamentoInput);
+                agendamentoController.putAgendamento(1L, agendamentoInput, null);
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals("João Silva", response.getBody().nomeUsuario());
-        verify(agendamentoService, times(1)).putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class));
+        verify(agendamentoService, times(1)).putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class), isNull());
     }
 
     @Test
     @DisplayName("Deve lançar ResponseStatusException quando agendamento não existir para atualização")
     void deveLancarExcecaoQuandoAgendamentoNaoExistirParaAtualizacao() {
         // Arrange
-        when(agendamentoService.putAgendamentoById(eq(999L), any(CadastroAgendamentoInput.class)))
+        when(agendamentoService.putAgendamentoById(eq(999L), any(CadastroAgendamentoInput.class), isNull()))
                 .thenThrow(new IllegalArgumentException("Agendamento não encontrado."));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            agendamentoController.putAgendamento(999L, agendamentoInput);
+            agendamentoController.putAgendamento(999L, agendamentoInput, null);
         });
 
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
         assertEquals("Agendamento não encontrado.", exception.getReason());
-        verify(agendamentoService, times(1)).putAgendamentoById(eq(999L), any(CadastroAgendamentoInput.class));
+        verify(agendamentoService, times(1)).putAgendamentoById(eq(999L), any(CadastroAgendamentoInput.class), isNull());
     }
 
     @Test
     @DisplayName("Deve lançar ResponseStatusException ao atualizar com dados inválidos")
     void deveLancarExcecaoAoAtualizarComDadosInvalidos() {
         // Arrange
-        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class)))
+        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class), isNull()))
                 .thenThrow(new RuntimeException("Erro ao processar dados"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            agendamentoController.putAgendamento(1L, agendamentoInput);
+            agendamentoController.putAgendamento(1L, agendamentoInput, null);
         });
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertEquals("Erro ao processar dados", exception.getReason());
     }
 
+    @Test
+    @DisplayName("Deve propagar versão desatualizada sem convertê-la em 400")
+    void devePropagarVersaoDesatualizadaAoAtualizar() {
+        // Arrange
+        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class), eq(2L)))
+                .thenThrow(new VersaoDesatualizadaException("Agendamento"));
+
+        // Act & Assert
+        assertThrows(VersaoDesatualizadaException.class,
+                () -> agendamentoController.putAgendamento(1L, agendamentoInput, "\"2.7\""));
+    }
+
+    @Test
+    @DisplayName("Deve propagar horário indisponível ao atualizar para virar 409, não 404")
+    void devePropagarHorarioIndisponivelAoAtualizar() {
+        // Arrange
+        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class), isNull()))
+                .thenThrow(new HorarioIndisponivelException());
+
+        // Act & Assert
+        assertThrows(HorarioIndisponivelException.class,
+                () -> agendamentoController.putAgendamento(1L, agendamentoInput, null));
+    }
+
+    @Test
+    @DisplayName("Deve propagar horário indisponível ao criar agendamento")
+    void devePropagarHorarioIndisponivelAoCriar() {
+        // Arrange
+        when(agendamentoService.postAgendamento(any(CadastroAgendamentoInput.class)))
+                .thenThrow(new HorarioIndisponivelException());
+
+        // Act & Assert
+        assertThrows(HorarioIndisponivelException.class,
+                () -> agendamentoController.postAgendamento(agendamentoInput));
+    }
+
+    @Test
+    @DisplayName("Deve exportar agendamentos em fluxo com cabeçalhos de download")
+    void deveExportarAgendamentosEmFluxo() throws Exception {
+        // Arrange
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = agendamentoController.exportarAgendamentos("ndjson");
+        response.getBody().writeTo(saida);
+
+        // Assert - o banco só é lido quando o corpo é escrito
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getContentDisposition().getFilename().endsWith(".ndjson"));
+        verify(exportacaoService, times(1)).exportarAgendamentos(ExportacaoService.Formato.NDJSON, saida);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 para formato de exportação desconhecido")
+    void deveRetornar400ParaFormatoDeExportacaoInvalido() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> agendamentoController.exportarAgendamentos("xlsx"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(exportacaoService);
+    }
+
     @Test
     @DisplayName("Deve retornar status 204 ao deletar agendamento com sucesso")
     void deveRetornar204AoDeletarAgendamentoComSucesso() {
@@ -458,18 +543,18 @@ class AgendamentoControllerTest {
                 null
         );
         List<DetalhesAgendamentoOutput> agendamentos = List.of(agendamentoOutput, agendamento2);
-        when(agendamentoService.getAgendamentos()).thenReturn(agendamentos);
+        when(agendamentoService.getAgendamentos(null, 20)).thenReturn(new PaginaCursorOutput<>(agendamentos, null));
 
         // Act
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response = agendamentoController.getAgendamento();
+        ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> response = agendamentoController.getAgendamento(null, 20);
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(2, response.getBody().size());
-        assertEquals("joao@email.com", response.getBody().getFirst().emailUsuario());
-        assertEquals("joao@email.com", response.getBody().get(1).emailUsuario());
+        assertEquals(2, response.getBody().itens().size());
+        assertEquals("joao@email.com", response.getBody().itens().getFirst().emailUsuario());
+        assertEquals("joao@email.com", response.getBody().itens().get(1).emailUsuario());
     }
 
     @Test
@@ -477,16 +562,17 @@ class AgendamentoControllerTest {
     void deveValidarBuscaCaseInsensitivePorStatus() {
         // Arrange
         List<DetalhesAgendamentoOutput> agendamentos = List.of(agendamentoOutput);
-        when(agendamentoService.getAgendamentosByStatus("aguardando")).thenReturn(agendamentos);
+        when(agendamentoService.getAgendamentosByStatus(eq("aguardando"), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(agendamentos));
 
         // Act
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response =
-                agendamentoController.getAgendamentosByStatus("aguardando");
+        ResponseEntity<Page<DetalhesAgendamentoOutput>> response =
+                agendamentoController.getAgendamentosByStatus("aguardando", null, null, PageRequest.of(0, 20));
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(agendamentoService, times(1)).getAgendamentosByStatus("aguardando");
+        verify(agendamentoService, times(1)).getAgendamentosByStatus(eq("aguardando"), isNull(), isNull(), any(Pageable.class));
     }
 
     @Test
@@ -498,7 +584,7 @@ class AgendamentoControllerTest {
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            agendamentoController.getAgendamentoPorId(-1L);
+            agendamentoController.getAgendamentoPorId(-1L, null);
         });
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
@@ -552,12 +638,12 @@ class AgendamentoControllerTest {
                 1L, dataHora.plusHours(2), "CONFIRMADO", "João Silva", "joao@email.com",
                 "ORC123", "Dragão nas costas", 20.5, "Preto e Vermelho", "Costas", null, List.of(), null, null, null
         );
-        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class)))
+        when(agendamentoService.putAgendamentoById(eq(1L), any(CadastroAgendamentoInput.class), isNull()))
                 .thenReturn(outputAtualizado);
 
         // Act
         ResponseEntity<DetalhesAgendamentoOutput> response =
-                agendamentoController.putAgendamento(1L, inputParcial);
+                agendamentoController.putAgendamento(1L, inputParcial, null);
 
         // Assert
         assertNotNull(response);
@@ -608,51 +694,51 @@ class AgendamentoControllerTest {
     void deveRetornarAgendamentosPorUsuarioComSucesso() {
         // Arrange
         List<DetalhesAgendamentoOutput> agendamentos = List.of(agendamentoOutput);
-        when(agendamentoService.getAgendamentosPorUsuario(1L)).thenReturn(agendamentos);
+        when(agendamentoService.getAgendamentosPorUsuario(1L, null, 20)).thenReturn(new PaginaCursorOutput<>(agendamentos, null));
 
         // Act
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response =
-                agendamentoController.getAgendamentosPorUsuario(1L);
+        ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> response =
+                agendamentoController.getAgendamentosPorUsuario(1L, null, 20);
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        assertEquals(agendamentoOutput, response.getBody().getFirst());
-        verify(agendamentoService, times(1)).getAgendamentosPorUsuario(1L);
+        assertEquals(1, response.getBody().itens().size());
+        assertEquals(agendamentoOutput, response.getBody().itens().getFirst());
+        verify(agendamentoService, times(1)).getAgendamentosPorUsuario(1L, null, 20);
     }
 
     @Test
     @DisplayName("Deve retornar 204 quando usuário não tiver agendamentos")
     void deveRetornar204QuandoUsuarioNaoTiverAgendamentos() {
         // Arrange
-        when(agendamentoService.getAgendamentosPorUsuario(1L)).thenReturn(Collections.emptyList());
+        when(agendamentoService.getAgendamentosPorUsuario(1L, null, 20)).thenReturn(new PaginaCursorOutput<>(Collections.emptyList(), null));
 
         // Act
-        ResponseEntity<List<DetalhesAgendamentoOutput>> response =
-                agendamentoController.getAgendamentosPorUsuario(1L);
+        ResponseEntity<PaginaCursorOutput<DetalhesAgendamentoOutput>> response =
+                agendamentoController.getAgendamentosPorUsuario(1L, null, 20);
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
-        verify(agendamentoService, times(1)).getAgendamentosPorUsuario(1L);
+        verify(agendamentoService, times(1)).getAgendamentosPorUsuario(1L, null, 20);
     }
 
     @Test
     @DisplayName("Deve lançar ResponseStatusException ao buscar agendamentos por usuário inexistente")
     void deveLancarExcecaoAoBuscarAgendamentosPorUsuarioInexistente() {
         // Arrange
-        when(agendamentoService.getAgendamentosPorUsuario(999L))
+        when(agendamentoService.getAgendamentosPorUsuario(999L, null, 20))
                 .thenThrow(new RuntimeException("Usuário não encontrado"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-            () -> agendamentoController.getAgendamentosPorUsuario(999L));
+            () -> agendamentoController.getAgendamentosPorUsuario(999L, null, 20));
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertEquals("Usuário não encontrado", exception.getReason());
-        verify(agendamentoService, times(1)).getAgendamentosPorUsuario(999L);
+        verify(agendamentoService, times(1)).getAgendamentosPorUsuario(999L, null, 20);
     }
 
     @Test
@@ -710,10 +796,11 @@ class AgendamentoControllerTest {
     void deveRetornarDatasOcupadasComSucesso() {
         // Arrange
         List<String> datas = List.of("2026-02-20", "2026-02-21", "2026-02-22");
-        when(agendamentoService.getDatasOcupadas()).thenReturn(datas);
+        when(calendarioService.getCalendario()).thenReturn(new CalendarioOcupacaoService.Calendario(datas, "\"abc\""));
+        when(calendarioService.getMaxAge()).thenReturn(Duration.ofSeconds(60));
 
         // Act
-        ResponseEntity<List<String>> response = agendamentoController.getDatasOcupadas();
+        ResponseEntity<List<String>> response = agendamentoController.getDatasOcupadas(null);
 
         // Assert
         assertNotNull(response);
@@ -721,40 +808,94 @@ class AgendamentoControllerTest {
         assertNotNull(response.getBody());
         assertEquals(3, response.getBody().size());
         assertEquals("2026-02-20", response.getBody().getFirst());
-        verify(agendamentoService, times(1)).getDatasOcupadas();
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertEquals("max-age=60, public", response.getHeaders().getCacheControl());
+        verify(calendarioService, times(1)).getCalendario();
     }
 
     @Test
     @DisplayName("Deve retornar lista vazia quando não houver datas ocupadas")
     void deveRetornarListaVaziaQuandoNaoHouverDatasOcupadas() {
         // Arrange
-        when(agendamentoService.getDatasOcupadas()).thenReturn(Collections.emptyList());
+        when(calendarioService.getCalendario()).thenReturn(
+                new CalendarioOcupacaoService.Calendario(Collections.emptyList(), "\"vazio\""));
+        when(calendarioService.getMaxAge()).thenReturn(Duration.ofSeconds(60));
 
         // Act
-        ResponseEntity<List<String>> response = agendamentoController.getDatasOcupadas();
+        ResponseEntity<List<String>> response = agendamentoController.getDatasOcupadas(null);
 
         // Assert
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertTrue(response.getBody().isEmpty());
-        verify(agendamentoService, times(1)).getDatasOcupadas();
+        verify(calendarioService, times(1)).getCalendario();
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 quando as datas ocupadas não mudaram")
+    void deveRetornar304QuandoDatasOcupadasNaoMudaram() {
+        // Arrange
+        when(calendarioService.getCalendario()).thenReturn(
+                new CalendarioOcupacaoService.Calendario(List.of("2026-02-20"), "\"abc\""));
+        when(calendarioService.getMaxAge()).thenReturn(Duration.ofSeconds(60));
+
+        // Act
+        ResponseEntity<List<String>> response = agendamentoController.getDatasOcupadas("\"abc\"");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals("\"abc\"", response.getHeaders().getETag());
     }
 
     @Test
     @DisplayName("Deve lançar ResponseStatusException ao buscar datas ocupadas com erro")
     void deveLancarExcecaoAoBuscarDatasOcupadasComErro() {
         // Arrange
-        when(agendamentoService.getDatasOcupadas())
+        when(calendarioService.getCalendario())
                 .thenThrow(new RuntimeException("Erro ao buscar datas"));
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
-            () -> agendamentoController.getDatasOcupadas());
+            () -> agendamentoController.getDatasOcupadas(null));
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
         assertEquals("Erro ao buscar datas", exception.getReason());
-        verify(agendamentoService, times(1)).getDatasOcupadas();
+        verify(calendarioService, times(1)).getCalendario();
+    }
+
+    @Test
+    @DisplayName("Deve retornar horários livres com sucesso")
+    void deveRetornarHorariosLivresComSucesso() {
+        // Arrange
+        LocalDate de = LocalDate.now().plusDays(1);
+        List<HorarioLivreOutput> livres = List.of(
+                new HorarioLivreOutput(de.atTime(10, 0), de.atTime(12, 0)),
+                new HorarioLivreOutput(de.atTime(10, 30), de.atTime(12, 30)));
+        when(agendamentoService.getHorariosLivres(de, de, 120, 2)).thenReturn(livres);
+
+        // Act
+        ResponseEntity<List<HorarioLivreOutput>> response = agendamentoController.getDisponibilidade(de, de, 120, 2);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(livres, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 quando os parâmetros de disponibilidade são inválidos")
+    void deveRetornar400QuandoParametrosDeDisponibilidadeInvalidos() {
+        // Arrange
+        LocalDate de = LocalDate.now().plusDays(5);
+        when(agendamentoService.getHorariosLivres(de, de.minusDays(1), null, 10))
+                .thenThrow(new IllegalArgumentException("A data inicial deve ser anterior ou igual à data final."));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> agendamentoController.getDisponibilidade(de, de.minusDays(1), null, 10));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
     }
 
     @Test
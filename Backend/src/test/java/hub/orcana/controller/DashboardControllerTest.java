@@ -1,27 +1,39 @@
 package hub.orcana.controller;
 
 import hub.orcana.dto.dashboard.DashboardKPIsOutput;
+import hub.orcana.dto.dashboard.AgendamentoResumoOutput;
+import hub.orcana.dto.dashboard.AnaliseOutput;
 import hub.orcana.dto.dashboard.DashboardOutput;
+import hub.orcana.dto.dashboard.GranularidadeAnalise;
+import hub.orcana.dto.dashboard.MetricaAnaliseOutput;
+import hub.orcana.dto.estoque.DetalhesMaterialOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.service.AnaliseDashboardService;
+import hub.orcana.service.DashboardCacheService;
 import hub.orcana.service.DashboardService;
-import hub.orcana.tables.Agendamento;
-import hub.orcana.tables.Estoque;
+import hub.orcana.service.DashboardStreamService;
 import hub.orcana.tables.StatusAgendamento;
-import hub.orcana.tables.Usuario;
-import hub.orcana.tables.Orcamento;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,59 +44,49 @@ class DashboardControllerTest {
     @Mock
     private DashboardService dashboardService;
 
-    @InjectMocks
+    @Mock
+    private DashboardStreamService dashboardStreamService;
+
+    @Mock
+    private AnaliseDashboardService analiseDashboardService;
+
+    private ExecutorService executor;
+    private DashboardCacheService dashboardCache;
     private DashboardController dashboardController;
 
     private DashboardOutput dashboardOutput;
     private List<Double> faturamentoAnual;
-    private Agendamento proximoAgendamento;
-    private List<Agendamento> agendamentosDoDia;
-    private List<Estoque> alertasEstoque;
+    private AgendamentoResumoOutput proximoAgendamento;
+    private List<AgendamentoResumoOutput> agendamentosDoDia;
+    private List<DetalhesMaterialOutput> alertasEstoque;
 
     @BeforeEach
     void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        dashboardCache = new DashboardCacheService(dashboardService, executor,
+                new ObjectMapper().findAndRegisterModules(), 30_000L, 120_000L);
+        dashboardController = new DashboardController(dashboardCache, dashboardStreamService, analiseDashboardService);
+
         faturamentoAnual = Arrays.asList(
                 1000.0, 1500.0, 2000.0, 1800.0, 2200.0, 2500.0,
                 2300.0, 2700.0, 3000.0, 2800.0, 3200.0, 3500.0
         );
 
-        Usuario usuario = new Usuario();
-        usuario.setId(1L);
-        usuario.setNome("João Silva");
-        usuario.setEmail("joao@email.com");
-
-        Orcamento orcamento = new Orcamento("ORC123", "João Silva", "joao@email.com",
-                "Dragão nas costas", 20.5, "Preto e Vermelho", "Costas", null);
-        orcamento.setValor(1500.0);
-
-        proximoAgendamento = new Agendamento();
-        proximoAgendamento.setId(1L);
-        proximoAgendamento.setDataHora(LocalDateTime.now().plusDays(1));
-        proximoAgendamento.setStatus(StatusAgendamento.PENDENTE);
-        proximoAgendamento.setUsuario(usuario);
-        proximoAgendamento.setOrcamento(orcamento);
-
-        Agendamento agendamento1 = new Agendamento();
-        agendamento1.setId(2L);
-        agendamento1.setDataHora(LocalDateTime.now().withHour(10).withMinute(0));
-        agendamento1.setStatus(StatusAgendamento.CONFIRMADO);
-        agendamento1.setUsuario(usuario);
-        agendamento1.setOrcamento(orcamento);
-
-        Agendamento agendamento2 = new Agendamento();
-        agendamento2.setId(3L);
-        agendamento2.setDataHora(LocalDateTime.now().withHour(14).withMinute(0));
-        agendamento2.setStatus(StatusAgendamento.PENDENTE);
-        agendamento2.setUsuario(usuario);
-        agendamento2.setOrcamento(orcamento);
+        proximoAgendamento = new AgendamentoResumoOutput(1L, LocalDateTime.now().plusDays(1),
+                StatusAgendamento.PENDENTE, "João Silva", "ORC123", "Costas", 120);
 
-        agendamentosDoDia = Arrays.asList(agendamento1, agendamento2);
+        AgendamentoResumoOutput agendamento1 = new AgendamentoResumoOutput(2L,
+                LocalDateTime.now().withHour(10).withMinute(0), StatusAgendamento.CONFIRMADO,
+                "João Silva", "ORC123", "Costas", 120);
 
-        Estoque estoque1 = new Estoque("Tinta Preta", 5.0, "ml", 10.0);
-        estoque1.setId(1L);
+        AgendamentoResumoOutput agendamento2 = new AgendamentoResumoOutput(3L,
+                LocalDateTime.now().withHour(14).withMinute(0), StatusAgendamento.PENDENTE,
+                "João Silva", "ORC123", "Costas", 120);
+
+        agendamentosDoDia = Arrays.asList(agendamento1, agendamento2);
 
-        Estoque estoque2 = new Estoque("Agulhas Descartáveis", 15.0, "unidade", 20.0);
-        estoque2.setId(2L);
+        DetalhesMaterialOutput estoque1 = new DetalhesMaterialOutput(1L, "Tinta Preta", 5.0, "ml", 10.0);
+        DetalhesMaterialOutput estoque2 = new DetalhesMaterialOutput(2L, "Agulhas Descartáveis", 15.0, "unidade", 20.0);
 
         alertasEstoque = Arrays.asList(estoque1, estoque2);
 
@@ -96,12 +98,17 @@ class DashboardControllerTest {
         );
     }
 
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
     @Test
     @DisplayName("Deve retornar status 200 e faturamento anual dos últimos 12 meses")
     void deveRetornar200ComFaturamentoAnual() {
         when(dashboardService.getFaturamentoUltimos12Meses()).thenReturn(faturamentoAnual);
 
-        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual();
+        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -117,7 +124,7 @@ class DashboardControllerTest {
     void deveRetornar200ComListaVaziaQuandoNaoHouverFaturamento() {
         when(dashboardService.getFaturamentoUltimos12Meses()).thenReturn(Collections.emptyList());
 
-        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual();
+        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -135,7 +142,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getFaturamentoUltimos12Meses()).thenReturn(faturamentoZero);
 
-        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual();
+        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -149,7 +156,7 @@ class DashboardControllerTest {
     void deveRetornar200ComDashboardKPIs() {
         when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -166,15 +173,15 @@ class DashboardControllerTest {
     void deveRetornarKPIsComProximoAgendamentoCorreto() {
         when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
-        Agendamento proximo = response.getBody().proximoAgendamento();
+        AgendamentoResumoOutput proximo = response.getBody().proximoAgendamento();
         assertNotNull(proximo);
-        assertEquals(1L, proximo.getId());
-        assertEquals(StatusAgendamento.PENDENTE, proximo.getStatus());
-        assertEquals("João Silva", proximo.getUsuario().getNome());
+        assertEquals(1L, proximo.id());
+        assertEquals(StatusAgendamento.PENDENTE, proximo.status());
+        assertEquals("João Silva", proximo.nomeUsuario());
     }
 
     @Test
@@ -182,7 +189,7 @@ class DashboardControllerTest {
     void deveRetornarKPIsComContagemCorretaDeOrcamentosPendentes() {
         when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
@@ -194,14 +201,14 @@ class DashboardControllerTest {
     void deveRetornarKPIsComAgendamentosDoDiaCorretos() {
         when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
-        List<Agendamento> agendamentos = response.getBody().agendamentosDoDia();
+        List<AgendamentoResumoOutput> agendamentos = response.getBody().agendamentosDoDia();
         assertEquals(2, agendamentos.size());
-        assertEquals(2L, agendamentos.get(0).getId());
-        assertEquals(3L, agendamentos.get(1).getId());
+        assertEquals(2L, agendamentos.get(0).id());
+        assertEquals(3L, agendamentos.get(1).id());
     }
 
     @Test
@@ -209,16 +216,16 @@ class DashboardControllerTest {
     void deveRetornarKPIsComAlertasDeEstoqueCorretos() {
         when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
-        List<Estoque> alertas = response.getBody().alertasEstoque();
+        List<DetalhesMaterialOutput> alertas = response.getBody().alertasEstoque();
         assertEquals(2, alertas.size());
-        assertEquals("Tinta Preta", alertas.get(0).getNome());
-        assertEquals(5.0, alertas.get(0).getQuantidade());
-        assertEquals("Agulhas Descartáveis", alertas.get(1).getNome());
-        assertEquals(15.0, alertas.get(1).getQuantidade());
+        assertEquals("Tinta Preta", alertas.get(0).nome());
+        assertEquals(5.0, alertas.get(0).quantidade());
+        assertEquals("Agulhas Descartáveis", alertas.get(1).nome());
+        assertEquals(15.0, alertas.get(1).quantidade());
     }
 
     @Test
@@ -232,7 +239,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getDashboardKPIs()).thenReturn(outputSemProximo);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -252,7 +259,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getDashboardKPIs()).thenReturn(outputSemAgendamentos);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -271,7 +278,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getDashboardKPIs()).thenReturn(outputSemAlertas);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -290,7 +297,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getDashboardKPIs()).thenReturn(outputSemOrcamentos);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -309,7 +316,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getDashboardKPIs()).thenReturn(outputVazio);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -325,7 +332,7 @@ class DashboardControllerTest {
     void deveVerificarOrdemCronologicaDoFaturamento() {
         when(dashboardService.getFaturamentoUltimos12Meses()).thenReturn(faturamentoAnual);
 
-        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual();
+        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
@@ -343,7 +350,7 @@ class DashboardControllerTest {
         );
         when(dashboardService.getFaturamentoUltimos12Meses()).thenReturn(faturamentoDecimal);
 
-        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual();
+        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
@@ -354,16 +361,11 @@ class DashboardControllerTest {
     @Test
     @DisplayName("Deve tratar múltiplos alertas de estoque críticos")
     void deveTratarMultiplosAlertasDeEstoqueCriticos() {
-        Estoque estoque1 = new Estoque("Tinta Preta", 2.0, "ml", 10.0);
-        estoque1.setId(1L);
-
-        Estoque estoque2 = new Estoque("Tinta Vermelha", 1.0, "ml", 10.0);
-        estoque2.setId(2L);
-
-        Estoque estoque3 = new Estoque("Agulhas", 5.0, "unidade", 20.0);
-        estoque3.setId(3L);
+        DetalhesMaterialOutput estoque1 = new DetalhesMaterialOutput(1L, "Tinta Preta", 2.0, "ml", 10.0);
+        DetalhesMaterialOutput estoque2 = new DetalhesMaterialOutput(2L, "Tinta Vermelha", 1.0, "ml", 10.0);
+        DetalhesMaterialOutput estoque3 = new DetalhesMaterialOutput(3L, "Agulhas", 5.0, "unidade", 20.0);
 
-        List<Estoque> alertasCriticos = Arrays.asList(estoque1, estoque2, estoque3);
+        List<DetalhesMaterialOutput> alertasCriticos = Arrays.asList(estoque1, estoque2, estoque3);
 
         DashboardOutput outputComAlertas = new DashboardOutput(
                 proximoAgendamento,
@@ -373,13 +375,13 @@ class DashboardControllerTest {
         );
         when(dashboardService.getDashboardKPIs()).thenReturn(outputComAlertas);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
         assertEquals(3, response.getBody().alertasEstoque().size());
         assertTrue(response.getBody().alertasEstoque().stream()
-                .allMatch(e -> e.getQuantidade() < e.getMinAviso()));
+                .allMatch(e -> e.quantidade() < e.minAviso()));
     }
 
     @Test
@@ -387,14 +389,14 @@ class DashboardControllerTest {
     void deveRetornarAgendamentosDoDiaOrdenadosPorHorario() {
         when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
 
-        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs();
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
 
         assertNotNull(response);
         assertNotNull(response.getBody());
-        List<Agendamento> agendamentos = response.getBody().agendamentosDoDia();
+        List<AgendamentoResumoOutput> agendamentos = response.getBody().agendamentosDoDia();
         assertEquals(2, agendamentos.size());
-        assertEquals(agendamentos.get(0).getDataHora().toLocalDate(),
-                agendamentos.get(1).getDataHora().toLocalDate());
+        assertEquals(agendamentos.get(0).dataHora().toLocalDate(),
+                agendamentos.get(1).dataHora().toLocalDate());
     }
 
     // ------------------ TESTES PARA GET /dashboard/estatisticas ------------------
@@ -413,7 +415,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticas);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -440,7 +442,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticasVazias);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -467,7 +469,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticas);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -494,7 +496,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticasGrandes);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -517,7 +519,7 @@ class DashboardControllerTest {
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> dashboardController.getEstatisticas());
+                () -> dashboardController.getEstatisticas(null));
 
         assertEquals(mensagemErro, exception.getMessage());
         verify(dashboardService, times(1)).getEstatisticas();
@@ -533,7 +535,7 @@ class DashboardControllerTest {
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
-                () -> dashboardController.getEstatisticas());
+                () -> dashboardController.getEstatisticas(null));
 
         assertEquals(mensagemErro, exception.getMessage());
         verify(dashboardService, times(1)).getEstatisticas();
@@ -553,7 +555,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticas);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -580,7 +582,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticas);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -604,7 +606,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticas);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -627,9 +629,10 @@ class DashboardControllerTest {
                 .thenReturn(estatisticas1)
                 .thenReturn(estatisticas2);
 
-        // Act
-        ResponseEntity<DashboardKPIsOutput> response1 = dashboardController.getEstatisticas();
-        ResponseEntity<DashboardKPIsOutput> response2 = dashboardController.getEstatisticas();
+        // Act - Uma alteração de domínio entre as chamadas invalida o cache
+        ResponseEntity<DashboardKPIsOutput> response1 = dashboardController.getEstatisticas(null);
+        dashboardCache.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.CRIADO, 1L));
+        ResponseEntity<DashboardKPIsOutput> response2 = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response1);
@@ -659,7 +662,7 @@ class DashboardControllerTest {
         when(dashboardService.getEstatisticas()).thenReturn(estatisticas);
 
         // Act
-        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(null);
 
         // Assert
         assertNotNull(response);
@@ -670,6 +673,114 @@ class DashboardControllerTest {
         assertNull(response.getBody().faturamentoTotal());
         assertEquals(30, response.getBody().totalProdutos());
     }
-}
 
+    // ------------------ CACHE E ETAG ------------------
+
+    @Test
+    @DisplayName("Deve servir chamadas consecutivas do cache com a mesma ETag")
+    void deveServirChamadasConsecutivasDoCache() {
+        when(dashboardService.getDashboardKPIs()).thenReturn(dashboardOutput);
+
+        ResponseEntity<DashboardOutput> response1 = dashboardController.getDashboardKPIs(null);
+        ResponseEntity<DashboardOutput> response2 = dashboardController.getDashboardKPIs(null);
+
+        assertEquals(HttpStatus.OK, response2.getStatusCode());
+        assertNotNull(response1.getHeaders().getETag());
+        assertFalse(response1.getHeaders().getETag().startsWith("W/"));
+        assertEquals(response1.getHeaders().getETag(), response2.getHeaders().getETag());
+        verify(dashboardService, times(1)).getDashboardKPIs();
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 quando If-None-Match corresponder à ETag atual")
+    void deveRetornar304QuandoEtagCorresponder() {
+        when(dashboardService.getFaturamentoUltimos12Meses()).thenReturn(faturamentoAnual);
+
+        String etag = dashboardController.getFaturamentoAnual(null).getHeaders().getETag();
+        ResponseEntity<List<Double>> response = dashboardController.getFaturamentoAnual(etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(etag, response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 200 quando If-None-Match não corresponder")
+    void deveRetornar200QuandoEtagNaoCorresponder() {
+        when(dashboardService.getEstatisticas()).thenReturn(new DashboardKPIsOutput(1L, 1L, 10.0, 1));
+
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas("\"outra-versao\"");
 
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+    }
+
+    @Test
+    @DisplayName("Deve manter a ETag quando o conteúdo recalculado não mudar")
+    void deveManterEtagQuandoConteudoNaoMudar() {
+        when(dashboardService.getEstatisticas()).thenReturn(new DashboardKPIsOutput(1L, 1L, 10.0, 1));
+
+        String etag1 = dashboardController.getEstatisticas(null).getHeaders().getETag();
+        dashboardCache.invalidar();
+        ResponseEntity<DashboardKPIsOutput> response = dashboardController.getEstatisticas(etag1);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(dashboardService, times(2)).getEstatisticas();
+    }
+
+    @Test
+    @DisplayName("Não deve guardar KPIs parciais no cache")
+    void naoDeveGuardarKpisParciais() {
+        DashboardOutput parcial = new DashboardOutput(null, 0L, null, null, true);
+        when(dashboardService.getDashboardKPIs()).thenReturn(parcial).thenReturn(dashboardOutput);
+
+        dashboardController.getDashboardKPIs(null);
+        ResponseEntity<DashboardOutput> response = dashboardController.getDashboardKPIs(null);
+
+        assertFalse(response.getBody().dadosParciais());
+        verify(dashboardService, times(2)).getDashboardKPIs();
+    }
+
+    @Test
+    @DisplayName("Deve abrir conexão no stream do dashboard")
+    void deveAbrirConexaoNoStream() {
+        SseEmitter emitter = new SseEmitter();
+        when(dashboardStreamService.conectar()).thenReturn(emitter);
+
+        SseEmitter resultado = dashboardController.stream();
+
+        assertSame(emitter, resultado);
+        verify(dashboardStreamService, times(1)).conectar();
+    }
+
+    // ------------------ TESTES PARA GET /dashboard/analise ------------------
+
+    @Test
+    @DisplayName("Deve retornar análise do período")
+    void deveRetornarAnaliseDoPeriodo() {
+        LocalDate de = LocalDate.of(2026, 1, 1);
+        LocalDate ate = LocalDate.of(2026, 3, 31);
+        AnaliseOutput analise = new AnaliseOutput(de, ate, GranularidadeAnalise.MES,
+                new MetricaAnaliseOutput(3L, 1500.0, 360L), List.of());
+        when(analiseDashboardService.consultar(de, ate, GranularidadeAnalise.MES)).thenReturn(analise);
+
+        ResponseEntity<AnaliseOutput> response = dashboardController.getAnalise(de, ate, GranularidadeAnalise.MES);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1500.0, response.getBody().total().faturamento());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 quando o período da análise for inválido")
+    void deveRetornar400QuandoPeriodoInvalido() {
+        LocalDate de = LocalDate.of(2026, 3, 1);
+        LocalDate ate = LocalDate.of(2026, 1, 1);
+        when(analiseDashboardService.consultar(de, ate, GranularidadeAnalise.DIA))
+                .thenThrow(new IllegalArgumentException("A data inicial deve ser anterior ou igual à data final."));
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> dashboardController.getAnalise(de, ate, GranularidadeAnalise.DIA));
+
+        assertEquals(HttpStatus.BAD_REQUEST, erro.getStatusCode());
+    }
+}
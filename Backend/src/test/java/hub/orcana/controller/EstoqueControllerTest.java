@@ -17,6 +17,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
 import java.util.List;
@@ -118,7 +119,7 @@ class EstoqueControllerTest {
 
         when(estoqueService.getEstoqueByNome(nomeMaterial)).thenReturn(materiaisFiltrados);
 
-        ResponseEntity<DetalhesMaterialOutput> material = estoqueController.getEstoqueByNome(nomeMaterial);
+        ResponseEntity<DetalhesMaterialOutput> material = estoqueController.getEstoqueByNome(nomeMaterial, null);
 
         assertNotNull(material);
         assertEquals(HttpStatus.OK, material.getStatusCode());
@@ -128,6 +129,44 @@ class EstoqueControllerTest {
         verify(estoqueService, times(1)).getEstoqueByNome(nomeMaterial);
     }
 
+    @Test
+    @DisplayName("Deve responder 304 quando o If-None-Match bate com a versão do material")
+    void getEstoqueByNome_deveRetornarNaoModificado() {
+        DetalhesMaterialOutput material = new DetalhesMaterialOutput(1L, "Tinta Preta", 50.0, "ml", 10.0, "3");
+        when(estoqueService.getEstoqueByNome("Tinta Preta")).thenReturn(material);
+
+        ResponseEntity<DetalhesMaterialOutput> primeira = estoqueController.getEstoqueByNome("Tinta Preta", null);
+        ResponseEntity<DetalhesMaterialOutput> segunda = estoqueController.getEstoqueByNome("Tinta Preta", "\"3\"");
+
+        assertEquals("\"3\"", primeira.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, segunda.getStatusCode());
+        assertNull(segunda.getBody());
+    }
+
+    @Test
+    @DisplayName("Deve repassar a versão do If-Match e devolver a nova ETag")
+    void atualizarQuantidadeById_deveUsarIfMatch() {
+        DetalhesMaterialOutput atualizado = new DetalhesMaterialOutput(1L, "Tinta Preta", 30.0, "ml", 10.0, "4");
+        when(estoqueService.atualizarQuantidadeById(1L, 30.0, 3L)).thenReturn(atualizado);
+
+        ResponseEntity<DetalhesMaterialOutput> response = estoqueController.atualizarQuantidadeById(1L, 30.0, "\"3\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Deve recusar If-Match fraco ou com várias ETags")
+    void atualizarQuantidadeById_deveRecusarIfMatchInvalido() {
+        ResponseStatusException fraca = assertThrows(ResponseStatusException.class,
+                () -> estoqueController.atualizarQuantidadeById(1L, 30.0, "W/\"3\""));
+        assertThrows(ResponseStatusException.class,
+                () -> estoqueController.atualizarQuantidadeById(1L, 30.0, "\"3\", \"4\""));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, fraca.getStatusCode());
+        verifyNoInteractions(estoqueService);
+    }
+
     @Test
     @DisplayName("Deve retornar erro 404 quando não encontrar material pelo nome")
     void getEstoqueByNome_deveRetornarMaterialNaoEncontrado() {
@@ -136,7 +175,7 @@ class EstoqueControllerTest {
         when(estoqueService.getEstoqueByNome(nomeMaterial))
                 .thenThrow(new DependenciaNaoEncontradaException("Material Inexistente"));
 
-        ResponseEntity<DetalhesMaterialOutput> material = estoqueController.getEstoqueByNome(nomeMaterial);
+        ResponseEntity<DetalhesMaterialOutput> material = estoqueController.getEstoqueByNome(nomeMaterial, null);
 
         assertEquals(HttpStatus.NOT_FOUND, material.getStatusCode());
         assertNull(material.getBody());
@@ -148,7 +187,7 @@ class EstoqueControllerTest {
     void getEstoqueByNome_deveLancarExcessaoQuandoNomeVazio() {
         String nomeMaterial = "   ";
 
-        ResponseEntity<DetalhesMaterialOutput> materiais = estoqueController.getEstoqueByNome(nomeMaterial);
+        ResponseEntity<DetalhesMaterialOutput> materiais = estoqueController.getEstoqueByNome(nomeMaterial, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, materiais.getStatusCode());
         verify(estoqueService, times(0)).getEstoqueByNome(anyString());
@@ -163,7 +202,7 @@ class EstoqueControllerTest {
                 .thenThrow(new RuntimeException("Erro ao acessar o banco de dados"));
 
         Exception exception = assertThrows(RuntimeException.class, () ->
-            estoqueController.getEstoqueByNome(nomeMaterial)
+            estoqueController.getEstoqueByNome(nomeMaterial, null)
         );
 
         assertEquals("Erro ao acessar o banco de dados", exception.getMessage());
@@ -230,15 +269,15 @@ class EstoqueControllerTest {
                 10.0
         );
 
-        when(estoqueService.atualizarQuantidadeById(id, novaQuantidade)).thenReturn(materialAtualizado);
+        when(estoqueService.atualizarQuantidadeById(id, novaQuantidade, null)).thenReturn(materialAtualizado);
 
-        ResponseEntity<DetalhesMaterialOutput> response = estoqueController.atualizarQuantidadeById(id, novaQuantidade);
+        ResponseEntity<DetalhesMaterialOutput> response = estoqueController.atualizarQuantidadeById(id, novaQuantidade, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(75.0, response.getBody().quantidade());
         assertEquals("Tinta Preta", response.getBody().nome());
-        verify(estoqueService, times(1)).atualizarQuantidadeById(id, novaQuantidade);
+        verify(estoqueService, times(1)).atualizarQuantidadeById(id, novaQuantidade, null);
     }
 
     @Test
@@ -247,15 +286,15 @@ class EstoqueControllerTest {
         Long id = 1L;
         Double novaQuantidade = 75.0;
 
-        when(estoqueService.atualizarQuantidadeById(id, novaQuantidade))
+        when(estoqueService.atualizarQuantidadeById(id, novaQuantidade, null))
                 .thenThrow(new RuntimeException("Erro ao acessar o banco de dados"));
 
         Exception exception = assertThrows(RuntimeException.class, () ->
-            estoqueController.atualizarQuantidadeById(id, novaQuantidade)
+            estoqueController.atualizarQuantidadeById(id, novaQuantidade, null)
         );
 
         assertEquals("Erro ao acessar o banco de dados", exception.getMessage());
-        verify(estoqueService, times(1)).atualizarQuantidadeById(id, novaQuantidade);
+        verify(estoqueService, times(1)).atualizarQuantidadeById(id, novaQuantidade, null);
     }
 
     @Test
@@ -264,15 +303,15 @@ class EstoqueControllerTest {
         Long id = 999L;
         Double novaQuantidade = 50.0;
 
-        when(estoqueService.atualizarQuantidadeById(id, novaQuantidade))
+        when(estoqueService.atualizarQuantidadeById(id, novaQuantidade, null))
                 .thenThrow(new DependenciaNaoEncontradaException("Material não encontrado"));
 
         Exception exception = assertThrows(DependenciaNaoEncontradaException.class, () ->
-            estoqueController.atualizarQuantidadeById(id, novaQuantidade)
+            estoqueController.atualizarQuantidadeById(id, novaQuantidade, null)
         );
 
         assertEquals("Material não encontrado não encontrado(a) no sistema", exception.getMessage());
-        verify(estoqueService, times(1)).atualizarQuantidadeById(id, novaQuantidade);
+        verify(estoqueService, times(1)).atualizarQuantidadeById(id, novaQuantidade, null);
     }
 
     @Test
@@ -339,9 +378,9 @@ class EstoqueControllerTest {
                 10.0
         );
 
-        when(estoqueService.putEstoqueById(id, input)).thenReturn(atualizado);
+        when(estoqueService.putEstoqueById(id, input, null)).thenReturn(atualizado);
 
-        ResponseEntity<DetalhesMaterialOutput> response = estoqueController.putEstoqueById(id, input);
+        ResponseEntity<DetalhesMaterialOutput> response = estoqueController.putEstoqueById(id, input, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -351,7 +390,7 @@ class EstoqueControllerTest {
         assertEquals("ml", response.getBody().unidadeMedida());
         assertEquals(10.0, response.getBody().minAviso());
 
-        verify(estoqueService, times(1)).putEstoqueById(id, input);
+        verify(estoqueService, times(1)).putEstoqueById(id, input, null);
     }
 
     @Test
@@ -365,15 +404,15 @@ class EstoqueControllerTest {
                 10.0
         );
 
-        when(estoqueService.putEstoqueById(id, input))
+        when(estoqueService.putEstoqueById(id, input, null))
                 .thenThrow(new RuntimeException("Erro ao acessar o banco de dados"));
 
         Exception exception = assertThrows(RuntimeException.class, () ->
-            estoqueController.putEstoqueById(id, input)
+            estoqueController.putEstoqueById(id, input, null)
         );
 
         assertEquals("Erro ao acessar o banco de dados", exception.getMessage());
-        verify(estoqueService, times(1)).putEstoqueById(id, input);
+        verify(estoqueService, times(1)).putEstoqueById(id, input, null);
     }
 
     @Test
@@ -387,14 +426,14 @@ class EstoqueControllerTest {
                 5.0
         );
 
-        when(estoqueService.putEstoqueById(id, input))
+        when(estoqueService.putEstoqueById(id, input, null))
                 .thenThrow(new DependenciaNaoEncontradaException("Material Inexistente"));
 
         Exception exception = assertThrows(DependenciaNaoEncontradaException.class, () ->
-            estoqueController.putEstoqueById(id, input)
+            estoqueController.putEstoqueById(id, input, null)
         );
 
         assertEquals("Material Inexistente não encontrado(a) no sistema", exception.getMessage());
-        verify(estoqueService, times(1)).putEstoqueById(id, input);
+        verify(estoqueService, times(1)).putEstoqueById(id, input, null);
     }
 }
\ No newline at end of file
@@ -2,8 +2,12 @@ package hub.orcana.controller;
 
 import hub.orcana.dto.orcamento.CadastroOrcamentoInput;
 import hub.orcana.dto.orcamento.DetalhesOrcamentoOutput;
+import hub.orcana.dto.orcamento.ProcessamentoOrcamentoOutput;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.service.ExportacaoService;
 import hub.orcana.service.OrcamentoService;
 import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
 import hub.orcana.tables.StatusOrcamento;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,10 +16,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.sql.Time;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +39,9 @@ class OrcamentoControllerTest {
     @Mock
     private OrcamentoService servico;
 
+    @Mock
+    private ExportacaoService exportacaoService;
+
     @InjectMocks
     private OrcamentoController controlador;
 
@@ -55,6 +66,7 @@ class OrcamentoControllerTest {
                 "Preto, Vermelho",
                 "Braço direito",
                 List.of(arquivoSimulado),
+                null,
                 2L
         );
 
@@ -73,20 +85,21 @@ class OrcamentoControllerTest {
     }
 
     @Test
-    @DisplayName("Deve criar orçamento com sucesso e retornar status 201")
+    @DisplayName("Deve receber orçamento com sucesso e retornar status 202")
     void deveCriarOrcamentoComSucesso() {
         when(servico.postOrcamento(any(CadastroOrcamentoInput.class)))
                 .thenReturn(orcamentoSimulado);
 
         ResponseEntity<?> resposta = controlador.postOrcamento(entradaValida);
 
-        assertEquals(HttpStatus.CREATED, resposta.getStatusCode());
+        assertEquals(HttpStatus.ACCEPTED, resposta.getStatusCode());
         assertNotNull(resposta.getBody());
 
         Map<String, Object> corpo = (Map<String, Object>) resposta.getBody();
         assertTrue((Boolean) corpo.get("success"));
         assertEquals("ORC-A1B2C3D4", corpo.get("codigo"));
-        assertEquals("Orçamento criado com sucesso", corpo.get("message"));
+        assertEquals("Orçamento recebido com sucesso", corpo.get("message"));
+        assertEquals("/orcamento/ORC-A1B2C3D4/processamento", resposta.getHeaders().getLocation().toString());
 
         verify(servico, times(1)).postOrcamento(any(CadastroOrcamentoInput.class));
     }
@@ -121,6 +134,18 @@ class OrcamentoControllerTest {
         verify(servico, times(1)).postOrcamento(any(CadastroOrcamentoInput.class));
     }
 
+    @Test
+    @DisplayName("Deve retornar 400 quando uma imagem de referência é recusada")
+    void deveRetornar400ParaImagemInvalida() {
+        when(servico.postOrcamento(any(CadastroOrcamentoInput.class)))
+                .thenThrow(new IllegalArgumentException("Arquivo 'a.txt' não é uma imagem JPEG, PNG, GIF ou WebP."));
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> controlador.postOrcamento(entradaValida));
+
+        assertEquals(HttpStatus.BAD_REQUEST, erro.getStatusCode());
+    }
+
     @Test
     @DisplayName("Deve retornar lista de orçamentos com status 200")
     void deveRetornarListaDeOrcamentos() {
@@ -152,41 +177,53 @@ class OrcamentoControllerTest {
                 StatusOrcamento.PENDENTE
         ));
 
-        when(servico.findAllOrcamentos()).thenReturn(orcamentos);
+        when(servico.findAllOrcamentos(null, 20)).thenReturn(new PaginaCursorOutput<>(orcamentos, null));
 
-        ResponseEntity<List<DetalhesOrcamentoOutput>> resposta = controlador.getOrcamentos();
+        ResponseEntity<PaginaCursorOutput<DetalhesOrcamentoOutput>> resposta = controlador.getOrcamentos(null, 20);
 
         assertEquals(HttpStatus.OK, resposta.getStatusCode());
         assertNotNull(resposta.getBody());
-        assertEquals(2, resposta.getBody().size());
-        assertEquals("ORC-A1B2C3D4", resposta.getBody().get(0).codigoOrcamento());
-        assertEquals("ORC-E5F6G7H8", resposta.getBody().get(1).codigoOrcamento());
+        assertEquals(2, resposta.getBody().itens().size());
+        assertEquals("ORC-A1B2C3D4", resposta.getBody().itens().get(0).codigoOrcamento());
+        assertEquals("ORC-E5F6G7H8", resposta.getBody().itens().get(1).codigoOrcamento());
+
+        verify(servico, times(1)).findAllOrcamentos(null, 20);
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 quando o cursor for inválido")
+    void deveRetornarBadRequestQuandoCursorInvalido() {
+        when(servico.findAllOrcamentos("xyz", 20)).thenThrow(new IllegalArgumentException("Cursor inválido."));
+
+        ResponseStatusException excecao = assertThrows(ResponseStatusException.class,
+                () -> controlador.getOrcamentos("xyz", 20));
 
-        verify(servico, times(1)).findAllOrcamentos();
+        assertEquals(HttpStatus.BAD_REQUEST, excecao.getStatusCode());
+        assertEquals("Cursor inválido.", excecao.getReason());
     }
 
     @Test
     @DisplayName("Deve retornar status 204 quando não houver orçamentos")
     void deveRetornarSemConteudoQuandoListaVazia() {
-        when(servico.findAllOrcamentos()).thenReturn(new ArrayList<>());
+        when(servico.findAllOrcamentos(null, 20)).thenReturn(new PaginaCursorOutput<>(new ArrayList<>(), null));
 
-        ResponseEntity<List<DetalhesOrcamentoOutput>> resposta = controlador.getOrcamentos();
+        ResponseEntity<PaginaCursorOutput<DetalhesOrcamentoOutput>> resposta = controlador.getOrcamentos(null, 20);
 
         assertEquals(HttpStatus.NO_CONTENT, resposta.getStatusCode());
         assertNull(resposta.getBody());
 
-        verify(servico, times(1)).findAllOrcamentos();
+        verify(servico, times(1)).findAllOrcamentos(null, 20);
     }
 
     @Test
     @DisplayName("Deve lançar exceção quando falhar ao buscar orçamentos")
     void deveLancarExcecaoAoBuscarOrcamentos() {
-        when(servico.findAllOrcamentos())
+        when(servico.findAllOrcamentos(null, 20))
                 .thenThrow(new RuntimeException("Erro ao buscar orçamentos"));
 
-        assertThrows(RuntimeException.class, () -> controlador.getOrcamentos());
+        assertThrows(RuntimeException.class, () -> controlador.getOrcamentos(null, 20));
 
-        verify(servico, times(1)).findAllOrcamentos();
+        verify(servico, times(1)).findAllOrcamentos(null, 20);
     }
 
     @Test
@@ -207,6 +244,7 @@ class OrcamentoControllerTest {
                 "Preto e vermelho",
                 "Braço direito",
                 List.of(arquivoSimulado, arquivo2),
+                null,
                 1L
         );
 
@@ -215,7 +253,7 @@ class OrcamentoControllerTest {
 
         ResponseEntity<?> resposta = controlador.postOrcamento(entradaComMultiplosArquivos);
 
-        assertEquals(HttpStatus.CREATED, resposta.getStatusCode());
+        assertEquals(HttpStatus.ACCEPTED, resposta.getStatusCode());
         verify(servico, times(1)).postOrcamento(argThat(entrada ->
                 entrada.imagemReferencia().size() == 2
         ));
@@ -293,7 +331,7 @@ class OrcamentoControllerTest {
         when(servico.findByCodigo(codigo)).thenReturn(orcamento);
 
         // Act
-        ResponseEntity<DetalhesOrcamentoOutput> response = controlador.getOrcamentoPorCodigo(codigo);
+        ResponseEntity<DetalhesOrcamentoOutput> response = controlador.getOrcamentoPorCodigo(codigo, null);
 
         // Assert
         assertNotNull(response);
@@ -312,7 +350,7 @@ class OrcamentoControllerTest {
         when(servico.findByCodigo(codigo)).thenThrow(new RuntimeException("Orçamento não encontrado"));
 
         // Act
-        ResponseEntity<DetalhesOrcamentoOutput> response = controlador.getOrcamentoPorCodigo(codigo);
+        ResponseEntity<DetalhesOrcamentoOutput> response = controlador.getOrcamentoPorCodigo(codigo, null);
 
         // Assert
         assertNotNull(response);
@@ -335,10 +373,10 @@ class OrcamentoControllerTest {
                 10.0, "Preto", "Braço", List.of(), 600.0, Time.valueOf("03:00:00"), StatusOrcamento.APROVADO
         );
 
-        when(servico.atualizarOrcamento(codigo, dados)).thenReturn(orcamentoAtualizado);
+        when(servico.atualizarOrcamento(codigo, dados, null)).thenReturn(orcamentoAtualizado);
 
         // Act
-        ResponseEntity<?> response = controlador.atualizarOrcamento(codigo, dados);
+        ResponseEntity<?> response = controlador.atualizarOrcamento(codigo, dados, null);
 
         // Assert
         assertNotNull(response);
@@ -350,7 +388,7 @@ class OrcamentoControllerTest {
         assertTrue((Boolean) responseBody.get("success"));
         assertEquals("Orçamento atualizado com sucesso", responseBody.get("message"));
         assertEquals(codigo, responseBody.get("codigo"));
-        verify(servico, times(1)).atualizarOrcamento(codigo, dados);
+        verify(servico, times(1)).atualizarOrcamento(codigo, dados, null);
     }
 
     @Test
@@ -359,11 +397,11 @@ class OrcamentoControllerTest {
         // Arrange
         String codigo = "ORC-999";
         Map<String, Object> dados = Map.of("valor", 600.0);
-        when(servico.atualizarOrcamento(codigo, dados))
+        when(servico.atualizarOrcamento(codigo, dados, null))
                 .thenThrow(new RuntimeException("Orçamento não encontrado"));
 
         // Act
-        ResponseEntity<?> response = controlador.atualizarOrcamento(codigo, dados);
+        ResponseEntity<?> response = controlador.atualizarOrcamento(codigo, dados, null);
 
         // Assert
         assertNotNull(response);
@@ -374,7 +412,7 @@ class OrcamentoControllerTest {
         assertNotNull(responseBody);
         assertFalse((Boolean) responseBody.get("success"));
         assertEquals("Orçamento não encontrado", responseBody.get("message"));
-        verify(servico, times(1)).atualizarOrcamento(codigo, dados);
+        verify(servico, times(1)).atualizarOrcamento(codigo, dados, null);
     }
 
     @Test
@@ -503,10 +541,10 @@ class OrcamentoControllerTest {
                 10.0, "Azul e Verde", "Braço", List.of(), 800.0, Time.valueOf("04:00:00"), StatusOrcamento.APROVADO
         );
 
-        when(servico.atualizarOrcamento(codigo, dados)).thenReturn(orcamentoAtualizado);
+        when(servico.atualizarOrcamento(codigo, dados, null)).thenReturn(orcamentoAtualizado);
 
         // Act
-        ResponseEntity<?> response = controlador.atualizarOrcamento(codigo, dados);
+        ResponseEntity<?> response = controlador.atualizarOrcamento(codigo, dados, null);
 
         // Assert
         assertNotNull(response);
@@ -522,7 +560,7 @@ class OrcamentoControllerTest {
         assertNotNull(orcamentoResponse);
         assertEquals(800.0, orcamentoResponse.valor());
         assertEquals("Azul e Verde", orcamentoResponse.cores());
-        verify(servico, times(1)).atualizarOrcamento(codigo, dados);
+        verify(servico, times(1)).atualizarOrcamento(codigo, dados, null);
     }
 
     @Test
@@ -539,7 +577,7 @@ class OrcamentoControllerTest {
             when(servico.findByCodigo(codigo)).thenReturn(orcamento);
 
             // Act
-            ResponseEntity<DetalhesOrcamentoOutput> response = controlador.getOrcamentoPorCodigo(codigo);
+            ResponseEntity<DetalhesOrcamentoOutput> response = controlador.getOrcamentoPorCodigo(codigo, null);
 
             // Assert
             assertNotNull(response);
@@ -550,4 +588,44 @@ class OrcamentoControllerTest {
 
         verify(servico, times(codigos.length)).findByCodigo(anyString());
     }
+
+    @Test
+    @DisplayName("Deve exportar orçamentos em CSV por padrão")
+    void deveExportarOrcamentosEmCsv() throws Exception {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        ResponseEntity<StreamingResponseBody> response = controlador.exportarOrcamentos("csv");
+        response.getBody().writeTo(saida);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getContentDisposition().getFilename().startsWith("orcamentos-"));
+        verify(exportacaoService, times(1)).exportarOrcamentos(ExportacaoService.Formato.CSV, saida);
+    }
+
+    @Test
+    @DisplayName("Deve informar o andamento do processamento com Retry-After enquanto não termina")
+    void deveInformarProcessamentoEmAndamento() {
+        when(servico.buscarProcessamento("ORC-A1B2C3D4")).thenReturn(SituacaoProcessamento.PROCESSANDO_IMAGENS);
+
+        ResponseEntity<ProcessamentoOrcamentoOutput> response = controlador.getProcessamento("ORC-A1B2C3D4");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(SituacaoProcessamento.PROCESSANDO_IMAGENS, response.getBody().situacao());
+        assertFalse(response.getBody().finalizado());
+    }
+
+    @Test
+    @DisplayName("Deve informar processamento concluído sem Retry-After e 404 para código desconhecido")
+    void deveInformarProcessamentoConcluido() {
+        when(servico.buscarProcessamento("ORC-A1B2C3D4")).thenReturn(SituacaoProcessamento.CONCLUIDO);
+        when(servico.buscarProcessamento("ORC-INEXIST")).thenThrow(new RuntimeException("Orçamento não encontrado"));
+
+        ResponseEntity<ProcessamentoOrcamentoOutput> response = controlador.getProcessamento("ORC-A1B2C3D4");
+
+        assertNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getBody().finalizado());
+        assertEquals(HttpStatus.NOT_FOUND, controlador.getProcessamento("ORC-INEXIST").getStatusCode());
+    }
 }
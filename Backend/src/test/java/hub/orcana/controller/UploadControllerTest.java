@@ -0,0 +1,251 @@
+package hub.orcana.controller;
+
+import hub.orcana.service.EntregaDeArquivosService;
+import hub.orcana.service.EntregaDeArquivosService.ArquivoParaEntrega;
+import hub.orcana.service.EntregaDeArquivosService.Validade;
+import hub.orcana.service.VariantesImagemService.TamanhoVariante;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadControllerTest {
+
+    private static final String ETAG = "\"" + "ab".repeat(32) + "\"";
+    private static final byte[] CONTEUDO = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Mock
+    private EntregaDeArquivosService entregaService;
+
+    @InjectMocks
+    private UploadController controller;
+
+    @TempDir
+    Path tempDir;
+
+    private Path arquivo;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        arquivo = Files.write(tempDir.resolve("ab".repeat(32) + ".png"), CONTEUDO);
+        request = new MockHttpServletRequest("GET", "/uploads/ab/ab/" + arquivo.getFileName());
+        response = new MockHttpServletResponse();
+    }
+
+    private void encontrar(Validade validade, String contentEncoding) {
+        when(entregaService.localizar(any(), any(), any())).thenReturn(Optional.of(new ArquivoParaEntrega(
+                arquivo, CONTEUDO.length, "image/png", contentEncoding, ETAG, validade)));
+    }
+
+    private void baixar(String ifNoneMatch, String range, String ifRange) throws Exception {
+        baixar(null, ifNoneMatch, range, ifRange);
+    }
+
+    private void baixar(String size, String ifNoneMatch, String range, String ifRange) throws Exception {
+        controller.baixar("/ab/ab/" + arquivo.getFileName(), size, ifNoneMatch, range, ifRange, null, request, response);
+    }
+
+    @Test
+    @DisplayName("Deve entregar o arquivo inteiro com ETag forte e cache imutável")
+    void deveEntregarArquivoInteiro() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(null, null, null);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTEUDO, response.getContentAsByteArray());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("image/png", response.getContentType());
+        assertEquals(CONTEUDO.length, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("immutable"));
+        assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("max-age=31536000"));
+    }
+
+    @Test
+    @DisplayName("Arquivo com nome antigo não deve ser marcado como imutável")
+    void naoDeveMarcarArquivoLegadoComoImutavel() throws Exception {
+        encontrar(Validade.CURTA, null);
+
+        baixar(null, null, null);
+
+        assertEquals("max-age=3600, public", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 sem corpo quando a ETag bate com If-None-Match")
+    void deveResponderNaoModificado() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(ETAG, null, null);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertNotNull(response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @DisplayName("Deve entregar só o trecho pedido no Range")
+    void deveEntregarTrecho() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(null, "bytes=2-5", null);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    @DisplayName("Deve entregar o final do arquivo para Range com sufixo")
+    void deveEntregarSufixo() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(null, "bytes=-3", null);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("789", response.getContentAsString());
+        assertEquals("bytes 7-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    @DisplayName("Deve responder 416 quando o Range começa depois do fim do arquivo")
+    void deveRecusarTrechoForaDoArquivo() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(null, "bytes=50-", null);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o Range quando If-Range traz outra ETag")
+    void deveIgnorarTrechoComIfRangeDiferente() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(null, "bytes=2-5", "\"outra\"");
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTEUDO, response.getContentAsByteArray());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar Range com vários intervalos e entregar tudo")
+    void deveIgnorarVariosIntervalos() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar(null, "bytes=0-1,4-5", null);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTEUDO, response.getContentAsByteArray());
+    }
+
+    @Test
+    @DisplayName("HEAD deve mandar os cabeçalhos sem o corpo")
+    void headNaoDeveMandarCorpo() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+        request.setMethod("HEAD");
+
+        baixar(null, null, null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTEUDO.length, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Deve informar o Content-Encoding da variante pré-comprimida")
+    void deveInformarCodificacaoDaVariante() throws Exception {
+        encontrar(Validade.IMUTAVEL, "br");
+
+        baixar(null, null, null);
+
+        assertEquals("br", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    @DisplayName("Deve delegar arquivos grandes ao sendfile do Tomcat quando disponível")
+    void deveUsarSendfile() throws Exception {
+        arquivo = Files.write(arquivo, new byte[(int) UploadController.SENDFILE_MINIMO]);
+        when(entregaService.localizar(any(), any(), any())).thenReturn(Optional.of(new ArquivoParaEntrega(
+                arquivo, UploadController.SENDFILE_MINIMO, "image/png", null, ETAG, Validade.IMUTAVEL)));
+        request.setAttribute(UploadController.SENDFILE_SUPORTADO, Boolean.TRUE);
+
+        baixar(null, null, null);
+
+        assertEquals(arquivo.toAbsolutePath().toString(), request.getAttribute(UploadController.SENDFILE_ARQUIVO));
+        assertEquals(0L, request.getAttribute(UploadController.SENDFILE_INICIO));
+        assertEquals(UploadController.SENDFILE_MINIMO, request.getAttribute(UploadController.SENDFILE_FIM));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Deve responder 404 quando o arquivo não existe")
+    void deveResponderNaoEncontrado() {
+        when(entregaService.localizar(any(), any(), any())).thenReturn(Optional.empty());
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> baixar(null, null, null));
+
+        assertEquals(404, erro.getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("Deve pedir a variante do tamanho informado em size")
+    void devePedirVariante() throws Exception {
+        encontrar(Validade.IMUTAVEL, null);
+
+        baixar("thumb", null, null, null);
+
+        verify(entregaService).localizar(any(), eq(TamanhoVariante.THUMB), any());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Original entregue no lugar da variante deve ser revalidado pelo navegador")
+    void deveRevalidarOriginalNoLugarDaVariante() throws Exception {
+        encontrar(Validade.REVALIDAR, null);
+
+        baixar("medium", null, null, null);
+
+        assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @DisplayName("Deve responder 400 para size desconhecido")
+    void deveRecusarTamanhoInvalido() {
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> baixar("gigante", null, null, null));
+
+        assertEquals(400, erro.getStatusCode().value());
+        verifyNoInteractions(entregaService);
+    }
+}
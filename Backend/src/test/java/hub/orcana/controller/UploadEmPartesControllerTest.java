@@ -0,0 +1,126 @@
+package hub.orcana.controller;
+
+import hub.orcana.dto.uploads.IniciarUploadInput;
+import hub.orcana.dto.uploads.UploadEmPartesOutput;
+import hub.orcana.service.UploadEmPartesService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadEmPartesControllerTest {
+
+    @Mock
+    private UploadEmPartesService service;
+
+    @InjectMocks
+    private UploadEmPartesController controller;
+
+    private final UploadEmPartesOutput iniciado = new UploadEmPartesOutput("u-1", "costas.png", 300, 0, false);
+
+    @Test
+    @DisplayName("Deve criar upload com 201 e Location")
+    void deveIniciarUpload() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+        when(service.iniciar("costas.png", 300, "203.0.113.7")).thenReturn(iniciado);
+
+        ResponseEntity<UploadEmPartesOutput> resposta =
+                controller.iniciar(new IniciarUploadInput("costas.png", 300L), request);
+
+        assertEquals(HttpStatus.CREATED, resposta.getStatusCode());
+        assertEquals(URI.create("/orcamento/uploads/u-1"), resposta.getHeaders().getLocation());
+        assertEquals(iniciado, resposta.getBody());
+    }
+
+    @Test
+    @DisplayName("Deve responder 400 quando o tamanho passa do limite")
+    void deveRecusarTamanhoAcimaDoLimite() {
+        when(service.iniciar(eq("enorme.png"), eq(999L), any())).thenThrow(new IllegalArgumentException("Tamanho"));
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> controller.iniciar(new IniciarUploadInput("enorme.png", 999L), new MockHttpServletRequest()));
+        assertEquals(HttpStatus.BAD_REQUEST, erro.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Deve consultar o upload sem cache")
+    void deveBuscarSemCache() {
+        when(service.buscar("u-1")).thenReturn(iniciado);
+
+        ResponseEntity<UploadEmPartesOutput> resposta = controller.buscar("u-1");
+
+        assertEquals("no-store", resposta.getHeaders().getCacheControl());
+        assertEquals(iniciado, resposta.getBody());
+    }
+
+    @Test
+    @DisplayName("Deve repassar o intervalo do Content-Range e o corpo da requisição")
+    void deveReceberParte() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/orcamento/uploads/u-1");
+        request.setContent(new byte[100]);
+        UploadEmPartesOutput andamento = new UploadEmPartesOutput("u-1", "costas.png", 300, 100, false);
+        when(service.receberParte(eq("u-1"), eq(0L), eq(99L), eq(300L), any())).thenReturn(andamento);
+
+        assertEquals(andamento, controller.receberParte("u-1", "bytes 0-99/300", request));
+
+        controller.receberParte("u-1", "bytes 100-199/*", request);
+        verify(service).receberParte(eq("u-1"), eq(100L), eq(199L), eq(null), any());
+    }
+
+    @Test
+    @DisplayName("Deve responder 400 para Content-Range mal formado")
+    void deveRecusarContentRangeInvalido() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/orcamento/uploads/u-1");
+
+        for (String invalido : new String[]{"0-99/300", "bytes 0-99", "bytes a-b/300", "bytes=0-99/300"}) {
+            ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                    () -> controller.receberParte("u-1", invalido, request));
+            assertEquals(HttpStatus.BAD_REQUEST, erro.getStatusCode());
+        }
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("Deve responder 409 para parte fora de ordem")
+    void deveResponderConflitoParaParteForaDeOrdem() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/orcamento/uploads/u-1");
+        when(service.receberParte(eq("u-1"), eq(200L), eq(299L), eq(300L), any()))
+                .thenThrow(new IllegalStateException("Parte fora de ordem"));
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> controller.receberParte("u-1", "bytes 200-299/300", request));
+        assertEquals(HttpStatus.CONFLICT, erro.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Deve responder 409 ao finalizar upload incompleto")
+    void deveResponderConflitoAoFinalizarIncompleto() {
+        when(service.finalizar("u-1")).thenThrow(new IllegalStateException("Upload incompleto"));
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class, () -> controller.finalizar("u-1"));
+        assertEquals(HttpStatus.CONFLICT, erro.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Deve cancelar com 204")
+    void deveCancelar() {
+        assertEquals(HttpStatus.NO_CONTENT, controller.cancelar("u-1").getStatusCode());
+        verify(service).cancelar("u-1");
+    }
+}
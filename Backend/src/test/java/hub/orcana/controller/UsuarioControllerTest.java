@@ -1,5 +1,6 @@
 package hub.orcana.controller;
 
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
 import hub.orcana.dto.usuario.CadastroUsuario;
 import hub.orcana.dto.usuario.ListarUsuarios;
 import hub.orcana.dto.usuario.LoginUsuario;
@@ -101,34 +102,35 @@ class UsuarioControllerTest {
     void listarUsuarios_sucesso() {
         ListarUsuarios u1 = mock(ListarUsuarios.class);
         ListarUsuarios u2 = mock(ListarUsuarios.class);
-        when(usuarioService.listar()).thenReturn(List.of(u1, u2));
+        when(usuarioService.listar(null, 20)).thenReturn(new PaginaCursorOutput<>(List.of(u1, u2), "Mg"));
 
-        ResponseEntity<List<ListarUsuarios>> resp = usuarioController.listarUsuarios();
+        ResponseEntity<PaginaCursorOutput<ListarUsuarios>> resp = usuarioController.listarUsuarios(null, 20);
 
         assertEquals(HttpStatus.OK, resp.getStatusCode());
-        assertEquals(2, resp.getBody().size());
-        verify(usuarioService, times(1)).listar();
+        assertEquals(2, resp.getBody().itens().size());
+        assertEquals("Mg", resp.getBody().proximoCursor());
+        verify(usuarioService, times(1)).listar(null, 20);
     }
 
     @Test
     @DisplayName("listarUsuarios - retorna 204 quando vazio")
     void listarUsuarios_vazio() {
-        when(usuarioService.listar()).thenReturn(List.of());
+        when(usuarioService.listar(null, 20)).thenReturn(new PaginaCursorOutput<>(List.of(), null));
 
-        ResponseEntity<List<ListarUsuarios>> resp = usuarioController.listarUsuarios();
+        ResponseEntity<PaginaCursorOutput<ListarUsuarios>> resp = usuarioController.listarUsuarios(null, 20);
 
         assertEquals(HttpStatus.NO_CONTENT, resp.getStatusCode());
-        verify(usuarioService, times(1)).listar();
+        verify(usuarioService, times(1)).listar(null, 20);
     }
 
     @Test
     @DisplayName("listarUsuarios - exceção propagada")
     void listarUsuarios_excecao() {
-        when(usuarioService.listar()).thenThrow(new RuntimeException("Erro listar"));
+        when(usuarioService.listar(null, 20)).thenThrow(new RuntimeException("Erro listar"));
 
-        RuntimeException ex = assertThrows(RuntimeException.class, () -> usuarioController.listarUsuarios());
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> usuarioController.listarUsuarios(null, 20));
         assertEquals("Erro listar", ex.getMessage());
-        verify(usuarioService, times(1)).listar();
+        verify(usuarioService, times(1)).listar(null, 20);
     }
 
     // ---------------- GET /usuario/{id} ----------------
@@ -110,6 +110,25 @@ class GlobalHandlerExceptionTest {
         assertNotNull(response.getBody().get("timestamp"));
     }
 
+    // ---------- TESTES PARA HORÁRIO INDISPONÍVEL ----------
+
+    @Test
+    @DisplayName("Deve tratar HorarioIndisponivelException como conflito")
+    void deveTratarHorarioIndisponivelExceptionCorretamente() {
+        // Act
+        ResponseEntity<Map<String, Object>> response =
+                globalHandler.handleHorarioIndisponivel(new HorarioIndisponivelException(), request);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(409, response.getBody().get("status"));
+        assertEquals("Conflict", response.getBody().get("error"));
+        assertEquals("Horário indisponível: já existe um agendamento nesse período.",
+                     response.getBody().get("message"));
+        assertEquals("/api/test", response.getBody().get("path"));
+    }
+
     // ---------- TESTES PARA RESPONSE STATUS EXCEPTION ----------
 
     @Test
@@ -1,5 +1,13 @@
 package hub.orcana.repository;
 
+import hub.orcana.dto.agendamento.AgendamentoExportacaoOutput;
+import hub.orcana.dto.agendamento.AgendamentoMapper;
+import hub.orcana.dto.agendamento.DetalhesAgendamentoOutput;
+import hub.orcana.dto.agendamento.HorarioAgendadoOutput;
+import hub.orcana.dto.dashboard.AgendamentoResumoOutput;
+import hub.orcana.dto.dashboard.FatoAgendamentoOutput;
+import hub.orcana.dto.dashboard.FaturamentoMensalOutput;
+import hub.orcana.dto.orcamento.OrcamentoExportacaoOutput;
 import hub.orcana.tables.Agendamento;
 import hub.orcana.tables.Orcamento;
 import hub.orcana.tables.StatusAgendamento;
@@ -7,16 +15,26 @@ import hub.orcana.tables.Usuario;
 import hub.orcana.tables.repository.AgendamentoRepository;
 import hub.orcana.tables.repository.OrcamentoRepository;
 import hub.orcana.tables.repository.UsuarioRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,6 +51,9 @@ class AgendamentoRepositoryTest {
     @Autowired
     private OrcamentoRepository orcamentoRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Usuario usuario;
     private Orcamento orcamento;
     private LocalDateTime dataHora;
@@ -560,6 +581,249 @@ class AgendamentoRepositoryTest {
         assertTrue(agendamentosNoIntervalo.getFirst().getDataHora().isBefore(fim.plusSeconds(1)));
     }
 
+    @Test
+    @DisplayName("Deve somar faturamento de agendamentos concluídos agrupado por mês")
+    void deveSomarFaturamentoAgrupadoPorMes() {
+        // Arrange - Dois concluídos no mesmo mês, um concluído no mês seguinte e um pendente ignorado
+        LocalDateTime mes1 = LocalDateTime.now().plusMonths(2).withDayOfMonth(10).withHour(10).withMinute(0);
+        LocalDateTime mes2 = mes1.plusMonths(1);
+
+        orcamento.setValor(1000.0);
+        orcamentoRepository.save(orcamento);
+        salvarAgendamento(mes1, StatusAgendamento.CONCLUIDO, orcamento);
+        salvarAgendamento(mes1.plusDays(2), StatusAgendamento.CONCLUIDO,
+                salvarOrcamentoComValor("ORC-TEST-456", 500.0));
+        salvarAgendamento(mes2, StatusAgendamento.CONCLUIDO,
+                salvarOrcamentoComValor("ORC-TEST-789", 250.0));
+        salvarAgendamento(mes2.plusDays(1), StatusAgendamento.PENDENTE,
+                salvarOrcamentoComValor("ORC-TEST-999", 9999.0));
+
+        // Act
+        List<FaturamentoMensalOutput> resultado = agendamentoRepository.sumFaturamentoAgrupadoPorMes(
+                StatusAgendamento.CONCLUIDO);
+
+        // Assert - Uma linha por mês com a soma dos orçamentos concluídos
+        assertEquals(2, resultado.size());
+        FaturamentoMensalOutput primeiro = resultado.stream()
+                .filter(f -> f.mes() == mes1.getMonthValue()).findFirst().orElseThrow();
+        FaturamentoMensalOutput segundo = resultado.stream()
+                .filter(f -> f.mes() == mes2.getMonthValue()).findFirst().orElseThrow();
+        assertEquals(mes1.getYear(), primeiro.ano());
+        assertEquals(1500.0, primeiro.valor());
+        assertEquals(2L, primeiro.quantidade());
+        assertEquals(mes2.getYear(), segundo.ano());
+        assertEquals(250.0, segundo.valor());
+        assertEquals(1L, segundo.quantidade());
+    }
+
+    @Test
+    @DisplayName("Deve projetar agendamentos do período com os campos do dashboard")
+    void deveProjetarResumoDosAgendamentosDoPeriodo() {
+        // Arrange
+        LocalDateTime inicio = dataHora.withHour(0).withMinute(0);
+        LocalDateTime fim = dataHora.withHour(23).withMinute(59);
+        salvarAgendamento(dataHora.withHour(15), StatusAgendamento.CONFIRMADO, orcamento);
+        salvarAgendamento(dataHora.withHour(9), StatusAgendamento.PENDENTE,
+                salvarOrcamentoComValor("ORC-TEST-456", 500.0));
+        salvarAgendamento(dataHora.plusDays(1), StatusAgendamento.PENDENTE,
+                salvarOrcamentoComValor("ORC-TEST-789", 250.0));
+
+        // Act
+        List<AgendamentoResumoOutput> resultado = agendamentoRepository.findResumoByDataHoraBetween(inicio, fim);
+
+        // Assert - Somente os do dia, ordenados por horário
+        assertEquals(2, resultado.size());
+        assertEquals("ORC-TEST-456", resultado.get(0).codigoOrcamento());
+        assertEquals("Braço", resultado.get(0).localCorpo());
+        assertEquals("ORC-TEST-123", resultado.get(1).codigoOrcamento());
+        assertEquals("João Silva", resultado.get(1).nomeUsuario());
+        assertEquals(StatusAgendamento.CONFIRMADO, resultado.get(1).status());
+    }
+
+    @Test
+    @DisplayName("Deve projetar o próximo agendamento por status")
+    void deveProjetarProximoAgendamentoPorStatus() {
+        // Arrange
+        salvarAgendamento(dataHora.plusDays(2), StatusAgendamento.CONFIRMADO, orcamento);
+        Agendamento maisProximo = salvarAgendamento(dataHora, StatusAgendamento.CONFIRMADO,
+                salvarOrcamentoComValor("ORC-TEST-456", 500.0));
+        salvarAgendamento(dataHora.minusDays(1), StatusAgendamento.PENDENTE,
+                salvarOrcamentoComValor("ORC-TEST-789", 250.0));
+
+        // Act
+        Optional<AgendamentoResumoOutput> resultado = agendamentoRepository.findProximoResumoPorStatus(
+                StatusAgendamento.CONFIRMADO, LocalDateTime.now());
+
+        // Assert
+        assertTrue(resultado.isPresent());
+        assertEquals(maisProximo.getId(), resultado.get().id());
+        assertEquals("João Silva", resultado.get().nomeUsuario());
+    }
+
+    @Test
+    @DisplayName("Deve projetar fatos de análise com dados do orçamento")
+    void deveProjetarFatosDeAnalise() {
+        // Arrange
+        orcamento.setValor(700.0);
+        orcamentoRepository.save(orcamento);
+        Agendamento salvo = salvarAgendamento(dataHora, StatusAgendamento.CONCLUIDO, orcamento);
+        salvo.setFormaPagamento("PIX");
+        salvo.setTempoDuracao(90);
+        agendamentoRepository.save(salvo);
+
+        // Act
+        List<FatoAgendamentoOutput> todos = agendamentoRepository.findFatosAnalise();
+        Optional<FatoAgendamentoOutput> porId = agendamentoRepository.findFatoAnaliseById(salvo.getId());
+        List<FatoAgendamentoOutput> porOrcamento = agendamentoRepository
+                .findFatosAnaliseByCodigoOrcamento("ORC-TEST-123");
+
+        // Assert
+        assertEquals(1, todos.size());
+        assertTrue(porId.isPresent());
+        assertEquals("PIX", porId.get().formaPagamento());
+        assertEquals("Costas", porId.get().localCorpo());
+        assertEquals(700.0, porId.get().valor());
+        assertEquals(90, porId.get().tempoDuracao());
+        assertEquals(1, porOrcamento.size());
+    }
+
+    @Test
+    @DisplayName("Deve paginar agendamentos por status no período ordenados por dataHora")
+    void devePaginarAgendamentosPorStatusNoPeriodo() {
+        // Arrange
+        salvarAgendamento(dataHora.plusHours(3), StatusAgendamento.PENDENTE, orcamento);
+        salvarAgendamento(dataHora.plusHours(1), StatusAgendamento.PENDENTE,
+                salvarOrcamentoComValor("ORC-TEST-456", 500.0));
+        salvarAgendamento(dataHora.plusHours(2), StatusAgendamento.CONFIRMADO,
+                salvarOrcamentoComValor("ORC-TEST-789", 250.0));
+        salvarAgendamento(dataHora.plusDays(10), StatusAgendamento.PENDENTE,
+                salvarOrcamentoComValor("ORC-TEST-999", 100.0));
+
+        // Act
+        Page<Agendamento> pagina = agendamentoRepository.findByStatusAndDataHoraBetween(
+                StatusAgendamento.PENDENTE, dataHora, dataHora.plusDays(1),
+                PageRequest.of(0, 1, Sort.by("dataHora")));
+
+        // Assert - Dois pendentes no período, um por página, o mais cedo primeiro
+        assertEquals(2, pagina.getTotalElements());
+        assertEquals(1, pagina.getContent().size());
+        assertEquals("ORC-TEST-456", pagina.getContent().getFirst().getOrcamento().getCodigoOrcamento());
+        assertEquals("João Silva", pagina.getContent().getFirst().getUsuario().getNome());
+    }
+
+    @Test
+    @DisplayName("Deve projetar horários agendados a partir de uma data")
+    void deveProjetarHorariosAPartirDeData() {
+        // Arrange
+        Agendamento futuro = salvarAgendamento(dataHora, StatusAgendamento.CONFIRMADO, orcamento);
+        salvarAgendamento(LocalDateTime.now().minusDays(3), StatusAgendamento.CONCLUIDO,
+                salvarOrcamentoComValor("ORC-TEST-456", 500.0));
+
+        // Act
+        List<HorarioAgendadoOutput> horarios = agendamentoRepository.findHorariosAPartirDe(LocalDateTime.now());
+        Optional<HorarioAgendadoOutput> porId = agendamentoRepository.findHorarioById(futuro.getId());
+
+        // Assert - Só o agendamento futuro entra
+        assertEquals(1, horarios.size());
+        assertEquals(futuro.getId(), horarios.getFirst().id());
+        assertTrue(porId.isPresent());
+        assertEquals(StatusAgendamento.CONFIRMADO, porId.get().status());
+    }
+
+    @Test
+    @DisplayName("Deve listar agendamentos com número constante de consultas")
+    void deveListarAgendamentosComNumeroConstanteDeConsultas() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            Agendamento agendamento = salvarAgendamento(dataHora.plusHours(i), StatusAgendamento.PENDENTE,
+                    salvarOrcamentoComValor("ORC-N1-" + i, 100.0));
+            agendamento.setImagemReferencia(new ArrayList<>(List.of("/uploads/referencia-" + i + ".png")));
+            agendamentoRepository.save(agendamento);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics estatisticas = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        estatisticas.setStatisticsEnabled(true);
+        estatisticas.clear();
+
+        // Act - usuário e orçamento no mesmo select, imagens num único lote
+        List<DetalhesAgendamentoOutput> todos = agendamentoRepository
+                .findPaginaApos(LocalDateTime.of(1970, 1, 1, 0, 0), 0L, Limit.of(10)).stream()
+                .map(AgendamentoMapper::of).toList();
+        long consultasListagem = estatisticas.getPrepareStatementCount();
+
+        entityManager.clear();
+        estatisticas.clear();
+        List<DetalhesAgendamentoOutput> pagina = agendamentoRepository.findByStatusAndDataHoraBetween(
+                        StatusAgendamento.PENDENTE, dataHora, dataHora.plusDays(1),
+                        PageRequest.of(0, 3, Sort.by("dataHora")))
+                .map(AgendamentoMapper::of).getContent();
+        long consultasPagina = estatisticas.getPrepareStatementCount();
+
+        // Assert
+        assertEquals(5, todos.size());
+        assertEquals(1, todos.getFirst().imagemReferencia().size());
+        assertTrue(consultasListagem <= 2, "consultas na listagem: " + consultasListagem);
+        assertEquals(3, pagina.size());
+        assertEquals("João Silva", pagina.getFirst().nomeUsuario());
+        // select da página + count + imagens em lote
+        assertTrue(consultasPagina <= 3, "consultas na página: " + consultasPagina);
+    }
+
+    @Test
+    @DisplayName("Deve paginar por chave sem repetir nem pular horários empatados")
+    void devePaginarPorChaveComHorariosEmpatados() {
+        // Arrange - três agendamentos no mesmo horário e um depois (minuto cheio, como vem do banco)
+        LocalDateTime dataHora = this.dataHora.truncatedTo(ChronoUnit.MINUTES);
+        Agendamento a1 = salvarAgendamento(dataHora, StatusAgendamento.PENDENTE, salvarOrcamentoComValor("ORC-K1", 100.0));
+        Agendamento a2 = salvarAgendamento(dataHora, StatusAgendamento.PENDENTE, salvarOrcamentoComValor("ORC-K2", 100.0));
+        Agendamento a3 = salvarAgendamento(dataHora, StatusAgendamento.PENDENTE, salvarOrcamentoComValor("ORC-K3", 100.0));
+        Agendamento a4 = salvarAgendamento(dataHora.plusHours(1), StatusAgendamento.PENDENTE, salvarOrcamentoComValor("ORC-K4", 100.0));
+
+        // Act - páginas de dois, sempre a partir da última linha entregue
+        List<Agendamento> primeira = agendamentoRepository.findPaginaApos(LocalDateTime.of(1970, 1, 1, 0, 0), 0L, Limit.of(2));
+        Agendamento ultima = primeira.getLast();
+        List<Agendamento> segunda = agendamentoRepository.findPaginaApos(ultima.getDataHora(), ultima.getId(), Limit.of(2));
+        List<Agendamento> doUsuario = agendamentoRepository.findPaginaDoUsuarioApos(
+                usuario.getId(), a2.getDataHora(), a2.getId(), Limit.of(10));
+
+        // Assert
+        assertEquals(List.of(a1.getId(), a2.getId()), primeira.stream().map(Agendamento::getId).toList());
+        assertEquals(List.of(a3.getId(), a4.getId()), segunda.stream().map(Agendamento::getId).toList());
+        assertEquals(List.of(a3.getId(), a4.getId()), doUsuario.stream().map(Agendamento::getId).toList());
+        assertTrue(agendamentoRepository.findPaginaDoUsuarioApos(
+                usuario.getId() + 1, LocalDateTime.of(1970, 1, 1, 0, 0), 0L, Limit.of(10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve exportar agendamentos e orçamentos em fluxo, em ordem de chave")
+    void deveExportarEmFluxo() {
+        // Arrange
+        Agendamento a1 = salvarAgendamento(dataHora, StatusAgendamento.PENDENTE, orcamento);
+        Agendamento a2 = salvarAgendamento(dataHora.plusHours(3), StatusAgendamento.CONFIRMADO,
+                salvarOrcamentoComValor("ORC-TEST-456", 500.0));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act - o Stream exige transação aberta, que o @DataJpaTest já fornece
+        List<AgendamentoExportacaoOutput> agendamentos;
+        try (Stream<AgendamentoExportacaoOutput> linhas = agendamentoRepository.streamExportacao()) {
+            agendamentos = linhas.toList();
+        }
+        List<OrcamentoExportacaoOutput> orcamentos;
+        try (Stream<OrcamentoExportacaoOutput> linhas = orcamentoRepository.streamExportacao()) {
+            orcamentos = linhas.toList();
+        }
+
+        // Assert
+        assertEquals(List.of(a1.getId(), a2.getId()), agendamentos.stream().map(AgendamentoExportacaoOutput::id).toList());
+        assertEquals("joao@test.com", agendamentos.getFirst().emailUsuario());
+        assertEquals(500.0, agendamentos.getLast().valor());
+        assertEquals(List.of("ORC-TEST-123", "ORC-TEST-456"),
+                orcamentos.stream().map(OrcamentoExportacaoOutput::codigoOrcamento).toList());
+    }
+
     @Test
     @DisplayName("Teste de validação da configuração")
     void testeValidacaoConfiguracao() {
@@ -582,4 +846,39 @@ class AgendamentoRepositoryTest {
         assertTrue(orcamentoRepository.existsById(orcamento.getCodigoOrcamento()));
     }
 
+    @Test
+    @DisplayName("Deve dizer quais caminhos ainda aparecem em orçamentos e agendamentos")
+    void deveEncontrarImagensReferenciadas() {
+        Orcamento comImagem = new Orcamento("ORC-IMG-1", "João Silva", "joao@test.com",
+                "Rosa", 10.0, "Rosa", "Braço", new ArrayList<>(List.of("uploads/a.png", "uploads/b.png")));
+        orcamentoRepository.save(comImagem);
+        Agendamento agendamento = salvarAgendamento(dataHora, StatusAgendamento.PENDENTE, orcamento);
+        agendamento.setImagemReferencia(new ArrayList<>(List.of("uploads/b.png", "uploads/c.png")));
+        agendamentoRepository.save(agendamento);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> caminhos = List.of("uploads/a.png", "uploads/b.png", "uploads/c.png", "uploads/orfao.png");
+
+        assertEquals(List.of("uploads/a.png", "uploads/b.png"),
+                orcamentoRepository.findImagensReferenciadas(caminhos).stream().sorted().toList());
+        assertEquals(List.of("uploads/b.png", "uploads/c.png"),
+                agendamentoRepository.findImagensReferenciadas(caminhos).stream().sorted().toList());
+    }
+
+    private Agendamento salvarAgendamento(LocalDateTime dataHora, StatusAgendamento status, Orcamento orcamento) {
+        Agendamento agendamento = new Agendamento();
+        agendamento.setDataHora(dataHora);
+        agendamento.setStatus(status);
+        agendamento.setUsuario(usuario);
+        agendamento.setOrcamento(orcamento);
+        return agendamentoRepository.save(agendamento);
+    }
+
+    private Orcamento salvarOrcamentoComValor(String codigo, Double valor) {
+        Orcamento novo = new Orcamento(codigo, "João Silva", "joao@test.com",
+                "Rosa", 10.0, "Rosa", "Braço", null);
+        novo.setValor(valor);
+        return orcamentoRepository.save(novo);
+    }
 }
@@ -0,0 +1,77 @@
+package hub.orcana.repository;
+
+import hub.orcana.tables.ArquivoArmazenado;
+import hub.orcana.tables.repository.ArquivoArmazenadoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ArquivoArmazenadoRepositoryTest {
+
+    private static final String HASH = "ab".repeat(32);
+    private static final String CAMINHO = "uploads/ab/ab/" + HASH + ".png";
+
+    @Autowired
+    private ArquivoArmazenadoRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private LocalDateTime agora;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        agora = LocalDateTime.now();
+    }
+
+    @Test
+    @DisplayName("O mesmo conteúdo deve ser registrado uma única vez")
+    void deveRegistrarConteudoUmaVez() {
+        assertTrue(repository.registrar(HASH, CAMINHO, "image/png", 120, agora));
+        assertFalse(repository.registrar(HASH, CAMINHO, "image/png", 120, agora));
+
+        ArquivoArmazenado arquivo = repository.findById(HASH).orElseThrow();
+        assertEquals(0, arquivo.getReferencias());
+        assertEquals(120L, arquivo.getTamanho());
+    }
+
+    @Test
+    @DisplayName("A contagem de referências deve subir, descer e nunca ficar negativa")
+    void deveAjustarReferencias() {
+        repository.registrar(HASH, CAMINHO, "image/png", 120, agora);
+
+        assertEquals(1, repository.ajustarReferencias(CAMINHO, 2, agora));
+        assertEquals(1, repository.ajustarReferencias(CAMINHO, -1, agora));
+        assertEquals(0, repository.ajustarReferencias(CAMINHO, -5, agora));
+        assertEquals(0, repository.ajustarReferencias("uploads/antigo_foto.png", 1, agora));
+        entityManager.clear();
+
+        assertEquals(1, repository.findById(HASH).orElseThrow().getReferencias());
+    }
+
+    @Test
+    @DisplayName("Só deve apagar o registro sem referência e parado há mais que o limite")
+    void deveRemoverSomenteSemReferencia() {
+        repository.registrar(HASH, CAMINHO, "image/png", 120, agora.minusDays(3));
+        repository.ajustarReferencias(CAMINHO, 1, agora.minusDays(3));
+
+        assertEquals(0, repository.removerSemReferencia(CAMINHO, agora.minusDays(1)));
+
+        repository.ajustarReferencias(CAMINHO, -1, agora.minusDays(2));
+        assertEquals(1, repository.countByReferencias(0));
+        assertEquals(0, repository.removerSemReferencia(CAMINHO, agora.minusDays(3)));
+        assertEquals(1, repository.removerSemReferencia(CAMINHO, agora.minusDays(1)));
+        assertTrue(repository.findByCaminho(CAMINHO).isEmpty());
+    }
+}
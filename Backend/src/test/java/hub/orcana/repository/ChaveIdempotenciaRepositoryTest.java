@@ -0,0 +1,75 @@
+package hub.orcana.repository;
+
+import hub.orcana.tables.ChaveIdempotencia;
+import hub.orcana.tables.repository.ChaveIdempotenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ChaveIdempotenciaRepositoryTest {
+
+    private static final String ESCOPO = "POST /orcamento/cadastro|anonimo";
+
+    @Autowired
+    private ChaveIdempotenciaRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private LocalDateTime agora;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        agora = LocalDateTime.now();
+    }
+
+    @Test
+    @DisplayName("Só a primeira reserva da mesma chave no mesmo escopo deve passar")
+    void deveReservarChaveUmaUnicaVez() {
+        assertTrue(repository.reservar(ESCOPO, "k1", "h", agora, agora.plusMinutes(5)));
+        assertFalse(repository.reservar(ESCOPO, "k1", "h", agora, agora.plusMinutes(5)));
+        assertTrue(repository.reservar("POST /agendamento|joao@email.com", "k1", "h", agora, agora.plusMinutes(5)));
+    }
+
+    @Test
+    @DisplayName("Deve guardar a resposta e depois não permitir liberar a chave concluída")
+    void deveConcluirELiberarSomenteEmAndamento() {
+        repository.reservar(ESCOPO, "k1", "h", agora, agora.plusMinutes(5));
+        repository.reservar(ESCOPO, "k2", "h", agora, agora.plusMinutes(5));
+
+        assertEquals(1, repository.concluir(ESCOPO, "k1", 201, "application/json", "{\"codigo\":\"ORC-1\"}",
+                "{\"Location\":\"/orcamento/ORC-1/processamento\"}", agora.plusHours(24)));
+        assertEquals(0, repository.liberar(ESCOPO, "k1"));
+        assertEquals(1, repository.liberar(ESCOPO, "k2"));
+        entityManager.clear();
+
+        ChaveIdempotencia concluida = repository.findByEscopoAndChave(ESCOPO, "k1").orElseThrow();
+        assertTrue(concluida.isConcluida());
+        assertEquals("{\"codigo\":\"ORC-1\"}", concluida.getCorpo());
+        assertEquals("{\"Location\":\"/orcamento/ORC-1/processamento\"}", concluida.getCabecalhos());
+        assertTrue(repository.findByEscopoAndChave(ESCOPO, "k2").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve remover apenas as chaves vencidas")
+    void deveRemoverChavesVencidas() {
+        repository.reservar(ESCOPO, "velha", "h", agora.minusDays(2), agora.minusDays(1));
+        repository.reservar(ESCOPO, "nova", "h", agora, agora.plusMinutes(5));
+
+        assertEquals(1, repository.removerExpiradas(agora));
+        entityManager.clear();
+        assertTrue(repository.findByEscopoAndChave(ESCOPO, "velha").isEmpty());
+        assertTrue(repository.findByEscopoAndChave(ESCOPO, "nova").isPresent());
+    }
+}
@@ -0,0 +1,87 @@
+package hub.orcana.repository;
+
+import hub.orcana.tables.Estoque;
+import hub.orcana.tables.repository.EstoqueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class EstoqueRepositoryTest {
+
+    @Autowired
+    private EstoqueRepository estoqueRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Estoque tinta;
+    private Estoque agulha;
+
+    @BeforeEach
+    void setUp() {
+        estoqueRepository.deleteAll();
+        tinta = estoqueRepository.save(new Estoque("Tinta Preta", 10.0, "ml", 2.0));
+        agulha = estoqueRepository.save(new Estoque("Agulha", 3.0, "unidade", 1.0));
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("Deve baixar todas as quantidades em lote quando há saldo")
+    void deveBaixarQuantidadesEmLote() {
+        // Arrange
+        Map<Long, Integer> quantidades = new LinkedHashMap<>();
+        quantidades.put(tinta.getId(), 4);
+        quantidades.put(agulha.getId(), 3);
+
+        // Act
+        List<Long> semSaldo = estoqueRepository.baixarQuantidades(quantidades);
+        entityManager.clear();
+
+        // Assert
+        assertTrue(semSaldo.isEmpty());
+        assertEquals(6.0, estoqueRepository.findById(tinta.getId()).orElseThrow().getQuantidade());
+        assertEquals(0.0, estoqueRepository.findById(agulha.getId()).orElseThrow().getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Não deve deixar saldo negativo nem perder baixas sucessivas")
+    void naoDeveBaixarSemSaldo() {
+        // Arrange - duas sessões descontando do mesmo saldo lido (10)
+        estoqueRepository.baixarQuantidades(Map.of(tinta.getId(), 6));
+
+        // Act
+        List<Long> semSaldo = estoqueRepository.baixarQuantidades(Map.of(tinta.getId(), 6));
+        entityManager.clear();
+
+        // Assert - a segunda não cabe mais no saldo e não altera nada
+        assertEquals(List.of(tinta.getId()), semSaldo);
+        assertEquals(4.0, estoqueRepository.findById(tinta.getId()).orElseThrow().getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Deve baixar as linhas em ordem de id, qualquer que seja a ordem recebida")
+    void deveBaixarEmOrdemDeId() {
+        // Arrange - mapa com o maior id primeiro e nenhum dos dois com saldo
+        Map<Long, Integer> quantidades = new LinkedHashMap<>();
+        quantidades.put(agulha.getId(), 5);
+        quantidades.put(tinta.getId(), 11);
+
+        // Act
+        List<Long> semSaldo = estoqueRepository.baixarQuantidades(quantidades);
+
+        // Assert - os ids voltam na ordem em que as linhas foram atualizadas
+        assertEquals(List.of(tinta.getId(), agulha.getId()), semSaldo);
+    }
+}
@@ -0,0 +1,52 @@
+package hub.orcana.repository;
+
+import hub.orcana.tables.FaturamentoMensal;
+import hub.orcana.tables.repository.FaturamentoMensalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class FaturamentoMensalRepositoryTest {
+
+    @Autowired
+    private FaturamentoMensalRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("O primeiro lançamento cria o mês e os seguintes somam na mesma linha")
+    void deveCriarMesESomarLancamentos() {
+        repository.lancar("2025-03", 800.0, 1L);
+        repository.lancar("2025-03", 200.0, 0L);
+        repository.lancar("2025-03", -300.0, -1L);
+        repository.lancar("2025-04", 500.0, 1L);
+        entityManager.clear();
+
+        assertEquals(new FaturamentoMensal("2025-03", 700.0, 0L), repository.findById("2025-03").orElseThrow());
+        assertEquals(new FaturamentoMensal("2025-04", 500.0, 1L), repository.findById("2025-04").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Deve devolver todos os meses para a reconciliação")
+    void deveTravarTodosOsMeses() {
+        repository.lancar("2025-03", 800.0, 1L);
+        repository.lancar("2025-04", 500.0, 1L);
+        entityManager.clear();
+
+        assertEquals(2, repository.travarTodos().size());
+    }
+}
@@ -0,0 +1,28 @@
+package hub.orcana.repository;
+
+import hub.orcana.tables.repository.SequenciaCodigoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class SequenciaCodigoRepositoryTest {
+
+    @Autowired
+    private SequenciaCodigoRepository repository;
+
+    @Test
+    @DisplayName("Deve criar a sequência e reservar faixas consecutivas sem sobreposição")
+    void deveReservarFaixasConsecutivas() {
+        assertEquals(0L, repository.reservarBloco("teste-faixas", 100));
+        assertEquals(100L, repository.reservarBloco("teste-faixas", 100));
+        assertEquals(200L, repository.reservarBloco("teste-faixas", 5));
+        assertEquals(0L, repository.reservarBloco("teste-outra", 5));
+        assertEquals(205L, repository.findById("teste-faixas").orElseThrow().getProximo());
+    }
+}
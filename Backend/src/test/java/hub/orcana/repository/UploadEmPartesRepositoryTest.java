@@ -0,0 +1,99 @@
+package hub.orcana.repository;
+
+import hub.orcana.tables.UploadEmPartes;
+import hub.orcana.tables.repository.UploadEmPartesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class UploadEmPartesRepositoryTest {
+
+    @Autowired
+    private UploadEmPartesRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private LocalDateTime agora;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        agora = LocalDateTime.now();
+        repository.save(new UploadEmPartes("u-1", "costas.png", 300L, 0L, "/tmp/orcana-partes/orcana-partes-1.parte",
+                "203.0.113.7", null, null, agora, agora));
+    }
+
+    private UploadEmPartes recarregar() {
+        entityManager.clear();
+        return repository.findById("u-1").orElseThrow();
+    }
+
+    @Test
+    @DisplayName("O recebido só avança quando a parte continua o trecho já gravado")
+    void deveAvancarSomenteTrechoContinuo() {
+        assertEquals(1, repository.avancar("u-1", 0, 100, agora));
+        assertEquals(0, repository.avancar("u-1", 150, 200, agora));
+        assertEquals(0, repository.avancar("u-1", 0, 50, agora));
+        assertEquals(1, repository.avancar("u-1", 50, 180, agora));
+
+        assertEquals(180L, recarregar().getRecebido());
+    }
+
+    @Test
+    @DisplayName("Só finaliza com todos os bytes e uma única vez")
+    void deveFinalizarUmaVez() {
+        assertEquals(0, repository.finalizar("u-1", "ab".repeat(32), "PNG", agora));
+
+        repository.avancar("u-1", 0, 300, agora);
+        assertEquals(1, repository.finalizar("u-1", "ab".repeat(32), "PNG", agora));
+        assertEquals(0, repository.finalizar("u-1", "cd".repeat(32), "PNG", agora));
+        assertEquals(0, repository.avancar("u-1", 0, 300, agora));
+
+        UploadEmPartes upload = recarregar();
+        assertTrue(upload.isFinalizado());
+        assertEquals("ab".repeat(32), upload.getSha256());
+    }
+
+    @Test
+    @DisplayName("Upload finalizado só pode ser consumido uma vez")
+    void deveConsumirUmaVez() {
+        assertEquals(0, repository.consumir("u-1"));
+
+        repository.avancar("u-1", 0, 300, agora);
+        repository.finalizar("u-1", "ab".repeat(32), "PNG", agora);
+        assertEquals(1, repository.consumir("u-1"));
+        assertEquals(0, repository.consumir("u-1"));
+        entityManager.clear();
+        assertTrue(repository.findById("u-1").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Remove somente uploads parados antes do limite")
+    void deveRemoverSomenteExpirados() {
+        assertEquals(0, repository.removerExpirado("u-1", agora.minusHours(1)));
+        assertEquals(1, repository.findByAtualizadoEmBefore(agora.plusHours(1)).size());
+        assertEquals(1, repository.removerExpirado("u-1", agora.plusHours(1)));
+    }
+
+    @Test
+    @DisplayName("Conta os uploads em aberto de cada origem")
+    void deveContarPorOrigem() {
+        repository.save(new UploadEmPartes("u-2", "braco.png", 300L, 0L, "/tmp/orcana-partes/orcana-partes-2.parte",
+                "198.51.100.1", null, null, agora, agora));
+
+        assertEquals(1, repository.countByOrigem("203.0.113.7"));
+        assertEquals(1, repository.countByOrigem("198.51.100.1"));
+        assertEquals(0, repository.countByOrigem("192.0.2.1"));
+    }
+}
@@ -4,6 +4,11 @@ import hub.orcana.dto.agendamento.AdicionarMateriaisRequest;
 import hub.orcana.dto.agendamento.CadastroAgendamentoInput;
 import hub.orcana.dto.agendamento.DetalhesAgendamentoOutput;
 import hub.orcana.dto.agendamento.MaterialUsadoRequest;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.event.AgendamentoStatusAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.EstoqueLimiteCruzadoEvent;
+import hub.orcana.exception.HorarioIndisponivelException;
 import hub.orcana.observer.AgendamentoObserver;
 import hub.orcana.tables.Agendamento;
 import hub.orcana.tables.EquipamentoUso;
@@ -25,11 +30,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -59,6 +74,18 @@ class AgendamentoServiceTest {
     @Mock
     private EstoqueRepository estoqueRepository;
 
+    @Mock
+    private FaturamentoMensalService faturamentoMensalService;
+
+    @Mock
+    private DisponibilidadeService disponibilidadeService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReferenciaArquivoService referenciaArquivoService;
+
     @InjectMocks
     private AgendamentoService agendamentoService;
 
@@ -96,6 +123,10 @@ class AgendamentoServiceTest {
                 null,
                 null
         );
+
+        // a reserva só executa a gravação; conflitos são testados em DisponibilidadeServiceTest
+        lenient().when(disponibilidadeService.reservar(any(), any(), any(), any(), any()))
+                .thenAnswer(invocacao -> invocacao.<Supplier<Agendamento>>getArgument(4).get());
     }
 
     @Test
@@ -110,39 +141,75 @@ class AgendamentoServiceTest {
         agendamento2.setOrcamento(orcamento);
 
         List<Agendamento> agendamentos = Arrays.asList(agendamento, agendamento2);
-        when(agendamentoRepository.findAll()).thenReturn(agendamentos);
+        when(agendamentoRepository.findPaginaApos(any(), eq(0L), eq(Limit.of(21)))).thenReturn(agendamentos);
 
 
-        List<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentos();
+        PaginaCursorOutput<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentos(null, 20);
 
 
         assertNotNull(resultado);
-        assertEquals(2, resultado.size());
-        assertEquals("João Silva", resultado.get(0).nomeUsuario());
-        assertEquals("joao@email.com", resultado.get(0).emailUsuario());
-        verify(agendamentoRepository, times(1)).findAll();
+        assertEquals(2, resultado.itens().size());
+        assertEquals("João Silva", resultado.itens().get(0).nomeUsuario());
+        assertEquals("joao@email.com", resultado.itens().get(0).emailUsuario());
+        assertNull(resultado.proximoCursor());
+        verify(agendamentoRepository, times(1)).findPaginaApos(any(), eq(0L), eq(Limit.of(21)));
+    }
+
+    @Test
+    @DisplayName("Deve devolver cursor da última linha e continuar a partir dele")
+    void deveContinuarPaginaAPartirDoCursor() {
+        Agendamento agendamento2 = new Agendamento();
+        agendamento2.setId(2L);
+        agendamento2.setDataHora(dataHora);
+        agendamento2.setStatus(StatusAgendamento.PENDENTE);
+        agendamento2.setUsuario(usuario);
+        agendamento2.setOrcamento(orcamento);
+        when(agendamentoRepository.findPaginaApos(any(), eq(0L), eq(Limit.of(2))))
+                .thenReturn(List.of(agendamento, agendamento2));
+
+        PaginaCursorOutput<DetalhesAgendamentoOutput> primeira = agendamentoService.getAgendamentos(null, 1);
+
+        assertEquals(1, primeira.itens().size());
+        assertNotNull(primeira.proximoCursor());
+
+        when(agendamentoRepository.findPaginaApos(dataHora, agendamento.getId(), Limit.of(2)))
+                .thenReturn(List.of(agendamento2));
+
+        PaginaCursorOutput<DetalhesAgendamentoOutput> segunda = agendamentoService.getAgendamentos(primeira.proximoCursor(), 1);
+
+        assertEquals(2L, segunda.itens().getFirst().id());
+        assertNull(segunda.proximoCursor());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar cursor adulterado e tamanho fora do limite")
+    void deveRejeitarCursorETamanhoInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> agendamentoService.getAgendamentos("nao-e-cursor", 20));
+        assertThrows(IllegalArgumentException.class, () -> agendamentoService.getAgendamentos(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> agendamentoService.getAgendamentos(null, 101));
+        verifyNoInteractions(agendamentoRepository);
     }
 
     @Test
     @DisplayName("Deve retornar lista vazia quando não houver agendamentos")
     void deveRetornarListaVaziaQuandoNaoHouverAgendamentos() {
 
-        when(agendamentoRepository.findAll()).thenReturn(List.of());
+        when(agendamentoRepository.findPaginaApos(any(), any(), any(Limit.class))).thenReturn(List.of());
 
 
-        List<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentos();
+        PaginaCursorOutput<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentos(null, 20);
 
 
         assertNotNull(resultado);
-        assertTrue(resultado.isEmpty());
-        verify(agendamentoRepository, times(1)).findAll();
+        assertTrue(resultado.itens().isEmpty());
+        assertNull(resultado.proximoCursor());
     }
 
     @Test
     @DisplayName("Deve retornar agendamento por ID")
     void deveRetornarAgendamentoPorId() {
 
-        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(agendamentoRepository.findDetalhadoById(1L)).thenReturn(Optional.of(agendamento));
 
 
         DetalhesAgendamentoOutput resultado = agendamentoService.getAgendamentoPorId(1L);
@@ -153,60 +220,70 @@ class AgendamentoServiceTest {
         assertEquals("João Silva", resultado.nomeUsuario());
         assertEquals("joao@email.com", resultado.emailUsuario());
         assertEquals("Dragão nas costas", resultado.ideia());
-        verify(agendamentoRepository, times(1)).findById(1L);
+        verify(agendamentoRepository, times(1)).findDetalhadoById(1L);
     }
 
     @Test
     @DisplayName("Deve lançar exceção quando agendamento não for encontrado por ID")
     void deveLancarExcecaoQuandoAgendamentoNaoEncontrado() {
 
-        when(agendamentoRepository.findById(999L)).thenReturn(Optional.empty());
+        when(agendamentoRepository.findDetalhadoById(999L)).thenReturn(Optional.empty());
 
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
                 () -> agendamentoService.getAgendamentoPorId(999L)
         );
         assertEquals("Agendamento não encontrado.", exception.getMessage());
-        verify(agendamentoRepository, times(1)).findById(999L);
+        verify(agendamentoRepository, times(1)).findDetalhadoById(999L);
     }
 
     @Test
     @DisplayName("Deve retornar agendamentos por status")
     void deveRetornarAgendamentosPorStatus() {
 
-        Agendamento agendamento2 = new Agendamento();
-        agendamento2.setId(2L);
-        agendamento2.setDataHora(dataHora.plusDays(1));
-        agendamento2.setStatus(StatusAgendamento.CONFIRMADO);
-        agendamento2.setUsuario(usuario);
-        agendamento2.setOrcamento(orcamento);
-
-        List<Agendamento> agendamentos = Arrays.asList(agendamento, agendamento2);
-        when(agendamentoRepository.findAll()).thenReturn(agendamentos);
+        when(agendamentoRepository.findByStatusAndDataHoraBetween(
+                eq(StatusAgendamento.PENDENTE), any(LocalDateTime.class), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(agendamento)));
 
 
-        List<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosByStatus("PENDENTE");
+        Page<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosByStatus(
+                "pendente", null, null, PageRequest.of(0, 20));
 
 
         assertNotNull(resultado);
-        assertEquals(1, resultado.size());
-        assertEquals("PENDENTE", resultado.get(0).status());
-        verify(agendamentoRepository, times(1)).findAll();
+        assertEquals(1, resultado.getContent().size());
+        assertEquals("PENDENTE", resultado.getContent().get(0).status());
+        verify(agendamentoRepository, never()).findAll();
     }
 
     @Test
-    @DisplayName("Deve retornar lista vazia quando não houver agendamentos com status especificado")
-    void deveRetornarListaVaziaQuandoNaoHouverAgendamentosComStatus() {
-
-        when(agendamentoRepository.findAll()).thenReturn(List.of(agendamento));
+    @DisplayName("Deve consultar status paginado ordenado por dataHora e dentro do período")
+    void deveConsultarStatusPaginadoOrdenadoPorDataHora() {
+        LocalDateTime de = dataHora.minusDays(1);
+        LocalDateTime ate = dataHora.plusDays(1);
+        when(agendamentoRepository.findByStatusAndDataHoraBetween(
+                eq(StatusAgendamento.CANCELADO), eq(de), eq(ate), any(Pageable.class)))
+                .thenReturn(Page.empty());
 
 
-        List<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosByStatus("CANCELADO");
+        Page<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosByStatus(
+                "CANCELADO", de, ate, PageRequest.of(2, 10, Sort.by(Sort.Direction.DESC, "dataHora")));
 
 
-        assertNotNull(resultado);
         assertTrue(resultado.isEmpty());
-        verify(agendamentoRepository, times(1)).findAll();
+        verify(agendamentoRepository).findByStatusAndDataHoraBetween(
+                eq(StatusAgendamento.CANCELADO), eq(de), eq(ate),
+                eq(PageRequest.of(2, 10, Sort.by(Sort.Direction.DESC, "dataHora", "id"))));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar status inexistente")
+    void deveRejeitarStatusInexistente() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> agendamentoService.getAgendamentosByStatus("aguardando", null, null, PageRequest.of(0, 20)));
+
+        assertEquals("Status inválido: aguardando", exception.getMessage());
+        verifyNoInteractions(agendamentoRepository);
     }
 
     @Test
@@ -230,6 +307,29 @@ class AgendamentoServiceTest {
         verify(orcamentoRepository, times(1)).findByCodigoOrcamento("ORC123");
         verify(agendamentoRepository, times(1)).findByOrcamentoCodigoOrcamento("ORC123");
         verify(agendamentoRepository, times(1)).save(any(Agendamento.class));
+        verify(referenciaArquivoService, times(1)).adicionar(agendamento.getImagemReferencia());
+    }
+
+    @Test
+    @DisplayName("Não deve gravar agendamento quando o horário está ocupado")
+    void naoDeveGravarAgendamentoComHorarioOcupado() {
+
+        when(usuarioRepository.findByEmail("joao@email.com")).thenReturn(Optional.of(usuario));
+        when(orcamentoRepository.findByCodigoOrcamento("ORC123")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.findByOrcamentoCodigoOrcamento("ORC123")).thenReturn(Optional.empty());
+        doThrow(new HorarioIndisponivelException())
+                .when(disponibilidadeService).reservar(isNull(), eq(dataHora), any(), eq(StatusAgendamento.PENDENTE), any());
+
+
+        HorarioIndisponivelException exception = assertThrows(
+                HorarioIndisponivelException.class,
+                () -> agendamentoService.postAgendamento(cadastroInput)
+        );
+
+
+        assertTrue(exception.getMessage().startsWith("Horário indisponível"));
+        verify(agendamentoRepository, never()).save(any(Agendamento.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -308,7 +408,7 @@ class AgendamentoServiceTest {
         when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamentoAtualizado);
 
 
-        DetalhesAgendamentoOutput resultado = agendamentoService.putAgendamentoById(1L, novoInput);
+        DetalhesAgendamentoOutput resultado = agendamentoService.putAgendamentoById(1L, novoInput, null);
 
 
         assertNotNull(resultado);
@@ -316,6 +416,95 @@ class AgendamentoServiceTest {
         verify(agendamentoRepository, times(1)).save(any(Agendamento.class));
     }
 
+    @Test
+    @DisplayName("Deve publicar a alteração antes do flush para o rollback ressincronizar a agenda")
+    void devePublicarAlteracaoAntesDoFlush() {
+        CadastroAgendamentoInput novoInput = new CadastroAgendamentoInput(
+                "joao@email.com", "ORC123", dataHora.plusDays(2), StatusAgendamento.CONFIRMADO, null, null, null);
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(usuarioRepository.findByEmail("joao@email.com")).thenReturn(Optional.of(usuario));
+        when(orcamentoRepository.findByCodigoOrcamento("ORC123")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.save(any(Agendamento.class))).thenReturn(agendamento);
+        doThrow(new ObjectOptimisticLockingFailureException(Agendamento.class, 1L)).when(agendamentoRepository).flush();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> agendamentoService.putAgendamentoById(1L, novoInput, null));
+
+        verify(eventPublisher).publishEvent(DominioAlteradoEvent.agendamento(
+                DominioAlteradoEvent.Operacao.ATUALIZADO, agendamento.getId()));
+    }
+
+    @Test
+    @DisplayName("Deve somar ao faturamento mensal quando agendamento passa para concluído")
+    void deveSomarAoFaturamentoMensalQuandoConcluido() {
+        orcamento.setValor(800.0);
+        CadastroAgendamentoInput concluirInput = new CadastroAgendamentoInput(
+                "joao@email.com", "ORC123", dataHora, StatusAgendamento.CONCLUIDO, 120, true, "PIX");
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(usuarioRepository.findByEmail("joao@email.com")).thenReturn(Optional.of(usuario));
+        when(orcamentoRepository.findByCodigoOrcamento("ORC123")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.save(any(Agendamento.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        agendamentoService.putAgendamentoById(1L, concluirInput, null);
+
+        verify(faturamentoMensalService, times(1)).adicionar(dataHora, 800.0);
+        verify(faturamentoMensalService, never()).remover(any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve publicar delta quando o status do agendamento muda")
+    void devePublicarDeltaQuandoStatusMuda() {
+        agendamento.setStatus(StatusAgendamento.PENDENTE);
+        CadastroAgendamentoInput confirmarInput = new CadastroAgendamentoInput(
+                "joao@email.com", "ORC123", dataHora, StatusAgendamento.CONFIRMADO, null, null, null);
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(usuarioRepository.findByEmail("joao@email.com")).thenReturn(Optional.of(usuario));
+        when(orcamentoRepository.findByCodigoOrcamento("ORC123")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.save(any(Agendamento.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        agendamentoService.putAgendamentoById(1L, confirmarInput, null);
+
+        verify(eventPublisher, times(1)).publishEvent(new AgendamentoStatusAlteradoEvent(
+                1L, StatusAgendamento.PENDENTE, StatusAgendamento.CONFIRMADO, dataHora));
+    }
+
+    @Test
+    @DisplayName("Não deve publicar delta de status quando o status não muda")
+    void naoDevePublicarDeltaQuandoStatusNaoMuda() {
+        agendamento.setStatus(StatusAgendamento.PENDENTE);
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(usuarioRepository.findByEmail("joao@email.com")).thenReturn(Optional.of(usuario));
+        when(orcamentoRepository.findByCodigoOrcamento("ORC123")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.save(any(Agendamento.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        agendamentoService.putAgendamentoById(1L, new CadastroAgendamentoInput(
+                "joao@email.com", "ORC123", dataHora, StatusAgendamento.PENDENTE, null, null, null), null);
+
+        verify(eventPublisher, never()).publishEvent(any(AgendamentoStatusAlteradoEvent.class));
+    }
+
+    @Test
+    @DisplayName("Deve subtrair do faturamento mensal quando agendamento deixa de ser concluído")
+    void deveSubtrairDoFaturamentoMensalQuandoDeixaDeSerConcluido() {
+        orcamento.setValor(800.0);
+        agendamento.setStatus(StatusAgendamento.CONCLUIDO);
+        CadastroAgendamentoInput cancelarInput = new CadastroAgendamentoInput(
+                "joao@email.com", "ORC123", dataHora, StatusAgendamento.CANCELADO, null, null, null);
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(usuarioRepository.findByEmail("joao@email.com")).thenReturn(Optional.of(usuario));
+        when(orcamentoRepository.findByCodigoOrcamento("ORC123")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.save(any(Agendamento.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        agendamentoService.putAgendamentoById(1L, cancelarInput, null);
+
+        verify(faturamentoMensalService, times(1)).remover(dataHora, 800.0);
+        verify(faturamentoMensalService, never()).adicionar(any(), any());
+    }
+
     @Test
     @DisplayName("Deve lançar exceção ao atualizar agendamento inexistente")
     void deveLancarExcecaoAoAtualizarAgendamentoInexistente() {
@@ -324,7 +513,7 @@ class AgendamentoServiceTest {
 
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
-                () -> agendamentoService.putAgendamentoById(999L, cadastroInput)
+                () -> agendamentoService.putAgendamentoById(999L, cadastroInput, null)
         );
         assertEquals("Agendamento não encontrado.", exception.getMessage());
         verify(agendamentoRepository, never()).save(any());
@@ -343,6 +532,21 @@ class AgendamentoServiceTest {
 
         verify(agendamentoRepository, times(1)).deleteById(1L);
         verify(agendamentoRepository, times(2)).existsById(1L);
+        verify(eventPublisher, times(1)).publishEvent(
+                DominioAlteradoEvent.agendamento(DominioAlteradoEvent.Operacao.REMOVIDO, 1L));
+    }
+
+    @Test
+    @DisplayName("Deve liberar as referências das imagens ao deletar agendamento")
+    void deveLiberarReferenciasAoDeletarAgendamento() {
+        agendamento.setImagemReferencia(List.of("uploads/ab/cd/abcd.png"));
+        when(agendamentoRepository.existsById(1L)).thenReturn(true).thenReturn(false);
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+
+        agendamentoService.deleteAgendamentoById(1L);
+
+        verify(referenciaArquivoService, times(1)).remover(List.of("uploads/ab/cd/abcd.png"));
+        verify(agendamentoRepository, times(1)).deleteById(1L);
     }
 
     @Test
@@ -371,6 +575,7 @@ class AgendamentoServiceTest {
                 () -> agendamentoService.deleteAgendamentoById(1L)
         );
         assertEquals("Erro ao excluir agendamento.", exception.getMessage());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -418,63 +623,11 @@ class AgendamentoServiceTest {
         assertFalse(resultado);
     }
 
-    @Test
-    @DisplayName("Deve retornar datas ocupadas")
-    void deveRetornarDatasOcupadas() {
-
-        LocalDateTime amanha = LocalDateTime.now().plusDays(1);
-        LocalDateTime doisDias = LocalDateTime.now().plusDays(2);
-
-        Agendamento agendamento1 = new Agendamento();
-        agendamento1.setDataHora(amanha);
-        agendamento1.setStatus(StatusAgendamento.PENDENTE);
-        agendamento1.setUsuario(usuario);
-        agendamento1.setOrcamento(orcamento);
-
-        Agendamento agendamento2 = new Agendamento();
-        agendamento2.setDataHora(doisDias);
-        agendamento2.setStatus(StatusAgendamento.CONFIRMADO);
-        agendamento2.setUsuario(usuario);
-        agendamento2.setOrcamento(orcamento);
-
-        when(agendamentoRepository.findAll()).thenReturn(Arrays.asList(agendamento1, agendamento2));
-
-
-        List<String> datas = agendamentoService.getDatasOcupadas();
-
-
-        assertNotNull(datas);
-        assertEquals(2, datas.size());
-        assertTrue(datas.contains(amanha.toLocalDate().toString()));
-        assertTrue(datas.contains(doisDias.toLocalDate().toString()));
-    }
-
-    @Test
-    @DisplayName("Não deve retornar datas passadas nas datas ocupadas")
-    void naoDeveRetornarDatasPassadas() {
-
-        LocalDateTime ontem = LocalDateTime.now().minusDays(1);
-        Agendamento agendamentoPassado = new Agendamento();
-        agendamentoPassado.setDataHora(ontem);
-        agendamentoPassado.setStatus(StatusAgendamento.CONFIRMADO);
-        agendamentoPassado.setUsuario(usuario);
-        agendamentoPassado.setOrcamento(orcamento);
-
-        when(agendamentoRepository.findAll()).thenReturn(List.of(agendamentoPassado));
-
-
-        List<String> datas = agendamentoService.getDatasOcupadas();
-
-
-        assertNotNull(datas);
-        assertTrue(datas.isEmpty());
-    }
-
     @Test
     @DisplayName("Deve retornar agendamento completo")
     void deveRetornarAgendamentoCompleto() {
 
-        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(agendamentoRepository.findDetalhadoById(1L)).thenReturn(Optional.of(agendamento));
 
 
         DetalhesAgendamentoOutput resultado = agendamentoService.getAgendamentoCompleto(1L);
@@ -488,7 +641,7 @@ class AgendamentoServiceTest {
         assertEquals(20.5, resultado.tamanho());
         assertEquals("Preto e Vermelho", resultado.cores());
         assertEquals("Costas", resultado.localCorpo());
-        verify(agendamentoRepository, times(1)).findById(1L);
+        verify(agendamentoRepository, times(1)).findDetalhadoById(1L);
     }
 
     @Test
@@ -496,30 +649,30 @@ class AgendamentoServiceTest {
     void deveRetornarAgendamentosPorUsuario() {
 
         List<Agendamento> agendamentos = List.of(agendamento);
-        when(agendamentoRepository.findByUsuarioId(1L)).thenReturn(agendamentos);
+        when(agendamentoRepository.findPaginaDoUsuarioApos(eq(1L), any(), eq(0L), eq(Limit.of(21)))).thenReturn(agendamentos);
 
 
-        List<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosPorUsuario(1L);
+        PaginaCursorOutput<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosPorUsuario(1L, null, 20);
 
 
         assertNotNull(resultado);
-        assertEquals(1, resultado.size());
-        assertEquals("João Silva", resultado.get(0).nomeUsuario());
-        verify(agendamentoRepository, times(1)).findByUsuarioId(1L);
+        assertEquals(1, resultado.itens().size());
+        assertEquals("João Silva", resultado.itens().get(0).nomeUsuario());
+        verify(agendamentoRepository, times(1)).findPaginaDoUsuarioApos(eq(1L), any(), eq(0L), eq(Limit.of(21)));
     }
 
     @Test
     @DisplayName("Deve retornar lista vazia quando usuário não tem agendamentos")
     void deveRetornarListaVaziaQuandoUsuarioNaoTemAgendamentos() {
 
-        when(agendamentoRepository.findByUsuarioId(999L)).thenReturn(List.of());
+        when(agendamentoRepository.findPaginaDoUsuarioApos(eq(999L), any(), any(), any(Limit.class))).thenReturn(List.of());
 
 
-        List<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosPorUsuario(999L);
+        PaginaCursorOutput<DetalhesAgendamentoOutput> resultado = agendamentoService.getAgendamentosPorUsuario(999L, null, 20);
 
 
         assertNotNull(resultado);
-        assertTrue(resultado.isEmpty());
+        assertTrue(resultado.itens().isEmpty());
     }
 
     @Test
@@ -688,9 +841,8 @@ class AgendamentoServiceTest {
 
         when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
         when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
-        when(estoqueRepository.findById(1L)).thenReturn(Optional.of(estoque));
-        when(estoqueRepository.save(any(Estoque.class))).thenReturn(estoque);
-        when(equipamentoUsoRepository.save(any(EquipamentoUso.class))).thenReturn(new EquipamentoUso());
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of());
 
         // Act
         assertDoesNotThrow(() -> agendamentoService.adicionarMateriaisUsados(1L, request));
@@ -698,9 +850,38 @@ class AgendamentoServiceTest {
         // Assert
         verify(agendamentoRepository, times(1)).findById(1L);
         verify(relatorioRepository, times(1)).findByAgendamentoId(1L);
-        verify(estoqueRepository, times(1)).findById(1L);
-        verify(equipamentoUsoRepository, times(1)).save(any(EquipamentoUso.class));
-        verify(estoqueRepository, times(1)).save(any(Estoque.class));
+        verify(estoqueRepository, times(1)).findAllById(any());
+        verify(estoqueRepository, times(1)).baixarQuantidades(Map.of(1L, 5));
+        verify(equipamentoUsoRepository, times(1)).inserirEmLote(argThat(usos -> usos.size() == 1));
+        verify(estoqueRepository, never()).save(any(Estoque.class));
+    }
+
+    @Test
+    @DisplayName("Deve baixar os materiais em ordem de id")
+    void deveBaixarMateriaisEmOrdemDeId() {
+        // Arrange - materiais pedidos fora de ordem, com linha repetida
+        Estoque tinta = new Estoque("Tinta Preta", 50.0, "ml", 10.0);
+        tinta.setId(3L);
+        Estoque agulha = new Estoque("Agulha", 20.0, "unidade", 2.0);
+        agulha.setId(1L);
+        Estoque luva = new Estoque("Luva", 30.0, "par", 5.0);
+        luva.setId(2L);
+        AdicionarMateriaisRequest request = new AdicionarMateriaisRequest(List.of(
+                new MaterialUsadoRequest(3L, 5), new MaterialUsadoRequest(1L, 2),
+                new MaterialUsadoRequest(2L, 1), new MaterialUsadoRequest(3L, 1)));
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(new Relatorio()));
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(tinta, agulha, luva));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of());
+
+        // Act
+        agendamentoService.adicionarMateriaisUsados(1L, request);
+
+        // Assert
+        verify(estoqueRepository).baixarQuantidades(argThat(quantidades ->
+                List.copyOf(quantidades.keySet()).equals(List.of(1L, 2L, 3L))
+                        && quantidades.get(3L) == 6));
     }
 
     @Test
@@ -720,9 +901,8 @@ class AgendamentoServiceTest {
         when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
         when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.empty());
         when(relatorioRepository.save(any(Relatorio.class))).thenReturn(novoRelatorio);
-        when(estoqueRepository.findById(1L)).thenReturn(Optional.of(estoque));
-        when(estoqueRepository.save(any(Estoque.class))).thenReturn(estoque);
-        when(equipamentoUsoRepository.save(any(EquipamentoUso.class))).thenReturn(new EquipamentoUso());
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of());
 
         // Act
         assertDoesNotThrow(() -> agendamentoService.adicionarMateriaisUsados(1L, request));
@@ -747,7 +927,7 @@ class AgendamentoServiceTest {
         );
         assertEquals("Agendamento não encontrado.", exception.getMessage());
         verify(relatorioRepository, never()).save(any());
-        verify(equipamentoUsoRepository, never()).save(any());
+        verify(equipamentoUsoRepository, never()).inserirEmLote(any());
     }
 
     @Test
@@ -763,7 +943,7 @@ class AgendamentoServiceTest {
 
         when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
         when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
-        when(estoqueRepository.findById(999L)).thenReturn(Optional.empty());
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(
@@ -788,7 +968,7 @@ class AgendamentoServiceTest {
 
         when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
         when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
-        when(estoqueRepository.findById(1L)).thenReturn(Optional.of(estoque));
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque));
         doNothing().when(equipamentoUsoRepository).deleteByRelatorioId(1L);
 
         // Verificar que a comparação funciona corretamente
@@ -809,8 +989,8 @@ class AgendamentoServiceTest {
         }
 
         assertTrue(excecaoLancada, "Deveria ter lançado alguma exceção");
-        verify(equipamentoUsoRepository, never()).save(any());
-        verify(estoqueRepository, never()).save(any());
+        verify(estoqueRepository, never()).baixarQuantidades(any());
+        verify(equipamentoUsoRepository, never()).inserirEmLote(any());
     }
 
     @Test
@@ -832,18 +1012,17 @@ class AgendamentoServiceTest {
 
         when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
         when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
-        when(estoqueRepository.findById(1L)).thenReturn(Optional.of(estoque1));
-        when(estoqueRepository.findById(2L)).thenReturn(Optional.of(estoque2));
-        when(estoqueRepository.save(any(Estoque.class))).thenReturn(estoque1, estoque2);
-        when(equipamentoUsoRepository.save(any(EquipamentoUso.class))).thenReturn(new EquipamentoUso());
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque1, estoque2));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of());
 
         // Act
         assertDoesNotThrow(() -> agendamentoService.adicionarMateriaisUsados(1L, request));
 
         // Assert
-        verify(estoqueRepository, times(2)).findById(any());
-        verify(equipamentoUsoRepository, times(2)).save(any(EquipamentoUso.class));
-        verify(estoqueRepository, times(2)).save(any(Estoque.class));
+        verify(estoqueRepository, times(1)).findAllById(any());
+        verify(estoqueRepository, never()).findById(any());
+        verify(estoqueRepository, times(1)).baixarQuantidades(Map.of(1L, 5, 2L, 3));
+        verify(equipamentoUsoRepository, times(1)).inserirEmLote(argThat(usos -> usos.size() == 2));
     }
 
     @Test
@@ -862,17 +1041,68 @@ class AgendamentoServiceTest {
 
         when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
         when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
-        when(estoqueRepository.findById(1L)).thenReturn(Optional.of(estoque));
-        when(estoqueRepository.save(any(Estoque.class))).thenReturn(estoque);
-        when(equipamentoUsoRepository.save(any(EquipamentoUso.class))).thenReturn(new EquipamentoUso());
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of());
+
+        // Act
+        agendamentoService.adicionarMateriaisUsados(1L, request);
+
+        // Assert - A baixa vai para o banco como desconto, sem regravar a entidade
+        verify(estoqueRepository).baixarQuantidades(Map.of(1L, 15));
+        verify(estoqueRepository, never()).save(any(Estoque.class));
+    }
+
+    @Test
+    @DisplayName("Deve somar linhas repetidas do mesmo material numa única baixa")
+    void deveSomarMaterialRepetidoNaBaixa() {
+        // Arrange
+        Relatorio relatorio = new Relatorio();
+        relatorio.setAgendamento(agendamento);
+
+        Estoque estoque = new Estoque("Tinta Preta", 12.0, "ml", 10.0);
+        estoque.setId(1L);
+
+        AdicionarMateriaisRequest request = new AdicionarMateriaisRequest(List.of(
+                new MaterialUsadoRequest(1L, 2), new MaterialUsadoRequest(1L, 4)));
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of());
 
         // Act
         agendamentoService.adicionarMateriaisUsados(1L, request);
 
-        // Assert - Verifica se o estoque foi atualizado corretamente
-        verify(estoqueRepository).save(argThat(e ->
-            e.getQuantidade().equals(35.0) // 50 - 15 = 35
-        ));
+        // Assert - dois registros de uso, uma baixa de 6 e o alerta de mínimo cruzado
+        verify(estoqueRepository).baixarQuantidades(Map.of(1L, 6));
+        verify(equipamentoUsoRepository).inserirEmLote(argThat(usos -> usos.size() == 2));
+        verify(eventPublisher).publishEvent(argThat((Object evento) ->
+                evento instanceof EstoqueLimiteCruzadoEvent cruzado
+                        && cruzado.abaixoDoMinimo() && cruzado.quantidade() == 6.0));
+    }
+
+    @Test
+    @DisplayName("Deve falhar quando outra sessão consumiu o saldo antes da baixa")
+    void deveFalharQuandoBaixaCondicionalNaoAtualiza() {
+        // Arrange
+        Relatorio relatorio = new Relatorio();
+        relatorio.setAgendamento(agendamento);
+
+        Estoque estoque = new Estoque("Agulha", 5.0, "unidade", 1.0);
+        estoque.setId(2L);
+
+        AdicionarMateriaisRequest request = new AdicionarMateriaisRequest(List.of(new MaterialUsadoRequest(2L, 4)));
+
+        when(agendamentoRepository.findById(1L)).thenReturn(Optional.of(agendamento));
+        when(relatorioRepository.findByAgendamentoId(1L)).thenReturn(Optional.of(relatorio));
+        when(estoqueRepository.findAllById(any())).thenReturn(List.of(estoque));
+        when(estoqueRepository.baixarQuantidades(any())).thenReturn(List.of(2L));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> agendamentoService.adicionarMateriaisUsados(1L, request));
+        assertTrue(exception.getMessage().startsWith("Estoque insuficiente para Agulha"));
+        verify(equipamentoUsoRepository, never()).inserirEmLote(any());
     }
 
     // ------------------ TESTES PARA NOTIFICAÇÃO DE OBSERVERS NO POST ------------------
@@ -0,0 +1,140 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.dashboard.AnaliseOutput;
+import hub.orcana.dto.dashboard.BaldeAnaliseOutput;
+import hub.orcana.dto.dashboard.FatoAgendamentoOutput;
+import hub.orcana.dto.dashboard.GranularidadeAnalise;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnaliseDashboardServiceTest {
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    private AnaliseDashboardService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnaliseDashboardService(agendamentoRepository);
+        when(agendamentoRepository.findFatosAnalise()).thenReturn(List.of(
+                fato(1L, LocalDateTime.of(2026, 1, 5, 10, 0), StatusAgendamento.CONCLUIDO, "PIX", "Braço", 500.0, 120),
+                fato(2L, LocalDateTime.of(2026, 1, 20, 14, 0), StatusAgendamento.CONCLUIDO, "Cartão", "Costas", 1500.0, 240),
+                fato(3L, LocalDateTime.of(2026, 2, 3, 9, 0), StatusAgendamento.CANCELADO, "PIX", "Braço", 800.0, 60),
+                fato(4L, LocalDateTime.of(2026, 2, 10, 16, 0), StatusAgendamento.PENDENTE, null, null, null, null)
+        ));
+        service.recarregar();
+    }
+
+    @Test
+    @DisplayName("Deve agrupar por mês com quebras por forma de pagamento, local e status")
+    void deveAgruparPorMes() {
+        AnaliseOutput analise = service.consultar(
+                LocalDate.of(2026, 1, 1), LocalDate.of(2026, 3, 31), GranularidadeAnalise.MES);
+
+        assertEquals(3, analise.baldes().size());
+        assertEquals(4L, analise.total().quantidade());
+        assertEquals(2000.0, analise.total().faturamento());
+        assertEquals(420L, analise.total().minutos());
+
+        BaldeAnaliseOutput janeiro = analise.baldes().get(0);
+        assertEquals(LocalDate.of(2026, 1, 1), janeiro.inicio());
+        assertEquals(2L, janeiro.total().quantidade());
+        assertEquals(500.0, janeiro.porFormaPagamento().get("PIX").faturamento());
+        assertEquals(1500.0, janeiro.porLocalCorpo().get("Costas").faturamento());
+        assertEquals(2L, janeiro.porStatus().get(StatusAgendamento.CONCLUIDO).quantidade());
+
+        BaldeAnaliseOutput fevereiro = analise.baldes().get(1);
+        assertEquals(0.0, fevereiro.total().faturamento());
+        assertEquals(1L, fevereiro.porFormaPagamento().get(CuboAgendamentos.NAO_INFORMADO).quantidade());
+        assertEquals(1L, fevereiro.porStatus().get(StatusAgendamento.CANCELADO).quantidade());
+
+        assertEquals(0L, analise.baldes().get(2).total().quantidade());
+        verify(agendamentoRepository, times(1)).findFatosAnalise();
+    }
+
+    @Test
+    @DisplayName("Deve agrupar por semana começando na segunda-feira")
+    void deveAgruparPorSemana() {
+        // 2026-01-05 é segunda-feira; 2026-01-20 é terça-feira
+        AnaliseOutput analise = service.consultar(
+                LocalDate.of(2026, 1, 7), LocalDate.of(2026, 1, 21), GranularidadeAnalise.SEMANA);
+
+        assertEquals(3, analise.baldes().size());
+        assertEquals(LocalDate.of(2026, 1, 5), analise.baldes().get(0).inicio());
+        assertEquals(0L, analise.baldes().get(0).total().quantidade()); // dia 5 fica fora do período
+        assertEquals(1L, analise.baldes().get(2).total().quantidade());
+        assertEquals(LocalDate.of(2026, 1, 19), analise.baldes().get(2).inicio());
+    }
+
+    @Test
+    @DisplayName("Deve agrupar por dia apenas dentro do período")
+    void deveAgruparPorDia() {
+        AnaliseOutput analise = service.consultar(
+                LocalDate.of(2026, 1, 5), LocalDate.of(2026, 1, 5), GranularidadeAnalise.DIA);
+
+        assertEquals(1, analise.baldes().size());
+        assertEquals(120L, analise.total().minutos());
+    }
+
+    @Test
+    @DisplayName("Deve atualizar o cubo de forma incremental a partir dos eventos")
+    void deveAtualizarCuboIncrementalmente() {
+        when(agendamentoRepository.findFatoAnaliseById(4L)).thenReturn(Optional.of(
+                fato(4L, LocalDateTime.of(2026, 2, 10, 16, 0), StatusAgendamento.CONCLUIDO, "Dinheiro", "Perna", 300.0, 90)));
+
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.ATUALIZADO, 4L));
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.REMOVIDO, 1L));
+
+        AnaliseOutput analise = service.consultar(
+                LocalDate.of(2026, 1, 1), LocalDate.of(2026, 2, 28), GranularidadeAnalise.MES);
+        assertEquals(3L, analise.total().quantidade());
+        assertEquals(1800.0, analise.total().faturamento());
+        assertEquals(300.0, analise.baldes().get(1).porFormaPagamento().get("Dinheiro").faturamento());
+        verify(agendamentoRepository, times(1)).findFatosAnalise();
+    }
+
+    @Test
+    @DisplayName("Deve atualizar linhas do orçamento alterado")
+    void deveAtualizarLinhasDoOrcamentoAlterado() {
+        when(agendamentoRepository.findFatosAnaliseByCodigoOrcamento("ORC-2")).thenReturn(List.of(
+                fato(2L, LocalDateTime.of(2026, 1, 20, 14, 0), StatusAgendamento.CONCLUIDO, "Cartão", "Costas", 1000.0, 240)));
+
+        service.onDominioAlterado(DominioAlteradoEvent.orcamento(Operacao.ATUALIZADO, "ORC-2"));
+
+        AnaliseOutput analise = service.consultar(
+                LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31), GranularidadeAnalise.MES);
+        assertEquals(1500.0, analise.total().faturamento());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar período invertido ou longo demais")
+    void deveRejeitarPeriodoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> service.consultar(
+                LocalDate.of(2026, 2, 1), LocalDate.of(2026, 1, 1), GranularidadeAnalise.DIA));
+        assertThrows(IllegalArgumentException.class, () -> service.consultar(
+                LocalDate.of(2000, 1, 1), LocalDate.of(2026, 1, 1), GranularidadeAnalise.DIA));
+    }
+
+    private FatoAgendamentoOutput fato(Long id, LocalDateTime dataHora, StatusAgendamento status,
+                                       String formaPagamento, String localCorpo, Double valor, Integer minutos) {
+        return new FatoAgendamentoOutput(id, dataHora, status, formaPagamento, localCorpo, valor, minutos);
+    }
+}
@@ -0,0 +1,121 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.agendamento.HorarioAgendadoOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalendarioOcupacaoServiceTest {
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    private CalendarioOcupacaoService service;
+    private LocalDate hoje;
+
+    @BeforeEach
+    void setUp() {
+        service = new CalendarioOcupacaoService(agendamentoRepository, 30, 60);
+        hoje = LocalDate.now();
+        when(agendamentoRepository.findHorariosAPartirDe(any())).thenReturn(List.of(
+                horario(1L, hoje.plusDays(1).atTime(10, 0)),
+                horario(2L, hoje.plusDays(1).atTime(15, 0)),
+                horario(3L, hoje.plusDays(2).atTime(9, 0)),
+                horario(4L, hoje.plusDays(90).atTime(9, 0))
+        ));
+        service.recarregar();
+    }
+
+    @Test
+    @DisplayName("Deve retornar datas ocupadas em ordem, inclusive além do horizonte")
+    void deveRetornarDatasOcupadas() {
+        CalendarioOcupacaoService.Calendario calendario = service.getCalendario();
+
+        assertEquals(List.of(
+                hoje.plusDays(1).toString(),
+                hoje.plusDays(2).toString(),
+                hoje.plusDays(90).toString()), calendario.datas());
+        assertNotNull(calendario.etag());
+        verify(agendamentoRepository, times(1)).findHorariosAPartirDe(hoje.atStartOfDay());
+    }
+
+    @Test
+    @DisplayName("Deve manter o mesmo calendário e ETag enquanto nada mudar")
+    void deveReaproveitarCalendarioSemAlteracoes() {
+        CalendarioOcupacaoService.Calendario primeiro = service.getCalendario();
+        CalendarioOcupacaoService.Calendario segundo = service.getCalendario();
+
+        assertSame(primeiro, segundo);
+    }
+
+    @Test
+    @DisplayName("Só deve liberar o dia quando o último agendamento dele sair")
+    void deveLiberarDiaApenasNoUltimoAgendamento() {
+        String etagInicial = service.getCalendario().etag();
+
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.REMOVIDO, 1L));
+        assertTrue(service.getCalendario().datas().contains(hoje.plusDays(1).toString()));
+        assertEquals(etagInicial, service.getCalendario().etag());
+
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.REMOVIDO, 2L));
+        assertFalse(service.getCalendario().datas().contains(hoje.plusDays(1).toString()));
+        assertNotEquals(etagInicial, service.getCalendario().etag());
+    }
+
+    @Test
+    @DisplayName("Deve mover o dia ocupado quando o agendamento é remarcado ou criado")
+    void deveAtualizarDiaQuandoAgendamentoMuda() {
+        when(agendamentoRepository.findHorarioById(3L)).thenReturn(Optional.of(horario(3L, hoje.plusDays(5).atTime(9, 0))));
+        when(agendamentoRepository.findHorarioById(5L)).thenReturn(Optional.of(horario(5L, hoje.atTime(18, 0))));
+
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.ATUALIZADO, 3L));
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.CRIADO, 5L));
+
+        assertEquals(List.of(
+                hoje.toString(),
+                hoje.plusDays(1).toString(),
+                hoje.plusDays(5).toString(),
+                hoje.plusDays(90).toString()), service.getCalendario().datas());
+    }
+
+    @Test
+    @DisplayName("Não deve marcar agendamentos no passado")
+    void naoDeveMarcarDatasPassadas() {
+        when(agendamentoRepository.findHorarioById(3L)).thenReturn(Optional.of(horario(3L, hoje.minusDays(1).atTime(9, 0))));
+
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.ATUALIZADO, 3L));
+
+        assertFalse(service.getCalendario().datas().contains(hoje.minusDays(1).toString()));
+        assertFalse(service.getCalendario().datas().contains(hoje.plusDays(2).toString()));
+    }
+
+    @Test
+    @DisplayName("Deve ignorar eventos de outras entidades")
+    void deveIgnorarOutrasEntidades() {
+        service.onDominioAlterado(DominioAlteradoEvent.orcamento(Operacao.REMOVIDO, "ORC-1"));
+
+        assertEquals(3, service.getCalendario().datas().size());
+        verify(agendamentoRepository, never()).findHorarioById(any());
+    }
+
+    private HorarioAgendadoOutput horario(Long id, LocalDateTime dataHora) {
+        return new HorarioAgendadoOutput(id, dataHora, 120, StatusAgendamento.CONFIRMADO);
+    }
+}
@@ -0,0 +1,209 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.uploads.UsoDeArmazenamentoOutput;
+import hub.orcana.tables.ArquivoArmazenado;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import hub.orcana.tables.repository.ArquivoArmazenadoRepository;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ColetorDeArquivosServiceTest {
+
+    @Mock
+    private GerenciadorDeArquivosService gerenciadorService;
+
+    @Mock
+    private OrcamentoRepository orcamentoRepository;
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    @Mock
+    private ArquivoArmazenadoRepository arquivoRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private Path raiz;
+    private ColetorDeArquivosService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        raiz = Files.createDirectories(tempDir.resolve("uploads"));
+        lenient().when(gerenciadorService.getPastaRaiz()).thenReturn(raiz);
+        lenient().when(orcamentoRepository.findImagensReferenciadas(anyCollection())).thenReturn(List.of());
+        lenient().when(agendamentoRepository.findImagensReferenciadas(anyCollection())).thenReturn(List.of());
+        lenient().when(arquivoRepository.findByCaminho(any())).thenReturn(Optional.empty());
+        service = new ColetorDeArquivosService(gerenciadorService, orcamentoRepository, agendamentoRepository,
+                arquivoRepository, 24, 1000);
+    }
+
+    private Path arquivo(String relativo, int bytes, boolean antigo) throws Exception {
+        Path arquivo = raiz.resolve(relativo);
+        Files.createDirectories(arquivo.getParent());
+        Files.write(arquivo, new byte[bytes]);
+        if (antigo) {
+            Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+        }
+        return arquivo;
+    }
+
+    @Test
+    @DisplayName("Deve apagar o original órfão antigo junto com as variantes e manter o referenciado")
+    void deveApagarOrfaoEManterReferenciado() throws Exception {
+        Path orfao = arquivo("aa/bb/orfao.png", 10, true);
+        Path miniatura = arquivo("aa/bb/orfao.png.thumb.jpg", 3, true);
+        Path usado = arquivo("aa/bb/usado.png", 10, true);
+        when(orcamentoRepository.findImagensReferenciadas(anyCollection()))
+                .thenAnswer(chamada -> chamada.<List<String>>getArgument(0).stream()
+                        .filter(usado.toString()::equals).toList());
+
+        assertEquals(1, service.coletarLote());
+
+        assertFalse(Files.exists(orfao));
+        assertFalse(Files.exists(miniatura));
+        assertTrue(Files.exists(usado));
+        UsoDeArmazenamentoOutput uso = service.relatorio();
+        assertEquals(1, uso.arquivosRemovidos());
+        assertEquals(13, uso.bytesLiberados());
+    }
+
+    @Test
+    @DisplayName("Não deve apagar arquivo recente, mesmo sem referência")
+    void deveRespeitarCarencia() throws Exception {
+        Path recente = arquivo("aa/bb/recente.png", 10, false);
+
+        assertEquals(0, service.coletarLote());
+
+        assertTrue(Files.exists(recente));
+        verify(orcamentoRepository, never()).findImagensReferenciadas(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Não deve apagar arquivo com contagem de referências positiva")
+    void deveManterArquivoComReferencia() throws Exception {
+        Path registrado = arquivo("aa/bb/registrado.png", 10, true);
+        LocalDateTime antes = LocalDateTime.now().minusDays(5);
+        when(arquivoRepository.findByCaminho(registrado.toString())).thenReturn(Optional.of(
+                new ArquivoArmazenado("aa", registrado.toString(), "image/png", 10L, 1, antes, antes)));
+
+        assertEquals(0, service.coletarLote());
+
+        assertTrue(Files.exists(registrado));
+    }
+
+    @Test
+    @DisplayName("Deve apagar o registro e o arquivo quando a contagem está zerada há mais que a carência")
+    void deveApagarRegistroSemReferencia() throws Exception {
+        Path registrado = arquivo("aa/bb/zerado.png", 10, true);
+        LocalDateTime antes = LocalDateTime.now().minusDays(5);
+        when(arquivoRepository.findByCaminho(registrado.toString())).thenReturn(Optional.of(
+                new ArquivoArmazenado("aa", registrado.toString(), "image/png", 10L, 0, antes, antes)));
+        when(arquivoRepository.removerSemReferencia(eq(registrado.toString()), any())).thenReturn(1);
+
+        assertEquals(1, service.coletarLote());
+
+        assertFalse(Files.exists(registrado));
+    }
+
+    @Test
+    @DisplayName("Deve devolver o arquivo quando ele volta a ser usado durante a remoção")
+    void deveRestaurarArquivoQueVoltouAoUso() throws Exception {
+        Path disputado = arquivo("aa/bb/disputado.png", 10, true);
+        // a primeira consulta não encontra; a conferência depois do rename encontra
+        when(orcamentoRepository.findImagensReferenciadas(anyCollection()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(disputado.toString()));
+
+        assertEquals(0, service.coletarLote());
+
+        assertTrue(Files.exists(disputado));
+        try (var arquivos = Files.list(disputado.getParent())) {
+            assertEquals(1, arquivos.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve apagar gravações interrompidas antigas")
+    void deveApagarParciais() throws Exception {
+        Path parcial = arquivo("aa/bb/.foto.png.123.parcial", 4, true);
+        Path emAndamento = arquivo("aa/bb/.outra.png.456.parcial", 4, false);
+
+        assertEquals(1, service.coletarLote());
+
+        assertFalse(Files.exists(parcial));
+        assertTrue(Files.exists(emAndamento));
+    }
+
+    @Test
+    @DisplayName("Deve percorrer a pasta em lotes, continuando de onde parou")
+    void devePercorrerEmLotes() throws Exception {
+        service = new ColetorDeArquivosService(gerenciadorService, orcamentoRepository, agendamentoRepository,
+                arquivoRepository, 24, 1);
+        Path primeiro = arquivo("aa/00/um.png", 1, true);
+        Path segundo = arquivo("bb/00/dois.png", 1, true);
+
+        assertEquals(1, service.coletarLote());
+        assertFalse(Files.exists(primeiro));
+        assertTrue(Files.exists(segundo));
+        assertNull(service.relatorio().ultimoCicloCompleto());
+
+        assertEquals(1, service.coletarLote());
+        assertFalse(Files.exists(segundo));
+        assertNotNull(service.relatorio().ultimoCicloCompleto());
+    }
+
+    @Test
+    @DisplayName("Deve separar originais, variantes e parciais no relatório de uso")
+    void deveRelatarUso() throws Exception {
+        arquivo("aa/bb/foto.png", 100, false);
+        arquivo("aa/bb/foto.png.thumb.jpg", 10, false);
+        arquivo("aa/bb/foto.png.medium.jpg", 20, false);
+        arquivo("aa/bb/.foto.png.1.parcial", 5, false);
+        arquivo("123_antiga.jpg", 50, false);
+        when(arquivoRepository.countByReferencias(0)).thenReturn(2L);
+
+        UsoDeArmazenamentoOutput uso = service.relatorio();
+
+        assertEquals(5, uso.arquivos());
+        assertEquals(185, uso.bytes());
+        assertEquals(2, uso.originais());
+        assertEquals(150, uso.bytesOriginais());
+        assertEquals(2, uso.variantes());
+        assertEquals(30, uso.bytesVariantes());
+        assertEquals(1, uso.parciais());
+        assertEquals(2, uso.registradosSemReferencia());
+    }
+
+    @Test
+    @DisplayName("Deve reconhecer o original de variantes e arquivos pré-comprimidos")
+    void deveReconhecerOriginal() {
+        assertEquals(Path.of("u/a.png"), ColetorDeArquivosService.originalDe(Path.of("u/a.png.thumb.jpg")));
+        assertEquals(Path.of("u/a.png"), ColetorDeArquivosService.originalDe(Path.of("u/a.png.br")));
+        assertEquals(Path.of("u/a.png"), ColetorDeArquivosService.originalDe(Path.of("u/a.png")));
+        assertEquals(ColetorDeArquivosService.Categoria.PARCIAL,
+                ColetorDeArquivosService.categoria(Path.of("u/.a.png.x.removendo")));
+    }
+}
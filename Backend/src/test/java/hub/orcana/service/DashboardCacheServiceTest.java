@@ -0,0 +1,141 @@
+package hub.orcana.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hub.orcana.dto.dashboard.DashboardKPIsOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardCacheServiceTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private DashboardCacheService criarCache(long ttlMs, long obsoletoMs) {
+        return new DashboardCacheService(dashboardService, executor,
+                new ObjectMapper().findAndRegisterModules(), ttlMs, obsoletoMs);
+    }
+
+    @Test
+    @DisplayName("Deve compartilhar uma única computação entre requisições concorrentes")
+    void deveCompartilharComputacaoEntreRequisicoesConcorrentes() throws Exception {
+        DashboardCacheService cache = criarCache(30_000L, 0L);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(dashboardService.getEstatisticas()).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return new DashboardKPIsOutput(10L, 5L, 100.0, 3);
+        });
+
+        List<Future<DashboardCacheService.Resposta<DashboardKPIsOutput>>> respostas = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            respostas.add(executor.submit(cache::getEstatisticas));
+        }
+        Thread.sleep(100);
+        liberar.countDown();
+
+        for (Future<DashboardCacheService.Resposta<DashboardKPIsOutput>> resposta : respostas) {
+            assertEquals(10L, resposta.get(5, TimeUnit.SECONDS).valor().totalAgendamentos());
+        }
+        verify(dashboardService, times(1)).getEstatisticas();
+    }
+
+    @Test
+    @DisplayName("Deve servir valor obsoleto e revalidar em segundo plano")
+    void deveServirValorObsoletoERevalidar() throws Exception {
+        DashboardCacheService cache = criarCache(0L, 60_000L);
+        when(dashboardService.getEstatisticas())
+                .thenReturn(new DashboardKPIsOutput(1L, 1L, 10.0, 1))
+                .thenReturn(new DashboardKPIsOutput(2L, 2L, 20.0, 2));
+
+        cache.getEstatisticas();
+        Thread.sleep(5);
+        DashboardCacheService.Resposta<DashboardKPIsOutput> obsoleta = cache.getEstatisticas();
+
+        assertEquals(1L, obsoleta.valor().totalAgendamentos());
+        verify(dashboardService, timeout(2000).times(2)).getEstatisticas();
+    }
+
+    @Test
+    @DisplayName("Deve despachar uma única revalidação enquanto a anterior não termina")
+    void deveDespacharUmaRevalidacaoPorVez() throws Exception {
+        ExecutorService fila = mock(ExecutorService.class);
+        DashboardCacheService cache = new DashboardCacheService(dashboardService, fila,
+                new ObjectMapper().findAndRegisterModules(), 0L, 60_000L);
+        when(dashboardService.getEstatisticas()).thenReturn(new DashboardKPIsOutput(1L, 1L, 10.0, 1));
+
+        cache.getEstatisticas();
+        Thread.sleep(5);
+        for (int i = 0; i < 10; i++) {
+            cache.getEstatisticas();
+        }
+
+        ArgumentCaptor<Runnable> tarefa = ArgumentCaptor.forClass(Runnable.class);
+        verify(fila, times(1)).execute(tarefa.capture());
+
+        tarefa.getValue().run();
+        Thread.sleep(5);
+        cache.getEstatisticas();
+        verify(fila, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("Deve recalcular após evento de domínio")
+    void deveRecalcularAposEventoDeDominio() {
+        DashboardCacheService cache = criarCache(30_000L, 60_000L);
+        when(dashboardService.getFaturamentoUltimos12Meses())
+                .thenReturn(List.of(1.0))
+                .thenReturn(List.of(2.0));
+
+        String etagAntes = cache.getFaturamentoUltimos12Meses().etag();
+        cache.onDominioAlterado(DominioAlteradoEvent.estoque(DominioAlteradoEvent.Operacao.REMOVIDO, 1L));
+        DashboardCacheService.Resposta<List<Double>> depois = cache.getFaturamentoUltimos12Meses();
+
+        assertEquals(List.of(2.0), depois.valor());
+        assertNotEquals(etagAntes, depois.etag());
+    }
+
+    @Test
+    @DisplayName("Deve propagar a exceção original e não guardar falhas")
+    void devePropagarExcecaoOriginal() {
+        DashboardCacheService cache = criarCache(30_000L, 60_000L);
+        when(dashboardService.getEstatisticas())
+                .thenThrow(new IllegalArgumentException("falhou"))
+                .thenReturn(new DashboardKPIsOutput(1L, 1L, 10.0, 1));
+
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class, cache::getEstatisticas);
+
+        assertEquals("falhou", erro.getMessage());
+        assertEquals(1L, cache.getEstatisticas().valor().totalAgendamentos());
+    }
+}
@@ -1,34 +1,40 @@
 package hub.orcana.service;
 
+import hub.orcana.dto.dashboard.DashboardKPIsOutput;
+import hub.orcana.dto.dashboard.AgendamentoResumoOutput;
 import hub.orcana.dto.dashboard.DashboardOutput;
-import hub.orcana.tables.Agendamento;
-import hub.orcana.tables.Estoque;
-import hub.orcana.tables.Orcamento;
+import hub.orcana.dto.estoque.DetalhesMaterialOutput;
+import hub.orcana.tables.FaturamentoMensal;
 import hub.orcana.tables.StatusAgendamento;
 import hub.orcana.tables.StatusOrcamento;
 import hub.orcana.tables.Usuario;
 import hub.orcana.tables.repository.AgendamentoRepository;
 import hub.orcana.tables.repository.EstoqueRepository;
+import hub.orcana.tables.repository.FaturamentoMensalRepository;
 import hub.orcana.tables.repository.OrcamentoRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
-import java.sql.Time;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -44,241 +50,181 @@ class DashboardServiceTest {
     @Mock
     private EstoqueRepository estoqueRepository;
 
-    @InjectMocks
+    @Mock
+    private FaturamentoMensalRepository faturamentoMensalRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExecutorService executor;
+
     private DashboardService dashboardService;
 
     private Usuario usuario;
 
     @BeforeEach
     void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        dashboardService = new DashboardService(agendamentoRepository, estoqueRepository,
+                orcamentoRepository, faturamentoMensalRepository, executor, transactionManager);
+        ReflectionTestUtils.setField(dashboardService, "timeoutConsultaMs", 2000L);
+
         usuario = new Usuario();
         usuario.setId(1L);
         usuario.setNome("João Silva");
         usuario.setEmail("joao@email.com");
     }
 
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
 
     @Test
     @DisplayName("Deve retornar faturamento dos últimos 12 meses com valores corretos")
     void deveRetornarFaturamentoUltimos12Meses() {
-        LocalDateTime hoje = LocalDate.now().atTime(23, 59, 59);
-
-        List<Agendamento> agendamentosMes1 = criarAgendamentosParaMes(hoje, 1000.0, 500.0);
-        List<Agendamento> agendamentosMes2 = criarAgendamentosParaMes(hoje.minusMonths(1), 2000.0);
-        List<Agendamento> agendamentosMes3 = criarAgendamentosParaMes(hoje.minusMonths(2), 1500.0, 800.0);
-
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(agendamentosMes1)
-                .thenReturn(agendamentosMes2)
-                .thenReturn(agendamentosMes3)
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList());
+        YearMonth mesAtual = YearMonth.now();
+
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
+                .thenReturn(List.of(
+                        faturamentoDoMes(mesAtual, 1500.0),
+                        faturamentoDoMes(mesAtual.minusMonths(1), 2000.0),
+                        faturamentoDoMes(mesAtual.minusMonths(2), 2300.0)
+                ));
 
         List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
 
         assertNotNull(resultado);
         assertEquals(12, resultado.size());
-        verify(agendamentoRepository, times(12)).findByDataHoraBetween(any(), any());
+        assertEquals(2300.0, resultado.get(9));
+        assertEquals(2000.0, resultado.get(10));
+        assertEquals(1500.0, resultado.get(11));
     }
 
     @Test
-    @DisplayName("Deve contar apenas agendamentos concluídos no faturamento")
-    void deveContarApenasAgendamentosConcluidos() {
-        Agendamento agendamentoConcluido = criarAgendamento(1L, StatusAgendamento.CONCLUIDO, 1000.0);
-        Agendamento agendamentoPendente = criarAgendamento(2L, StatusAgendamento.PENDENTE, 500.0);
-        Agendamento agendamentoCancelado = criarAgendamento(3L, StatusAgendamento.CANCELADO, 300.0);
-
-        List<Agendamento> agendamentos = List.of(
-                agendamentoConcluido,
-                agendamentoPendente,
-                agendamentoCancelado
-        );
-
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(agendamentos)
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
+    @DisplayName("Deve ler o faturamento do consolidado mensal sem consultar agendamentos")
+    void deveLerFaturamentoDoConsolidadoMensal() {
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
                 .thenReturn(Collections.emptyList());
 
-        List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
+        dashboardService.getFaturamentoUltimos12Meses();
 
-        assertNotNull(resultado);
-        assertEquals(12, resultado.size());
-        assertEquals(1000.0, resultado.get(0)); // Primeira posição (primeiro mês consultado)
+        verify(faturamentoMensalRepository, times(1)).findByPeriodoBetween(anyString(), anyString());
+        verifyNoInteractions(agendamentoRepository);
     }
 
     @Test
-    @DisplayName("Deve retornar zero quando não houver agendamentos no mês")
-    void deveRetornarZeroQuandoNaoHouverAgendamentos() {
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
+    @DisplayName("Deve consultar os períodos de 11 meses atrás até o mês atual")
+    void deveConsultarPeriodoDosUltimos12Meses() {
+        YearMonth mesAtual = YearMonth.now();
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
                 .thenReturn(Collections.emptyList());
 
-        List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
+        dashboardService.getFaturamentoUltimos12Meses();
 
-        assertNotNull(resultado);
-        assertEquals(12, resultado.size());
-        assertTrue(resultado.stream().allMatch(valor -> valor == 0.0));
+        verify(faturamentoMensalRepository).findByPeriodoBetween(
+                mesAtual.minusMonths(11).toString(),
+                mesAtual.toString()
+        );
     }
 
     @Test
-    @DisplayName("Deve tratar agendamentos com orçamento null")
-    void deveTratarAgendamentosComOrcamentoNull() {
-        Agendamento agendamentoSemOrcamento = new Agendamento();
-        agendamentoSemOrcamento.setId(1L);
-        agendamentoSemOrcamento.setStatus(StatusAgendamento.CONCLUIDO);
-        agendamentoSemOrcamento.setOrcamento(null);
-
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(List.of(agendamentoSemOrcamento))
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
+    @DisplayName("Deve retornar zero quando não houver agendamentos no mês")
+    void deveRetornarZeroQuandoNaoHouverAgendamentos() {
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
                 .thenReturn(Collections.emptyList());
 
         List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
 
         assertNotNull(resultado);
-        assertEquals(0.0, resultado.get(0)); // Primeira posição (primeiro mês consultado)
+        assertEquals(12, resultado.size());
+        assertTrue(resultado.stream().allMatch(valor -> valor == 0.0));
     }
 
     @Test
-    @DisplayName("Deve tratar agendamentos com valor null no orçamento")
-    void deveTratarAgendamentosComValorNullNoOrcamento() {
-        Orcamento orcamentoSemValor = new Orcamento("ORC456", "João Silva", "joao@email.com",
-                "Tatuagem", 10.0, "Preto", "Braço", null);
-        orcamentoSemValor.setValor(null); // Garante que o valor seja null
-
-        Agendamento agendamentoComOrcamentoSemValor = new Agendamento();
-        agendamentoComOrcamentoSemValor.setId(1L);
-        agendamentoComOrcamentoSemValor.setStatus(StatusAgendamento.CONCLUIDO);
-        agendamentoComOrcamentoSemValor.setUsuario(usuario);
-        agendamentoComOrcamentoSemValor.setOrcamento(orcamentoSemValor);
-
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(List.of(agendamentoComOrcamentoSemValor))
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList());
+    @DisplayName("Deve tratar valor null no consolidado mensal")
+    void deveTratarValorNullNoConsolidadoMensal() {
+        YearMonth primeiroMes = YearMonth.now().minusMonths(11);
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
+                .thenReturn(List.of(faturamentoDoMes(primeiroMes, null)));
 
         List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
+
         assertNotNull(resultado);
         assertEquals(0.0, resultado.get(0)); // Primeira posição (primeiro mês consultado)
     }
 
     @Test
-    @DisplayName("Deve somar múltiplos agendamentos do mesmo mês")
-    void deveSomarMultiplosAgendamentosDoMesmoMes() {
-        List<Agendamento> agendamentos = List.of(
-                criarAgendamento(1L, StatusAgendamento.CONCLUIDO, 1000.0),
-                criarAgendamento(2L, StatusAgendamento.CONCLUIDO, 1500.0),
-                criarAgendamento(3L, StatusAgendamento.CONCLUIDO, 2000.0)
-        );
-
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(agendamentos)
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList());
+    @DisplayName("Deve preencher com zero os meses sem faturamento entre meses com faturamento")
+    void devePreencherComZeroMesesSemFaturamento() {
+        YearMonth primeiroMes = YearMonth.now().minusMonths(11);
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
+                .thenReturn(List.of(
+                        faturamentoDoMes(primeiroMes, 4500.0),
+                        faturamentoDoMes(primeiroMes.plusMonths(5), 300.0)
+                ));
 
         List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
 
         assertNotNull(resultado);
         assertEquals(4500.0, resultado.get(0)); // Primeira posição (primeiro mês consultado)
+        assertEquals(0.0, resultado.get(1));
+        assertEquals(300.0, resultado.get(5));
+        assertEquals(0.0, resultado.get(11));
     }
 
     @Test
-    @DisplayName("Deve reverter a ordem dos meses para cronológico")
-    void deveReverterOrdemDosMesesParaCronologico() {
-        when(agendamentoRepository.findByDataHoraBetween(any(), any()))
-                .thenReturn(criarAgendamentosParaMes(LocalDate.now().atTime(23, 59, 59), 100.0))
-                .thenReturn(criarAgendamentosParaMes(LocalDate.now().atTime(23, 59, 59), 200.0))
-                .thenReturn(criarAgendamentosParaMes(LocalDate.now().atTime(23, 59, 59), 300.0))
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList())
-                .thenReturn(Collections.emptyList());
+    @DisplayName("Deve manter a ordem cronológica independente da ordem retornada pelo consolidado")
+    void deveManterOrdemCronologica() {
+        YearMonth mesAtual = YearMonth.now();
+        when(faturamentoMensalRepository.findByPeriodoBetween(anyString(), anyString()))
+                .thenReturn(List.of(
+                        faturamentoDoMes(mesAtual, 300.0),
+                        faturamentoDoMes(mesAtual.minusMonths(11), 100.0),
+                        faturamentoDoMes(mesAtual.minusMonths(6), 200.0)
+                ));
 
         List<Double> resultado = dashboardService.getFaturamentoUltimos12Meses();
 
         assertNotNull(resultado);
         assertEquals(12, resultado.size());
+        assertEquals(100.0, resultado.get(0));
+        assertEquals(200.0, resultado.get(5));
+        assertEquals(300.0, resultado.get(11));
     }
 
 
     @Test
     @DisplayName("Deve retornar próximo agendamento pendente")
     void deveRetornarProximoAgendamentoPendente() {
-        Agendamento proximoAgendamento = criarAgendamento(1L, StatusAgendamento.CONFIRMADO, 1000.0);
-        proximoAgendamento.setDataHora(LocalDateTime.now().plusDays(1));
+        AgendamentoResumoOutput proximoAgendamento = criarAgendamentoComData(1L, LocalDateTime.now().plusDays(1));
 
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.of(proximoAgendamento));
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(5L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
 
         assertNotNull(resultado);
         assertNotNull(resultado.proximoAgendamento());
-        assertEquals(1L, resultado.proximoAgendamento().getId());
-        assertEquals(StatusAgendamento.CONFIRMADO, resultado.proximoAgendamento().getStatus());
+        assertEquals(1L, resultado.proximoAgendamento().id());
+        assertEquals(StatusAgendamento.CONFIRMADO, resultado.proximoAgendamento().status());
     }
 
     @Test
     @DisplayName("Deve retornar null quando não houver próximo agendamento")
     void deveRetornarNullQuandoNaoHouverProximoAgendamento() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -290,12 +236,12 @@ class DashboardServiceTest {
     @Test
     @DisplayName("Deve contar orçamentos pendentes corretamente")
     void deveContarOrcamentosPendentesCorretamente() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(15L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -308,12 +254,12 @@ class DashboardServiceTest {
     @Test
     @DisplayName("Deve retornar zero quando não houver orçamentos pendentes")
     void deveRetornarZeroQuandoNaoHouverOrcamentosPendentes() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -326,36 +272,36 @@ class DashboardServiceTest {
     @DisplayName("Deve retornar agendamentos do dia atual")
     void deveRetornarAgendamentosDoDiaAtual() {
         LocalDateTime agora = LocalDateTime.now();
-        List<Agendamento> agendamentosDoDia = List.of(
+        List<AgendamentoResumoOutput> agendamentosDoDia = List.of(
                 criarAgendamentoComData(1L, agora.withHour(10).withMinute(0)),
                 criarAgendamentoComData(2L, agora.withHour(14).withMinute(0)),
                 criarAgendamentoComData(3L, agora.withHour(16).withMinute(30))
         );
 
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(agendamentosDoDia);
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
 
         assertNotNull(resultado);
         assertEquals(3, resultado.agendamentosDoDia().size());
-        verify(agendamentoRepository, times(1)).findAllByDataHoraBetween(any(), any());
+        verify(agendamentoRepository, times(1)).findResumoByDataHoraBetween(any(), any());
     }
 
     @Test
     @DisplayName("Deve retornar lista vazia quando não houver agendamentos do dia")
     void deveRetornarListaVaziaQuandoNaoHouverAgendamentosDoDia() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -367,52 +313,52 @@ class DashboardServiceTest {
     @Test
     @DisplayName("Deve buscar agendamentos do dia entre início e fim do dia")
     void deveBuscarAgendamentosEntrInicioEFimDoDia() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         dashboardService.getDashboardKPIs();
 
-        verify(agendamentoRepository, times(1)).findAllByDataHoraBetween(any(), any());
+        verify(agendamentoRepository, times(1)).findResumoByDataHoraBetween(any(), any());
     }
 
     @Test
     @DisplayName("Deve retornar alertas de estoque abaixo do mínimo")
     void deveRetornarAlertasDeEstoqueAbaixoDoMinimo() {
-        List<Estoque> alertas = List.of(
+        List<DetalhesMaterialOutput> alertas = List.of(
                 criarEstoque(1L, "Tinta Preta", 5.0, 10.0),
                 criarEstoque(2L, "Tinta Vermelha", 3.0, 15.0),
                 criarEstoque(3L, "Agulhas", 8.0, 20.0)
         );
 
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(alertas);
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
 
         assertNotNull(resultado);
         assertEquals(3, resultado.alertasEstoque().size());
-        verify(estoqueRepository, times(1)).findAllByQuantidadeLessThanMinAviso();
+        verify(estoqueRepository, times(1)).findAlertasEstoque();
     }
 
     @Test
     @DisplayName("Deve retornar lista vazia quando não houver alertas de estoque")
     void deveRetornarListaVaziaQuandoNaoHouverAlertasDeEstoque() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(Collections.emptyList());
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(Collections.emptyList());
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -424,20 +370,20 @@ class DashboardServiceTest {
     @Test
     @DisplayName("Deve retornar KPIs completos com todos os dados")
     void deveRetornarKPIsCompletosComTodosDados() {
-        Agendamento proximoAgendamento = criarAgendamento(1L, StatusAgendamento.CONFIRMADO, 1000.0);
-        List<Agendamento> agendamentosDoDia = List.of(
-                criarAgendamento(2L, StatusAgendamento.CONFIRMADO, 1500.0)
+        AgendamentoResumoOutput proximoAgendamento = criarAgendamento(1L, StatusAgendamento.CONFIRMADO);
+        List<AgendamentoResumoOutput> agendamentosDoDia = List.of(
+                criarAgendamento(2L, StatusAgendamento.CONFIRMADO)
         );
-        List<Estoque> alertas = List.of(
+        List<DetalhesMaterialOutput> alertas = List.of(
                 criarEstoque(1L, "Tinta Preta", 5.0, 10.0)
         );
 
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.of(proximoAgendamento));
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(10L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(agendamentosDoDia);
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(alertas);
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -452,12 +398,12 @@ class DashboardServiceTest {
     @Test
     @DisplayName("Deve garantir que listas não sejam null no DashboardOutput")
     void deveGarantirQueListasNaoSejamNull() {
-        when(agendamentoRepository.findProximoAgendamentoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
                 .thenReturn(Optional.empty());
         when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
-        when(agendamentoRepository.findAllByDataHoraBetween(any(), any()))
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
                 .thenReturn(null); 
-        when(estoqueRepository.findAllByQuantidadeLessThanMinAviso())
+        when(estoqueRepository.findAlertasEstoque())
                 .thenReturn(null); 
 
         DashboardOutput resultado = dashboardService.getDashboardKPIs();
@@ -468,44 +414,101 @@ class DashboardServiceTest {
     }
 
 
-    private Agendamento criarAgendamento(Long id, StatusAgendamento status, Double valorOrcamento) {
-        Agendamento agendamento = new Agendamento();
-        agendamento.setId(id);
-        agendamento.setStatus(status);
-        agendamento.setUsuario(usuario);
+    @Test
+    @DisplayName("Deve executar cada consulta do dashboard em transação somente leitura própria")
+    void deveExecutarCadaConsultaEmTransacaoPropria() {
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(0L);
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
+                .thenReturn(Collections.emptyList());
+        when(estoqueRepository.findAlertasEstoque())
+                .thenReturn(Collections.emptyList());
+
+        DashboardOutput resultado = dashboardService.getDashboardKPIs();
+
+        assertFalse(resultado.dadosParciais());
+        verify(transactionManager, times(4)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    @DisplayName("Deve retornar dados parciais quando uma consulta falhar")
+    void deveRetornarDadosParciaisQuandoConsultaFalhar() {
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE))
+                .thenThrow(new RuntimeException("Falha de conexão"));
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
+                .thenReturn(List.of(criarAgendamento(1L, StatusAgendamento.CONFIRMADO)));
+        when(estoqueRepository.findAlertasEstoque())
+                .thenReturn(Collections.emptyList());
+
+        DashboardOutput resultado = dashboardService.getDashboardKPIs();
+
+        assertTrue(resultado.dadosParciais());
+        assertEquals(0L, resultado.orcamentosPendentes());
+        assertEquals(1, resultado.agendamentosDoDia().size());
+    }
+
+    @Test
+    @DisplayName("Deve retornar dados parciais quando uma consulta exceder o tempo limite")
+    void deveRetornarDadosParciaisQuandoConsultaExcederTempoLimite() {
+        ReflectionTestUtils.setField(dashboardService, "timeoutConsultaMs", 200L);
+
+        when(agendamentoRepository.findProximoResumoPorStatus(eq(StatusAgendamento.CONFIRMADO), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(orcamentoRepository.countByStatus(StatusOrcamento.PENDENTE)).thenReturn(7L);
+        when(agendamentoRepository.findResumoByDataHoraBetween(any(), any()))
+                .thenReturn(Collections.emptyList());
+        when(estoqueRepository.findAlertasEstoque()).thenAnswer(inv -> {
+            Thread.sleep(5000);
+            return List.of(criarEstoque(1L, "Tinta Preta", 5.0, 10.0));
+        });
+
+        long inicio = System.nanoTime();
+        DashboardOutput resultado = dashboardService.getDashboardKPIs();
+        long decorridoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        assertTrue(resultado.dadosParciais());
+        assertEquals(7L, resultado.orcamentosPendentes());
+        assertTrue(resultado.alertasEstoque().isEmpty());
+        assertTrue(decorridoMs < 2000, "Não deve aguardar a consulta lenta até o fim");
+    }
+
+    @Test
+    @DisplayName("Deve calcular estatísticas com consultas agregadas sem carregar entidades")
+    void deveCalcularEstatisticasComConsultasAgregadas() {
+        when(agendamentoRepository.count()).thenReturn(20L);
+        when(faturamentoMensalRepository.sumAgendamentosConcluidos()).thenReturn(8L);
+        when(faturamentoMensalRepository.sumValor()).thenReturn(12500.0);
+        when(estoqueRepository.sumQuantidade()).thenReturn(35.0);
+
+        DashboardKPIsOutput resultado = dashboardService.getEstatisticas();
+
+        assertEquals(20L, resultado.totalAgendamentos());
+        assertEquals(8L, resultado.agendamentosConcluidos());
+        assertEquals(12500.0, resultado.faturamentoTotal());
+        assertEquals(35, resultado.totalProdutos());
+        verify(agendamentoRepository, never()).findByStatus(any());
+        verify(estoqueRepository, never()).findAll();
+    }
 
-        if (valorOrcamento != null) {
-            Orcamento orc = new Orcamento("ORC" + id, "João Silva", "joao@email.com",
-                    "Tatuagem", valorOrcamento, "Preto", "Braço", 2.0,
-                    Time.valueOf(LocalTime.of(2, 0, 0)), null, StatusOrcamento.APROVADO, usuario);
-            agendamento.setOrcamento(orc);
-        }
 
-        return agendamento;
+    private AgendamentoResumoOutput criarAgendamento(Long id, StatusAgendamento status) {
+        return new AgendamentoResumoOutput(id, LocalDateTime.now(), status,
+                usuario.getNome(), "ORC" + id, "Braço", 120);
     }
 
-    private Agendamento criarAgendamentoComData(Long id, LocalDateTime dataHora) {
-        Agendamento agendamento = criarAgendamento(id, StatusAgendamento.CONFIRMADO, 1000.0);
-        agendamento.setDataHora(dataHora);
-        return agendamento;
+    private FaturamentoMensal faturamentoDoMes(YearMonth mesAno, Double valor) {
+        return new FaturamentoMensal(mesAno.toString(), valor, 1L);
     }
 
-    private List<Agendamento> criarAgendamentosParaMes(LocalDateTime data, Double... valores) {
-        return Stream.of(valores)
-                .map(valor -> {
-                    Agendamento ag = criarAgendamento(1L, StatusAgendamento.CONCLUIDO, valor);
-                    ag.setDataHora(data);
-                    return ag;
-                })
-                .toList();
+    private AgendamentoResumoOutput criarAgendamentoComData(Long id, LocalDateTime dataHora) {
+        return new AgendamentoResumoOutput(id, dataHora, StatusAgendamento.CONFIRMADO,
+                usuario.getNome(), "ORC" + id, "Braço", 120);
     }
 
-    private Estoque criarEstoque(Long id, String nome, Double quantidade, Double minAviso) {
-        Estoque estoque = new Estoque();
-        estoque.setId(id);
-        estoque.setNome(nome);
-        estoque.setQuantidade(quantidade);
-        estoque.setMinAviso(minAviso);
-        return estoque;
+    private DetalhesMaterialOutput criarEstoque(Long id, String nome, Double quantidade, Double minAviso) {
+        return new DetalhesMaterialOutput(id, nome, quantidade, "ml", minAviso);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package hub.orcana.service;
+
+import hub.orcana.event.EstoqueLimiteCruzadoEvent;
+import hub.orcana.event.OrcamentoCriadoEvent;
+import hub.orcana.tables.StatusOrcamento;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashboardStreamServiceTest {
+
+    private ExecutorService executor;
+    private DashboardStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        streamService = new DashboardStreamService(executor, 60_000L, 4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.encerrarConexoes();
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Deve enviar delta de novo orçamento aos clientes conectados")
+    void deveEnviarDeltaDeNovoOrcamento() throws Exception {
+        EmitterCapturado emitter = new EmitterCapturado(1);
+        streamService.registrar(() -> emitter);
+
+        streamService.onOrcamentoCriado(new OrcamentoCriadoEvent("ORC-ABC", "Maria", "Braço", StatusOrcamento.PENDENTE));
+
+        assertTrue(emitter.aguardar());
+        String enviado = emitter.enviados.getFirst();
+        assertTrue(enviado.contains("event:" + DashboardStreamService.EVENTO_ORCAMENTO_CRIADO));
+        assertTrue(enviado.contains("ORC-ABC"));
+    }
+
+    @Test
+    @DisplayName("Deve enviar heartbeat como comentário SSE")
+    void deveEnviarHeartbeat() throws Exception {
+        EmitterCapturado emitter = new EmitterCapturado(1);
+        streamService.registrar(() -> emitter);
+
+        streamService.enviarHeartbeat();
+
+        assertTrue(emitter.aguardar());
+        assertTrue(emitter.enviados.getFirst().startsWith(":heartbeat"));
+    }
+
+    @Test
+    @DisplayName("Deve pedir resincronização quando a fila do cliente estoura")
+    void devePedirResincronizacaoQuandoFilaEstoura() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        EmitterCapturado lento = new EmitterCapturado(2) {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    liberar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(builder);
+            }
+        };
+        streamService.registrar(() -> lento);
+
+        // o primeiro evento fica preso no envio, os demais enchem a fila de 4 posições
+        for (int i = 0; i < 10; i++) {
+            streamService.onEstoqueLimiteCruzado(new EstoqueLimiteCruzadoEvent((long) i, "Tinta", 1.0, 5.0, true));
+            Thread.sleep(10);
+        }
+        liberar.countDown();
+
+        assertTrue(lento.aguardar());
+        Thread.sleep(100);
+        assertTrue(lento.enviados.stream()
+                .anyMatch(e -> e.contains("event:" + DashboardStreamService.EVENTO_RESINCRONIZAR)));
+        assertTrue(lento.enviados.size() <= 5);
+    }
+
+    @Test
+    @DisplayName("Deve remover conexão quando o cliente desconecta")
+    void deveRemoverConexaoQuandoClienteDesconecta() throws Exception {
+        SseEmitter desconectado = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        streamService.registrar(() -> desconectado);
+        assertEquals(1, streamService.getConexoesAtivas());
+
+        streamService.enviarHeartbeat();
+
+        long limite = System.currentTimeMillis() + 2000;
+        while (streamService.getConexoesAtivas() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, streamService.getConexoesAtivas());
+    }
+
+    @Test
+    @DisplayName("Deve recusar conexões acima do limite")
+    void deveRecusarConexoesAcimaDoLimite() {
+        streamService.registrar(() -> new EmitterCapturado(0));
+        streamService.registrar(() -> new EmitterCapturado(0));
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> streamService.registrar(() -> new EmitterCapturado(0)));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, erro.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Não deve passar do limite com conexões simultâneas")
+    void deveReservarVagasAtomicamente() throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<SseEmitter> aceitos = new CopyOnWriteArrayList<>();
+        List<Future<?>> tentativas = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tentativas.add(executor.submit(() -> {
+                largada.await();
+                try {
+                    aceitos.add(streamService.registrar(() -> new EmitterCapturado(0)));
+                } catch (ResponseStatusException e) {
+                    // acima do limite
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tentativa : tentativas) {
+            tentativa.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2, aceitos.size());
+        assertEquals(2, streamService.getConexoesAtivas());
+
+    }
+
+    @Test
+    @DisplayName("Deve devolver a vaga quando o cliente desconecta")
+    void deveDevolverVagaQuandoClienteDesconecta() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            streamService.registrar(() -> new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) throws IOException {
+                    throw new IOException("Broken pipe");
+                }
+            });
+        }
+        assertThrows(ResponseStatusException.class, () -> streamService.registrar(() -> new EmitterCapturado(0)));
+
+        streamService.enviarHeartbeat();
+        long limite = System.currentTimeMillis() + 2000;
+        while (streamService.getConexoesAtivas() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+
+        streamService.registrar(() -> new EmitterCapturado(0));
+        streamService.registrar(() -> new EmitterCapturado(0));
+        assertEquals(2, streamService.getConexoesAtivas());
+    }
+
+    private static class EmitterCapturado extends SseEmitter {
+
+        private final List<String> enviados = new CopyOnWriteArrayList<>();
+        private final CountDownLatch esperados;
+
+        private EmitterCapturado(int quantidadeEsperada) {
+            this.esperados = new CountDownLatch(quantidadeEsperada);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            enviados.add(builder.build().stream()
+                    .map(parte -> String.valueOf(parte.getData()))
+                    .collect(Collectors.joining()));
+            esperados.countDown();
+        }
+
+        private boolean aguardar() throws InterruptedException {
+            return esperados.await(2, TimeUnit.SECONDS);
+        }
+    }
+}
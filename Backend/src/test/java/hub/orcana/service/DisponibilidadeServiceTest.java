@@ -0,0 +1,184 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.agendamento.HorarioAgendadoOutput;
+import hub.orcana.dto.agendamento.HorarioLivreOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.DominioAlteradoEvent.Operacao;
+import hub.orcana.exception.HorarioIndisponivelException;
+import hub.orcana.tables.Agendamento;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DisponibilidadeServiceTest {
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    private DisponibilidadeService service;
+    private LocalDate amanha;
+
+    @BeforeEach
+    void setUp() {
+        service = new DisponibilidadeService(agendamentoRepository, 120, "10:00", "20:00", 30);
+        amanha = LocalDate.now().plusDays(1);
+        when(agendamentoRepository.findHorariosAPartirDe(any())).thenReturn(List.of(
+                horario(1L, amanha.atTime(10, 0), 120, StatusAgendamento.CONFIRMADO),
+                horario(2L, amanha.atTime(13, 0), null, StatusAgendamento.PENDENTE),
+                horario(3L, amanha.atTime(16, 0), 60, StatusAgendamento.CANCELADO)
+        ));
+        service.recarregar();
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar agendamento que sobrepõe outro usando a duração")
+    void deveRejeitarSobreposicao() {
+        HorarioIndisponivelException erro = assertThrows(HorarioIndisponivelException.class,
+                () -> service.reservar(null, amanha.atTime(11, 30), 60, StatusAgendamento.PENDENTE, this::naoDeveGravar));
+
+        assertTrue(erro.getMessage().startsWith("Horário indisponível"));
+    }
+
+    @Test
+    @DisplayName("Deve aceitar agendamento encostado no fim do anterior")
+    void deveAceitarAgendamentoEncostado() {
+        Agendamento salvo = service.reservar(null, amanha.atTime(12, 0), 60, StatusAgendamento.PENDENTE,
+                () -> agendamento(10L, amanha.atTime(12, 0), 60));
+
+        assertEquals(10L, salvo.getId());
+        // o horário gravado passa a bloquear os próximos
+        assertThrows(HorarioIndisponivelException.class,
+                () -> service.reservar(null, amanha.atTime(12, 30), 30, StatusAgendamento.PENDENTE, this::naoDeveGravar));
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o próprio agendamento e os cancelados ao checar conflito")
+    void deveIgnorarProprioAgendamentoECancelados() {
+        assertDoesNotThrow(() -> service.reservar(1L, amanha.atTime(10, 30), 120, StatusAgendamento.CONFIRMADO,
+                () -> agendamento(1L, amanha.atTime(10, 30), 120)));
+        assertDoesNotThrow(() -> service.reservar(null, amanha.atTime(16, 30), 60, StatusAgendamento.PENDENTE,
+                () -> agendamento(11L, amanha.atTime(16, 30), 60)));
+    }
+
+    @Test
+    @DisplayName("Deve listar os próximos horários livres pulando os ocupados")
+    void deveListarHorariosLivres() {
+        List<HorarioLivreOutput> livres = service.buscarHorariosLivres(amanha, amanha, 60, 4);
+
+        // ocupado 10:00-12:00 e 13:00-15:00 (duração padrão)
+        assertEquals(List.of(
+                amanha.atTime(12, 0),
+                amanha.atTime(15, 0),
+                amanha.atTime(15, 30),
+                amanha.atTime(16, 0)), livres.stream().map(HorarioLivreOutput::inicio).toList());
+        assertEquals(amanha.atTime(13, 0), livres.getFirst().fim());
+    }
+
+    @Test
+    @DisplayName("Deve continuar a busca nos dias seguintes até o limite")
+    void deveContinuarBuscaNosDiasSeguintes() {
+        List<HorarioLivreOutput> livres = service.buscarHorariosLivres(amanha, amanha.plusDays(1), 240, 3);
+
+        assertEquals(List.of(
+                amanha.atTime(15, 0),
+                amanha.atTime(15, 30),
+                amanha.atTime(16, 0)), livres.stream().map(HorarioLivreOutput::inicio).toList());
+
+        List<HorarioLivreOutput> proximoDia = service.buscarHorariosLivres(amanha, amanha.plusDays(1), 480, 1);
+        assertEquals(amanha.plusDays(1).atTime(10, 0), proximoDia.getFirst().inicio());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar parâmetros de busca inválidos")
+    void deveRejeitarParametrosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> service.buscarHorariosLivres(amanha, amanha.minusDays(1), 60, 10));
+        assertThrows(IllegalArgumentException.class, () -> service.buscarHorariosLivres(amanha, amanha.plusYears(2), 60, 10));
+        assertThrows(IllegalArgumentException.class, () -> service.buscarHorariosLivres(amanha, amanha, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> service.buscarHorariosLivres(amanha, amanha, 60, 1000));
+    }
+
+    @Test
+    @DisplayName("Deve liberar e mover horários a partir dos eventos")
+    void deveSincronizarComEventos() {
+        when(agendamentoRepository.findHorarioById(2L)).thenReturn(Optional.of(
+                horario(2L, amanha.atTime(18, 0), 120, StatusAgendamento.PENDENTE)));
+
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.REMOVIDO, 1L));
+        service.onDominioAlterado(DominioAlteradoEvent.agendamento(Operacao.ATUALIZADO, 2L));
+
+        assertDoesNotThrow(() -> service.reservar(null, amanha.atTime(10, 0), 180, StatusAgendamento.PENDENTE,
+                () -> agendamento(12L, amanha.atTime(10, 0), 180)));
+        assertThrows(HorarioIndisponivelException.class,
+                () -> service.reservar(null, amanha.atTime(19, 0), 60, StatusAgendamento.PENDENTE, this::naoDeveGravar));
+    }
+
+    @Test
+    @DisplayName("Só uma entre reservas concorrentes do mesmo horário deve ser gravada")
+    void deveGravarApenasUmaReservaConcorrente() throws Exception {
+        AtomicLong ids = new AtomicLong(100);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                resultados.add(executor.submit(() -> {
+                    largada.await();
+                    try {
+                        service.reservar(null, amanha.plusDays(2).atTime(14, 0), 60, StatusAgendamento.PENDENTE,
+                                () -> agendamento(ids.incrementAndGet(), amanha.plusDays(2).atTime(14, 0), 60));
+                        return true;
+                    } catch (HorarioIndisponivelException e) {
+                        return false;
+                    }
+                }));
+            }
+            largada.countDown();
+        }
+
+        long gravadas = 0;
+        for (Future<Boolean> resultado : resultados) {
+            if (resultado.get()) {
+                gravadas++;
+            }
+        }
+        assertEquals(1, gravadas);
+    }
+
+    private Agendamento naoDeveGravar() {
+        fail("Não deveria gravar um agendamento em conflito");
+        return null;
+    }
+
+    private Agendamento agendamento(Long id, LocalDateTime dataHora, Integer duracao) {
+        Agendamento agendamento = new Agendamento();
+        agendamento.setId(id);
+        agendamento.setDataHora(dataHora);
+        agendamento.setTempoDuracao(duracao);
+        agendamento.setStatus(StatusAgendamento.PENDENTE);
+        return agendamento;
+    }
+
+    private HorarioAgendadoOutput horario(Long id, LocalDateTime dataHora, Integer duracao, StatusAgendamento status) {
+        return new HorarioAgendadoOutput(id, dataHora, duracao, status);
+    }
+}
@@ -0,0 +1,125 @@
+package hub.orcana.service;
+
+import hub.orcana.service.EntregaDeArquivosService.ArquivoParaEntrega;
+import hub.orcana.service.EntregaDeArquivosService.Validade;
+import hub.orcana.service.VariantesImagemService.TamanhoVariante;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EntregaDeArquivosServiceTest {
+
+    private static final String HASH = "0f".repeat(32);
+
+    @Mock
+    private GerenciadorDeArquivosService gerenciadorService;
+
+    @Mock
+    private VariantesImagemService variantesService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path raiz;
+    private EntregaDeArquivosService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        raiz = Files.createDirectories(tempDir.resolve("uploads"));
+        lenient().when(gerenciadorService.getPastaRaiz()).thenReturn(raiz);
+        service = new EntregaDeArquivosService(gerenciadorService, variantesService);
+        Files.createDirectories(raiz.resolve("0f/0f"));
+        Files.write(raiz.resolve("0f/0f/" + HASH + ".png"), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    @DisplayName("Imagem gravada pelo hash deve ter ETag do conteúdo e ser imutável")
+    void deveLocalizarArquivoPorConteudo() {
+        ArquivoParaEntrega arquivo = service.localizar("/0f/0f/" + HASH + ".png", null, null).orElseThrow();
+
+        assertEquals("\"" + HASH + "\"", arquivo.etag());
+        assertEquals(Validade.IMUTAVEL, arquivo.validade());
+        assertEquals("image/png", arquivo.contentType());
+        assertEquals(3, arquivo.tamanho());
+        assertNull(arquivo.contentEncoding());
+    }
+
+    @Test
+    @DisplayName("Arquivo com nome antigo deve ter ETag de data e tamanho e não ser imutável")
+    void deveLocalizarArquivoLegado() throws Exception {
+        Files.write(raiz.resolve("1b2c_foto.JPG"), new byte[]{9});
+
+        ArquivoParaEntrega arquivo = service.localizar("/1b2c_foto.JPG", null, null).orElseThrow();
+
+        assertEquals(Validade.CURTA, arquivo.validade());
+        assertTrue(arquivo.etag().endsWith("-1\""));
+        assertEquals("image/jpeg", arquivo.contentType());
+    }
+
+    @Test
+    @DisplayName("Deve preferir a variante brotli quando o cliente aceita")
+    void devePreferirVarianteComprimida() throws Exception {
+        Files.write(raiz.resolve("0f/0f/" + HASH + ".png.br"), new byte[]{7});
+        Files.write(raiz.resolve("0f/0f/" + HASH + ".png.gz"), new byte[]{7, 7});
+
+        ArquivoParaEntrega br = service.localizar("/0f/0f/" + HASH + ".png", null, "gzip, br").orElseThrow();
+        ArquivoParaEntrega gzip = service.localizar("/0f/0f/" + HASH + ".png", null, "gzip, br;q=0").orElseThrow();
+
+        assertEquals("br", br.contentEncoding());
+        assertEquals(1, br.tamanho());
+        assertEquals("\"" + HASH + "-br\"", br.etag());
+        assertEquals("image/png", br.contentType());
+        assertEquals("gzip", gzip.contentEncoding());
+    }
+
+    @Test
+    @DisplayName("Não deve entregar nada fora da pasta de uploads, oculto ou pasta")
+    void naoDeveSairDaPastaDeUploads() throws Exception {
+        Files.write(tempDir.resolve("segredo.txt"), new byte[]{1});
+        Files.write(raiz.resolve("0f/0f/.gravando.parcial"), new byte[]{1});
+
+        assertTrue(service.localizar("/../segredo.txt", null, null).isEmpty());
+        assertTrue(service.localizar("/0f/../../segredo.txt", null, null).isEmpty());
+        assertTrue(service.localizar("/0f/0f/.gravando.parcial", null, null).isEmpty());
+        assertTrue(service.localizar("/0f/0f", null, null).isEmpty());
+        assertTrue(service.localizar("/0f\\0f", null, null).isEmpty());
+        assertTrue(service.localizar("/nao-existe.png", null, null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve entregar a variante reduzida quando ela já existe")
+    void deveEntregarVariante() throws Exception {
+        Files.write(raiz.resolve("0f/0f/" + HASH + ".png.thumb.jpg"), new byte[]{1, 2});
+
+        ArquivoParaEntrega arquivo = service.localizar("/0f/0f/" + HASH + ".png", TamanhoVariante.THUMB, "br")
+                .orElseThrow();
+
+        assertEquals("\"" + HASH + "-thumb\"", arquivo.etag());
+        assertEquals("image/jpeg", arquivo.contentType());
+        assertEquals(2, arquivo.tamanho());
+        assertEquals(Validade.IMUTAVEL, arquivo.validade());
+        verify(variantesService, never()).agendar(any(Path.class));
+    }
+
+    @Test
+    @DisplayName("Sem a variante, deve pedir a geração e entregar o original para revalidar")
+    void devePedirVarianteQueFalta() {
+        ArquivoParaEntrega arquivo = service.localizar("/0f/0f/" + HASH + ".png", TamanhoVariante.MEDIUM, null)
+                .orElseThrow();
+
+        assertEquals("\"" + HASH + "\"", arquivo.etag());
+        assertEquals(Validade.REVALIDAR, arquivo.validade());
+        verify(variantesService).agendar(raiz.toAbsolutePath().resolve("0f/0f/" + HASH + ".png"));
+    }
+}
@@ -2,7 +2,10 @@ package hub.orcana.service;
 
 import hub.orcana.dto.estoque.CadastroMaterialInput;
 import hub.orcana.dto.estoque.DetalhesMaterialOutput;
+import hub.orcana.event.DominioAlteradoEvent;
+import hub.orcana.event.EstoqueLimiteCruzadoEvent;
 import hub.orcana.exception.DependenciaNaoEncontradaException;
+import hub.orcana.exception.VersaoDesatualizadaException;
 import hub.orcana.observer.EstoqueObserver;
 import hub.orcana.tables.Estoque;
 import hub.orcana.tables.repository.EstoqueRepository;
@@ -13,7 +16,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
@@ -32,13 +37,16 @@ class EstoqueServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private EstoqueService estoqueService;
 
     private List<Estoque> materiaisEsperados;
 
     @BeforeEach
     void setUp() {
-        estoqueService = new EstoqueService(repository, emailService);
+        estoqueService = new EstoqueService(repository, emailService, eventPublisher);
 
         Estoque material1 = new Estoque("Tinta Preta", 10.0, "ml", 5.0);
         material1.setId(1L);
@@ -171,10 +179,10 @@ class EstoqueServiceTest {
                 7.0
         );
 
-        when(repository.existsById(idExistente)).thenReturn(true);
+        when(repository.save(any(Estoque.class))).thenAnswer(inv -> inv.getArgument(0));
         when(repository.findById(idExistente)).thenReturn(Optional.of(materiaisEsperados.getFirst()));
 
-        DetalhesMaterialOutput resultado = estoqueService.putEstoqueById(idExistente, cadastroInput);
+        DetalhesMaterialOutput resultado = estoqueService.putEstoqueById(idExistente, cadastroInput, null);
         assertNotNull(resultado);
         assertEquals("Tinta Preta Atualizada", resultado.nome());
     }
@@ -190,9 +198,9 @@ class EstoqueServiceTest {
                 0.0
         );
 
-        when(repository.existsById(idInexistente)).thenReturn(false);
+        when(repository.findById(idInexistente)).thenReturn(Optional.empty());
         assertThrows(DependenciaNaoEncontradaException.class, () -> {
-            estoqueService.putEstoqueById(idInexistente, cadastroInput);
+            estoqueService.putEstoqueById(idInexistente, cadastroInput, null);
         });
     }
 
@@ -202,12 +210,39 @@ class EstoqueServiceTest {
         Long idExistente = 1L;
         double novaQuantidade = 20.0;
 
-        when(repository.existsById(idExistente)).thenReturn(true);
+        when(repository.save(any(Estoque.class))).thenAnswer(inv -> inv.getArgument(0));
         when(repository.findById(idExistente)).thenReturn(Optional.of(materiaisEsperados.getFirst()));
 
-        estoqueService.atualizarQuantidadeById(idExistente, novaQuantidade);
+        estoqueService.atualizarQuantidadeById(idExistente, novaQuantidade, null);
 
         verify(repository, times(1)).save(any(Estoque.class));
+        verify(eventPublisher, times(1)).publishEvent(
+                DominioAlteradoEvent.estoque(DominioAlteradoEvent.Operacao.ATUALIZADO, idExistente));
+    }
+
+    @Test
+    @DisplayName("Deve publicar delta quando a quantidade cruza o mínimo de aviso")
+    void atualizarQuantidadeById_devePublicarDeltaQuandoCruzaMinimo() {
+        Estoque material = materiaisEsperados.getFirst(); // quantidade 10, mínimo 5
+
+        when(repository.save(any(Estoque.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(repository.findById(1L)).thenReturn(Optional.of(material));
+
+        estoqueService.atualizarQuantidadeById(1L, 3.0, null);
+
+        verify(eventPublisher, times(1)).publishEvent(
+                new EstoqueLimiteCruzadoEvent(1L, "Tinta Preta", 3.0, 5.0, true));
+    }
+
+    @Test
+    @DisplayName("Não deve publicar delta quando a quantidade continua acima do mínimo")
+    void atualizarQuantidadeById_naoDevePublicarDeltaSemCruzarMinimo() {
+        when(repository.save(any(Estoque.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(repository.findById(1L)).thenReturn(Optional.of(materiaisEsperados.getFirst()));
+
+        estoqueService.atualizarQuantidadeById(1L, 8.0, null);
+
+        verify(eventPublisher, never()).publishEvent(any(EstoqueLimiteCruzadoEvent.class));
     }
 
     @Test
@@ -216,13 +251,45 @@ class EstoqueServiceTest {
         Long idInexistente = 999L;
         double novaQuantidade = 20.0;
 
-        when(repository.existsById(idInexistente)).thenReturn(false);
+        when(repository.findById(idInexistente)).thenReturn(Optional.empty());
 
         assertThrows(DependenciaNaoEncontradaException.class, () -> {
-            estoqueService.atualizarQuantidadeById(idInexistente, novaQuantidade);
+            estoqueService.atualizarQuantidadeById(idInexistente, novaQuantidade, null);
         });
     }
 
+    @Test
+    @DisplayName("Deve alterar o material carregado, mantendo id e versão")
+    void putEstoqueById_deveAlterarEntidadeCarregada() {
+        Estoque material = materiaisEsperados.getFirst();
+        ReflectionTestUtils.setField(material, "versao", 4L);
+        var cadastroInput = new CadastroMaterialInput("Tinta Preta", 12.0, "ml", 5.0);
+
+        when(repository.findById(1L)).thenReturn(Optional.of(material));
+        when(repository.save(material)).thenReturn(material);
+
+        DetalhesMaterialOutput resultado = estoqueService.putEstoqueById(1L, cadastroInput, 4L);
+
+        assertEquals(1L, resultado.id());
+        assertEquals(12.0, resultado.quantidade());
+        assertEquals("4", resultado.versao());
+        verify(repository, times(1)).save(same(material));
+    }
+
+    @Test
+    @DisplayName("Deve recusar atualização quando a versão informada está desatualizada")
+    void atualizarQuantidadeById_deveRecusarVersaoDesatualizada() {
+        Estoque material = materiaisEsperados.getFirst();
+        ReflectionTestUtils.setField(material, "versao", 5L);
+
+        when(repository.findById(1L)).thenReturn(Optional.of(material));
+
+        assertThrows(VersaoDesatualizadaException.class,
+                () -> estoqueService.atualizarQuantidadeById(1L, 3.0, 4L));
+        verify(repository, never()).save(any(Estoque.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     @DisplayName("Deve excluir material com sucesso")
     void deleteEstoqueById_deveExcluirMaterialComSucesso() {
@@ -0,0 +1,120 @@
+package hub.orcana.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import hub.orcana.dto.agendamento.AgendamentoExportacaoOutput;
+import hub.orcana.dto.orcamento.OrcamentoExportacaoOutput;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.StatusOrcamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportacaoServiceTest {
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    @Mock
+    private OrcamentoRepository orcamentoRepository;
+
+    private ObjectMapper objectMapper;
+    private ExportacaoService service;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        service = new ExportacaoService(agendamentoRepository, orcamentoRepository, objectMapper);
+    }
+
+    @Test
+    @DisplayName("Deve gerar CSV com cabeçalho, aspas e proteção contra fórmulas")
+    void deveGerarCsvEscapado() throws Exception {
+        when(agendamentoRepository.streamExportacao()).thenReturn(Stream.of(
+                linha(1L, "Silva, João", "=HYPERLINK(\"x\")", 12000000.0),
+                linha(2L, "Ana \"Tattoo\"", null, null)
+        ));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        long total = service.exportarAgendamentos(ExportacaoService.Formato.CSV, saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, total);
+        assertEquals('\uFEFF', linhas[0].charAt(0));
+        assertTrue(linhas[0].endsWith("codigoOrcamento,valor"));
+        assertEquals("1,2030-05-10 14:30:00,CONFIRMADO,120,true,\"'=HYPERLINK(\"\"x\"\")\",7,"
+                + "\"Silva, João\",joao@email.com,ORC-1,12000000", linhas[1]);
+        assertEquals("2,2030-05-10 14:30:00,CONFIRMADO,120,true,PIX,7,\"Ana \"\"Tattoo\"\"\",joao@email.com,,", linhas[2]);
+    }
+
+    @Test
+    @DisplayName("Deve gerar um objeto JSON por linha no NDJSON")
+    void deveGerarNdjson() throws Exception {
+        when(orcamentoRepository.streamExportacao()).thenReturn(Stream.of(
+                new OrcamentoExportacaoOutput("ORC-1", "João", "joao@email.com", "Dragão\nnas costas", 800.0,
+                        20.0, "Preto", null, "Costas", StatusOrcamento.PENDENTE, 7L),
+                new OrcamentoExportacaoOutput("ORC-2", "Ana", "ana@email.com", null, null,
+                        null, null, null, null, StatusOrcamento.APROVADO, null)
+        ));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        long total = service.exportarOrcamentos(ExportacaoService.Formato.NDJSON, saida);
+
+        String conteudo = saida.toString(StandardCharsets.UTF_8);
+        String[] linhas = conteudo.split("\n");
+        assertEquals(2, total);
+        assertTrue(conteudo.endsWith("\n"));
+        assertEquals(2, linhas.length);
+        JsonNode primeira = objectMapper.readTree(linhas[0]);
+        assertEquals("ORC-1", primeira.get("codigoOrcamento").asText());
+        assertEquals("Dragão\nnas costas", primeira.get("ideia").asText());
+        assertEquals("APROVADO", objectMapper.readTree(linhas[1]).get("status").asText());
+    }
+
+    @Test
+    @DisplayName("Deve fechar o Stream do repositório ao terminar")
+    void deveFecharStreamDoRepositorio() throws Exception {
+        AtomicBoolean fechado = new AtomicBoolean();
+        when(agendamentoRepository.streamExportacao()).thenReturn(
+                IntStream.range(0, 1200).mapToObj(i -> linha((long) i, "Cliente " + i, null, 100.0))
+                        .onClose(() -> fechado.set(true)));
+
+        long total = service.exportarAgendamentos(ExportacaoService.Formato.NDJSON, new ByteArrayOutputStream());
+
+        assertEquals(1200, total);
+        assertTrue(fechado.get());
+    }
+
+    @Test
+    @DisplayName("Deve aceitar apenas csv e ndjson como formato")
+    void deveValidarFormato() {
+        assertEquals(ExportacaoService.Formato.CSV, ExportacaoService.Formato.de(" CSV "));
+        assertEquals(ExportacaoService.Formato.NDJSON, ExportacaoService.Formato.de("ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> ExportacaoService.Formato.de("xlsx"));
+        assertThrows(IllegalArgumentException.class, () -> ExportacaoService.Formato.de(null));
+    }
+
+    private AgendamentoExportacaoOutput linha(Long id, String nome, String formaPagamento, Double valor) {
+        return new AgendamentoExportacaoOutput(id, LocalDateTime.of(2030, 5, 10, 14, 30),
+                StatusAgendamento.CONFIRMADO, 120, true, formaPagamento != null ? formaPagamento : "PIX",
+                7L, nome, "joao@email.com", valor != null ? "ORC-" + id : null, valor);
+    }
+}
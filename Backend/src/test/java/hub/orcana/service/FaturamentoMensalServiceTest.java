@@ -0,0 +1,110 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.dashboard.FaturamentoMensalOutput;
+import hub.orcana.tables.FaturamentoMensal;
+import hub.orcana.tables.StatusAgendamento;
+import hub.orcana.tables.repository.AgendamentoRepository;
+import hub.orcana.tables.repository.FaturamentoMensalRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaturamentoMensalServiceTest {
+
+    @Mock
+    private FaturamentoMensalRepository repository;
+
+    @Mock
+    private AgendamentoRepository agendamentoRepository;
+
+    @InjectMocks
+    private FaturamentoMensalService service;
+
+    private final LocalDateTime dataHora = LocalDateTime.of(2025, 3, 15, 14, 0);
+
+    @Test
+    @DisplayName("Deve lançar valor e quantidade no mês ao adicionar agendamento concluído")
+    void deveIncrementarMesExistente() {
+        service.adicionar(dataHora, 800.0);
+
+        verify(repository, times(1)).lancar("2025-03", 800.0, 1L);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Deve decrementar valor e quantidade ao remover agendamento concluído")
+    void deveDecrementarAoRemover() {
+        service.remover(dataHora, 800.0);
+
+        verify(repository, times(1)).lancar("2025-03", -800.0, -1L);
+    }
+
+    @Test
+    @DisplayName("Deve tratar valor null como zero")
+    void deveTratarValorNullComoZero() {
+        service.adicionar(dataHora, null);
+
+        verify(repository, times(1)).lancar("2025-03", 0.0, 1L);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar apenas a diferença ao ajustar o valor")
+    void deveAplicarApenasDiferencaAoAjustarValor() {
+        service.ajustarValor(dataHora, 800.0, 1000.0);
+
+        verify(repository, times(1)).lancar("2025-03", 200.0, 0L);
+    }
+
+    @Test
+    @DisplayName("Não deve acessar o banco quando o valor não mudar")
+    void naoDeveAcessarBancoQuandoValorNaoMudar() {
+        service.ajustarValor(dataHora, 800.0, 800.0);
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o consolidado com as linhas travadas, sem apagar e recriar os meses existentes")
+    void deveReconstruirConsolidado() {
+        FaturamentoMensal marco = new FaturamentoMensal("2025-03", 900.0, 1L);
+        FaturamentoMensal janeiro = new FaturamentoMensal("2025-01", 300.0, 1L);
+        when(repository.travarTodos()).thenReturn(List.of(marco, janeiro));
+        when(agendamentoRepository.sumFaturamentoAgrupadoPorMes(StatusAgendamento.CONCLUIDO))
+                .thenReturn(List.of(
+                        new FaturamentoMensalOutput(2025, 3, 1500.0, 2L),
+                        new FaturamentoMensalOutput(2025, 4, null, 1L)
+                ));
+
+        service.reconciliar();
+
+        InOrder ordem = inOrder(repository, agendamentoRepository);
+        ordem.verify(repository).travarTodos();
+        ordem.verify(agendamentoRepository).sumFaturamentoAgrupadoPorMes(StatusAgendamento.CONCLUIDO);
+        assertEquals(new FaturamentoMensal("2025-03", 1500.0, 2L), marco);
+        verify(repository).deleteAllInBatch(List.of(janeiro));
+        verify(repository).saveAll(List.of(new FaturamentoMensal("2025-04", 0.0, 1L)));
+        verify(repository, never()).deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir na inicialização apenas quando o consolidado estiver vazio")
+    void deveReconstruirNaInicializacaoApenasQuandoVazio() {
+        when(repository.count()).thenReturn(3L);
+
+        service.inicializar();
+
+        verify(agendamentoRepository, never()).sumFaturamentoAgrupadoPorMes(any());
+    }
+}
@@ -0,0 +1,94 @@
+package hub.orcana.service;
+
+import hub.orcana.tables.repository.SequenciaCodigoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GeradorCodigoOrcamentoTest {
+
+    private static final Pattern FORMATO = Pattern.compile("ORC-[G-HJKMNP-TV-Z][0-9A-HJKMNP-TV-Z]{7}");
+
+    @Mock
+    private SequenciaCodigoRepository repository;
+
+    @Test
+    @DisplayName("Deve consultar o banco só uma vez por bloco")
+    void deveReservarUmBlocoPorVez() {
+        when(repository.reservarBloco(GeradorCodigoOrcamento.SEQUENCIA, 10)).thenReturn(0L, 10L);
+        GeradorCodigoOrcamento gerador = new GeradorCodigoOrcamento(repository, 10);
+
+        Set<String> codigos = new HashSet<>();
+        for (int i = 0; i < 15; i++) {
+            codigos.add(gerador.proximoCodigo());
+        }
+
+        assertEquals(15, codigos.size());
+        verify(repository, times(2)).reservarBloco(GeradorCodigoOrcamento.SEQUENCIA, 10);
+    }
+
+    @Test
+    @DisplayName("Deve manter o formato ORC- com 8 caracteres, sem colidir com os códigos hexadecimais antigos")
+    void deveManterFormato() {
+        for (long i = 0; i < 5_000; i++) {
+            String codigo = GeradorCodigoOrcamento.formatar(i);
+            assertEquals(12, codigo.length());
+            assertTrue(FORMATO.matcher(codigo).matches(), codigo);
+        }
+        assertTrue(FORMATO.matcher(GeradorCodigoOrcamento.formatar((1L << 34) - 1)).matches());
+    }
+
+    @Test
+    @DisplayName("Valores distintos da sequência devem gerar códigos distintos")
+    void deveGerarCodigosUnicos() {
+        Set<String> codigos = new HashSet<>();
+        for (long i = 0; i < 200_000; i++) {
+            assertTrue(codigos.add(GeradorCodigoOrcamento.formatar(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("O dígito verificador deve acusar um caractere trocado ou dois vizinhos invertidos")
+    void deveDetectarErrosDeDigitacao() {
+        String codigo = GeradorCodigoOrcamento.formatar(42);
+        String corpo = codigo.substring(4, 11);
+        char verificador = codigo.charAt(11);
+        assertEquals(verificador, GeradorCodigoOrcamento.digitoVerificador(corpo));
+
+        for (int i = 0; i < corpo.length(); i++) {
+            for (char c : GeradorCodigoOrcamento.ALFABETO.toCharArray()) {
+                if (c == corpo.charAt(i)) {
+                    continue;
+                }
+                String trocado = corpo.substring(0, i) + c + corpo.substring(i + 1);
+                assertNotEquals(verificador, GeradorCodigoOrcamento.digitoVerificador(trocado));
+            }
+        }
+        for (int i = 0; i + 1 < corpo.length(); i++) {
+            if (corpo.charAt(i) == corpo.charAt(i + 1)) {
+                continue;
+            }
+            String invertido = corpo.substring(0, i) + corpo.charAt(i + 1) + corpo.charAt(i) + corpo.substring(i + 2);
+            assertNotEquals(verificador, GeradorCodigoOrcamento.digitoVerificador(invertido));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve recusar a sequência esgotada")
+    void deveRecusarSequenciaEsgotada() {
+        when(repository.reservarBloco(GeradorCodigoOrcamento.SEQUENCIA, 1)).thenReturn(1L << 34);
+        GeradorCodigoOrcamento gerador = new GeradorCodigoOrcamento(repository, 1);
+
+        assertThrows(IllegalStateException.class, gerador::proximoCodigo);
+    }
+}
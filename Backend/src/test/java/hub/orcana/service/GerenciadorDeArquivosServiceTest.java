@@ -6,7 +6,6 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
@@ -16,6 +15,9 @@ import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,20 +31,11 @@ class GerenciadorDeArquivosServiceTest {
     @TempDir
     Path tempDir;
 
-    private MultipartFile validFile;
     private MultipartFile emptyFile;
     private MultipartFile fileWithSpecialName;
 
     @BeforeEach
     void setUp() {
-        // Arquivo válido para testes
-        validFile = new MockMultipartFile(
-                "file",
-                "test-image.jpg",
-                "image/jpeg",
-                "conteudo do arquivo de teste".getBytes()
-        );
-
         // Arquivo vazio para teste de erro
         emptyFile = new MockMultipartFile(
                 "file",
@@ -110,216 +103,182 @@ class GerenciadorDeArquivosServiceTest {
         assertTrue(Files.exists(uploadsPath));
     }
 
-    // ------------------ TESTES MÉTODO salvarArquivo() ------------------
+    // ------------------ TESTES DO RECEBIMENTO EM LOTE ------------------
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16, 'J', 'F', 'I', 'F', 0, 1};
+
+    private GerenciadorDeArquivosService servicoEm(Path pasta) throws Exception {
+        GerenciadorDeArquivosService testService = new GerenciadorDeArquivosService();
+        Field pastaRaizField = GerenciadorDeArquivosService.class.getDeclaredField("pastaRaiz");
+        pastaRaizField.setAccessible(true);
+        pastaRaizField.set(testService, pasta);
+        return testService;
+    }
+
+    private static long temporariosDeUpload() throws IOException {
+        try (var arquivos = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return arquivos.filter(p -> p.getFileName().toString().startsWith("orcana-upload-")).count();
+        }
+    }
 
     @Test
-    @DisplayName("Deve salvar arquivo com sucesso")
-    void deveSalvarArquivoComSucesso() throws Exception {
-        // Arrange - usar um diretório temporário real
-        Path realTempDir = Files.createTempDirectory("test-save-success");
-
-        try {
-            // Criar nova instância do serviço
-            GerenciadorDeArquivosService testService = new GerenciadorDeArquivosService();
-
-            // Usar reflexão para modificar o campo pastaRaiz
-            java.lang.reflect.Field pastaRaizField = GerenciadorDeArquivosService.class.getDeclaredField("pastaRaiz");
-            pastaRaizField.setAccessible(true);
-            pastaRaizField.set(testService, realTempDir);
-
-            // Act
-            String caminhoSalvo = testService.salvarArquivo(validFile);
-
-            // Assert
-            assertNotNull(caminhoSalvo);
-            assertTrue(caminhoSalvo.contains("test-image.jpg"));
-
-            // Verificar se arquivo foi realmente salvo
-            Path arquivoSalvo = Paths.get(caminhoSalvo);
-            assertTrue(Files.exists(arquivoSalvo));
-
-            // Verificar conteudo
-            String conteudo = Files.readString(arquivoSalvo);
-            assertEquals("conteudo do arquivo de teste", conteudo);
-
-            // Verificar que o nome do arquivo contém UUID (formato esperado: UUID_nomeOriginal)
-            String nomeArquivo = arquivoSalvo.getFileName().toString();
-            assertTrue(nomeArquivo.matches("^[a-f0-9-]+_test-image\\.jpg$"),
-                      "Nome do arquivo deve seguir padrão UUID_nomeOriginal: " + nomeArquivo);
-
-        } finally {
-            // Limpeza - remover diretório temporário e seus arquivos
-            if (Files.exists(realTempDir)) {
-                try (var walk = Files.walk(realTempDir)) {
-                    walk.sorted(java.util.Comparator.reverseOrder())
-                        .forEach(path -> {
-                            try {
-                                Files.delete(path);
-                            } catch (IOException e) {
-                                // Ignorar erros de limpeza
-                            }
-                        });
-                }
-            }
+    @DisplayName("Deve receber o upload em arquivo temporário e depois movê-lo para a pasta de uploads")
+    void deveReceberEMoverArquivo() throws Exception {
+        GerenciadorDeArquivosService testService = servicoEm(tempDir);
+        MultipartFile png = new MockMultipartFile("file", "ref.png", "image/png", PNG);
+
+        GerenciadorDeArquivosService.ArquivoRecebido recebido = testService.receberArquivo(png);
+        assertTrue(Files.exists(recebido.temporario()));
+        assertEquals("ref.png", recebido.nomeOriginal());
+        assertEquals(GerenciadorDeArquivosService.TipoImagem.PNG, recebido.tipo());
+
+        String caminhoSalvo = testService.salvarArquivo(recebido);
+
+        assertFalse(Files.exists(recebido.temporario()));
+        assertEquals(PNG.length, recebido.tamanho());
+        String hash = recebido.sha256();
+        assertEquals(tempDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".png"),
+                Paths.get(caminhoSalvo));
+        assertArrayEquals(PNG, Files.readAllBytes(Paths.get(caminhoSalvo)));
+        assertThrows(IllegalArgumentException.class, () -> testService.receberArquivo(emptyFile));
+    }
+
+    @Test
+    @DisplayName("Deve receber várias imagens em paralelo, na ordem enviada, com o SHA-256 do conteúdo")
+    void deveReceberLoteComHash() throws Exception {
+        GerenciadorDeArquivosService testService = servicoEm(tempDir);
+        List<MultipartFile> arquivos = List.of(
+                new MockMultipartFile("file", "a.png", "image/png", PNG),
+                new MockMultipartFile("file", "b.jpg", "image/jpeg", JPEG),
+                new MockMultipartFile("file", "c.gif", "image/gif", "GIF89a-conteudo".getBytes()));
+
+        List<GerenciadorDeArquivosService.ArquivoRecebido> recebidos = testService.receberArquivos(arquivos);
+
+        assertEquals(List.of("a.png", "b.jpg", "c.gif"),
+                recebidos.stream().map(GerenciadorDeArquivosService.ArquivoRecebido::nomeOriginal).toList());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(JPEG)), recebidos.get(1).sha256());
+        assertEquals(GerenciadorDeArquivosService.TipoImagem.GIF, recebidos.get(2).tipo());
+        for (var recebido : recebidos) {
+            testService.descartar(recebido.temporario());
         }
     }
 
     @Test
-    @DisplayName("Deve lançar RuntimeException para arquivo vazio")
-    void deveLancarRuntimeExceptionParaArquivoVazio() {
-        // Act & Assert
-        RuntimeException exception = assertThrows(
-                RuntimeException.class,
-                () -> gerenciadorService.salvarArquivo(emptyFile)
-        );
+    @DisplayName("Deve recusar o lote inteiro e apagar os temporários quando um arquivo não é imagem")
+    void deveRecusarLoteComArquivoQueNaoEImagem() throws Exception {
+        GerenciadorDeArquivosService testService = servicoEm(tempDir);
+        long antes = temporariosDeUpload();
+        List<MultipartFile> arquivos = List.of(
+                new MockMultipartFile("file", "a.png", "image/png", PNG),
+                new MockMultipartFile("file", "falso.jpg", "image/jpeg", "<script>alert(1)</script>".getBytes()),
+                new MockMultipartFile("file", "b.jpg", "image/jpeg", JPEG));
+
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class,
+                () -> testService.receberArquivos(arquivos));
+
+        assertTrue(erro.getMessage().contains("falso.jpg"));
+        assertEquals(antes, temporariosDeUpload());
+    }
 
-        assertEquals("Falha ao salvar arquivo vazio.", exception.getMessage());
+    @Test
+    @DisplayName("Falha no lote não deve apagar arquivos já publicados nem deixar cópias parciais")
+    void deveManterPublicadosQuandoGravacaoFalha() throws Exception {
+        Path pasta = Files.createDirectories(tempDir.resolve("uploads-lote"));
+        GerenciadorDeArquivosService testService = servicoEm(pasta);
+        var valido = testService.receberArquivo(new MockMultipartFile("file", "a.png", "image/png", PNG));
+        var sumido = new GerenciadorDeArquivosService.ArquivoRecebido(
+                tempDir.resolve("nao-existe.tmp"), "b.png", "00ff", GerenciadorDeArquivosService.TipoImagem.PNG, 1);
+        Path publicado = testService.caminhoDoConteudo(valido.sha256(), valido.tipo());
+
+        assertThrows(RuntimeException.class, () -> testService.salvarArquivos(List.of(valido, sumido)));
+
+        // outro orçamento pode já usar o mesmo conteúdo; sem referência, a coleta de órfãos o apaga
+        assertTrue(Files.exists(publicado));
+        try (var arquivos = Files.walk(pasta)) {
+            assertEquals(List.of(publicado), arquivos.filter(Files::isRegularFile).toList());
+        }
     }
 
     @Test
-    @DisplayName("Deve lançar RuntimeException quando falhar ao escrever arquivo")
-    void deveLancarRuntimeExceptionQuandoFalharAoEscreverArquivo() throws IOException {
-        // Arrange
-        MultipartFile arquivoProblematico = mock(MultipartFile.class);
-        when(arquivoProblematico.isEmpty()).thenReturn(false);
-        when(arquivoProblematico.getOriginalFilename()).thenReturn("test.txt");
-        when(arquivoProblematico.getInputStream()).thenThrow(new IOException("Erro de I/O"));
+    @DisplayName("A mesma imagem enviada duas vezes deve ser armazenada uma vez só")
+    void deveArmazenarConteudoRepetidoUmaVez() throws Exception {
+        Path pasta = Files.createDirectories(tempDir.resolve("uploads-dedup"));
+        GerenciadorDeArquivosService testService = servicoEm(pasta);
+        var primeiro = testService.receberArquivo(new MockMultipartFile("file", "minha-foto.png", "image/png", PNG));
+        var segundo = testService.receberArquivo(new MockMultipartFile("file", "outra.png", "image/png", PNG));
+
+        String caminho1 = testService.salvarArquivo(primeiro);
+        java.nio.file.attribute.FileTime antiga = java.nio.file.attribute.FileTime.fromMillis(0);
+        Files.setLastModifiedTime(Paths.get(caminho1), antiga);
+        String caminho2 = testService.salvarArquivo(segundo);
+
+        assertEquals(caminho1, caminho2);
+        // o arquivo reaproveitado ganha data nova e escapa da coleta de órfãos
+        assertTrue(Files.getLastModifiedTime(Paths.get(caminho2)).compareTo(antiga) > 0);
+        assertFalse(Files.exists(segundo.temporario()));
+        try (var arquivos = Files.walk(pasta)) {
+            assertEquals(1, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
 
-        Path uploadsPath = tempDir.resolve("uploads");
-        Files.createDirectories(uploadsPath);
+    @Test
+    @DisplayName("Desfazer um lote não deve apagar arquivo que já existia com o mesmo conteúdo")
+    void naoDeveApagarArquivoExistenteAoDesfazerLote() throws Exception {
+        Path pasta = Files.createDirectories(tempDir.resolve("uploads-compartilhado"));
+        GerenciadorDeArquivosService testService = servicoEm(pasta);
+        String existente = testService.salvarArquivo(
+                testService.receberArquivo(new MockMultipartFile("file", "a.png", "image/png", PNG)));
+        var repetido = testService.receberArquivo(new MockMultipartFile("file", "a.png", "image/png", PNG));
+        var sumido = new GerenciadorDeArquivosService.ArquivoRecebido(
+                tempDir.resolve("nao-existe.tmp"), "b.jpg", "11ee", GerenciadorDeArquivosService.TipoImagem.JPEG, 1);
+
+        assertThrows(RuntimeException.class, () -> testService.salvarArquivos(List.of(repetido, sumido)));
+
+        assertTrue(Files.exists(Paths.get(existente)));
+    }
 
-        try (MockedStatic<Path> mockedPath = mockStatic(Path.class)) {
-            mockedPath.when(() -> Path.of("uploads")).thenReturn(uploadsPath);
+    @Test
+    @DisplayName("Publicar não deve substituir um arquivo que já existe no destino")
+    void naoDeveSubstituirArquivoAoPublicar() throws Exception {
+        GerenciadorDeArquivosService testService = servicoEm(tempDir);
+        Path destino = Files.write(tempDir.resolve("destino.png"), PNG);
+        Path parcial = Files.write(tempDir.resolve(".destino.png.parcial"), JPEG);
 
-            // Act & Assert
-            RuntimeException exception = assertThrows(
-                    RuntimeException.class,
-                    () -> gerenciadorService.salvarArquivo(arquivoProblematico)
-            );
+        assertThrows(java.nio.file.FileAlreadyExistsException.class, () -> testService.publicar(parcial, destino));
 
-            assertEquals("Falha ao salvar o arquivo.", exception.getMessage());
-            assertInstanceOf(IOException.class, exception.getCause());
-        }
+        assertArrayEquals(PNG, Files.readAllBytes(destino));
     }
 
     @Test
-    @DisplayName("Deve gerar nomes unicos para arquivos diferentes")
-    void deveGerarNomesUnicosParaArquivosDiferentes() throws Exception {
-        // Arrange - usar um diretório temporário real
-        Path realTempDir = Files.createTempDirectory("test-uploads");
-
-        try {
-            // Criar nova instância do serviço
-            GerenciadorDeArquivosService testService = new GerenciadorDeArquivosService();
-
-            // Usar reflexão para modificar o campo pastaRaiz
-            java.lang.reflect.Field pastaRaizField = GerenciadorDeArquivosService.class.getDeclaredField("pastaRaiz");
-            pastaRaizField.setAccessible(true);
-
-            // Para contornar o modificador final, usar setAccessible e definir diretamente
-            pastaRaizField.set(testService, realTempDir);
-
-            MultipartFile arquivo1 = new MockMultipartFile(
-                    "file1", "documento.pdf", "application/pdf", "conteudo 1".getBytes()
-            );
-
-            MultipartFile arquivo2 = new MockMultipartFile(
-                    "file2", "documento.pdf", "application/pdf", "conteudo 2".getBytes()
-            );
-
-            // Act
-            String caminho1 = testService.salvarArquivo(arquivo1);
-            String caminho2 = testService.salvarArquivo(arquivo2);
-
-            // Assert - Verificações básicas
-            assertNotNull(caminho1, "Caminho 1 não deve ser null");
-            assertNotNull(caminho2, "Caminho 2 não deve ser null");
-            assertNotEquals(caminho1, caminho2, "Os caminhos devem ser unicos");
-
-            // Verificar que arquivos foram criados
-            assertTrue(Files.exists(Paths.get(caminho1)), "Arquivo 1 deve existir");
-            assertTrue(Files.exists(Paths.get(caminho2)), "Arquivo 2 deve existir");
-
-            // Verificar que conteudos são diferentes
-            String conteudo1 = Files.readString(Paths.get(caminho1));
-            String conteudo2 = Files.readString(Paths.get(caminho2));
-            assertNotEquals(conteudo1, conteudo2, "Conteudos devem ser diferentes");
-            assertEquals("conteudo 1", conteudo1);
-            assertEquals("conteudo 2", conteudo2);
-
-        } finally {
-            // Limpeza - remover diretório temporário e seus arquivos
-            if (Files.exists(realTempDir)) {
-                try (var walk = Files.walk(realTempDir)) {
-                    walk.sorted(java.util.Comparator.reverseOrder())
-                        .forEach(path -> {
-                            try {
-                                Files.delete(path);
-                            } catch (IOException e) {
-                                // Ignorar erros de limpeza
-                            }
-                        });
-                }
-            }
+    @DisplayName("Gravações simultâneas do mesmo conteúdo devem publicar um único arquivo")
+    void devePublicarUmArquivoEmGravacoesSimultaneas() throws Exception {
+        Path pasta = Files.createDirectories(tempDir.resolve("uploads-corrida"));
+        GerenciadorDeArquivosService testService = servicoEm(pasta);
+        List<GerenciadorDeArquivosService.ArquivoRecebido> recebidos = new java.util.ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            recebidos.add(testService.receberArquivo(new MockMultipartFile("file", "a.png", "image/png", PNG)));
         }
-    }
 
-    @Test
-    @DisplayName("Deve tratar arquivo com nome null")
-    void deveTratarArquivoComNomeNull() throws Exception {
-        // Arrange - usar um diretório temporário real
-        Path realTempDir = Files.createTempDirectory("test-null-name");
-
-        try {
-            // Criar nova instância do serviço
-            GerenciadorDeArquivosService testService = new GerenciadorDeArquivosService();
-
-            // Usar reflexão para modificar o campo pastaRaiz
-            java.lang.reflect.Field pastaRaizField = GerenciadorDeArquivosService.class.getDeclaredField("pastaRaiz");
-            pastaRaizField.setAccessible(true);
-            pastaRaizField.set(testService, realTempDir);
-
-            MultipartFile arquivoSemNome = new MockMultipartFile(
-                    "file", null, "text/plain", "conteudo".getBytes()
-            );
-
-            // Act
-            String caminhoSalvo = testService.salvarArquivo(arquivoSemNome);
-
-            // Assert
-            assertNotNull(caminhoSalvo, "Caminho salvo não deve ser null");
-            assertTrue(Files.exists(Paths.get(caminhoSalvo)), "Arquivo deve existir no caminho retornado");
-
-            // Verificar conteudo
-            String conteudo = Files.readString(Paths.get(caminhoSalvo));
-            assertEquals("conteudo", conteudo, "Conteudo deve ser preservado");
-
-            // Verificar que o arquivo foi salvo - o nome exato pode variar dependendo de como o MockMultipartFile trata null
-            Path arquivoSalvo = Paths.get(caminhoSalvo);
-            String nomeArquivo = arquivoSalvo.getFileName().toString();
-
-            // O nome deve ser um UUID seguido de underscore (e possivelmente string vazia após underscore)
-            assertTrue(nomeArquivo.matches("^[a-f0-9]{8}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{12}_.*$"),
-                      "Nome do arquivo deve seguir padrão UUID_... : " + nomeArquivo);
-
-            // Debug: vamos ver exatamente o que está sendo gerado
-            System.out.println("Nome do arquivo gerado com originalFilename=null: '" + nomeArquivo + "'");
-
-        } finally {
-            // Limpeza - remover diretório temporário e seus arquivos
-            if (Files.exists(realTempDir)) {
-                try (var walk = Files.walk(realTempDir)) {
-                    walk.sorted(java.util.Comparator.reverseOrder())
-                        .forEach(path -> {
-                            try {
-                                Files.delete(path);
-                            } catch (IOException e) {
-                                // Ignorar erros de limpeza
-                            }
-                        });
-                }
+        java.util.concurrent.CountDownLatch largada = new java.util.concurrent.CountDownLatch(1);
+        List<java.util.concurrent.Future<String>> gravacoes = new java.util.ArrayList<>();
+        try (var executor = java.util.concurrent.Executors.newFixedThreadPool(recebidos.size())) {
+            for (var recebido : recebidos) {
+                gravacoes.add(executor.submit(() -> {
+                    largada.await();
+                    return testService.gravar(recebido);
+                }));
             }
+            largada.countDown();
+        }
+
+        Path esperado = testService.caminhoDoConteudo(recebidos.get(0).sha256(), recebidos.get(0).tipo());
+        for (var gravacao : gravacoes) {
+            assertEquals(esperado, Paths.get(gravacao.get()));
+        }
+        recebidos.forEach(recebido -> assertFalse(Files.exists(recebido.temporario())));
+        try (var arquivos = Files.walk(pasta)) {
+            assertEquals(1, arquivos.filter(Files::isRegularFile).count());
         }
     }
 }
-
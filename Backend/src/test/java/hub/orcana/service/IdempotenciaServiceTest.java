@@ -0,0 +1,96 @@
+package hub.orcana.service;
+
+import hub.orcana.service.IdempotenciaService.Situacao;
+import hub.orcana.tables.ChaveIdempotencia;
+import hub.orcana.tables.repository.ChaveIdempotenciaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaServiceTest {
+
+    private static final String ESCOPO = "POST /agendamento|joao@email.com";
+
+    @Mock
+    private ChaveIdempotenciaRepository repository;
+
+    private IdempotenciaService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotenciaService(repository, 24, 300);
+    }
+
+    @Test
+    @DisplayName("Deve reservar a chave quando ela ainda não existe")
+    void deveReservarChaveNova() {
+        when(repository.reservar(eq(ESCOPO), eq("k"), eq("h"), any(), any())).thenReturn(true);
+
+        assertEquals(Situacao.NOVA, service.reservar(ESCOPO, "k", "h").situacao());
+        verify(repository, never()).findByEscopoAndChave(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Deve classificar a chave existente pelo conteúdo e pelo andamento")
+    void deveClassificarChaveExistente() {
+        when(repository.reservar(anyString(), anyString(), anyString(), any(), any())).thenReturn(false);
+        when(repository.findByEscopoAndChave(ESCOPO, "concluida")).thenReturn(Optional.of(registro("h", 201, 1)));
+        when(repository.findByEscopoAndChave(ESCOPO, "rodando")).thenReturn(Optional.of(registro("h", null, 1)));
+        when(repository.findByEscopoAndChave(ESCOPO, "outra")).thenReturn(Optional.of(registro("h", 201, 1)));
+
+        assertEquals(Situacao.REPETIDA, service.reservar(ESCOPO, "concluida", "h").situacao());
+        assertEquals(Situacao.EM_ANDAMENTO, service.reservar(ESCOPO, "rodando", "h").situacao());
+        assertEquals(Situacao.CONFLITANTE, service.reservar(ESCOPO, "outra", "h2").situacao());
+    }
+
+    @Test
+    @DisplayName("Deve remover a chave vencida e reservar de novo")
+    void deveReaproveitarChaveVencida() {
+        ChaveIdempotencia vencida = registro("h", null, -1);
+        when(repository.reservar(eq(ESCOPO), eq("k"), eq("h"), any(), any())).thenReturn(false, true);
+        when(repository.findByEscopoAndChave(ESCOPO, "k")).thenReturn(Optional.of(vencida));
+
+        assertEquals(Situacao.NOVA, service.reservar(ESCOPO, "k", "h").situacao());
+        verify(repository).removerSeExpirada(eq(vencida.getId()), any());
+    }
+
+    @Test
+    @DisplayName("Deve guardar a resposta com a validade configurada")
+    void deveConcluirComValidade() {
+        LocalDateTime antes = LocalDateTime.now().plusHours(24);
+        when(repository.concluir(eq(ESCOPO), eq("k"), eq(201), eq("application/json"), eq("{}"), isNull(), any()))
+                .thenReturn(1);
+
+        service.concluir(ESCOPO, "k", 201, "application/json", "{}", null);
+
+        verify(repository).concluir(eq(ESCOPO), eq("k"), eq(201), eq("application/json"), eq("{}"), isNull(),
+                argThat(expira -> !expira.isBefore(antes)));
+    }
+
+    @Test
+    @DisplayName("Deve recusar chave vazia, longa ou com caracteres não visíveis")
+    void deveValidarChave() {
+        assertDoesNotThrow(() -> IdempotenciaService.validarChave("3f2b9c1e-7a4d-4c1b-9a57-0d1f2e3a4b5c"));
+        assertThrows(IllegalArgumentException.class, () -> IdempotenciaService.validarChave(" "));
+        assertThrows(IllegalArgumentException.class, () -> IdempotenciaService.validarChave("a".repeat(101)));
+        assertThrows(IllegalArgumentException.class, () -> IdempotenciaService.validarChave("chave com espaço"));
+    }
+
+    private ChaveIdempotencia registro(String impressao, Integer statusHttp, int horasParaVencer) {
+        return new ChaveIdempotencia(7L, ESCOPO, "k", impressao, statusHttp, "application/json", "{}", null,
+                LocalDateTime.now().minusMinutes(1), LocalDateTime.now().plusHours(horasParaVencer));
+    }
+}
@@ -1,7 +1,15 @@
 package hub.orcana.service;
 import hub.orcana.dto.orcamento.CadastroOrcamentoInput;
 import hub.orcana.dto.orcamento.DetalhesOrcamentoOutput;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
+import hub.orcana.event.OrcamentoAprovadoEvent;
+import hub.orcana.event.OrcamentoCriadoEvent;
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.service.GerenciadorDeArquivosService.TipoImagem;
+import hub.orcana.tables.Agendamento;
 import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
+import hub.orcana.tables.StatusAgendamento;
 import hub.orcana.tables.StatusOrcamento;
 import hub.orcana.tables.repository.AgendamentoRepository;
 import hub.orcana.tables.repository.OrcamentoRepository;
@@ -10,18 +18,26 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
+import java.sql.Time;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,6 +58,24 @@ class OrcamentoServiceTest {
     @Mock
     private AgendamentoRepository agendamentoRepository;
 
+    @Mock
+    private FaturamentoMensalService faturamentoMensalService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private GeradorCodigoOrcamento geradorCodigo;
+
+    @Mock
+    private ProcessamentoOrcamentoService processamentoService;
+
+    @Mock
+    private ReferenciaArquivoService referenciaArquivoService;
+
+    @Mock
+    private UploadEmPartesService uploadEmPartesService;
+
     @InjectMocks
     private OrcamentoService service;
 
@@ -54,41 +88,50 @@ class OrcamentoServiceTest {
                 "Preto, Vermelho",
                 "Braço direito",
                 imagens,
+                null,
                 1L
         );
     }
 
+    @SuppressWarnings("unchecked")
+    private void notificarObservers(Orcamento salvo) {
+        ArgumentCaptor<Consumer<Orcamento>> notificar = ArgumentCaptor.forClass(Consumer.class);
+        verify(processamentoService).iniciar(eq(salvo.getCodigoOrcamento()), anyList(), notificar.capture());
+        notificar.getValue().accept(salvo);
+    }
+
     @Test
-    @DisplayName("Deve salvar orçamento com imagens e notificar observadores")
+    @DisplayName("Deve gravar orçamento e deixar imagens e notificações para o processamento assíncrono")
     void deveSalvarComImagensENotificar() {
         MockMultipartFile img1 = new MockMultipartFile("img", "ref1.png", "image/png", new byte[]{1, 2});
         MockMultipartFile img2 = new MockMultipartFile("img", "ref2.jpg", "image/jpeg", new byte[]{3, 4});
+        ArquivoRecebido recebido1 = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        ArquivoRecebido recebido2 = new ArquivoRecebido(Path.of("tmp2"), "ref2.jpg", "bb", TipoImagem.JPEG, 2);
 
-        when(gerenciadorService.salvarArquivo(any(MultipartFile.class)))
-                .thenAnswer(inv -> "http://cdn/" + ((MultipartFile) inv.getArgument(0)).getOriginalFilename());
-
-        when(repository.findByCodigoOrcamento(anyString())).thenReturn(Optional.empty());
+        when(gerenciadorService.receberArquivos(List.of(img1, img2))).thenReturn(List.of(recebido1, recebido2));
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
         when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
         when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
 
         Orcamento salvo = service.postOrcamento(entradaValidaCom(List.of(img1, img2)));
 
         assertNotNull(salvo);
-        assertNotNull(salvo.getCodigoOrcamento());
-        assertTrue(salvo.getCodigoOrcamento().startsWith("ORC-"));
-        assertEquals(12, salvo.getCodigoOrcamento().length());
-        assertEquals(List.of("http://cdn/ref1.png", "http://cdn/ref2.jpg"), salvo.getImagemReferencia());
+        assertEquals("ORC-H5K2Q9XM", salvo.getCodigoOrcamento());
+        assertEquals(SituacaoProcessamento.RECEBIDO, salvo.getProcessamento());
+        assertTrue(salvo.getImagemReferencia().isEmpty());
 
-        verify(gerenciadorService, times(2)).salvarArquivo(any(MultipartFile.class));
+        verify(processamentoService).iniciar(eq("ORC-H5K2Q9XM"), eq(List.of(recebido1, recebido2)), any());
+        verify(emailService, never()).updateOrcamento(any(Orcamento.class));
         verify(repository, times(1)).save(any(Orcamento.class));
-        verify(emailService, times(1)).updateOrcamento(any(Orcamento.class));
-        verify(usuarioRepository, times(1)).findByEmail(anyString());
+
+        notificarObservers(salvo);
+        verify(emailService, times(1)).updateOrcamento(salvo);
     }
 
     @Test
     @DisplayName("Deve salvar orçamento sem imagens quando lista vazia")
     void deveSalvarSemImagensListaVazia() {
-        when(repository.findByCodigoOrcamento(anyString())).thenReturn(Optional.empty());
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
         when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
         when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
 
@@ -97,11 +140,25 @@ class OrcamentoServiceTest {
         assertNotNull(salvo);
         assertTrue(salvo.getImagemReferencia().isEmpty());
 
-        verify(gerenciadorService, never()).salvarArquivo(any(MultipartFile.class));
+        verify(processamentoService).iniciar(eq("ORC-H5K2Q9XM"), eq(List.of()), any());
+        notificarObservers(salvo);
         verify(emailService, times(1)).updateOrcamento(any(Orcamento.class));
         verify(usuarioRepository, times(1)).findByEmail(anyString());
     }
 
+    @Test
+    @DisplayName("Deve publicar delta de novo orçamento pendente")
+    void devePublicarDeltaDeNovoOrcamento() {
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
+        when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+
+        Orcamento salvo = service.postOrcamento(entradaValidaCom(null));
+
+        verify(eventPublisher, times(1)).publishEvent(new OrcamentoCriadoEvent(
+                salvo.getCodigoOrcamento(), salvo.getNome(), salvo.getLocalCorpo(), StatusOrcamento.PENDENTE));
+    }
+
     @Test
     @DisplayName("Deve salvar orçamento sem imagens quando lista nula")
     void deveSalvarSemImagensListaNula() {
@@ -113,10 +170,11 @@ class OrcamentoServiceTest {
                 "Preto, Vermelho",
                 "Braço direito",
                 null,
+                null,
                 1L
         );
 
-        when(repository.findByCodigoOrcamento(anyString())).thenReturn(Optional.empty());
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
         when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
         when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
 
@@ -126,47 +184,109 @@ class OrcamentoServiceTest {
         assertNotNull(salvo.getImagemReferencia());
         assertTrue(salvo.getImagemReferencia().isEmpty());
 
-        verify(gerenciadorService, never()).salvarArquivo(any(MultipartFile.class));
+        verify(processamentoService).iniciar(eq("ORC-H5K2Q9XM"), eq(List.of()), any());
+        notificarObservers(salvo);
         verify(emailService, times(1)).updateOrcamento(any(Orcamento.class));
         verify(usuarioRepository, times(1)).findByEmail(anyString());
     }
 
     @Test
-    @DisplayName("Deve gerar código ORC- único e tentar novamente em caso de colisão")
-    void deveGerarCodigoUnicoComRetryEmColisao() {
-        AtomicInteger chamada = new AtomicInteger(0);
-        when(repository.findByCodigoOrcamento(anyString()))
-                .thenAnswer(inv -> chamada.getAndIncrement() == 0
-                        ? Optional.of(new Orcamento("ORC-COLISAO", "X", "x@x", "y", 1.0, "c", "l", List.of(), 1L, StatusOrcamento.PENDENTE))
-                        : Optional.empty());
+    @DisplayName("Deve usar o código do gerador sem consultar o repositório")
+    void deveGerarCodigoSemConsultarRepositorio() {
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
         when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
         when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
 
         Orcamento salvo = service.postOrcamento(entradaValidaCom(null));
 
-        assertNotNull(salvo.getCodigoOrcamento());
-        assertTrue(salvo.getCodigoOrcamento().startsWith("ORC-"));
-        assertEquals(12, salvo.getCodigoOrcamento().length());
-
-        // 2 chamadas: 1ª retorna colisão, 2ª libera
-        verify(repository, times(2)).findByCodigoOrcamento(anyString());
+        assertEquals("ORC-H5K2Q9XM", salvo.getCodigoOrcamento());
+        verify(repository, never()).findByCodigoOrcamento(anyString());
         verify(repository, times(1)).save(any(Orcamento.class));
-        verify(usuarioRepository, times(1)).findByEmail(anyString());
     }
 
     @Test
-    @DisplayName("Não deve propagar exceção lançada por observer ao notificar")
-    void naoPropagaExcecaoObserver() {
-        when(repository.findByCodigoOrcamento(anyString())).thenReturn(Optional.empty());
+    @DisplayName("Deve descartar os arquivos recebidos quando o orçamento não é gravado")
+    void deveDescartarArquivosQuandoFalhaAoGravar() {
+        MockMultipartFile img = new MockMultipartFile("img", "ref1.png", "image/png", new byte[]{1, 2});
+        ArquivoRecebido recebido = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        when(gerenciadorService.receberArquivos(List.of(img))).thenReturn(List.of(recebido));
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
+        when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(repository.save(any(Orcamento.class))).thenThrow(new RuntimeException("Banco indisponível"));
+
+        assertThrows(RuntimeException.class, () -> service.postOrcamento(entradaValidaCom(List.of(img))));
+
+        verify(gerenciadorService).descartar(Path.of("tmp1"));
+        verifyNoInteractions(processamentoService);
+    }
+
+    @Test
+    @DisplayName("Deve juntar os uploads em partes finalizados às imagens do formulário")
+    void deveJuntarUploadsEmPartes() {
+        MockMultipartFile img = new MockMultipartFile("img", "ref1.png", "image/png", new byte[]{1, 2});
+        ArquivoRecebido recebido = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        ArquivoRecebido grande = new ArquivoRecebido(Path.of("tmp2"), "grande.jpg", "bb", TipoImagem.JPEG, 20_000_000);
+        CadastroOrcamentoInput entrada = new CadastroOrcamentoInput("João Silva", "joao@email.com",
+                "Tatuagem de dragão", 10.0, "Preto", "Braço direito", List.of(img), List.of("u-1"), null);
+        when(gerenciadorService.receberArquivos(List.of(img))).thenReturn(List.of(recebido));
+        when(uploadEmPartesService.consumir(List.of("u-1"))).thenReturn(List.of(grande));
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
         when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
         when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
-        doThrow(new RuntimeException("Falha e-mail")).when(emailService).updateOrcamento(any(Orcamento.class));
 
-        Orcamento salvo = service.postOrcamento(entradaValidaCom(null));
+        service.postOrcamento(entrada);
 
-        assertNotNull(salvo);
-        verify(emailService, times(1)).updateOrcamento(any(Orcamento.class));
-        verify(usuarioRepository, times(1)).findByEmail(anyString());
+        verify(processamentoService).iniciar(eq("ORC-H5K2Q9XM"), eq(List.of(recebido, grande)), any());
+    }
+
+    @Test
+    @DisplayName("Deve descartar as imagens do formulário quando um upload em partes é recusado")
+    void deveDescartarArquivosQuandoUploadEmPartesRecusado() {
+        MockMultipartFile img = new MockMultipartFile("img", "ref1.png", "image/png", new byte[]{1, 2});
+        ArquivoRecebido recebido = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        CadastroOrcamentoInput entrada = new CadastroOrcamentoInput("João Silva", "joao@email.com",
+                "Tatuagem de dragão", 10.0, "Preto", "Braço direito", List.of(img), List.of("u-1"), null);
+        when(gerenciadorService.receberArquivos(List.of(img))).thenReturn(List.of(recebido));
+        when(uploadEmPartesService.consumir(List.of("u-1")))
+                .thenThrow(new IllegalArgumentException("Upload u-1 não encontrado ou não finalizado."));
+
+        assertThrows(IllegalArgumentException.class, () -> service.postOrcamento(entrada));
+
+        verify(gerenciadorService).descartar(Path.of("tmp1"));
+        verifyNoInteractions(processamentoService, repository);
+    }
+
+    @Test
+    @DisplayName("Deve tratar orçamento anterior ao processamento assíncrono como concluído")
+    void deveConsiderarOrcamentoAntigoConcluido() {
+        Orcamento antigo = new Orcamento("ORC-ABCD1234", "Maria", "maria@email.com", "Flor", 7.5, "Rosa",
+                "Antebraço", List.of(), 1L, StatusOrcamento.PENDENTE);
+        Orcamento novo = new Orcamento("ORC-H5K2Q9XM", "Maria", "maria@email.com", "Flor", 7.5, "Rosa",
+                "Antebraço", List.of(), 1L, StatusOrcamento.PENDENTE);
+        novo.setProcessamento(SituacaoProcessamento.PROCESSANDO_IMAGENS);
+        when(repository.findById("ORC-ABCD1234")).thenReturn(Optional.of(antigo));
+        when(repository.findById("ORC-H5K2Q9XM")).thenReturn(Optional.of(novo));
+
+        assertEquals(SituacaoProcessamento.CONCLUIDO, service.buscarProcessamento("ORC-ABCD1234"));
+        assertEquals(SituacaoProcessamento.PROCESSANDO_IMAGENS, service.buscarProcessamento("ORC-H5K2Q9XM"));
+    }
+
+    @Test
+    @DisplayName("Deve liberar as referências das imagens do orçamento e do agendamento ao excluir")
+    void deveLiberarReferenciasAoExcluir() {
+        Orcamento orcamento = new Orcamento("ORC-H5K2Q9XM", "Maria", "maria@email.com", "Flor", 7.5, "Rosa",
+                "Antebraço", List.of("uploads/ab/cd/abcd.png"), 1L, StatusOrcamento.APROVADO);
+        Agendamento agendamento = new Agendamento();
+        agendamento.setStatus(StatusAgendamento.PENDENTE);
+        agendamento.setImagemReferencia(List.of("uploads/ab/cd/abcd.png"));
+        when(repository.findByCodigoOrcamento("ORC-H5K2Q9XM")).thenReturn(Optional.of(orcamento));
+        when(agendamentoRepository.findByOrcamentoCodigoOrcamento("ORC-H5K2Q9XM")).thenReturn(Optional.of(agendamento));
+
+        service.deletarOrcamento("ORC-H5K2Q9XM");
+
+        verify(referenciaArquivoService, times(2)).remover(List.of("uploads/ab/cd/abcd.png"));
+        verify(agendamentoRepository).delete(agendamento);
+        verify(repository).delete(orcamento);
     }
 
     @Test
@@ -185,12 +305,13 @@ class OrcamentoServiceTest {
                 StatusOrcamento.PENDENTE
         );
 
-        when(repository.findAll()).thenReturn(List.of(o));
+        when(repository.findPaginaApos("", Limit.of(21))).thenReturn(List.of(o));
 
-        List<DetalhesOrcamentoOutput> out = service.findAllOrcamentos();
+        PaginaCursorOutput<DetalhesOrcamentoOutput> out = service.findAllOrcamentos(null, 20);
 
-        assertEquals(1, out.size());
-        DetalhesOrcamentoOutput d = out.getFirst();
+        assertEquals(1, out.itens().size());
+        assertNull(out.proximoCursor());
+        DetalhesOrcamentoOutput d = out.itens().getFirst();
         assertEquals(o.getCodigoOrcamento(), d.codigoOrcamento());
         assertEquals(o.getNome(), d.nome());
         assertEquals(o.getEmail(), d.email());
@@ -204,31 +325,12 @@ class OrcamentoServiceTest {
         assertEquals(o.getStatus(), d.status());
     }
 
-    @Test
-    @DisplayName("Deve enviar para o repositório os URLs retornados pelo gerenciador de arquivos")
-    void devePersistirUrlsGeradas() {
-        MockMultipartFile img = new MockMultipartFile("img", "foto.png", "image/png", new byte[]{1});
-
-        when(gerenciadorService.salvarArquivo(any(MultipartFile.class))).thenReturn("http://cdn/foto.png");
-        when(repository.findByCodigoOrcamento(anyString())).thenReturn(Optional.empty());
-        when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
-
-        service.postOrcamento(entradaValidaCom(List.of(img)));
-
-        ArgumentCaptor<Orcamento> captor = ArgumentCaptor.forClass(Orcamento.class);
-        verify(repository).save(captor.capture());
-
-        Orcamento enviado = captor.getValue();
-        assertEquals(List.of("http://cdn/foto.png"), enviado.getImagemReferencia());
-    }
-
     @Test
     @DisplayName("Teste de validação do setup de mocks")
     void testeValidacaoSetupMocks() {
         // Setup
         when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.empty());
-        when(repository.findByCodigoOrcamento(anyString())).thenReturn(Optional.empty());
+        when(geradorCodigo.proximoCodigo()).thenReturn("ORC-H5K2Q9XM");
         when(repository.save(any(Orcamento.class))).thenAnswer(inv -> inv.getArgument(0));
 
         // Execute
@@ -240,6 +342,7 @@ class OrcamentoServiceTest {
                 "Preto",
                 "Braço",
                 null,
+                null,
                 null
         );
 
@@ -250,4 +353,34 @@ class OrcamentoServiceTest {
         verify(usuarioRepository, times(1)).findByEmail("teste@email.com");
         verify(repository, times(1)).save(any(Orcamento.class));
     }
+
+    @Test
+    @DisplayName("Deve gravar a atualização antes de responder e deixar o e-mail de aprovação para depois do commit")
+    void deveAtualizarEPublicarAprovacao() {
+        Orcamento orcamento = new Orcamento("ORC-H5K2Q9XM", "João", "joao@email.com", "Dragão", 10.0, "Preto",
+                "Braço", new ArrayList<>(), null, StatusOrcamento.PENDENTE);
+        when(repository.findByCodigoOrcamento("ORC-H5K2Q9XM")).thenReturn(Optional.of(orcamento));
+        when(repository.save(orcamento)).thenReturn(orcamento);
+        when(agendamentoRepository.findByOrcamentoCodigoOrcamento("ORC-H5K2Q9XM")).thenReturn(Optional.empty());
+
+        service.atualizarOrcamento("ORC-H5K2Q9XM", Map.of("valor", 350.5, "tempo", "02:30:00"), null);
+
+        InOrder ordem = inOrder(repository);
+        ordem.verify(repository).save(orcamento);
+        ordem.verify(repository).flush();
+        verify(eventPublisher).publishEvent(new OrcamentoAprovadoEvent("joao@email.com", "João", "ORC-H5K2Q9XM",
+                350.5, Time.valueOf("02:30:00")));
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    @DisplayName("Falha no e-mail de aprovação não deve propagar depois do commit")
+    void naoDevePropagarFalhaDoEmailDeAprovacao() {
+        OrcamentoAprovadoEvent evento = new OrcamentoAprovadoEvent("joao@email.com", "João", "ORC-H5K2Q9XM",
+                350.5, Time.valueOf("02:30:00"));
+        doThrow(new RuntimeException("microsserviço fora do ar")).when(emailService)
+                .enviaEmailOrcamentoAprovado("joao@email.com", "João", "ORC-H5K2Q9XM", 350.5, Time.valueOf("02:30:00"));
+
+        assertDoesNotThrow(() -> service.onOrcamentoAprovado(evento));
+    }
 }
@@ -0,0 +1,66 @@
+package hub.orcana.service;
+
+import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
+import hub.orcana.tables.StatusOrcamento;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// O processamento roda numa virtual thread, sem a transação da requisição: o teste também
+// roda sem transação, para que o orçamento entregue aos observers esteja desanexado como em produção
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProcessamentoOrcamentoNotificacaoTest {
+
+    @Autowired
+    private OrcamentoRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void limpar() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Os observers devem receber o orçamento com as imagens de referência carregadas")
+    void deveNotificarComImagensCarregadas() {
+        Orcamento orcamento = new Orcamento("ORC-NOTIF-01", "João", "joao@email.com", "Dragão", 10.0, "Preto",
+                "Braço", new ArrayList<>(List.of("uploads/ab/cd/a.png", "uploads/ef/01/b.png")), null,
+                StatusOrcamento.PENDENTE);
+        orcamento.setProcessamento(SituacaoProcessamento.RECEBIDO);
+        repository.save(orcamento);
+
+        ProcessamentoOrcamentoService service = new ProcessamentoOrcamentoService(repository,
+                mock(GerenciadorDeArquivosService.class), mock(ReferenciaArquivoService.class),
+                mock(VariantesImagemService.class), Executors.newVirtualThreadPerTaskExecutor(),
+                transactionManager, 1);
+        // como o EmailService: lê a quantidade de imagens para montar o e-mail do tatuador
+        AtomicInteger imagensNoEmail = new AtomicInteger(-1);
+
+        service.processar("ORC-NOTIF-01", List.of(),
+                notificado -> imagensNoEmail.set(notificado.getImagemReferencia().size()));
+
+        assertEquals(2, imagensNoEmail.get());
+        assertEquals(SituacaoProcessamento.CONCLUIDO,
+                repository.findByCodigoOrcamento("ORC-NOTIF-01").orElseThrow().getProcessamento());
+    }
+}
@@ -0,0 +1,149 @@
+package hub.orcana.service;
+
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.service.GerenciadorDeArquivosService.TipoImagem;
+import hub.orcana.tables.Orcamento;
+import hub.orcana.tables.SituacaoProcessamento;
+import hub.orcana.tables.StatusOrcamento;
+import hub.orcana.tables.repository.OrcamentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProcessamentoOrcamentoServiceTest {
+
+    private static final String CODIGO = "ORC-H5K2Q9XM";
+
+    @Mock
+    private OrcamentoRepository repository;
+
+    @Mock
+    private GerenciadorDeArquivosService gerenciadorService;
+
+    @Mock
+    private ReferenciaArquivoService referenciaArquivoService;
+
+    @Mock
+    private VariantesImagemService variantesService;
+
+    @Mock
+    private ExecutorService executor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Consumer<Orcamento> notificar;
+
+    private ProcessamentoOrcamentoService service;
+    private Orcamento orcamento;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProcessamentoOrcamentoService(repository, gerenciadorService, referenciaArquivoService, variantesService, executor, transactionManager, 2);
+        orcamento = new Orcamento(CODIGO, "João", "joao@email.com", "Dragão", 10.0, "Preto",
+                "Braço", new ArrayList<>(), null, StatusOrcamento.PENDENTE);
+        orcamento.setProcessamento(SituacaoProcessamento.RECEBIDO);
+    }
+
+    @Test
+    @DisplayName("Deve rodar o processamento no executor, fora da requisição")
+    void deveEnviarParaOExecutor() {
+        service.iniciar(CODIGO, List.of(), notificar);
+
+        verify(executor).execute(any(Runnable.class));
+        verifyNoInteractions(repository, notificar);
+    }
+
+    @Test
+    @DisplayName("Deve gravar as imagens, anexar os caminhos ao orçamento e depois notificar")
+    void deveProcessarImagensENotificar() {
+        ArquivoRecebido imagem1 = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        ArquivoRecebido imagem2 = new ArquivoRecebido(Path.of("tmp2"), "ref2.jpg", "bb", TipoImagem.JPEG, 2);
+        when(gerenciadorService.salvarArquivos(List.of(imagem1, imagem2)))
+                .thenReturn(List.of("uploads/a_ref1.png", "uploads/b_ref2.jpg"));
+        when(repository.findByCodigoOrcamento(CODIGO)).thenReturn(Optional.of(orcamento));
+
+        service.processar(CODIGO, List.of(imagem1, imagem2), notificar);
+
+        assertEquals(List.of("uploads/a_ref1.png", "uploads/b_ref2.jpg"), orcamento.getImagemReferencia());
+        InOrder ordem = inOrder(repository, notificar);
+        ordem.verify(repository).atualizarProcessamento(CODIGO, SituacaoProcessamento.PROCESSANDO_IMAGENS);
+        ordem.verify(repository).save(orcamento);
+        ordem.verify(notificar).accept(orcamento);
+        verify(referenciaArquivoService).registrar(List.of(imagem1, imagem2),
+                List.of("uploads/a_ref1.png", "uploads/b_ref2.jpg"));
+        verify(variantesService).agendar(List.of("uploads/a_ref1.png", "uploads/b_ref2.jpg"));
+        ordem.verify(repository).atualizarProcessamento(CODIGO, SituacaoProcessamento.CONCLUIDO);
+        verify(gerenciadorService).descartar(Path.of("tmp1"));
+        verify(gerenciadorService).descartar(Path.of("tmp2"));
+    }
+
+    @Test
+    @DisplayName("Deve reler o orçamento e tentar de novo quando ele foi editado durante o processamento")
+    void deveTentarDeNovoEmConflitoDeVersao() {
+        ArquivoRecebido imagem = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        AtomicInteger gravacoes = new AtomicInteger();
+        when(gerenciadorService.salvarArquivos(List.of(imagem))).thenReturn(List.of("uploads/a_ref1.png"));
+        when(repository.findByCodigoOrcamento(CODIGO)).thenReturn(Optional.of(orcamento));
+        when(repository.save(orcamento)).thenAnswer(inv -> {
+            if (gravacoes.getAndIncrement() == 0) {
+                orcamento.getImagemReferencia().clear();
+                throw new OptimisticLockingFailureException("versão mudou");
+            }
+            return orcamento;
+        });
+
+        service.processar(CODIGO, List.of(imagem), notificar);
+
+        assertEquals(List.of("uploads/a_ref1.png"), orcamento.getImagemReferencia());
+        verify(repository).atualizarProcessamento(CODIGO, SituacaoProcessamento.CONCLUIDO);
+    }
+
+    @Test
+    @DisplayName("Deve marcar falha e não notificar quando uma imagem não pode ser gravada")
+    void deveMarcarFalhaQuandoImagemFalha() {
+        ArquivoRecebido imagem1 = new ArquivoRecebido(Path.of("tmp1"), "ref1.png", "aa", TipoImagem.PNG, 2);
+        ArquivoRecebido imagem2 = new ArquivoRecebido(Path.of("tmp2"), "ref2.jpg", "bb", TipoImagem.JPEG, 2);
+        when(gerenciadorService.salvarArquivos(List.of(imagem1, imagem2))).thenThrow(new RuntimeException("Disco cheio"));
+
+        service.processar(CODIGO, List.of(imagem1, imagem2), notificar);
+
+        verify(repository).atualizarProcessamento(CODIGO, SituacaoProcessamento.FALHOU);
+        verify(gerenciadorService).descartar(Path.of("tmp1"));
+        verify(gerenciadorService).descartar(Path.of("tmp2"));
+        verify(repository, never()).save(any());
+        verifyNoInteractions(notificar);
+    }
+
+    @Test
+    @DisplayName("Falha ao enviar e-mail não deve impedir a conclusão do processamento")
+    void naoPropagaExcecaoObserver() {
+        when(repository.findByCodigoOrcamento(CODIGO)).thenReturn(Optional.of(orcamento));
+        doThrow(new RuntimeException("Falha e-mail")).when(notificar).accept(orcamento);
+
+        assertDoesNotThrow(() -> service.processar(CODIGO, List.of(), notificar));
+
+        verify(repository).atualizarProcessamento(CODIGO, SituacaoProcessamento.NOTIFICANDO);
+        verify(repository).atualizarProcessamento(CODIGO, SituacaoProcessamento.CONCLUIDO);
+    }
+}
@@ -0,0 +1,60 @@
+package hub.orcana.service;
+
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.service.GerenciadorDeArquivosService.TipoImagem;
+import hub.orcana.tables.repository.ArquivoArmazenadoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenciaArquivoServiceTest {
+
+    @Mock
+    private ArquivoArmazenadoRepository repository;
+
+    @InjectMocks
+    private ReferenciaArquivoService service;
+
+    @Test
+    @DisplayName("Deve registrar os arquivos novos e contar uma referência por ocorrência")
+    void deveRegistrarEContarReferencias() {
+        ArquivoRecebido a = new ArquivoRecebido(Path.of("t1"), "a.png", "aaaa", TipoImagem.PNG, 10);
+        ArquivoRecebido b = new ArquivoRecebido(Path.of("t2"), "b.png", "aaaa", TipoImagem.PNG, 10);
+
+        service.registrar(List.of(a, b), List.of("uploads/aa/aa/aaaa.png", "uploads/aa/aa/aaaa.png"));
+
+        verify(repository, times(2)).registrar(eq("aaaa"), eq("uploads/aa/aa/aaaa.png"), eq("image/png"), eq(10L), any());
+        verify(repository, times(1)).ajustarReferencias(eq("uploads/aa/aa/aaaa.png"), eq(2), any());
+    }
+
+    @Test
+    @DisplayName("Deve descontar as referências agrupando caminhos repetidos")
+    void deveRemoverReferencias() {
+        service.remover(List.of("uploads/x.png", "uploads/y.png", "uploads/x.png"));
+
+        verify(repository).ajustarReferencias(eq("uploads/x.png"), eq(-2), any());
+        verify(repository).ajustarReferencias(eq("uploads/y.png"), eq(-1), any());
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o banco para lista vazia ou nula")
+    void deveIgnorarListaVazia() {
+        service.adicionar(null);
+        service.remover(List.of());
+
+        verify(repository, never()).ajustarReferencias(anyString(), anyInt(), any());
+    }
+}
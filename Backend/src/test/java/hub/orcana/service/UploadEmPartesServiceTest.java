@@ -0,0 +1,364 @@
+package hub.orcana.service;
+
+import hub.orcana.dto.uploads.UploadEmPartesOutput;
+import hub.orcana.exception.DependenciaNaoEncontradaException;
+import hub.orcana.service.GerenciadorDeArquivosService.ArquivoRecebido;
+import hub.orcana.service.GerenciadorDeArquivosService.TipoImagem;
+import hub.orcana.tables.UploadEmPartes;
+import hub.orcana.tables.repository.UploadEmPartesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadEmPartesServiceTest {
+
+    private static final byte[] PNG = png(300);
+    private static final String ORIGEM = "203.0.113.7";
+
+    @Mock
+    private UploadEmPartesRepository repository;
+
+    @Mock
+    private GerenciadorDeArquivosService gerenciadorService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path temporario;
+    private UploadEmPartesService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        temporario = Files.createFile(tempDir.resolve("orcana-partes-1.parte"));
+        service = new UploadEmPartesService(repository, gerenciadorService, 1000, 128, 24, tempDir.toString(), 3, 2);
+    }
+
+    private static byte[] png(int tamanho) {
+        byte[] conteudo = new byte[tamanho];
+        byte[] assinatura = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        System.arraycopy(assinatura, 0, conteudo, 0, assinatura.length);
+        for (int i = assinatura.length; i < tamanho; i++) {
+            conteudo[i] = (byte) i;
+        }
+        return conteudo;
+    }
+
+    private UploadEmPartes novoUpload(long recebido, String sha256) {
+        LocalDateTime agora = LocalDateTime.now();
+        return new UploadEmPartes("u-1", "costas.png", (long) PNG.length, recebido,
+                temporario.toString(), ORIGEM, sha256, sha256 != null ? "PNG" : null, agora, agora);
+    }
+
+    private UploadEmPartes upload(long recebido, String sha256) {
+        UploadEmPartes upload = novoUpload(recebido, sha256);
+        when(repository.findById("u-1")).thenReturn(Optional.of(upload));
+        return upload;
+    }
+
+    @Test
+    @DisplayName("Deve criar o upload com arquivo temporário vazio")
+    void deveIniciarUpload() throws Exception {
+        when(repository.save(any(UploadEmPartes.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        UploadEmPartesOutput saida = service.iniciar("costas.png", 500, ORIGEM);
+
+        ArgumentCaptor<UploadEmPartes> salvo = ArgumentCaptor.forClass(UploadEmPartes.class);
+        verify(repository).save(salvo.capture());
+        Path criado = Path.of(salvo.getValue().getTemporario());
+        try {
+            assertEquals(tempDir, criado.getParent());
+            assertTrue(criado.getFileName().toString().startsWith("orcana-partes-"));
+            assertEquals(0, Files.size(criado));
+            assertEquals(salvo.getValue().getId(), saida.id());
+            assertEquals(500, saida.tamanho());
+            assertEquals(0, saida.recebido());
+            assertFalse(saida.finalizado());
+        } finally {
+            Files.deleteIfExists(criado);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve recusar upload acima do tamanho máximo")
+    void deveRecusarUploadGrandeDemais() {
+        assertThrows(IllegalArgumentException.class, () -> service.iniciar("enorme.png", 1001, ORIGEM));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Deve recusar com 429 quando a origem já tem o limite de uploads em aberto")
+    void deveRecusarUploadAcimaDoLimiteDaOrigem() throws IOException {
+        when(repository.countByOrigem(ORIGEM)).thenReturn(2L);
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> service.iniciar("costas.png", 500, ORIGEM));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, erro.getStatusCode());
+        verify(repository, never()).save(any());
+        try (var arquivos = Files.list(tempDir)) {
+            assertEquals(List.of(temporario), arquivos.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve recusar com 503 quando o servidor já tem o limite de uploads em aberto")
+    void deveRecusarUploadAcimaDoLimiteGlobal() throws IOException {
+        when(repository.countByOrigem(ORIGEM)).thenReturn(0L);
+        when(repository.count()).thenReturn(3L);
+
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> service.iniciar("costas.png", 500, ORIGEM));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, erro.getStatusCode());
+        verify(repository, never()).save(any());
+        try (var arquivos = Files.list(tempDir)) {
+            assertEquals(List.of(temporario), arquivos.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve gravar cada parte na sua posição e avançar o recebido")
+    void deveGravarPartesNaPosicao() throws Exception {
+        when(repository.findById("u-1")).thenReturn(Optional.of(novoUpload(0, null)),
+                Optional.of(novoUpload(100, null)));
+
+        service.receberParte("u-1", 0, 99, (long) PNG.length, new ByteArrayInputStream(PNG, 0, 100));
+        service.receberParte("u-1", 100, 227, null, new ByteArrayInputStream(PNG, 100, 128));
+
+        verify(repository).avancar(eq("u-1"), eq(0L), eq(100L), any());
+        verify(repository).avancar(eq("u-1"), eq(100L), eq(228L), any());
+        assertArrayEquals(Arrays.copyOf(PNG, 228), Files.readAllBytes(temporario));
+    }
+
+    @Test
+    @DisplayName("Deve aceitar parte que repete bytes já recebidos")
+    void deveAceitarParteRepetida() throws Exception {
+        Files.write(temporario, Arrays.copyOf(PNG, 100));
+        upload(100, null);
+
+        service.receberParte("u-1", 50, 149, null, new ByteArrayInputStream(PNG, 50, 100));
+
+        verify(repository).avancar(eq("u-1"), eq(50L), eq(150L), any());
+        assertArrayEquals(Arrays.copyOf(PNG, 150), Files.readAllBytes(temporario));
+    }
+
+    @Test
+    @DisplayName("Deve recusar parte que deixaria buraco no arquivo")
+    void deveRecusarParteForaDeOrdem() {
+        upload(100, null);
+
+        assertThrows(IllegalStateException.class, () ->
+                service.receberParte("u-1", 150, 199, null, new ByteArrayInputStream(new byte[50])));
+        verify(repository, never()).avancar(anyString(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Deve recusar parte maior que o limite, fora do arquivo ou com total diferente")
+    void deveRecusarIntervalosInvalidos() {
+        upload(0, null);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                service.receberParte("u-1", 0, 199, null, new ByteArrayInputStream(new byte[200])));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.receberParte("u-1", 250, 300, null, new ByteArrayInputStream(new byte[51])));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.receberParte("u-1", 0, 9, 999L, new ByteArrayInputStream(new byte[10])));
+    }
+
+    @Test
+    @DisplayName("Deve aproveitar os bytes de uma parte interrompida")
+    void deveAproveitarParteIncompleta() throws Exception {
+        upload(0, null);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                service.receberParte("u-1", 0, 99, null, new ByteArrayInputStream(PNG, 0, 40)));
+
+        verify(repository).avancar(eq("u-1"), eq(0L), eq(40L), any());
+        assertArrayEquals(Arrays.copyOf(PNG, 40), Files.readAllBytes(temporario));
+    }
+
+    @Test
+    @DisplayName("Deve aproveitar os bytes gravados antes de a conexão cair")
+    void deveAproveitarBytesQuandoConexaoCai() throws Exception {
+        upload(0, null);
+        InputStream corpo = new InputStream() {
+            private int lidos;
+
+            @Override
+            public int read() throws IOException {
+                if (lidos == 30) {
+                    throw new IOException("Connection reset");
+                }
+                return PNG[lidos++] & 0xFF;
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> service.receberParte("u-1", 0, 99, null, corpo));
+
+        verify(repository).avancar(eq("u-1"), eq(0L), eq(30L), any());
+        assertArrayEquals(Arrays.copyOf(PNG, 30), Files.readAllBytes(temporario));
+    }
+
+    @Test
+    @DisplayName("Deve recusar corpo maior que o Content-Range")
+    void deveRecusarCorpoExcedente() {
+        upload(0, null);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                service.receberParte("u-1", 0, 9, null, new ByteArrayInputStream(PNG, 0, 20)));
+        verify(repository, never()).avancar(anyString(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Deve informar upload perdido quando o temporário não existe mais")
+    void deveRecusarQuandoTemporarioSumiu() throws Exception {
+        Files.delete(temporario);
+        upload(0, null);
+
+        assertThrows(IllegalStateException.class, () ->
+                service.receberParte("u-1", 0, 9, null, new ByteArrayInputStream(new byte[10])));
+    }
+
+    @Test
+    @DisplayName("Deve lançar 404 para upload inexistente")
+    void deveLancarQuandoUploadNaoExiste() {
+        when(repository.findById("x")).thenReturn(Optional.empty());
+
+        assertThrows(DependenciaNaoEncontradaException.class, () -> service.buscar("x"));
+    }
+
+    @Test
+    @DisplayName("Deve finalizar conferindo o formato e calculando o SHA-256")
+    void deveFinalizar() throws Exception {
+        Files.write(temporario, PNG);
+        upload(PNG.length, null);
+
+        service.finalizar("u-1");
+
+        String esperado = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(PNG));
+        verify(repository).finalizar(eq("u-1"), eq(esperado), eq("PNG"), any());
+    }
+
+    @Test
+    @DisplayName("Deve finalizar de novo sem recalcular")
+    void deveFinalizarDeFormaIdempotente() {
+        upload(PNG.length, "ab".repeat(32));
+
+        assertTrue(service.finalizar("u-1").finalizado());
+        verify(repository, never()).finalizar(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Não deve finalizar upload incompleto")
+    void naoDeveFinalizarIncompleto() {
+        upload(100, null);
+
+        assertThrows(IllegalStateException.class, () -> service.finalizar("u-1"));
+    }
+
+    @Test
+    @DisplayName("Deve descartar upload que não é imagem ao finalizar")
+    void deveDescartarConteudoInvalido() throws Exception {
+        Files.write(temporario, new byte[PNG.length]);
+        upload(PNG.length, null);
+
+        assertThrows(IllegalArgumentException.class, () -> service.finalizar("u-1"));
+
+        verify(repository).deleteById("u-1");
+        verify(gerenciadorService).descartar(temporario);
+        verify(repository, never()).finalizar(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Deve entregar uploads finalizados uma única vez")
+    void deveConsumirUploadsFinalizados() throws Exception {
+        UploadEmPartes upload = novoUpload(PNG.length, "ab".repeat(32));
+        when(repository.findAllById(List.of("u-1"))).thenReturn(List.of(upload));
+        when(repository.consumir("u-1")).thenReturn(1);
+        Files.setLastModifiedTime(temporario, FileTime.fromMillis(0));
+
+        List<ArquivoRecebido> recebidos = service.consumir(List.of("u-1", "u-1"));
+
+        assertEquals(List.of(new ArquivoRecebido(temporario, "costas.png", "ab".repeat(32), TipoImagem.PNG,
+                PNG.length)), recebidos);
+        // sem a linha do upload, a data nova protege o arquivo da limpeza durante o processamento
+        assertTrue(Files.getLastModifiedTime(temporario).compareTo(FileTime.fromMillis(0)) > 0);
+    }
+
+    @Test
+    @DisplayName("Deve recusar upload não finalizado ou já usado em outro orçamento")
+    void deveRecusarUploadNaoDisponivel() {
+        UploadEmPartes pendente = novoUpload(100, null);
+        when(repository.findAllById(List.of("u-1"))).thenReturn(List.of(pendente));
+        assertThrows(IllegalArgumentException.class, () -> service.consumir(List.of("u-1")));
+
+        UploadEmPartes finalizado = new UploadEmPartes("u-2", "braco.png", 10L, 10L, temporario.toString(),
+                ORIGEM, "cd".repeat(32), "PNG", LocalDateTime.now(), LocalDateTime.now());
+        when(repository.findAllById(List.of("u-2"))).thenReturn(List.of(finalizado));
+        when(repository.consumir("u-2")).thenReturn(0);
+        assertThrows(IllegalArgumentException.class, () -> service.consumir(List.of("u-2")));
+        verify(gerenciadorService, never()).descartar(any());
+    }
+
+    @Test
+    @DisplayName("Deve remover uploads parados além da validade")
+    void deveRemoverExpirados() {
+        UploadEmPartes antigo = new UploadEmPartes("u-1", "costas.png", 300L, 10L, temporario.toString(),
+                ORIGEM, null, null, LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(2));
+        when(repository.findByAtualizadoEmBefore(any())).thenReturn(List.of(antigo));
+        when(repository.removerExpirado(eq("u-1"), any())).thenReturn(1);
+
+        service.removerExpirados();
+
+        verify(gerenciadorService).descartar(temporario);
+    }
+
+    @Test
+    @DisplayName("Deve remover temporários antigos sem upload registrado")
+    void deveRemoverTemporariosOrfaos() throws Exception {
+        FileTime antiga = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+        Path orfao = Files.setLastModifiedTime(Files.createFile(tempDir.resolve("orcana-partes-2.parte")), antiga);
+        Path registrado = Files.setLastModifiedTime(Files.createFile(tempDir.resolve("orcana-partes-3.parte")), antiga);
+        Path outro = Files.setLastModifiedTime(Files.createFile(tempDir.resolve("outro.tmp")), antiga);
+        when(repository.existsByTemporario(orfao.toString())).thenReturn(false);
+        when(repository.existsByTemporario(registrado.toString())).thenReturn(true);
+
+        service.removerExpirados();
+
+        verify(gerenciadorService).descartar(orfao);
+        verify(gerenciadorService, never()).descartar(registrado);
+        verify(gerenciadorService, never()).descartar(outro);
+        // o temporário do setUp é recente: nem chega a ser consultado
+        verify(repository, never()).existsByTemporario(temporario.toString());
+    }
+}
@@ -1,6 +1,7 @@
 package hub.orcana.service;
 
 import hub.orcana.config.GerenciadorTokenJwt;
+import hub.orcana.dto.paginacao.PaginaCursorOutput;
 import hub.orcana.dto.usuario.*;
 import hub.orcana.exception.*;
 import hub.orcana.tables.Orcamento;
@@ -16,6 +17,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -231,21 +233,37 @@ class UsuarioServiceTest {
         Usuario u2 = new Usuario();
         u2.setId(2L);
 
-        when(repository.findAll()).thenReturn(List.of(u1, u2));
+        when(repository.findPaginaApos(0L, Limit.of(2))).thenReturn(List.of(u1, u2));
 
-        List<ListarUsuarios> result = service.listar();
+        PaginaCursorOutput<ListarUsuarios> result = service.listar(null, 1);
 
-        assertEquals(2, result.size());
+        assertEquals(1, result.itens().size());
+        assertNotNull(result.proximoCursor());
+
+        when(repository.findPaginaApos(1L, Limit.of(2))).thenReturn(List.of(u2));
+
+        PaginaCursorOutput<ListarUsuarios> proxima = service.listar(result.proximoCursor(), 1);
+
+        assertEquals(2L, proxima.itens().getFirst().id());
+        assertNull(proxima.proximoCursor());
     }
 
     @Test
     @DisplayName("listar - vazio")
     void listar_vazio() {
-        when(repository.findAll()).thenReturn(List.of());
+        when(repository.findPaginaApos(0L, Limit.of(21))).thenReturn(List.of());
 
-        List<ListarUsuarios> result = service.listar();
+        PaginaCursorOutput<ListarUsuarios> result = service.listar(null, 20);
 
-        assertTrue(result.isEmpty());
+        assertTrue(result.itens().isEmpty());
+        assertNull(result.proximoCursor());
+    }
+
+    @Test
+    @DisplayName("listar - cursor inválido")
+    void listar_cursorInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> service.listar("!!", 20));
+        verify(repository, never()).findPaginaApos(any(), any());
     }
 
     // -------------------------------------------------------
@@ -678,10 +696,10 @@ class UsuarioServiceTest {
         u2.setNome("Usuario 2");
         u2.setEmail("user2@test.com");
 
-        when(repository.findAll()).thenReturn(List.of(u1, u2));
+        when(repository.findPaginaApos(0L, Limit.of(21))).thenReturn(List.of(u1, u2));
 
         // Act
-        List<ListarUsuarios> result = service.listar();
+        List<ListarUsuarios> result = service.listar(null, 20).itens();
 
         // Assert
         assertEquals(2, result.size());
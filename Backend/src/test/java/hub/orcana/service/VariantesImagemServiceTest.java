@@ -0,0 +1,169 @@
+package hub.orcana.service;
+
+import hub.orcana.service.VariantesImagemService.TamanhoVariante;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantesImagemServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Runnable> fila = new ArrayList<>();
+    private VariantesImagemService service;
+
+    @BeforeEach
+    void setUp() {
+        // executor que só guarda as tarefas: o teste decide quando rodar
+        service = new VariantesImagemService(fila::add, 50);
+    }
+
+    private Path imagem(String nome, int largura, int altura, String formato) throws Exception {
+        BufferedImage imagem = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        var g = imagem.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, largura / 2, altura);
+        g.dispose();
+        Path arquivo = tempDir.resolve(nome);
+        ImageIO.write(imagem, formato, arquivo.toFile());
+        return arquivo;
+    }
+
+    @Test
+    @DisplayName("Deve gerar miniatura e versão média em JPEG com as larguras fixas")
+    void deveGerarVariantes() throws Exception {
+        Path original = imagem("foto.png", 2400, 1200, "png");
+
+        service.gerar(original);
+
+        BufferedImage thumb = ImageIO.read(VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.THUMB).toFile());
+        BufferedImage medium = ImageIO.read(VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.MEDIUM).toFile());
+        assertEquals(240, thumb.getWidth());
+        assertEquals(120, thumb.getHeight());
+        assertEquals(960, medium.getWidth());
+        assertEquals(480, medium.getHeight());
+        assertEquals("foto.png.thumb.jpg",
+                VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.THUMB).getFileName().toString());
+        try (var arquivos = Files.list(tempDir)) {
+            assertTrue(arquivos.noneMatch(arquivo -> arquivo.getFileName().toString().endsWith(".parcial")));
+        }
+    }
+
+    @Test
+    @DisplayName("Não deve ampliar imagens menores que a variante")
+    void naoDeveAmpliar() throws Exception {
+        Path original = imagem("pequena.png", 100, 50, "png");
+
+        service.gerar(original);
+
+        BufferedImage medium = ImageIO.read(VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.MEDIUM).toFile());
+        assertEquals(100, medium.getWidth());
+        assertEquals(50, medium.getHeight());
+    }
+
+    @Test
+    @DisplayName("Não deve decodificar imagem acima do limite de megapixels")
+    void deveRecusarImagemGrandeDemais() throws Exception {
+        service = new VariantesImagemService(fila::add, 0);
+        Path original = imagem("grande.png", 400, 400, "png");
+
+        service.gerar(original);
+
+        assertFalse(Files.exists(VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.THUMB)));
+    }
+
+    @Test
+    @DisplayName("Deve ler a orientação do EXIF e aplicar a rotação nos pixels")
+    void deveAplicarOrientacaoDoExif() throws Exception {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+        byte[] semExif = jpeg.toByteArray();
+        // APP1 "Exif\0\0" + TIFF big-endian com uma entrada: Orientation (0x0112) = 6 (90° horário)
+        byte[] app1 = {
+                (byte) 0xFF, (byte) 0xE1, 0x00, 0x22,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+                0x00, 0x01,
+                0x01, 0x12, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x06, 0x00, 0x00,
+                0x00, 0x00, 0x00, 0x00
+        };
+        ByteArrayOutputStream comExif = new ByteArrayOutputStream();
+        comExif.write(semExif, 0, 2);
+        comExif.write(app1);
+        comExif.write(semExif, 2, semExif.length - 2);
+        Path original = Files.write(tempDir.resolve("celular.jpg"), comExif.toByteArray());
+
+        assertEquals(6, VariantesImagemService.orientacaoExif(original));
+        service.gerar(original);
+
+        BufferedImage thumb = ImageIO.read(VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.THUMB).toFile());
+        assertEquals(20, thumb.getWidth());
+        assertEquals(40, thumb.getHeight());
+    }
+
+    @Test
+    @DisplayName("Arquivo sem EXIF ou que não é JPEG tem orientação normal")
+    void deveAssumirOrientacaoNormal() throws Exception {
+        assertEquals(1, VariantesImagemService.orientacaoExif(imagem("a.png", 10, 10, "png")));
+        assertEquals(1, VariantesImagemService.orientacaoExif(imagem("b.jpg", 10, 10, "jpg")));
+    }
+
+    @Test
+    @DisplayName("Rotação de 90° deve trocar largura e altura e mover os pixels")
+    void deveRotacionarPixels() {
+        BufferedImage origem = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+        origem.setRGB(0, 0, Color.RED.getRGB());
+        origem.setRGB(1, 0, Color.BLUE.getRGB());
+
+        BufferedImage girada = VariantesImagemService.orientar(origem, 6);
+
+        assertEquals(1, girada.getWidth());
+        assertEquals(2, girada.getHeight());
+        assertEquals(Color.RED.getRGB(), girada.getRGB(0, 0));
+        assertEquals(Color.BLUE.getRGB(), girada.getRGB(0, 1));
+    }
+
+    @Test
+    @DisplayName("Deve enfileirar cada original uma vez enquanto a geração não termina")
+    void deveEnfileirarUmaVez() throws Exception {
+        Path original = imagem("fila.png", 300, 300, "png");
+
+        service.agendar(List.of(original.toString(), original.toString()));
+        service.agendar(original);
+        assertEquals(1, fila.size());
+
+        fila.remove(0).run();
+        assertTrue(Files.exists(VariantesImagemService.caminhoDaVariante(original, TamanhoVariante.THUMB)));
+
+        service.agendar(original);
+        assertEquals(1, fila.size());
+    }
+
+    @Test
+    @DisplayName("Fila cheia não deve falhar nem impedir um novo pedido depois")
+    void deveIgnorarFilaCheia() throws Exception {
+        Path original = imagem("cheia.png", 300, 300, "png");
+        Executor cheio = tarefa -> {
+            throw new RejectedExecutionException("fila cheia");
+        };
+        service = new VariantesImagemService(cheio, 50);
+
+        assertDoesNotThrow(() -> service.agendar(original));
+        assertDoesNotThrow(() -> service.agendar(original));
+    }
+}